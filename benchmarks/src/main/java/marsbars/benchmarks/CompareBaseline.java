@@ -0,0 +1,223 @@
+/***
+
+Compare Baseline checks a new set of benchmark results against the checked-in baseline. Both files are the CSV that
+JMH writes with "-rf csv". A benchmark only counts as a regression when its whole error interval is worse than the
+whole error interval of the baseline, so noise between runs is not reported as a slowdown. A benchmark measured in
+a different unit than the baseline cannot be compared and is reported too. On either the program exits with an
+error so a build script can stop on it.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars.benchmarks;
+
+import java.io.*;
+import java.util.*;
+
+/***
+Command line tool that compares JMH results to a baseline and reports regressions.
+*/
+public class CompareBaseline {
+
+	/***
+	Share of the baseline score the error intervals must be apart by before it counts as a regression when no share
+	is given
+	*/
+	public static final double DEFAULT_TOLERANCE = 0;
+
+	/***
+	One benchmark result: the score, the error either side of it, the unit, and whether higher is better
+	*/
+	public static class Result {
+
+		private double score;
+		private double error;
+		private String unit;
+		private boolean higherIsBetter;
+
+		/***
+		Constructor that takes one line of a result file
+		@param theScore The score
+		@param theError The error either side of the score at JMH's confidence level, or 0 if JMH could not work it out
+		@param theUnit The unit of the score, such as "ns/op"
+		@param higher Whether a higher score is better
+		*/
+		public Result(double theScore, double theError, String theUnit, boolean higher) {
+			this.score = theScore;
+			this.error = theError;
+			this.unit = theUnit;
+			this.higherIsBetter = higher;
+		}
+
+		/***
+		Returns the score
+		@return score The score
+		*/
+		public double getScore() {
+			return this.score;
+		}
+
+		/***
+		Returns the error either side of the score
+		@return error The error
+		*/
+		public double getError() {
+			return this.error;
+		}
+
+		/***
+		Returns the unit of the score
+		@return unit The unit
+		*/
+		public String getUnit() {
+			return this.unit;
+		}
+
+		/***
+		Returns whether a higher score is better
+		@return higherIsBetter True for throughput, false for times
+		*/
+		public boolean isHigherBetter() {
+			return this.higherIsBetter;
+		}
+
+		/***
+		Returns the worst score inside the error interval
+		@return The score
+		*/
+		public double worst() {
+			return this.higherIsBetter ? this.score - this.error : this.score + this.error;
+		}
+
+		/***
+		Returns the best score inside the error interval
+		@return The score
+		*/
+		public double best() {
+			return this.higherIsBetter ? this.score + this.error : this.score - this.error;
+		}
+
+	}
+
+	/***
+	Reads a JMH CSV result file
+	@param theFile The result file
+	@return Every result, keyed by benchmark name and parameters
+	@throws IOException Throws an error if the file cannot be read or is not a JMH CSV result file
+	*/
+	public static Map<String, Result> load(File theFile) throws IOException {
+
+		Map<String, Result> results = new LinkedHashMap<String, Result>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(theFile))) {
+
+			String header = reader.readLine();
+			if (header == null || !header.startsWith("\"Benchmark\"")) {
+				throw new IOException(theFile + " is not a JMH CSV result file");
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.replace("\"", "").split(",", -1);
+				if (fields.length < 7) {
+					continue;
+				}
+				StringBuilder key = new StringBuilder(fields[0]);
+				for (int f = 7; f < fields.length; f++) {
+					if (!fields[f].isEmpty()) {
+						key.append(":").append(fields[f]);
+					}
+				}
+				try {
+					double score = Double.parseDouble(fields[4]);
+					// JMH writes NaN when a benchmark has too few samples to work out an error
+					double error = Double.parseDouble(fields[5]);
+					if (Double.isNaN(error)) {
+						error = 0;
+					}
+					results.put(key.toString(), new Result(score, error, fields[6], fields[1].equals("thrpt")));
+				} catch (NumberFormatException e) {
+					throw new IOException("Incorrect score for " + key + " in " + theFile);
+				}
+			}
+		}
+		return results;
+	}
+
+	/***
+	Compares results to the baseline and prints the change of every benchmark in both. A benchmark regressed when the
+	best score in its error interval is worse than the worst score in the baseline's error interval by more than the
+	allowed share of the baseline score. A benchmark measured in a different unit than the baseline also counts,
+	since the two scores cannot be compared.
+	@param baseline Baseline results, from load()
+	@param current New results, from load()
+	@param tolerance Share of the baseline score the error intervals must be apart by before it counts as a regression
+	@return Number of regressions
+	*/
+	public static int compare(Map<String, Result> baseline, Map<String, Result> current, double tolerance) {
+
+		int regressions = 0;
+		for (Map.Entry<String, Result> entry : current.entrySet()) {
+			Result before = baseline.get(entry.getKey());
+			Result after = entry.getValue();
+			if (before == null) {
+				System.out.println(String.format("%-70s new", entry.getKey()));
+				continue;
+			}
+			if (!before.getUnit().equals(after.getUnit()) || before.isHigherBetter() != after.isHigherBetter()) {
+				regressions++;
+				System.out.println(String.format("%-70s measured in %s, baseline in %s  UNIT MISMATCH", entry.getKey(), after.getUnit(), before.getUnit()));
+				continue;
+			}
+			// Positive when the benchmark got worse, whichever way its score is read
+			double change = (before.isHigherBetter() ? before.getScore() - after.getScore() : after.getScore() - before.getScore()) / before.getScore();
+			double gap = (before.isHigherBetter() ? before.worst() - after.best() : after.best() - before.worst()) / before.getScore();
+			boolean regressed = gap > tolerance;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.println(String.format("%-60s %10.3f +/- %-9.3f -> %10.3f +/- %-9.3f %-6s %+7.1f%%%s", entry.getKey(),
+					before.getScore(), before.getError(), after.getScore(), after.getError(), after.getUnit(), -change * 100 + 0.0, regressed ? "  REGRESSION" : ""));
+		}
+		return regressions;
+	}
+
+	/***
+	Compares a result file to the baseline.
+	Usage: java marsbars.benchmarks.CompareBaseline baseline.csv results.csv [tolerance]
+	@param args Command Line arguments
+	*/
+	public static void main(String[] args) {
+
+		try {
+
+			if (args.length < 2) {
+				System.out.println("Usage: java marsbars.benchmarks.CompareBaseline baseline.csv results.csv [tolerance]");
+				System.exit(1);
+			}
+
+			double tolerance = DEFAULT_TOLERANCE;
+			if (args.length > 2) {
+				tolerance = Double.parseDouble(args[2]);
+			}
+
+			int regressions = compare(load(new File(args[0])), load(new File(args[1])), tolerance);
+			if (regressions > 0) {
+				System.out.println(regressions + " benchmarks got worse than the baseline's error interval or changed unit");
+				System.exit(1);
+			}
+			System.out.println("No benchmark got worse than the baseline's error interval");
+
+		} catch (NumberFormatException e) {
+			System.out.println("Please enter a valid tolerance");
+			System.exit(1);
+		} catch (Exception e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
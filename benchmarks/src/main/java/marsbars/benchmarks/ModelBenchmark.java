@@ -0,0 +1,80 @@
+/***
+
+Model Benchmark measures the per tick work of the models: one temperature sensor update, one round of external
+effects, and a full tick of all four subsystems as the headless engine runs it.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import marsbars.*;
+
+/***
+Benchmarks of the model updates that run on every tick.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class ModelBenchmark {
+
+	private SimulationEngine engine;
+	private EnvironmentModel envModel;
+	private TemperatureModel tempModel;
+
+	/***
+	Sets up a greenhouse whose devices keep switching, so every branch of the sensors is taken
+	@throws Exception Throws an error if a value is rejected by a model
+	*/
+	@Setup
+	public void setUp() throws Exception {
+		SimulationConfig config = new SimulationConfig();
+		config.set("extTempRate", -0.5);
+		config.set("extHumidRate", -0.25);
+		config.set("extMoistRate", -0.75);
+		this.engine = SimulationEngine.create(config);
+		this.envModel = this.engine.getEnvironmentModel();
+		this.tempModel = this.engine.getTemperatureModel();
+	}
+
+	/***
+	One run of the temperature sensor, switching the furnace and air conditioner
+	@return The state the sensor published
+	*/
+	@Benchmark
+	public TemperatureModel.State temperatureSensor() {
+		this.tempModel.sensor();
+		return this.tempModel.getState();
+	}
+
+	/***
+	One round of external effects on the environment model
+	@return The state the environment model published
+	*/
+	@Benchmark
+	public EnvironmentModel.State environmentProcessEnv() {
+		this.envModel.processEnv();
+		return this.envModel.getState();
+	}
+
+	/***
+	One full tick: the external effects followed by the temperature, humidity, and soil moisture sensors
+	@return The number of ticks run so far
+	*/
+	@Benchmark
+	public long fullTick() {
+		this.engine.tick();
+		return this.engine.getTickCount();
+	}
+
+}
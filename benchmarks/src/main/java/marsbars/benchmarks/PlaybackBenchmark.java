@@ -0,0 +1,108 @@
+/***
+
+Playback Benchmark measures reading a text save file of E, T, H, and M lines back into tick records, with the
+original split and parse of every line and with the byte buffer parser that playback uses now.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars.benchmarks;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import marsbars.*;
+
+/***
+Benchmarks of parsing a text save file. Each invocation parses the whole file.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class PlaybackBenchmark {
+
+	/***
+	Number of recorded ticks in the file. Every tick has a line for each of the four subsystems.
+	*/
+	@Param({"1000"})
+	public int ticks;
+
+	private byte[] file;
+	private TickRecord record = new TickRecord();
+
+	/***
+	Records a running greenhouse into an in-memory text save file
+	@throws Exception Throws an error if a value is rejected by a model
+	*/
+	@Setup
+	public void setUp() throws Exception {
+		SimulationConfig config = new SimulationConfig();
+		config.set("extTempRate", -0.37);
+		config.set("extHumidRate", -0.21);
+		config.set("extMoistRate", -0.53);
+		SimulationEngine engine = SimulationEngine.create(config);
+
+		StringBuilder text = new StringBuilder();
+		TickRecord tick = new TickRecord();
+		for (int i = 0; i < this.ticks; i++) {
+			engine.tick();
+			tick.setEnvironment(engine.getEnvironmentModel().getState(), 1000);
+			tick.setTemperature(engine.getTemperatureModel().getState(), 1000);
+			tick.setHumidity(engine.getHumidityModel().getState(), 1000);
+			tick.setMoisture(engine.getMoistureModel().getState(), 1000);
+			for (int s = 0; s < RecordingFormat.PREFIXES.length; s++) {
+				text.append(TextRecordSink.line(tick, s));
+			}
+		}
+		this.file = text.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/***
+	The original playback parsing: read each line as a string, split it at the commas, and parse every field
+	@return The number of lines parsed
+	@throws IOException Throws an error if a line cannot be read
+	*/
+	@Benchmark
+	public int splitAndParse() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.file), StandardCharsets.US_ASCII));
+		int lines = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] dataArray = line.split(",");
+			int subsystem = new String(RecordingFormat.PREFIXES).indexOf(dataArray[0].charAt(0));
+			int columns = RecordingFormat.COLUMNS[subsystem].length;
+			for (int c = 0; c < columns - 1; c++) {
+				this.record.set(RecordingFormat.OFFSETS[subsystem] + c, Double.parseDouble(dataArray[c + 1]));
+			}
+			this.record.set(RecordingFormat.OFFSETS[subsystem] + columns - 1, 1000 * Integer.parseInt(dataArray[columns]));
+			lines++;
+		}
+		return lines;
+	}
+
+	/***
+	The byte buffer parser used by playback
+	@return The number of lines parsed
+	@throws IOException Throws an error if a line holds incorrect data
+	*/
+	@Benchmark
+	public int textRecordParser() throws IOException {
+		TextRecordParser parser = new TextRecordParser(Channels.newChannel(new ByteArrayInputStream(this.file)));
+		int lines = 0;
+		while (parser.next(this.record) >= 0) {
+			lines++;
+		}
+		return lines;
+	}
+
+}
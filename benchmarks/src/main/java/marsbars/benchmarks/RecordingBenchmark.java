@@ -0,0 +1,144 @@
+/***
+
+Recording Benchmark measures what it costs the simulation to record one tick of all four subsystems: the original
+save file lines built from each model's toString(), the text lines built from a tick record, the binary record,
+and handing the tick record to the asynchronous recorder.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars.benchmarks;
+
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import marsbars.*;
+
+/***
+Benchmarks of recording one tick of every subsystem.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class RecordingBenchmark {
+
+	// Refresh rate written with every line, in milliseconds
+	private static final int REFRESH_RATE = 1000;
+
+	private SimulationEngine engine;
+	private TickRecord record = new TickRecord();
+	private CharArrayWriter text = new CharArrayWriter(4096);
+	private ByteBuffer binary = ByteBuffer.allocate(RecordingFormat.MAX_RECORD_LENGTH * 1024).order(ByteOrder.LITTLE_ENDIAN);
+	private TickRecord previous = new TickRecord();
+	private long recordsWritten = 0;
+	private AsyncRecorder recorder;
+
+	/***
+	Sets up a running greenhouse and a recorder whose writer thread throws the records away
+	@throws Exception Throws an error if a value is rejected by a model
+	*/
+	@Setup
+	public void setUp() throws Exception {
+		this.engine = SimulationEngine.create(new SimulationConfig());
+		this.engine.run(100);
+		this.recorder = new AsyncRecorder(new RecordSink() {
+			public void write(TickRecord theRecord) {
+
+			}
+			public void flush() {
+
+			}
+			public void close() {
+
+			}
+			public long getBytesWritten() {
+				return 0;
+			}
+		}, AsyncRecorder.DEFAULT_CAPACITY, AsyncRecorder.DEFAULT_FLUSH_INTERVAL, AsyncRecorder.DROP);
+	}
+
+	/***
+	Stops the recorder's writer thread
+	@throws IOException Throws an error if the recorder fails to close
+	*/
+	@TearDown
+	public void tearDown() throws IOException {
+		this.recorder.close();
+	}
+
+	/***
+	The original recording: one line per subsystem from the model's toString() followed by the refresh rate
+	@return The number of characters written
+	*/
+	@Benchmark
+	public int modelToString() {
+		this.text.reset();
+		this.text.append(this.engine.getEnvironmentModel().toString()).append(String.valueOf(REFRESH_RATE / 1000)).append('\n');
+		this.text.append(this.engine.getTemperatureModel().toString()).append(String.valueOf(REFRESH_RATE / 1000)).append('\n');
+		this.text.append(this.engine.getHumidityModel().toString()).append(String.valueOf(REFRESH_RATE / 1000)).append('\n');
+		this.text.append(this.engine.getMoistureModel().toString()).append(String.valueOf(REFRESH_RATE / 1000)).append('\n');
+		return this.text.size();
+	}
+
+	/***
+	Captures the tick record and builds the text save file lines from it
+	@return The number of characters written
+	*/
+	@Benchmark
+	public int tickRecordText() {
+		this.text.reset();
+		this.capture();
+		for (int s = 0; s < RecordingFormat.PREFIXES.length; s++) {
+			this.text.append(TextRecordSink.line(this.record, s));
+		}
+		return this.text.size();
+	}
+
+	/***
+	Captures the tick record and encodes it as a binary record, with a key record every KEY_INTERVAL records
+	@return The position in the binary buffer
+	*/
+	@Benchmark
+	public int tickRecordBinary() {
+		if (this.binary.remaining() < RecordingFormat.MAX_RECORD_LENGTH) {
+			this.binary.clear();
+		}
+		this.capture();
+		RecordingFormat.encode(this.record, this.previous, this.recordsWritten++ % RecordingFormat.KEY_INTERVAL == 0, this.binary);
+		return this.binary.position();
+	}
+
+	/***
+	Captures the tick record and hands it to the asynchronous recorder, as the live simulation does
+	@return The number of records the recorder dropped
+	@throws IOException Throws an error if the recorder's writer failed
+	*/
+	@Benchmark
+	public long asyncRecorder() throws IOException {
+		this.capture();
+		this.recorder.write(this.record);
+		return this.recorder.getDropped();
+	}
+
+	/***
+	Captures the state of every subsystem into the tick record
+	*/
+	private void capture() {
+		this.record.setTick(this.engine.getTickCount());
+		this.record.setPhases((1 << RecordingFormat.PREFIXES.length) - 1);
+		this.record.setEnvironment(this.engine.getEnvironmentModel().getState(), REFRESH_RATE);
+		this.record.setTemperature(this.engine.getTemperatureModel().getState(), REFRESH_RATE);
+		this.record.setHumidity(this.engine.getHumidityModel().getState(), REFRESH_RATE);
+		this.record.setMoisture(this.engine.getMoistureModel().getState(), REFRESH_RATE);
+	}
+
+}
@@ -0,0 +1,266 @@
+/***
+
+Async Recorder moves the writing of a save file off the simulation thread. The simulation copies each tick record
+into a ring of records made when the recorder starts, and a background writer thread takes them out in batches,
+writes them to the save file, and flushes the file at a fixed interval. A slow disk fills the ring instead of
+holding up the simulation. When the ring is full the recorder either waits for room or drops the record,
+depending on the back-pressure policy it was created with.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/***
+Record sink that hands tick records to a background writer thread through a lock-free ring.
+*/
+public class AsyncRecorder implements RecordSink, AsyncRecorderMBean {
+
+	// Back-pressure policies
+	public static final int BLOCK = 0;		// Wait for the writer to make room. No record is lost
+	public static final int DROP = 1;		// Drop the record and count it. The simulation never waits
+
+	/***
+	Number of records the ring holds when no size is given
+	*/
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/***
+	Milliseconds between flushes of the save file when no interval is given
+	*/
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	// How long the simulation waits before checking again for room in a full ring
+	private static final long BLOCK_WAIT_NANOS = 100000;
+
+	private RecordSink target;
+	private int policy;
+	private long flushIntervalNanos;
+
+	private TickRecord[] ring;
+	private int mask;
+
+	// Number of records put in by the simulation and taken out by the writer. Only the simulation thread moves
+	// head and only the writer moves tail, so each is written by a single thread and read by the other.
+	private AtomicLong head = new AtomicLong(0);
+	private AtomicLong tail = new AtomicLong(0);
+
+	private AtomicLong dropped = new AtomicLong(0);
+	private volatile IOException failure;
+	private volatile boolean closing = false;
+	private volatile boolean writerWaiting = false;
+
+	private Thread writer;
+
+	/***
+	Creates a recorder with the default ring size and flush interval that waits for room when the ring is full
+	@param theTarget The sink the writer thread writes to
+	*/
+	public AsyncRecorder(RecordSink theTarget) {
+		this(theTarget, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL, BLOCK);
+	}
+
+	/***
+	Creates a recorder and starts its writer thread
+	@param theTarget The sink the writer thread writes to
+	@param capacity Number of records the ring holds. Rounded up to a power of two, and at least 2
+	@param flushInterval Milliseconds between flushes of the save file
+	@param backPressure BLOCK or DROP
+	*/
+	public AsyncRecorder(RecordSink theTarget, int capacity, long flushInterval, int backPressure) {
+
+		this.target = theTarget;
+		this.policy = backPressure;
+		this.flushIntervalNanos = Math.max(1, flushInterval) * 1000000L;
+
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.ring = new TickRecord[size];
+		for (int i = 0; i < size; i++) {
+			this.ring[i] = new TickRecord();
+		}
+		this.mask = size - 1;
+
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "recorder");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	// GET
+
+	/***
+	Returns how many records were dropped because the ring was full
+	@return Number of dropped records
+	*/
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	/***
+	Returns how many records are waiting to be written
+	@return Number of records in the ring
+	*/
+	public int getPending() {
+		return (int)(this.head.get() - this.tail.get());
+	}
+
+	/***
+	Returns how many records the ring holds
+	@return Number of records
+	*/
+	public int getCapacity() {
+		return this.ring.length;
+	}
+
+	/***
+	Returns how many records the simulation has handed to the recorder, including dropped ones
+	@return Number of records
+	*/
+	public long getRecords() {
+		return this.head.get() + this.dropped.get();
+	}
+
+	/***
+	Returns how many bytes the writer thread has written to the save file so far
+	@return Number of bytes written
+	*/
+	public long getBytesWritten() {
+		return this.target.getBytesWritten();
+	}
+
+	/***
+	Copies a record into the ring for the writer thread. Must only be called by one simulation thread at a time.
+	@param record The tick's data
+	@throws IOException Throws the error the writer thread ran into, if any
+	*/
+	public void write(TickRecord record) throws IOException {
+
+		this.checkFailure();
+
+		long h = this.head.get();
+		while (h - this.tail.get() >= this.ring.length) {
+			if (this.policy == DROP) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+			LockSupport.unpark(this.writer);
+			LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+			this.checkFailure();
+		}
+
+		this.ring[(int)h & this.mask].copyFrom(record);
+		this.head.set(h + 1);
+
+		if (this.writerWaiting) {
+			LockSupport.unpark(this.writer);
+		}
+	}
+
+	/***
+	Waits for every record written so far to reach the save file, then flushes it
+	@throws IOException Throws an error if the records cannot be written
+	*/
+	public void flush() throws IOException {
+		long h = this.head.get();
+		while (this.tail.get() < h && this.writer.isAlive()) {
+			LockSupport.unpark(this.writer);
+			LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+		}
+		this.checkFailure();
+		this.target.flush();
+	}
+
+	/***
+	Waits for the writer thread to write every remaining record, then closes the save file
+	@throws IOException Throws an error if the records cannot be written or the file cannot be closed
+	*/
+	public void close() throws IOException {
+		this.closing = true;
+		LockSupport.unpark(this.writer);
+		try {
+			this.writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.target.close();
+		this.checkFailure();
+	}
+
+	/***
+	Throws the error the writer thread ran into, if any
+	@throws IOException The writer thread's error
+	*/
+	private void checkFailure() throws IOException {
+		IOException e = this.failure;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/***
+	Runs on the writer thread. Writes every record in the ring, flushes the save file whenever the flush interval
+	has passed, and waits for more records when the ring is empty.
+	*/
+	private void drain() {
+
+		long lastFlush = System.nanoTime();
+		long sinceFlush = 0;
+
+		try {
+
+			while (true) {
+
+				long t = this.tail.get();
+				long h = this.head.get();
+
+				// Write the whole batch before letting the simulation reuse its slots
+				for (long i = t; i < h; i++) {
+					this.target.write(this.ring[(int)i & this.mask]);
+				}
+				this.tail.lazySet(h);
+				sinceFlush += h - t;
+
+				long now = System.nanoTime();
+				if (now - lastFlush >= this.flushIntervalNanos) {
+					RecorderFlushEvent event = new RecorderFlushEvent();
+					event.begin();
+					this.target.flush();
+					if (event.shouldCommit()) {
+						event.records = sinceFlush;
+						event.bytesWritten = this.target.getBytesWritten();
+						event.commit();
+					}
+					sinceFlush = 0;
+					lastFlush = now;
+				}
+
+				if (h == t) {
+					if (this.closing && this.head.get() == h) {
+						return;
+					}
+					this.writerWaiting = true;
+					if (this.head.get() == h && !this.closing) {
+						LockSupport.parkNanos(this.flushIntervalNanos - (now - lastFlush));
+					}
+					this.writerWaiting = false;
+				}
+
+			}
+
+		} catch (IOException e) {
+			// Handed to the simulation by its next write
+			this.failure = e;
+		}
+	}
+
+}
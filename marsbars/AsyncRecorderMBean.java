@@ -0,0 +1,44 @@
+/***
+
+Async Recorder MBean is the management interface of the asynchronous recorder, so a JMX console can watch the
+recorder's queue fill up and its file grow while the simulation runs.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+JMX attributes of the asynchronous recorder.
+*/
+public interface AsyncRecorderMBean {
+
+	/***
+	@return Number of records waiting for the writer thread
+	*/
+	int getPending();
+
+	/***
+	@return Number of records the ring holds
+	*/
+	int getCapacity();
+
+	/***
+	@return Number of records handed to the recorder, including dropped ones
+	*/
+	long getRecords();
+
+	/***
+	@return Number of records dropped because the ring was full
+	*/
+	long getDropped();
+
+	/***
+	@return Number of bytes written to the save file
+	*/
+	long getBytesWritten();
+
+}
@@ -0,0 +1,115 @@
+/***
+
+Binary Record Sink writes a running simulation to a binary save file (see RecordingFormat). Records are packed
+into a direct buffer and written to the file channel in large blocks. The sink remembers the columns it last wrote
+so each record only holds what changed, and writes a key record every RecordingFormat.KEY_INTERVAL records. Where
+each key record starts is kept and written as the index at the end of the file when the sink is closed.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/***
+Writes tick records to a binary save file.
+*/
+public class BinaryRecordSink implements RecordSink {
+
+	/***
+	Number of records held in memory before they are written to the file
+	*/
+	public static final int RECORDS_PER_BLOCK = 512;
+
+	private FileChannel channel;
+	private ByteBuffer block;
+	private long bytesWritten = 0;
+	private long recordsWritten = 0;
+	private TickRecord previous = new TickRecord();
+	private long[] keyOffsets = new long[64];
+	private int keys = 0;
+
+	/***
+	Creates the save file and writes the header
+	@param theFile The file to save the simulation to. It is replaced if it already exists
+	@throws IOException Throws an error if the file cannot be created
+	*/
+	public BinaryRecordSink(File theFile) throws IOException {
+		this.channel = FileChannel.open(theFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.block = ByteBuffer.allocateDirect(RecordingFormat.MAX_RECORD_LENGTH * RECORDS_PER_BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+		this.writeFully(RecordingFormat.header());
+	}
+
+	/***
+	Returns how many bytes have been written to the file so far
+	@return bytesWritten Number of bytes written
+	*/
+	public synchronized long getBytesWritten() {
+		return this.bytesWritten;
+	}
+
+	/***
+	Adds a record to the current block, writing the block out when it is full
+	@param record The tick's data
+	@throws IOException Throws an error if the block cannot be written
+	*/
+	public synchronized void write(TickRecord record) throws IOException {
+		if (this.block.remaining() < RecordingFormat.MAX_RECORD_LENGTH) {
+			this.flush();
+		}
+		boolean key = this.recordsWritten % RecordingFormat.KEY_INTERVAL == 0;
+		if (key) {
+			if (this.keys == this.keyOffsets.length) {
+				this.keyOffsets = Arrays.copyOf(this.keyOffsets, this.keys * 2);
+			}
+			this.keyOffsets[this.keys++] = this.bytesWritten + this.block.position();
+		}
+		RecordingFormat.encode(record, this.previous, key, this.block);
+		this.recordsWritten++;
+	}
+
+	/***
+	Writes the current block out to the file
+	@throws IOException Throws an error if the block cannot be written
+	*/
+	public synchronized void flush() throws IOException {
+		this.block.flip();
+		this.writeFully(this.block);
+		this.block.clear();
+	}
+
+	/***
+	Writes any remaining records and the index, and closes the file
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public synchronized void close() throws IOException {
+		if (this.channel.isOpen()) {
+			try {
+				this.flush();
+				this.writeFully(RecordingFormat.index(this.keyOffsets, this.keys, this.recordsWritten, this.bytesWritten));
+			} finally {
+				this.channel.close();
+			}
+		}
+	}
+
+	/***
+	Writes the whole buffer to the file
+	@param buffer The data to write
+	@throws IOException Throws an error if the data cannot be written
+	*/
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.bytesWritten += this.channel.write(buffer);
+		}
+	}
+
+}
@@ -1,7 +1,7 @@
 /***
 
 This Controller class is all the common methods shared between each device/sensor controllers.
-This class handles file reading and writing as well as thread wait management
+This class handles simulation playback as well as thread wait management
 
 @author Saurabh Tomar
 
@@ -13,6 +13,9 @@ package marsbars;
 
 import java.awt.event.*;
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import javax.swing.event.*;
 
 /***
@@ -20,17 +23,34 @@ Responsible for all the common methods shared between each device/sensor control
 */
 public class Controller extends Thread {
 	
-	// File control variables
-	private File datafile;
-	private FileReader fr;
-	private BufferedWriter bw;
-	private BufferedReader br;
+	/***
+	Number of records that can wait for a controller during playback. The shared playback reader waits when a
+	controller falls this far behind, which keeps every controller close to the same point in the file.
+	*/
+	public static final int PLAYBACK_QUEUE = 16;
+	
+	/***
+	How far behind its refreshes a controller can fall, in nanoseconds, before it skips the refreshes it missed
+	*/
+	public static final long CATCH_UP_LIMIT = 100000000L;
+	
+	private BlockingQueue<TickRecord> playbackQueue;
+	
+	private volatile ViewRenderer renderer;
+	private volatile EventChannel events;
+	private String source = this.getClass().getSimpleName().replace("Controller", "");
+	private TickRecord liveRecord = new TickRecord();
 	
 	private volatile boolean runThread = true;
-	private volatile boolean saving = false;
+	private int steps = 0;
+	private boolean halted = false;
 	private volatile boolean opening = false;
 	
-	private int refreshRate = 0;
+	private volatile int refreshRate = 0;
+	
+	// Absolute time the controller's thread last woke up at, or 0 before its first wait. Only used by that thread.
+	private long deadline = 0;
+	private TickMetrics metrics = new TickMetrics();
 	
 	/***
 	An empty controller
@@ -42,21 +62,29 @@ public class Controller extends Thread {
 	/***
 	This return the refresh rate at which the current thread is refreshing the 
 	controller/sensor data.
-	@return refreshRate Refresh Rate of the current thread
+	@return refreshRate Refresh Rate of the current thread in milliseconds
 	*/
 	public int getRefreshRate() {
 		return this.refreshRate;
 	}
-
+	
 	/***
-	This returns whether the current simulation is in save mode or not. This is to 
-	prevent concurrency between user selecting open and save at the same time. 
-	@return saving Saving current data status
-	*/	
-	public boolean isSaving() {
-		return this.saving;
+	Returns how many refreshes were late because the work of the previous refresh took longer than the refresh rate.
+	A growing count means the machine cannot keep up with the refresh rate.
+	@return Number of missed deadlines
+	*/
+	public long getMissedDeadlines() {
+		return this.metrics.getMissedDeadlines();
 	}
 	
+	/***
+	Returns the tick durations, scheduling lag, and missed deadlines of this controller
+	@return metrics The controller's metrics
+	*/
+	public TickMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	/***
 	This returns whether the current simulation reading from a file or not. This is to 
 	prevent concurrency between user selecting open and save at the same time. 
@@ -68,37 +96,48 @@ public class Controller extends Thread {
 	
 	/***
 	Sets the rate at which the controller/sensor updates the simulation data
-	@param rate Refresh rate of the current thread
+	@param seconds Refresh rate of the current thread in seconds. Fractions of a second down to a millisecond are allowed
 	*/
-	public void setRefreshRate(int rate) {
-		this.refreshRate = rate*1000;
+	public void setRefreshRate(double seconds) {
+		this.setRefreshRateMillis((int)Math.round(seconds * 1000));
 	}
 	
 	/***
-	Gets the BufferedReader object that has the simulation data file loaded for the current thread.
-	@return br The buffer that contains the simulation file to read from
-	*/	
-	public synchronized BufferedReader getFileToRead() {
-		return this.br;
-	}	
+	Sets the rate at which the controller/sensor updates the simulation data
+	@param milliseconds Refresh rate of the current thread in milliseconds. At least 1
+	*/
+	public void setRefreshRateMillis(int milliseconds) {
+		this.refreshRate = Math.max(1, milliseconds);
+	}
 	
 	/***
-	This method writes to the simulation save file specified by the user and loaded using
-	the saveFile method.
-	@param data The string data that needs to be written to the save file
-	@throws IOException Throws an error if there is an error in writing to the file
-	*/	
-	public synchronized void writeToFile(String data) throws IOException {
-		this.bw.write(data);
+	Sets the view renderer that draws this controller's panel. Without one the panel is updated straight from
+	the controller's thread.
+	@param theRenderer The view renderer shared by every controller
+	*/
+	public void setRenderer(ViewRenderer theRenderer) {
+		this.renderer = theRenderer;
+	}
+	
+	/***
+	Sets the channel that errors and warnings from this controller's thread are published to. Without one they
+	are shown by displayError.
+	@param theEvents The event channel shared by every controller
+	*/
+	public void setEvents(EventChannel theEvents) {
+		this.events = theEvents;
 	}
 	
 	/***
 	This method ensurs the safe pause of the currently running thread. It tells the 
 	waitProcess method to wait indefinately until the resumeThread method notifies
 	the thread to resume again. This overcomes the need to use the depricated stop() method.
+	A thread waiting out its refresh rate is woken straight away, so it stops at the end of the
+	refresh it is on instead of after the rest of its wait.
 	*/
 	public synchronized void pauseThread() {		
 		this.runThread = false;
+		LockSupport.unpark(this);
 	}
 	
 	/***
@@ -106,63 +145,297 @@ public class Controller extends Thread {
 	*/
 	public synchronized void resumeThread() {		
 		this.runThread = true;
-		notify();
+		this.steps = 0;
+		notifyAll();
 	}
 	
 	/***
-	This method sets the thread's buffered writer to the user specified save file. This method is designed
-	(unlike the write methods) to synchronize writing between other threads so it can share write permissions
-	between multiple threads without causing a file lock and locking other threads out.
-	@param savefile The buffered read object carrying the user specified save file for the simulation data.
-	*/	
-	public synchronized void saveFile(BufferedWriter savefile) {
-		this.bw = savefile;
-		this.saving = true;
+	Returns whether the thread has stopped at the end of a refresh after being paused, with no steps left to run
+	@return Whether the thread is paused
+	*/
+	public synchronized boolean isPaused() {
+		return this.halted && this.steps == 0;
 	}
 	
 	/***
-	This method creates a new file reader from the user provided simulation data file. This method (unlike the save methods) 
-	is designed to create a new object of the save file and run through the data independently. (Sharing the same file object 
-	between multiple threads was causing issues with simulation playback from file).
-	@param theFile The file object that specifies which file to playback the simulation from
-	@throws IOException Throws an error if there is an error in opening the specified simulation playback data file
+	Returns whether the thread has been asked to pause, even if it has not reached the end of its refresh yet
+	@return Whether the thread is pausing or paused
 	*/
-	public synchronized void openFile(File theFile) throws IOException {
-		this.fr = new FileReader(theFile);
-		this.br = new BufferedReader(this.fr);
+	public boolean isPauseRequested() {
+		return !this.runThread;
+	}
+	
+	/***
+	Runs a number of refreshes while the thread is paused, one straight after the other, and pauses again after
+	the last of them. Nothing happens if the thread is running.
+	@param count Number of refreshes to run
+	*/
+	public synchronized void step(int count) {
+		if (!this.runThread && count > 0) {
+			this.steps += count;
+			notifyAll();
+		}
+	}
+	
+	/***
+	This method puts the controller into simulation playback mode. The simulation data file is read once by the shared 
+	playback reader, which hands this controller its records through a bounded queue.
+	*/
+	public synchronized void openPlayback() {
+		this.playbackQueue = new ArrayBlockingQueue<TickRecord>(PLAYBACK_QUEUE);
 		this.opening = true;
 	}
 	
 	/***
-	This method safely closes the current buffered reader and writer object by checking which file mode the current thread is in.
-	@throws IOException Throws and error if there is an error closing the file that the simulation is interacting with
+	Hands a record to this controller for playback. Waits if the controller has fallen too far behind.
+	@param record The record to play back, or PlaybackReader.END_OF_FILE once the file has been read
+	@throws InterruptedException Throws an error if the reader is interrupted while waiting
+	*/
+	public void offerRecord(TickRecord record) throws InterruptedException {
+		this.playbackQueue.put(record);
+	}
+	
+	/***
+	Takes the next record to play back. Waits until the playback reader has one ready.
+	@return The next record, or PlaybackReader.END_OF_FILE once the file has been read
+	@throws InterruptedException Throws an error if the controller is interrupted while waiting
+	*/
+	public TickRecord nextRecord() throws InterruptedException {
+		return this.playbackQueue.take();
+	}
+	
+	/***
+	Plays back every record handed over by the playback reader. Each record is shown on this controller's panel
+	and held for the refresh rate it was recorded with.
 	*/
-	public synchronized void closeFile() throws IOException {
-		if (this.saving) {
-			this.bw.close();
+	public void playback() {
+		
+		// Disable the inputs in order to playback the simulation safely. 
+		this.playbackMode();
+		
+		try {
+			
+			TickRecord record;
+			while ((record = this.nextRecord()) != PlaybackReader.END_OF_FILE) {
+				
+				// Display the data on the GUI.
+				long start = System.nanoTime();
+				this.render(record);
+				this.metrics.recordTick(System.nanoTime() - start);
+				
+				// Simulate the delay
+				waitProcess(record.getRefreshRate());
+				
+			}
+			
+		} catch (InterruptedException e) {
+			this.report(EventChannel.ERROR, "Playback interrupted");
 		}
-		if (this.opening) {
-			this.br.close();
+	}
+	
+	/***
+	Runs one update of this controller/sensor. Each controller overrides this with the work it does once per refresh.
+	This is called by the controller's own thread or by the tick scheduler that steps every controller in a fixed order.
+	*/
+	public void tick() {
+		
+	}
+	
+	/***
+	Runs tick() and records how long it took in this controller's metrics
+	*/
+	public void timedTick() {
+		long start = System.nanoTime();
+		this.tick();
+		this.metrics.recordTick(System.nanoTime() - start);
+	}
+	
+	/***
+	Copies this controller's data into the record of the current tick so it can be written to the save file.
+	Each controller overrides this with the columns it owns.
+	@param record The record of the current tick
+	*/
+	public void record(TickRecord record) {
+		
+	}
+	
+	/***
+	Shows the current data of this controller on its panel. The data is handed to the view renderer, which draws it
+	with the next frame.
+	*/
+	public void render() {
+		this.record(this.liveRecord);
+		ViewRenderer r = this.renderer;
+		if (r != null) {
+			r.update(this, this.liveRecord, false);
+		} else {
+			this.show(this.liveRecord);
+		}
+	}
+	
+	/***
+	Shows a recorded tick on this controller's panel. The record is handed to the view renderer, which draws it
+	with the next frame.
+	@param record The recorded tick
+	*/
+	public void render(TickRecord record) {
+		ViewRenderer r = this.renderer;
+		if (r != null) {
+			r.update(this, record, true);
+		} else {
+			this.display(record);
+		}
+	}
+	
+	/***
+	Shows the current reading and device of a live tick on this controller's panel. Each controller overrides this
+	with the columns that change while the simulation runs. Called on the event dispatch thread by the view renderer.
+	@param record The live tick
+	*/
+	public void show(TickRecord record) {
+		
+	}
+	
+	/***
+	Shows this controller's columns of a recorded tick on its panel. Each controller overrides this for playback.
+	@param record The recorded tick
+	*/
+	public void display(TickRecord record) {
+		
+	}
+	
+	/***
+	Disables the inputs on this controller's panel so a recording can be played back safely.
+	*/
+	public void playbackMode() {
+		
+	}
+	
+	/***
+	Lets the user know that something went wrong in this controller. Each controller overrides this to show
+	the message on its own panel.
+	@param errorMsg The error message
+	*/
+	public void displayError(String errorMsg) {
+		System.out.println(errorMsg);
+	}
+	
+	/***
+	Reports an error or warning that happened on the simulation's threads. It is published to the event channel,
+	which never waits, so a tick that fails over and over does not hold up the simulation.
+	@param level EventChannel.WARNING or EventChannel.ERROR
+	@param message What happened
+	*/
+	public void report(int level, String message) {
+		EventChannel channel = this.events;
+		if (channel != null) {
+			channel.publish(level, this.source, message);
+		} else {
+			this.displayError(message);
 		}
 	}
 	
 	/***
-	Responsible for making the thread sleep for the user specified refresh rate in seconds and to pause and resume thread execution
+	Responsible for making the thread wait out the refresh rate and to pause and resume thread execution. The wait
+	ends at a fixed time after the previous wait ended, not after the work in between, so the refreshes do not
+	drift. A refresh that starts late is counted as missed. A thread that is only a little behind runs its next
+	refreshes straight away to catch up, so short refresh rates keep their average rate even when the machine
+	wakes the thread late. A thread that is more than CATCH_UP_LIMIT behind skips the refreshes it missed instead
+	of rushing through all of them. A pause ends the wait early, and resuming waits out the rest of it.
 	@param milliseconds The refresh rate in milliseconds
 	*/
 	public void waitProcess (int milliseconds) {
+		this.waitPeriod(Math.max(1, milliseconds) * 1000000L);
+	}
+	
+	/***
+	Same as waitProcess, for periods shorter than a millisecond. A period of 0 only checks for a pause.
+	@param period The refresh rate in nanoseconds
+	*/
+	public void waitPeriod(long period) {
+		
+		if (period <= 0) {
+			this.deadline = System.nanoTime();
+			this.waitWhilePaused();
+			return;
+		}
+		
+		long now = System.nanoTime();
+		long next = (this.deadline == 0) ? now + period : this.deadline + period;
+		
+		if (now > next) {
+			if (now - next <= CATCH_UP_LIMIT) {
+				this.metrics.addMissedDeadlines(1);
+			} else {
+				long overrun = (now - next) / period + 1;
+				this.metrics.addMissedDeadlines(overrun);
+				next += overrun * period;
+				if (this.events != null) {
+					this.report(EventChannel.WARNING, "Fell behind its refresh rate and skipped refreshes");
+				}
+			}
+		}
+		
+		// A pause ends the wait early so the thread stops at this refresh boundary. On resume it waits out the rest of
+		// the period, so the refresh does not come early. A step runs the refresh straight away.
+		long remaining;
+		boolean waited = false;
+		while (true) {
+			while ((remaining = next - System.nanoTime()) > 0 && this.runThread) {
+				LockSupport.parkNanos(this, remaining);
+				waited = true;
+				if (Thread.interrupted()) {
+					System.out.println("Unexpected Interruption");
+					System.exit(0);
+				}
+			}
+			if (remaining <= 0) {
+				break;
+			}
+			long pausedAt = System.nanoTime();
+			if (this.waitWhilePaused()) {
+				return;
+			}
+			next += System.nanoTime() - pausedAt;
+			waited = false;
+		}
+		// How late the thread woke up. A refresh that was already due did not sleep and has no lag to show
+		if (waited) {
+			this.metrics.recordLag(-remaining);
+		}
+		this.deadline = next;
+		this.waitWhilePaused();
+		
+	}
+	
+	/***
+	Waits for as long as the thread is paused, or until it is asked to step one refresh
+	@return Whether the thread was let go to run a step, rather than resumed or never paused
+	*/
+	private boolean waitWhilePaused() {
 		
+		boolean stepped = false;
 		try {
-			Thread.sleep(milliseconds);
 			synchronized(this) {
-				while(!this.runThread) {
-				   wait();
+				if (!this.runThread) {
+					this.halted = true;
+					while(!this.runThread && this.steps == 0) {
+					   wait();
+					}
+					this.halted = false;
+					if (!this.runThread) {
+						this.steps--;
+						stepped = true;
+					}
+					// Start counting again from here instead of treating the pause as missed refreshes
+					this.deadline = System.nanoTime();
 				}
 			}
 		} catch (InterruptedException e) {
 			System.out.println("Unexpected Interruption");
 			System.exit(0);			
 		}
+		return stepped;
 		
 	}
 	
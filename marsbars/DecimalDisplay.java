@@ -0,0 +1,196 @@
+/***
+
+Decimal Display shows a number in a text field of a panel, such as the current temperature. The views are updated
+with every frame, and at high tick rates most updates round to the text that is already shown, so the number is
+compared to the last one shown at the precision it is displayed with and the field is only changed when the text
+would change. The text is written into a char buffer that is reused, instead of through String.format, which
+creates a formatter and parses the format pattern every time. The text is the same as String.format would give.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.math.*;
+import javax.swing.*;
+import javax.swing.event.*;
+
+/***
+Shows a number with a fixed number of decimals in a text field, skipping updates that would not change the text.
+*/
+public class DecimalDisplay {
+
+	private static final long[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+	// Shown number of a field whose text was not set by setValue
+	private static final long NONE = Long.MIN_VALUE;
+
+	private JTextField field;
+	private int decimals;
+	private char[] buffer = new char[32];
+
+	// The number shown, in units of the last decimal, or NONE if the field shows something else. A negative number
+	// is kept as ~units of its magnitude, so -0.00 and 0.00 are told apart.
+	private long shown = NONE;
+	private boolean updating = false;
+
+	/***
+	Constructor that sets the field the number is shown in
+	@param theField The text field
+	@param theDecimals Decimals shown, from 0 to 6
+	*/
+	public DecimalDisplay(JTextField theField, int theDecimals) {
+		this.field = theField;
+		this.decimals = theDecimals;
+
+		// Text typed by the user replaces the number shown
+		this.field.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				changed();
+			}
+			public void removeUpdate(DocumentEvent e) {
+				changed();
+			}
+			public void changedUpdate(DocumentEvent e) {
+
+			}
+		});
+	}
+
+	// SET
+
+	/***
+	Shows a number in the field, unless it rounds to the number already shown. Must be called on the event dispatch thread.
+	@param value The number
+	*/
+	public void setValue(double value) {
+		if (!(Math.abs(value) * POWERS[this.decimals] < Long.MAX_VALUE / 10)) {
+			// Not a number, infinite, or too large to round to a long
+			this.show(String.format("%." + this.decimals + "f", value), NONE);
+			return;
+		}
+		long units = round(Math.abs(value), this.decimals);
+		boolean negative = isNegative(value);
+		long key = negative ? ~units : units;
+		if (key != this.shown) {
+			int length = format(units, negative, this.decimals, this.buffer);
+			this.show(new String(this.buffer, 0, length), key);
+		}
+	}
+
+	// PROCESS
+
+	/***
+	Sets the text of the field
+	@param text The text
+	@param units The number shown, as kept in shown
+	*/
+	private void show(String text, long units) {
+		this.updating = true;
+		try {
+			this.field.setText(text);
+		} finally {
+			this.updating = false;
+		}
+		this.shown = units;
+	}
+
+	/***
+	Forgets the number shown when the text of the field is changed by anything else
+	*/
+	private void changed() {
+		if (!this.updating) {
+			this.shown = NONE;
+		}
+	}
+
+	/***
+	Writes a number that has been rounded to a fixed number of decimals into a char buffer, in the same form as
+	String.format("%.2f") for two decimals. Nothing is created.
+	@param units The number in units of the last decimal, for example 2150 for 21.50 with two decimals
+	@param decimals Decimals shown, from 0 to 6
+	@param buffer Buffer of at least 32 chars the text is written to, starting at the beginning
+	@return Number of chars written
+	*/
+	public static int format(long units, int decimals, char[] buffer) {
+		return format(Math.abs(units), units < 0, decimals, buffer);
+	}
+
+	/***
+	Rounds a number and writes it into a char buffer with a fixed number of decimals, giving the same text as
+	String.format. A negative number that rounds to zero keeps its sign, as in -0.00.
+	@param value The number. Must be small enough to round to a long at the given decimals
+	@param decimals Decimals shown, from 0 to 6
+	@param buffer Buffer of at least 32 chars the text is written to, starting at the beginning
+	@return Number of chars written
+	*/
+	public static int format(double value, int decimals, char[] buffer) {
+		return format(round(Math.abs(value), decimals), isNegative(value), decimals, buffer);
+	}
+
+	/***
+	Writes a rounded number into a char buffer. See format(long, int, char[]).
+	@param magnitude The size of the number in units of the last decimal
+	@param negative Whether a minus sign is written, even if the magnitude is 0
+	@param decimals Decimals shown, from 0 to 6
+	@param buffer Buffer of at least 32 chars the text is written to, starting at the beginning
+	@return Number of chars written
+	*/
+	private static int format(long magnitude, boolean negative, int decimals, char[] buffer) {
+
+		long rest = magnitude;
+
+		// Digits are written from the end of the buffer backwards, then moved to the start
+		int end = buffer.length;
+		int i = end;
+		for (int d = 0; d < decimals; d++) {
+			buffer[--i] = (char)('0' + rest % 10);
+			rest /= 10;
+		}
+		if (decimals > 0) {
+			buffer[--i] = '.';
+		}
+		do {
+			buffer[--i] = (char)('0' + rest % 10);
+			rest /= 10;
+		} while (rest > 0);
+		if (negative) {
+			buffer[--i] = '-';
+		}
+
+		int length = end - i;
+		System.arraycopy(buffer, i, buffer, 0, length);
+		return length;
+	}
+
+	/***
+	Rounds the size of a number to units of its last decimal the way String.format does: the shortest decimal form
+	of the number is rounded half up. Scaling the number by a power of ten can land on the other side of a half,
+	so a number within a few ulps of one is rounded from its decimal form instead, which only happens for numbers
+	such as 0.145 that sit on a half at the decimals shown.
+	@param magnitude The size of the number. Must be small enough to round to a long at the given decimals
+	@param decimals Decimals shown, from 0 to 6
+	@return The rounded number in units of the last decimal
+	*/
+	private static long round(double magnitude, int decimals) {
+		double scaled = magnitude * POWERS[decimals];
+		double fraction = scaled - Math.floor(scaled);
+		if (Math.abs(fraction - 0.5) > 8 * Math.ulp(scaled)) {
+			return Math.round(scaled);
+		}
+		return new BigDecimal(Double.toString(magnitude)).movePointRight(decimals).setScale(0, RoundingMode.HALF_UP).longValue();
+	}
+
+	/***
+	Returns whether a number has its sign bit set, which includes -0.0
+	@param value The number
+	@return Whether String.format shows it with a minus sign
+	*/
+	private static boolean isNegative(double value) {
+		return Double.doubleToRawLongBits(value) < 0;
+	}
+
+}
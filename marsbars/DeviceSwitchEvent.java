@@ -0,0 +1,52 @@
+/***
+
+Device Switch Event is a Java Flight Recorder event for a furnace, air conditioner, humidifier, or sprinkler being
+switched on or off. The models only create one when a device actually changes, so steady ticks record nothing.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import jdk.jfr.*;
+
+/***
+Flight recorder event for a device being switched on or off.
+*/
+@Name("marsbars.DeviceSwitch")
+@Label("Device Switch")
+@Category({"Greenhouse Simulator", "Simulation"})
+@Description("A device switched on or off by its sensor")
+@StackTrace(false)
+public class DeviceSwitchEvent extends Event {
+
+	@Label("Device")
+	public String device;
+
+	@Label("On")
+	public boolean on;
+
+	@Label("Reading")
+	@Description("The reading the sensor switched the device for")
+	public double reading;
+
+	/***
+	Records a device switch if the event is enabled in the running flight recording
+	@param theDevice Name of the device, for example "Furnace"
+	@param isOn Whether the device was switched on
+	@param theReading The reading the device was switched for
+	*/
+	public static void emit(String theDevice, boolean isOn, double theReading) {
+		DeviceSwitchEvent event = new DeviceSwitchEvent();
+		if (event.shouldCommit()) {
+			event.device = theDevice;
+			event.on = isOn;
+			event.reading = theReading;
+			event.commit();
+		}
+	}
+
+}
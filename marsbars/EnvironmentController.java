@@ -133,104 +133,70 @@ public class EnvironmentController extends Controller {
 	}
 	
 	/***
-	This method starts the thread in real simulation or simulation playback mode. It disables the necessary GUI elements given 
-	the simulation mode, reads data from a simulation file, or write simulation to a user specified file. It also takes and updates 
-	each sensor's current temp, humidity, and moisture settings, updates with with the external effects affecting the greenhouse and updates 
-	each sensor's data for the greenhouse. 
+	Runs one update of the environment controller. Applies one refresh rate of simulated time of external effects to each sensor's data.
+	*/
+	public void tick() {
+		
+		// Apply the user specified external effects and update each sensor with the new information.
+		this.envModel.applyExternalEffects(this.tempModel, this.humidModel, this.moistModel, SimulationClock.toMinutes(this.getRefreshRate()));
+		
+	}
+	
+	/***
+	Copies the current environment data into the record of the current tick.
+	@param record The record of the current tick
+	*/
+	public void record(TickRecord record) {
+		record.setEnvironment(this.envModel.getState(), this.getRefreshRate());
+	}
+	
+	/***
+	Opens a dialog box with the error message on the environment panel
+	@param errorMsg The error message
+	*/
+	public void displayError(String errorMsg) {
+		this.envView.displayError(errorMsg);
+	}
+	
+	/***
+	Shows the recorded environment data on the environment panel
+	@param record The recorded tick
+	*/
+	public void display(TickRecord record) {
+		
+		int e = RecordingFormat.ENVIRONMENT;
+		this.envView.setStartTemp(record.get(e, 0));
+		this.envView.setStartHumid(record.get(e, 1));
+		this.envView.setStartMoist(record.get(e, 2));
+		
+		this.envView.setExtTempEffect(record.get(e, 3));
+		this.envView.setExtHumidEffect(record.get(e, 4));
+		this.envView.setExtMoistEffect(record.get(e, 5));
+		
+		// The refresh rate is shown in seconds
+		this.envView.setRefreshRate(record.get(e, 6) / 1000);
+		
+	}
+	
+	/***
+	Disables the inputs on the environment panel in order to playback the simulation safely
+	*/
+	public void playbackMode() {
+		this.envView.enableGUI(false);
+	}
+	
+	/***
+	This method starts the thread in simulation playback mode. It disables the input fields for the start values and
+	plays back the external effects handed over by the shared playback reader at the refresh rate they were recorded
+	with. A live simulation is run by the TickScheduler instead of the controller threads.
 	*/
 	public void run() {
 		
 		// Disables the input field for start values so the user doesn't cause havok
 		this.envView.editable(false);
 		
-		// If the thread is supposed to run in simulation playback mode 
-		if (this.isOpening()) {
-			
-			// Disable the inputs in order to playback the simulation safely. 
-			this.envView.enableGUI(false);
-			
-			try {
-				
-				String line = null;
-				
-				// Read an independently created Buffer object of the simulation data file to read
-				BufferedReader readFileObj = this.getFileToRead();
-				
-				while ((line = readFileObj.readLine()) != null) {
-					
-					String[] dataArray = line.split(",");
-					
-					if (dataArray[0].equals("E")) {
-						
-						// Display the data on the GUI.
-						this.envView.setStartTemp(Double.parseDouble(dataArray[1]));
-						this.envView.setStartHumid(Double.parseDouble(dataArray[2]));
-						this.envView.setStartMoist(Double.parseDouble(dataArray[3]));
-						
-						this.envView.setExtTempEffect(Double.parseDouble(dataArray[4]));
-						this.envView.setExtHumidEffect(Double.parseDouble(dataArray[5]));
-						this.envView.setExtMoistEffect(Double.parseDouble(dataArray[6]));						
-						
-						this.envView.setRefreshRate(Double.parseDouble(dataArray[7]));
-						
-						// Simulate the delay
-						waitProcess(1000*Integer.parseInt(dataArray[7]));
-						
-					}					
-					
-				}
-				
-			} catch (IOException e) {
-				this.envView.displayError(e.getMessage());
-			} catch (NumberFormatException e) {
-				this.envView.displayError("Incorrect Data. File might be corrupted.");
-			} catch (Exception e) {				
-				this.envView.displayError(e.getMessage());
-			}
-		
-		// If the thread is supposed to run the simulation in regular manner.
-		} else {
-			
-			// Run perpetually
-			while(true) {
-				
-				// Capture the data from the each sensor's model to update it's current settings
-				this.envModel.setCurrentTemp(tempModel.getCurrentTemp(),false);
-				this.envModel.setCurrentHumid(humidModel.getCurrentHumidity(),false);
-				this.envModel.setCurrentMoist(moistModel.getCurrentMoisture(),false);
-				
-				// Change the current environment settings given the user specified external effects.
-				this.envModel.processEnv();
-				
-				try {
-					
-					// Checks if in save mode and writes to the file.
-					if (this.isSaving()) {
-						try {
-							this.writeToFile(this.envModel.toString() + (this.getRefreshRate()/1000) + "\n");
-						} catch (IOException e) {
-							this.envView.displayError(e.getMessage());
-						}
-					}
-					
-					// Update each sensor with new information updated after the external effects have been applied.
-					this.tempModel.setCurrentTemperature(this.envModel.getCurrentTemp());
-					this.humidModel.setCurrentHumidity(this.envModel.getCurrentHumid());
-					this.moistModel.setCurrentMoisture(this.envModel.getCurrentMoist());
-					
-					
-				} catch (NumberFormatException e) {			
-					this.envView.displayError(e.getMessage());			
-				} catch (Exception e) {			
-					this.envView.displayError("Error: " + e.getMessage());			
-				}
-				
-				// Wait to refresh
-				waitProcess(this.getRefreshRate());
-				
-			}
-			
-		}	
+		// Display each record handed over by the shared playback reader
+		this.playback();
 		
 	}
 
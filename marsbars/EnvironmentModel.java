@@ -11,22 +11,109 @@ Written for CPSC 233
 
 package marsbars;
 
+import java.util.concurrent.atomic.*;
+
 /***
 Model responsible for calculations that are required to simulate the effect of external effects on the greenhouse.
 */
 public class EnvironmentModel {
 	
-	private double startTemp = 0.0;
-	private double currTemp = 0.0;
-	private double externalTempRate = 0.0;
-	
-	private double startHumid = 0.0;
-	private double currHumid = 0.0;
-	private double externalHumidRate = 0.0;
+	/***
+	An unchangeable copy of the environment data. Every change to the model publishes a new State, so a reader 
+	such as the recorder sees start values, readings, and external effects that belong together.
+	*/
+	public static final class State {
+		
+		private final double startTemp;
+		private final double currTemp;
+		private final double externalTempRate;
+		
+		private final double startHumid;
+		private final double currHumid;
+		private final double externalHumidRate;
+		
+		private final double startMoist;
+		private final double currMoist;
+		private final double externalMoistRate;
+		
+		private State(double startTemp, double currTemp, double externalTempRate, double startHumid, double currHumid, double externalHumidRate, double startMoist, double currMoist, double externalMoistRate) {
+			this.startTemp 			= startTemp;
+			this.currTemp 			= currTemp;
+			this.externalTempRate 	= externalTempRate;
+			this.startHumid 		= startHumid;
+			this.currHumid 			= currHumid;
+			this.externalHumidRate 	= externalHumidRate;
+			this.startMoist 		= startMoist;
+			this.currMoist 			= currMoist;
+			this.externalMoistRate 	= externalMoistRate;
+		}
+		
+		/***
+		@return Starting temperature of the greenhouse
+		*/
+		public double getStartTemp() {
+			return this.startTemp;
+		}
+		
+		/***
+		@return Current temperature of the greenhouse
+		*/
+		public double getCurrentTemp() {
+			return this.currTemp;
+		}
+		
+		/***
+		@return Rate at which the external temperature is affecting the greenhouse
+		*/
+		public double getExternalTempRate() {
+			return this.externalTempRate;
+		}
+		
+		/***
+		@return Starting humidity of the greenhouse
+		*/
+		public double getStartHumid() {
+			return this.startHumid;
+		}
+		
+		/***
+		@return Current humidity of the greenhouse
+		*/
+		public double getCurrentHumid() {
+			return this.currHumid;
+		}
+		
+		/***
+		@return Rate at which the external humidity is affecting the greenhouse
+		*/
+		public double getExternalHumidRate() {
+			return this.externalHumidRate;
+		}
+		
+		/***
+		@return Starting soil moisture of the greenhouse
+		*/
+		public double getStartMoist() {
+			return this.startMoist;
+		}
+		
+		/***
+		@return Current soil moisture of the greenhouse
+		*/
+		public double getCurrentMoist() {
+			return this.currMoist;
+		}
+		
+		/***
+		@return Rate at which the external soil moisture is affecting the greenhouse
+		*/
+		public double getExternalMoistRate() {
+			return this.externalMoistRate;
+		}
+		
+	}
 	
-	private double startMoist = 0.0;
-	private double currMoist = 0.0;
-	private double externalMoistRate = 0.0;
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0));
 	
 	/**
 	Empty Constructor
@@ -37,12 +124,20 @@ public class EnvironmentModel {
 	
 	// GET
 	
+	/***
+	Returns a copy of all of the environment data taken at the same moment. Reading the copy never blocks the simulation.
+	@return The current state of the model
+	*/
+	public State getState() {
+		return this.state.get();
+	}
+	
 	/***
 	Returns the current temperature of the greenhouse after being affected by external effects
 	@return currTemp Current temperature of GreenHouse
 	*/
-	public synchronized double getCurrentTemp() {
-		return this.currTemp;
+	public double getCurrentTemp() {
+		return this.state.get().currTemp;
 	}
 	
 	/***
@@ -50,16 +145,16 @@ public class EnvironmentModel {
 	i.e. +3 degrees per minute or -4 degrees per min.
 	@return externalTempRate Rate at which the external temperature is affecting the greenhouse
 	*/
-	public synchronized double getExternalTempRate() {
-		return this.externalTempRate;
+	public double getExternalTempRate() {
+		return this.state.get().externalTempRate;
 	}
 	
 	/***
 	Returns the current humidity of the greenhouse after being affected by external effects
 	@return currHumid Current humidity of GreenHouse
 	*/
-	public synchronized double getCurrentHumid() {
-		return this.currHumid;
+	public double getCurrentHumid() {
+		return this.state.get().currHumid;
 	}
 	
 	/***
@@ -67,16 +162,16 @@ public class EnvironmentModel {
 	i.e. +3% per minute or -4% per min.
 	@return externalHumidRate Rate at which the external humidity is affecting the greenhouse
 	*/
-	public synchronized double getExternalHumidRate() {
-		return this.externalHumidRate;
+	public double getExternalHumidRate() {
+		return this.state.get().externalHumidRate;
 	}
 	
 	/***
 	Returns the current soil moisture of the greenhouse after being affected by external effects
 	@return currMoist Current soil moisture of GreenHouse
 	*/
-	public synchronized double getCurrentMoist() {
-		return this.currMoist;
+	public double getCurrentMoist() {
+		return this.state.get().currMoist;
 	}
 	
 	/***
@@ -84,8 +179,8 @@ public class EnvironmentModel {
 	i.e. +3% per minute or -4% per min.
 	@return externalMoistRate Rate at which the external humidity is affecting the greenhouse
 	*/
-	public synchronized double getExternalMoistRate() {
-		return this.externalMoistRate;
+	public double getExternalMoistRate() {
+		return this.state.get().externalMoistRate;
 	}
 	
 	// SET
@@ -96,19 +191,24 @@ public class EnvironmentModel {
 	@param temp Current greenhouse temperature (Initially specified by the user, then by Temperature sensor throughout the simulation)
 	@param start Specifies whether current temperature incoming is from the start of the program or not
 	*/
-	public synchronized void setCurrentTemp(double temp, boolean start) {
-		this.currTemp = temp;
-		if (start) {
-			this.startTemp = temp;
-		}
+	public void setCurrentTemp(double temp, boolean start) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State((start ? temp : current.startTemp), temp, current.externalTempRate, current.startHumid, current.currHumid, current.externalHumidRate, current.startMoist, current.currMoist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
 	Sets the current rate at which the greenhouse temperature is changing because of external effects
 	@param tempRate External temperature effect rate on greenhouse
 	*/
-	public synchronized void setExternalTempRate(double tempRate) {
-		this.externalTempRate = tempRate;
+	public void setExternalTempRate(double tempRate) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, tempRate, current.startHumid, current.currHumid, current.externalHumidRate, current.startMoist, current.currMoist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -117,19 +217,24 @@ public class EnvironmentModel {
 	@param humid Current greenhouse humidity (Intially specified by the user, then by Humidity sensor throughout the simulation)
 	@param start Specifies whether current humidity incoming is from the start of the program or not
 	*/
-	public synchronized void setCurrentHumid(double humid, boolean start) {
-		this.currHumid = humid;
-		if (start) {
-			this.startHumid = humid;
-		}
+	public void setCurrentHumid(double humid, boolean start) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, current.externalTempRate, (start ? humid : current.startHumid), humid, current.externalHumidRate, current.startMoist, current.currMoist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
 	Sets the current rate at which the greenhouse humidity is changing because of external effects
 	@param humidRate External humidity effect rate on greenhouse
 	*/
-	public synchronized void setExternalHumidRate(double humidRate) {
-		this.externalHumidRate = humidRate;
+	public void setExternalHumidRate(double humidRate) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, current.externalTempRate, current.startHumid, current.currHumid, humidRate, current.startMoist, current.currMoist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -138,19 +243,39 @@ public class EnvironmentModel {
 	@param moist Current greenhouse soil moisture (Intially specified by the user, then by Soil Moisture sensor throughout the simulation)
 	@param start Specifies whether current soil moisture incoming is from the start of the program or not
 	*/
-	public synchronized void setCurrentMoist(double moist, boolean start) {
-		this.currMoist = moist;
-		if (start) {
-			this.startMoist = moist;
-		}
+	public void setCurrentMoist(double moist, boolean start) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, current.externalTempRate, current.startHumid, current.currHumid, current.externalHumidRate, (start ? moist : current.startMoist), moist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
 	Sets the current rate at which the greenhouse soil moisture level is changing because of external effects
 	@param moistRate External soil moisture level effect rate on greenhouse
 	*/
-	public synchronized void setExternalMoistRate(double moistRate) {
-		this.externalMoistRate = moistRate;
+	public void setExternalMoistRate(double moistRate) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, current.externalTempRate, current.startHumid, current.currHumid, current.externalHumidRate, current.startMoist, current.currMoist, moistRate);
+		} while (!this.state.compareAndSet(current, next));
+	}
+	
+	/***
+	Sets all three external rates at once. Changing weather sets them every tick, so they are published as one State
+	instead of three.
+	@param tempRate External temperature effect rate on greenhouse
+	@param humidRate External humidity effect rate on greenhouse
+	@param moistRate External soil moisture level effect rate on greenhouse
+	*/
+	public void setExternalRates(double tempRate, double humidRate, double moistRate) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, current.currTemp, tempRate, current.startHumid, current.currHumid, humidRate, current.startMoist, current.currMoist, moistRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	// PROCESS 
@@ -158,36 +283,89 @@ public class EnvironmentModel {
 	/***
 	This method is responsible for updating the current greenhouse environment after the effects of external effects intelligently. Each environment property 
 	of the greenhouse has a specified maximum and minimum threshold beyond which the external effects will have no effect. For example, the temperature cannot go
-	below absolute zero and air cannot be saturated past 100% for humidity. 
+	below absolute zero and air cannot be saturated past 100% for humidity. Each call covers one simulated minute.
+	*/
+	public void processEnv() {
+		this.processEnv(1);
+	}
+	
+	/***
+	Applies the external effects for a span of simulated time. The external rates are per minute, so each reading
+	changes by its rate times the number of minutes.
+	@param minutes Simulated minutes since the external effects were last applied
 	*/
-	public synchronized void processEnv() {
+	public void processEnv(double minutes) {
 		
-		// Temperature 
-		if ((this.currTemp + this.externalTempRate) >= TemperatureModel.ABSOLUTEZERO && (this.currTemp + this.externalTempRate) <= TemperatureModel.TOASTY) {
-			this.currTemp += this.externalTempRate;
-		} else if ((this.currTemp + this.externalTempRate) < TemperatureModel.ABSOLUTEZERO) {
-			this.currTemp = TemperatureModel.ABSOLUTEZERO;
-		} else if ((this.currTemp + this.externalTempRate) > TemperatureModel.TOASTY) {
-			this.currTemp = TemperatureModel.TOASTY;
-		}
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, clamp(current.currTemp + current.externalTempRate * minutes, TemperatureModel.ABSOLUTEZERO, TemperatureModel.TOASTY), current.externalTempRate,
+					current.startHumid, clamp(current.currHumid + current.externalHumidRate * minutes, HumidityModel.MINHUMIDITY, HumidityModel.MAXHUMIDITY), current.externalHumidRate,
+					current.startMoist, clamp(current.currMoist + current.externalMoistRate * minutes, MoistureModel.MINMOISTURE, MoistureModel.MAXMOISTURE), current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 		
-		// Humidity
-		if ((this.currHumid + this.externalHumidRate) >= HumidityModel.MINHUMIDITY && (this.currHumid + this.externalHumidRate) <= HumidityModel.MAXHUMIDITY) {
-			this.currHumid += this.externalHumidRate;
-		} else if ((this.currHumid + this.externalHumidRate) < HumidityModel.MINHUMIDITY) {
-			this.currHumid = HumidityModel.MINHUMIDITY;
-		} else if ((this.currHumid + this.externalHumidRate) > HumidityModel.MAXHUMIDITY) {
-			this.currHumid = HumidityModel.MAXHUMIDITY;
+	}
+	
+	/***
+	Holds a value within a minimum and maximum threshold
+	@param value The value after the external effect has been applied
+	@param min The lowest the value can go
+	@param max The highest the value can go
+	@return The value, or the threshold it went past
+	*/
+	static double clamp(double value, double min, double max) {
+		if (value < min) {
+			return min;
+		} else if (value > max) {
+			return max;
 		}
+		return value;
+	}
+	
+	/***
+	Applies one round of external effects to the greenhouse. Each sensor's reading is changed by its external rate in a
+	single step on the sensor's own state, the same way the sensor's devices change it, so the external effects and the
+	devices both count however their threads interleave. The three readings returned by those steps are then recorded
+	in one new environment state.
+	
+	The recorded readings are not a snapshot of the three sensors at one instant. Each is the reading its sensor held
+	right after its own external effect, and a sensor's device can move its reading between two of the steps or after
+	them. The environment state holds the readings the external effects produced, which is what the environment row of
+	a recording shows; the sensors' own states hold their current readings.
+	
+	This is the environment step shared by the live simulation and the headless simulation engine. One round covers
+	one simulated minute.
+	@param tempModel Temperature model to update
+	@param humidModel Humidity model to update
+	@param moistModel Soil moisture model to update
+	*/
+	public void applyExternalEffects(TemperatureModel tempModel, HumidityModel humidModel, MoistureModel moistModel) {
+		this.applyExternalEffects(tempModel, humidModel, moistModel, 1);
+	}
+	
+	/***
+	Applies the external effects for a span of simulated time. See applyExternalEffects(TemperatureModel, HumidityModel, MoistureModel).
+	@param tempModel Temperature model to update
+	@param humidModel Humidity model to update
+	@param moistModel Soil moisture model to update
+	@param minutes Simulated minutes since the external effects were last applied
+	*/
+	public void applyExternalEffects(TemperatureModel tempModel, HumidityModel humidModel, MoistureModel moistModel, double minutes) {
 		
-		// Soil Moisture
-		if ((this.currMoist + this.externalMoistRate) >= MoistureModel.MINMOISTURE && (this.currMoist + this.externalMoistRate) <= MoistureModel.MAXMOISTURE) {
-			this.currMoist += this.externalMoistRate;
-		} else if ((this.currMoist + this.externalMoistRate) < MoistureModel.MINMOISTURE) {
-			this.currMoist = MoistureModel.MINMOISTURE;
-		} else if ((this.currMoist + this.externalMoistRate) > MoistureModel.MAXMOISTURE) {
-			this.currMoist = MoistureModel.MAXMOISTURE;
-		}
+		// Commit the external effects onto each sensor's newest reading, instead of reading it and writing it back later
+		State rates = this.state.get();
+		double temp = tempModel.applyExternalEffect(rates.externalTempRate * minutes);
+		double humid = humidModel.applyExternalEffect(rates.externalHumidRate * minutes);
+		double moist = moistModel.applyExternalEffect(rates.externalMoistRate * minutes);
+		
+		// Record the readings after the external effects in one new state
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.startTemp, temp, current.externalTempRate,
+					current.startHumid, humid, current.externalHumidRate,
+					current.startMoist, moist, current.externalMoistRate);
+		} while (!this.state.compareAndSet(current, next));
 		
 	}
 	
@@ -195,7 +373,8 @@ public class EnvironmentModel {
 	Creates a well formated data string so that it can be stored into a simulation save file for retrieval 
 	*/
 	public String toString() {
-		return "E," + this.startTemp + "," + this.startHumid + "," + this.startMoist + "," + this.externalTempRate + "," + this.externalHumidRate + "," + this.externalMoistRate + ",";
+		State current = this.state.get();
+		return "E," + current.startTemp + "," + current.startHumid + "," + current.startMoist + "," + current.externalTempRate + "," + current.externalHumidRate + "," + current.externalMoistRate + ",";
 	}
 
 }
\ No newline at end of file
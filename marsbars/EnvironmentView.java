@@ -39,11 +39,16 @@ public class EnvironmentView extends JPanel {
 	private JLabel extMoistLabel 	= new JLabel("Soil Moisture Effect (%/min)");
 	private JSlider moistRange 		= new JSlider(JSlider.HORIZONTAL, -5, 5, 0);
 	
-	private JLabel refreshRateLabel = new JLabel("Refresh Rate (Sec)");	
-	private JSlider refreshRate 	= new JSlider(JSlider.HORIZONTAL, 1, 10, 5);
+	private JLabel refreshRateLabel = new JLabel("Refresh Rate");	
+	private RefreshSlider refreshRate 	= new RefreshSlider(2);
 	
 	private Font fontTextField = new Font("Arial",Font.BOLD,24);
 	
+	// Numbers shown in the text fields. Updates that round to the text already shown are skipped.
+	private DecimalDisplay startTempDisplay = new DecimalDisplay(startTemp, 2);
+	private DecimalDisplay startHumidDisplay = new DecimalDisplay(startHumid, 2);
+	private DecimalDisplay startMoistDisplay = new DecimalDisplay(startMoist, 2);
+	
 	/***
 	Contructor that sets the basic GUI elements for the Panel
 	*/
@@ -97,11 +102,6 @@ public class EnvironmentView extends JPanel {
 		// Refresh rate of the current greenhouse environment 
 		panel5.add(refreshRateLabel);
 		panel5.add(new JLabel());
-		this.refreshRate.setValue(2);
-		this.refreshRate.setMinorTickSpacing(1);
-		this.refreshRate.setMajorTickSpacing(1);
-		this.refreshRate.setPaintTicks(true);
-		this.refreshRate.setPaintLabels(true);
 		panel5.add(refreshRate);
 		panel5.add(new JLabel());
 		
@@ -177,10 +177,10 @@ public class EnvironmentView extends JPanel {
 	
 	/***
 	Returns the rate at which the current thread refreshes the greenhouse environment data
-	@return Thread refresh rate
+	@return Thread refresh rate in seconds
 	*/
-	public int getRefreshRate() {
-		return this.refreshRate.getValue();
+	public double getRefreshRate() {
+		return this.refreshRate.getSeconds();
 	}
 
 	// SET	
@@ -190,7 +190,7 @@ public class EnvironmentView extends JPanel {
 	@param temp Starting temperature of the greenhouse
 	*/
 	public void setStartTemp(double temp) {
-		this.startTemp.setText(String.format("%.2f", temp));
+		this.startTempDisplay.setValue(temp);
 	}
 	
 	/***
@@ -206,7 +206,7 @@ public class EnvironmentView extends JPanel {
 	@param humid Starting humdity of the greenhouse
 	*/
 	public void setStartHumid(double humid) {
-		this.startHumid.setText(String.format("%.2f", humid));
+		this.startHumidDisplay.setValue(humid);
 	}
 	
 	/***
@@ -222,7 +222,7 @@ public class EnvironmentView extends JPanel {
 	@param moist Starting soil moisture of the greenhouse
 	*/
 	public void setStartMoist(double moist) {
-		this.startMoist.setText(String.format("%.2f", moist));
+		this.startMoistDisplay.setValue(moist);
 	}
 	
 	/***
@@ -238,7 +238,7 @@ public class EnvironmentView extends JPanel {
 	@param rate GUI refresh rate
 	*/
 	public void setRefreshRate(double rate) {
-		this.refreshRate.setValue((int) rate);
+		this.refreshRate.setSeconds(rate);
 	}
 	
 	/***
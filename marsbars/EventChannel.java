@@ -0,0 +1,197 @@
+/***
+
+Event Channel carries errors and warnings from the simulation's threads to whoever shows them, such as the main
+GUI or a log on the console. A controller used to open a dialog box from its own thread for every error, so an
+error that happens on every tick stopped the simulation behind a pile of dialogs. Publishing an event never waits
+and never asks the user anything: the event is counted against its subsystem and message, and the thread carries on.
+
+The events are handed to a sink by draining the channel from another thread. Each different message of a subsystem
+is handed over at most once per interval, with the number of times it happened since it was last handed over, so
+an error that repeats every tick shows up once every few seconds as a count instead of once per tick.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/***
+Lock-free channel of errors and warnings that merges repeats and limits how often each one is delivered.
+*/
+public class EventChannel {
+
+	// Levels
+	public static final int WARNING = 1;
+	public static final int ERROR 	= 2;
+
+	/***
+	Milliseconds between two deliveries of the same event when no interval is given
+	*/
+	public static final long DEFAULT_INTERVAL = 5000;
+
+	/***
+	Different messages kept for each subsystem. Messages past this, such as ones that hold a changing number,
+	are merged into a single event that shows the newest of them.
+	*/
+	public static final int MAX_MESSAGES = 64;
+
+	private ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>> sources = new ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>>();
+	private ConcurrentHashMap<String, Entry> overflow = new ConcurrentHashMap<String, Entry>();
+	private volatile long interval;
+
+	/***
+	Counts of one message of one subsystem. Publishers only add to the count. The rest is only used by the drain.
+	*/
+	private static class Entry {
+
+		private String source;
+		private volatile String message;
+		private volatile int level;
+		private AtomicLong count = new AtomicLong(0);
+		private volatile long time;
+
+		private long delivered = 0;
+		private long lastDelivery = 0;
+
+		private Entry(int theLevel, String theSource, String theMessage) {
+			this.level = theLevel;
+			this.source = theSource;
+			this.message = theMessage;
+		}
+
+	}
+
+	/***
+	A channel that delivers each event at most once every DEFAULT_INTERVAL
+	*/
+	public EventChannel() {
+		this(DEFAULT_INTERVAL);
+	}
+
+	/***
+	A channel that delivers each event at most once per interval
+	@param millis Milliseconds between two deliveries of the same event
+	*/
+	public EventChannel(long millis) {
+		this.interval = millis;
+	}
+
+	// SET
+
+	/***
+	Sets how often the same event can be delivered. The new interval applies to the next delivery of every event.
+	@param millis Milliseconds between two deliveries of the same event
+	*/
+	public void setInterval(long millis) {
+		this.interval = millis;
+	}
+
+	// PROCESS
+
+	/***
+	Publishes an event. Never waits, so it can be called from the tick of any controller.
+	@param level WARNING or ERROR
+	@param source Subsystem the event came from, for example "Environment"
+	@param message What happened
+	*/
+	public void publish(int level, String source, String message) {
+
+		if (message == null) {
+			message = "Unknown error";
+		}
+
+		ConcurrentHashMap<String, Entry> messages = this.sources.get(source);
+		if (messages == null) {
+			messages = new ConcurrentHashMap<String, Entry>();
+			ConcurrentHashMap<String, Entry> existing = this.sources.putIfAbsent(source, messages);
+			if (existing != null) {
+				messages = existing;
+			}
+		}
+
+		Entry entry = messages.get(message);
+		if (entry == null) {
+			if (messages.size() < MAX_MESSAGES) {
+				entry = new Entry(level, source, message);
+				Entry existing = messages.putIfAbsent(message, entry);
+				if (existing != null) {
+					entry = existing;
+				}
+			} else {
+				entry = this.overflow.get(source);
+				if (entry == null) {
+					entry = new Entry(level, source, message);
+					Entry existing = this.overflow.putIfAbsent(source, entry);
+					if (existing != null) {
+						entry = existing;
+					}
+				}
+				entry.message = message;
+			}
+		}
+
+		if (level > entry.level) {
+			entry.level = level;
+		}
+		entry.time = System.currentTimeMillis();
+		entry.count.incrementAndGet();
+	}
+
+	/***
+	Hands every event that happened since it was last delivered, and was not delivered within the interval, to a sink
+	@param sink Where the events are delivered
+	@return Number of events delivered
+	*/
+	public synchronized int drain(EventSink sink) {
+		long now = System.currentTimeMillis();
+		int delivered = 0;
+		for (ConcurrentHashMap<String, Entry> messages : this.sources.values()) {
+			for (Entry entry : messages.values()) {
+				delivered += this.deliver(entry, now, sink);
+			}
+		}
+		for (Entry entry : this.overflow.values()) {
+			delivered += this.deliver(entry, now, sink);
+		}
+		return delivered;
+	}
+
+	/***
+	Delivers one event if it happened since it was last delivered and its interval has passed
+	@param entry Counts of the event
+	@param now The time now in milliseconds
+	@param sink Where the event is delivered
+	@return 1 if the event was delivered, otherwise 0
+	*/
+	private int deliver(Entry entry, long now, EventSink sink) {
+		long total = entry.count.get();
+		if (total == entry.delivered || (entry.delivered > 0 && now - entry.lastDelivery < this.interval)) {
+			return 0;
+		}
+		SimulationEvent event = new SimulationEvent(entry.level, entry.source, entry.message, total - entry.delivered, total, entry.time);
+		entry.delivered = total;
+		entry.lastDelivery = now;
+		sink.deliver(event);
+		return 1;
+	}
+
+	/***
+	A sink that prints each event on its own line
+	@param out Where the events are printed
+	@return The sink
+	*/
+	public static EventSink log(final PrintStream out) {
+		return new EventSink() {
+			public void deliver(SimulationEvent event) {
+				out.println(event);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,25 @@
+/***
+
+Event Sink receives the errors and warnings drained from the event channel, for example the status line of the
+main GUI or a log printed to the console.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Receives the events drained from an event channel.
+*/
+public interface EventSink {
+
+	/***
+	Handles one event. Called by the thread that drains the channel.
+	@param event The event, with the number of times it happened since it was last delivered
+	*/
+	void deliver(SimulationEvent event);
+
+}
@@ -0,0 +1,195 @@
+/***
+
+External Driver describes how one external rate changes from tick to tick when the weather is not constant. The rate
+can stay fixed, wander as a random walk, be pulled back towards its usual value as Ornstein-Uhlenbeck noise, or be
+hit by sudden gusts that die away. A driver only holds the settings of the process; the random numbers and the
+current rate belong to the replica being run, so one driver can be shared by every worker thread.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.*;
+
+/***
+Settings of the random process that moves one external rate every tick.
+*/
+public final class ExternalDriver {
+
+	// Kinds of process
+	public static final int CONSTANT = 0;
+	public static final int RANDOM_WALK = 1;
+	public static final int ORNSTEIN_UHLENBECK = 2;
+	public static final int GUSTS = 3;
+
+	/***
+	Names of every kind of process, as written in a scenario properties file
+	*/
+	public static final String[] KINDS = {"constant", "walk", "ou", "gusts"};
+
+	/***
+	A driver that leaves the rate at its configured value
+	*/
+	public static final ExternalDriver NONE = new ExternalDriver(CONSTANT, 0, 0, 0);
+
+	private final int kind;
+	private final double volatility;
+	private final double reversion;
+	private final double gustChance;
+
+	/***
+	Creates a driver
+	@param theKind CONSTANT, RANDOM_WALK, ORNSTEIN_UHLENBECK, or GUSTS
+	@param theVolatility Standard deviation of the random change each tick, or of the size of a gust
+	@param theReversion Share of the distance back to the configured rate that is made up each tick, from 0 to 1
+	@param theGustChance Chance of a gust starting on any tick, from 0 to 1
+	*/
+	public ExternalDriver(int theKind, double theVolatility, double theReversion, double theGustChance) {
+		if (theKind < CONSTANT || theKind > GUSTS) {
+			throw new IllegalArgumentException("Unknown kind of external driver: " + theKind);
+		}
+		if (!(theVolatility >= 0)) {
+			throw new IllegalArgumentException("The volatility cannot be negative");
+		}
+		if (!(theReversion >= 0 && theReversion <= 1) || !(theGustChance >= 0 && theGustChance <= 1)) {
+			throw new IllegalArgumentException("The reversion and gust chance must be between 0 and 1");
+		}
+		this.kind = theKind;
+		this.volatility = theVolatility;
+		this.reversion = theReversion;
+		this.gustChance = theGustChance;
+	}
+
+	/***
+	Reads a driver from a scenario properties file. For a rate such as extTempRate the entries are extTempDriver
+	(one of KINDS), extTempVolatility, extTempReversion, and extTempGustChance. A rate without a driver entry stays constant.
+	@param props The scenario properties
+	@param rateKey The config key of the external rate the driver moves
+	@return The driver
+	@throws NumberFormatException Throws an error if a setting is not a number
+	*/
+	public static ExternalDriver load(Properties props, String rateKey) {
+
+		String[] keys = keys(rateKey);
+		String name = props.getProperty(keys[0]);
+		if (name == null) {
+			return NONE;
+		}
+
+		int theKind = Arrays.asList(KINDS).indexOf(name.trim());
+		if (theKind < 0) {
+			throw new IllegalArgumentException("Unknown kind of external driver for " + rateKey + ": " + name.trim());
+		}
+		return new ExternalDriver(theKind,
+				Double.parseDouble(props.getProperty(keys[1], "0").trim()),
+				Double.parseDouble(props.getProperty(keys[2], "0").trim()),
+				Double.parseDouble(props.getProperty(keys[3], "0").trim()));
+	}
+
+	/***
+	Returns the scenario file keys of the driver of a rate
+	@param rateKey The config key of the external rate the driver moves, such as extTempRate
+	@return The driver, volatility, reversion, and gust chance keys, such as extTempDriver and extTempVolatility
+	*/
+	public static String[] keys(String rateKey) {
+		String prefix = rateKey.substring(0, rateKey.length() - "Rate".length());
+		return new String[] {prefix + "Driver", prefix + "Volatility", prefix + "Reversion", prefix + "GustChance"};
+	}
+
+	// GET
+
+	/***
+	Returns the kind of process
+	@return CONSTANT, RANDOM_WALK, ORNSTEIN_UHLENBECK, or GUSTS
+	*/
+	public int getKind() {
+		return this.kind;
+	}
+
+	/***
+	Returns the standard deviation of the random change each tick, or of the size of a gust
+	@return volatility The volatility
+	*/
+	public double getVolatility() {
+		return this.volatility;
+	}
+
+	/***
+	Returns the share of the distance back to the configured rate that is made up each tick
+	@return reversion The reversion from 0 to 1
+	*/
+	public double getReversion() {
+		return this.reversion;
+	}
+
+	/***
+	Returns the chance of a gust starting on any tick
+	@return gustChance The chance from 0 to 1
+	*/
+	public double getGustChance() {
+		return this.gustChance;
+	}
+
+	// PROCESS
+
+	/***
+	Moves a rate forward by one tick
+	@param rate The rate on the last tick
+	@param mean The configured rate the process wanders around
+	@param random The replica's own random numbers
+	@return The rate on this tick
+	*/
+	public double next(double rate, double mean, SplittableRandom random) {
+		switch (this.kind) {
+			case RANDOM_WALK:
+				return rate + this.volatility * gaussian(random);
+			case ORNSTEIN_UHLENBECK:
+				return rate + this.reversion * (mean - rate) + this.volatility * gaussian(random);
+			case GUSTS:
+				// What is left of earlier gusts dies away, and now and then a new one adds to it
+				double gust = (rate - mean) * (1 - this.reversion);
+				if (random.nextDouble() < this.gustChance) {
+					gust += this.volatility * gaussian(random);
+				}
+				return mean + gust;
+			default:
+				return mean;
+		}
+	}
+
+	/***
+	Draws a normally distributed number with Marsaglia's polar method. SplittableRandom has no nextGaussian of its own.
+	@param random The random numbers to draw from
+	@return A number with mean 0 and standard deviation 1
+	*/
+	private static double gaussian(SplittableRandom random) {
+		double x, y, s;
+		do {
+			x = 2 * random.nextDouble() - 1;
+			y = 2 * random.nextDouble() - 1;
+			s = x * x + y * y;
+		} while (s >= 1 || s == 0);
+		return x * Math.sqrt(-2 * Math.log(s) / s);
+	}
+
+	/***
+	Creates a well formated description of the driver
+	*/
+	public String toString() {
+		switch (this.kind) {
+			case RANDOM_WALK:
+				return KINDS[this.kind] + " (volatility " + this.volatility + ")";
+			case ORNSTEIN_UHLENBECK:
+				return KINDS[this.kind] + " (volatility " + this.volatility + ", reversion " + this.reversion + ")";
+			case GUSTS:
+				return KINDS[this.kind] + " (size " + this.volatility + ", decay " + this.reversion + ", chance " + this.gustChance + ")";
+			default:
+				return KINDS[this.kind];
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+/***
+
+Fleet Simulator is responsible for running many greenhouses at once without the GUI. Every greenhouse either has its own
+simulation engine or a slot in a shared columnar state store, and the fleet is stepped together on a fixed number of 
+worker threads.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/***
+Steps a fleet of greenhouses together on a bounded pool of worker threads.
+*/
+public class FleetSimulator {
+
+	/***
+	Number of ticks every greenhouse runs before the workers wait for each other.
+	*/
+	public static final int BATCH_TICKS = 1000;
+	
+	/***
+	Number of greenhouses a worker steps together in columnar mode. Small enough for the block to stay in the processor cache.
+	*/
+	public static final int BLOCK_SIZE = 256;
+
+	private SimulationEngine[] fleet;
+	private GreenhouseStateStore store;
+	private int size;
+	private ExecutorService workers;
+	private int threads;
+
+	private long tickCount = 0;
+	private long elapsedNanos = 0;
+
+	/***
+	Creates a fleet of identical greenhouses
+	@param config The starting values, ranges, and rates for every greenhouse
+	@param greenhouses Number of greenhouses in the fleet
+	@param threads Number of worker threads that step the fleet
+	@throws Exception Throws an error if any value is rejected by a model
+	*/
+	public FleetSimulator(SimulationConfig config, int greenhouses, int threads) throws Exception {
+		this(config, greenhouses, threads, false);
+	}
+	
+	/***
+	Creates a fleet of identical greenhouses
+	@param config The starting values, ranges, and rates for every greenhouse
+	@param greenhouses Number of greenhouses in the fleet
+	@param threads Number of worker threads that step the fleet
+	@param columnar Keep the fleet in a columnar state store instead of one set of models per greenhouse
+	@throws Exception Throws an error if any value is rejected by a model
+	*/
+	public FleetSimulator(SimulationConfig config, int greenhouses, int threads, boolean columnar) throws Exception {
+		if (columnar) {
+			this.store = new GreenhouseStateStore(greenhouses);
+			for (int i = 0; i < greenhouses; i++) {
+				this.store.load(i, config);
+			}
+		} else {
+			this.fleet = new SimulationEngine[greenhouses];
+			for (int i = 0; i < greenhouses; i++) {
+				this.fleet[i] = SimulationEngine.create(config);
+			}
+		}
+		this.size = greenhouses;
+		this.threads = Math.max(1, Math.min(threads, greenhouses));
+		this.workers = Executors.newFixedThreadPool(this.threads);
+	}
+
+	// GET
+
+	/***
+	Returns the engine of one greenhouse in the fleet
+	@param index Position of the greenhouse in the fleet
+	@return The greenhouse's engine, or null if the fleet is columnar
+	*/
+	public SimulationEngine getGreenhouse(int index) {
+		return (this.fleet == null) ? null : this.fleet[index];
+	}
+	
+	/***
+	Returns the columnar state store that holds the fleet
+	@return store The state store, or null if every greenhouse has its own engine
+	*/
+	public GreenhouseStateStore getStateStore() {
+		return this.store;
+	}
+
+	/***
+	Returns the number of greenhouses in the fleet
+	@return Number of greenhouses
+	*/
+	public int size() {
+		return this.size;
+	}
+
+	/***
+	Returns how many ticks every greenhouse in the fleet has run
+	@return tickCount Number of completed ticks
+	*/
+	public long getTickCount() {
+		return this.tickCount;
+	}
+
+	/***
+	Returns the number of greenhouse ticks completed per second of stepping so far
+	@return Greenhouse ticks per second
+	*/
+	public double getTicksPerSecond() {
+		if (this.elapsedNanos == 0) {
+			return 0.0;
+		}
+		return (double)this.tickCount * this.size / (this.elapsedNanos / 1e9);
+	}
+
+	// PROCESS
+
+	/***
+	Runs every greenhouse for the specified number of ticks. The fleet is split into one slice per worker and
+	the workers meet up after every batch so that no greenhouse runs ahead of the others by more than a batch.
+	@param ticks Number of ticks to run
+	@throws InterruptedException Throws an error if the thread is interrupted while waiting for the workers
+	*/
+	public void step(long ticks) throws InterruptedException {
+
+		long start = System.nanoTime();
+		long remaining = ticks;
+
+		while (remaining > 0) {
+
+			final long batch = Math.min(remaining, BATCH_TICKS);
+			List<Future<?>> pending = new ArrayList<Future<?>>();
+
+			for (int w = 0; w < this.threads; w++) {
+				final int from = (int)((long)this.size * w / this.threads);
+				final int to = (int)((long)this.size * (w + 1) / this.threads);
+				pending.add(this.workers.submit(new Callable<Void>() {
+					public Void call() {
+						if (store != null) {
+							for (int block = from; block < to; block += BLOCK_SIZE) {
+								store.run(block, Math.min(block + BLOCK_SIZE, to), batch);
+							}
+						} else {
+							for (int i = from; i < to; i++) {
+								fleet[i].run(batch);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+
+			try {
+				for (Future<?> result : pending) {
+					result.get();
+				}
+			} catch (ExecutionException e) {
+				// Stepping a greenhouse throws no checked errors, so the cause is an unchecked one
+				if (e.getCause() instanceof Error) {
+					throw (Error)e.getCause();
+				}
+				throw (RuntimeException)e.getCause();
+			}
+
+			remaining -= batch;
+			this.tickCount += batch;
+		}
+
+		this.elapsedNanos += System.nanoTime() - start;
+	}
+
+	/***
+	Stops the worker threads. The fleet cannot be stepped after it has been shut down.
+	*/
+	public void shutdown() {
+		this.workers.shutdown();
+	}
+
+	/***
+	Runs a fleet of greenhouses and reports the throughput.
+	Usage: java marsbars.FleetSimulator [greenhouses] [ticks] [threads] [scenario.properties] [columnar]
+	@param args Command Line arguments
+	*/
+	public static void main(String[] args) {
+
+		FleetSimulator fleet = null;
+
+		try {
+
+			int greenhouses = 10000;
+			long ticks = 10000;
+			int threads = Runtime.getRuntime().availableProcessors();
+			SimulationConfig config = new SimulationConfig();
+			boolean columnar = false;
+
+			if (args.length > 0) {
+				greenhouses = Integer.parseInt(args[0]);
+			}
+			if (args.length > 1) {
+				ticks = Long.parseLong(args[1]);
+			}
+			if (args.length > 2) {
+				threads = Integer.parseInt(args[2]);
+			}
+			if (args.length > 3) {
+				config = SimulationConfig.load(new File(args[3]));
+			}
+			if (args.length > 4) {
+				columnar = args[4].equals("columnar");
+			}
+
+			fleet = new FleetSimulator(config, greenhouses, threads, columnar);
+			fleet.step(ticks);
+
+			System.out.println(greenhouses + " greenhouses x " + ticks + " ticks on " + fleet.threads + " threads: " + (long)fleet.getTicksPerSecond() + " ticks/sec");
+
+		} catch (NumberFormatException e) {
+			System.out.println("Please enter a valid number");
+		} catch (Exception e) {
+			System.out.println("Error: " + e.getMessage());
+		} finally {
+			if (fleet != null) {
+				fleet.shutdown();
+			}
+		}
+
+	}
+
+}
@@ -18,6 +18,7 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.*;
 
 /***
 This class combines all the controller/sensor panel GUIs and adds GUI elements for file control
@@ -30,12 +31,12 @@ public class GUI extends JFrame {
 	private MoistureView moistGUI;
 
 	private static int WIN_WIDTH = 1380;
-	private static int WIN_HEIGHT = 500;
+	private static int WIN_HEIGHT = 600;
 	
 	private JPanel mainPanel = new JPanel(new FlowLayout(FlowLayout.LEADING));
 	
 	// Control Menu Items
-	private JPanel menuPanel 	= new JPanel(new GridLayout(5,1));	
+	private JPanel menuPanel 	= new JPanel(new GridLayout(7,1));	
 	private JButton runSim 		= new JButton("Start");
 	private JButton resSim 		= new JButton("Resume");
 	private JButton stopSim 	= new JButton("Pause");
@@ -43,7 +44,23 @@ public class GUI extends JFrame {
 	private JButton saveSim 	= new JButton("Save");
 	private JButton closeSim 	= new JButton("Close");
 	
+	// Steps a paused simulation a number of ticks at a time
+	private JButton stepSim 	= new JButton("Step");
+	private JSpinner stepCount 	= new JSpinner(new SpinnerNumberModel(1, 1, 1000000, 1));
+	
 	private JLabel status		= new JLabel("");
+	private JLabel event		= new JLabel("");
+	
+	// Playback Controls for binary save files
+	private static int SCRUB_STEPS = 10000;
+	private JSlider scrubBar 	= new JSlider(JSlider.HORIZONTAL, 0, SCRUB_STEPS, 0);
+	private JComboBox<String> playbackSpeed = new JComboBox<String>(new String[] {"0.25x", "0.5x", "1x", "2x", "5x", "10x", "100x"});
+	// Set while the playback moves the scrub bar. Only used on the event dispatch thread.
+	private boolean movingScrubBar = false;
+	
+	// Simulated time and how fast it runs
+	private JLabel simulatedTime = new JLabel(SimulationClock.format(0));
+	private JComboBox<String> simulationSpeed = new JComboBox<String>();
 	
 	/***
 	Controller which takes in all the GUI sub components. It sets up the display and dimensions of the Main GUI window. 
@@ -70,7 +87,7 @@ public class GUI extends JFrame {
 		JPanel sublpanel2 = new JPanel(new FlowLayout(FlowLayout.CENTER));
 		JPanel sublpanel3 = new JPanel(new FlowLayout(FlowLayout.CENTER));
 		JPanel sublpanel4 = new JPanel(new FlowLayout(FlowLayout.CENTER));
-		JPanel sublpanel5 = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		JPanel sublpanel5 = new JPanel(new GridLayout(2,1));
 		
 		sublpanel1.add(runSim);
 		sublpanel1.add(resSim);
@@ -79,21 +96,45 @@ public class GUI extends JFrame {
 		resSim.setVisible(false);
 		stopSim.setVisible(false);
 		
+		JPanel sublpanel7 = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		sublpanel7.add(stepSim);
+		sublpanel7.add(stepCount);
+		stepSim.setVisible(false);
+		stepCount.setVisible(false);
+		
 		sublpanel2.add(saveSim);
 		sublpanel2.add(loadSim);
 		
 		sublpanel3.add(closeSim);
 		
-		sublpanel4.add(new JLabel());
+		sublpanel4.add(scrubBar);
+		sublpanel4.add(playbackSpeed);
+		
+		playbackSpeed.setSelectedItem("1x");
+		scrubBar.setVisible(false);
+		playbackSpeed.setVisible(false);
 		
 		sublpanel5.add(status);
+		sublpanel5.add(event);
+		
+		status.setHorizontalAlignment(JLabel.CENTER);
+		event.setHorizontalAlignment(JLabel.CENTER);
+		
+		JPanel sublpanel6 = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		for (double speed : SimulationClock.SPEEDS) {
+			simulationSpeed.addItem(SimulationClock.label(speed));
+		}
+		sublpanel6.add(simulatedTime);
+		sublpanel6.add(simulationSpeed);
 		
 		
 		menuPanel.add(sublpanel1);
+		menuPanel.add(sublpanel7);
 		menuPanel.add(sublpanel2);
 		menuPanel.add(sublpanel3);
 		menuPanel.add(sublpanel4);
 		menuPanel.add(sublpanel5);
+		menuPanel.add(sublpanel6);
 		
 		menuPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
 		
@@ -103,6 +144,11 @@ public class GUI extends JFrame {
 		saveSim.setPreferredSize(new Dimension(70,30));
 		loadSim.setPreferredSize(new Dimension(70,30));
 		closeSim.setPreferredSize(new Dimension(145,30));
+		stepSim.setPreferredSize(new Dimension(70,30));
+		stepCount.setPreferredSize(new Dimension(70,30));
+		scrubBar.setPreferredSize(new Dimension(90,30));
+		playbackSpeed.setPreferredSize(new Dimension(60,30));
+		simulationSpeed.setPreferredSize(new Dimension(60,30));
 		
 		mainPanel.add(menuPanel);
 		mainPanel.add(this.envGUI);
@@ -128,10 +174,13 @@ public class GUI extends JFrame {
 		this.runSim.setVisible(false);
 		this.resSim.setVisible(false);
 		this.stopSim.setVisible(true);
+		this.stepSim.setVisible(false);
+		this.stepCount.setVisible(false);
 	}
 	
 	/***
-	Update the UI button functionality when simulation is paused. Change the start button to a resume button.
+	Update the UI button functionality when simulation is paused. Change the start button to a resume button
+	and show the controls that step the simulation a number of ticks.
 	*/
 	public void updateButtonsWhenPaused() {
 		
@@ -143,6 +192,8 @@ public class GUI extends JFrame {
 		this.runSim.setVisible(false);
 		this.resSim.setVisible(true);
 		this.stopSim.setVisible(false);
+		this.stepSim.setVisible(true);
+		this.stepCount.setVisible(true);
 	}
 	
 	/***
@@ -153,6 +204,21 @@ public class GUI extends JFrame {
 		this.status.setText(currStatus);
 	}
 	
+	/***
+	Shows the newest error or warning from the running simulation under the status, without stopping anything.
+	The full message is shown when the mouse is held over it.
+	@param theEvent The event drained from the simulation's event channel
+	*/
+	public void showEvent(SimulationEvent theEvent) {
+		String text = theEvent.getSource() + ": " + theEvent.getMessage();
+		if (theEvent.getCount() > 1) {
+			text += " (x" + theEvent.getCount() + ")";
+		}
+		this.event.setForeground(theEvent.getLevel() == EventChannel.ERROR ? Color.RED : Color.ORANGE.darker());
+		this.event.setText(text);
+		this.event.setToolTipText(text);
+	}
+	
 	/***
 	Disable the load button when save file is selected for simulation data save. The two actions cannot be allowed at the same time. 
 	*/
@@ -167,6 +233,89 @@ public class GUI extends JFrame {
 		this.loadSim.setEnabled(false);
 	}
 	
+	/***
+	Shows the scrub bar and playback speed selector when a binary save file is loaded for playback.
+	*/
+	public void showPlaybackControls() {
+		this.scrubBar.setVisible(true);
+		this.playbackSpeed.setVisible(true);
+	}
+	
+	/***
+	Moves the scrub bar to show how far into the recording the playback is. The bar is left alone while the user
+	is dragging it. Must be called on the event dispatch thread.
+	@param fraction How far into the recording the playback is, from 0 (start) to 1 (end)
+	*/
+	public void setScrubPosition(double fraction) {
+		if (this.scrubBar.getValueIsAdjusting()) {
+			return;
+		}
+		this.movingScrubBar = true;
+		try {
+			this.scrubBar.setValue((int)Math.round(fraction * SCRUB_STEPS));
+		} finally {
+			this.movingScrubBar = false;
+		}
+	}
+	
+	/***
+	Returns the position of the scrub bar
+	@return How far into the recording the scrub bar is, from 0 (start) to 1 (end)
+	*/
+	public double getScrubPosition() {
+		return (double)this.scrubBar.getValue() / SCRUB_STEPS;
+	}
+	
+	/***
+	Returns whether the scrub bar was moved by the user rather than by the playback. Must be called on the event
+	dispatch thread, from a listener of the scrub bar.
+	@return Whether the user moved the scrub bar
+	*/
+	public boolean isScrubbedByUser() {
+		return !this.movingScrubBar;
+	}
+	
+	/***
+	Shows the simulated time on the UI
+	@param time The simulated time, as written by SimulationClock.format
+	*/
+	public void setSimulatedTime(String time) {
+		this.simulatedTime.setText(time);
+	}
+	
+	/***
+	Returns the simulation speed selected by the user
+	@return Simulation speed, where 1 is real time, or SimulationClock.MAX
+	*/
+	public double getSimulationSpeed() {
+		return SimulationClock.parse((String)this.simulationSpeed.getSelectedItem());
+	}
+	
+	/***
+	Returns the playback speed selected by the user
+	@return Playback speed, where 1 is the speed the simulation was recorded at
+	*/
+	public double getPlaybackSpeed() {
+		String speed = (String)this.playbackSpeed.getSelectedItem();
+		return Double.parseDouble(speed.substring(0, speed.length() - 1));
+	}
+	
+	/***
+	Enables or disables the Step button. It is disabled while a step runs and until every paused thread has stopped.
+	@param enabled Whether the user can step the simulation
+	*/
+	public void setStepEnabled(boolean enabled) {
+		this.stepSim.setEnabled(enabled);
+	}
+	
+	/***
+	Returns how many ticks the user wants each step of a paused simulation to run
+	@return Number of ticks
+	*/
+	public int getStepCount() {
+		return ((Number)this.stepCount.getValue()).intValue();
+	}
+	
 	// LISTENERS
 	
 	/***
@@ -185,6 +334,14 @@ public class GUI extends JFrame {
 		stopSim.addActionListener(theListener);		
 	}
 	
+	/***
+	Listens to see if the user wants to step the paused simulation
+	@param theListener The object that is executes the changes are triggered.
+	*/
+	public void addStepSimulationListener(ActionListener theListener) {
+		stepSim.addActionListener(theListener);		
+	}
+	
 	/***
 	Listens to see if the user wants to resume the paused simulation
 	@param theListener The object that is executes the changes are triggered.
@@ -209,6 +366,30 @@ public class GUI extends JFrame {
 		saveSim.addActionListener(theListener);		
 	}
 	
+	/***
+	Listens to see if the user has moved the scrub bar to jump to another part of the recording
+	@param theListener The object that is executes the changes are triggered.
+	*/
+	public void addScrubListener(ChangeListener theListener) {
+		scrubBar.addChangeListener(theListener);
+	}
+	
+	/***
+	Listens to see if the user has changed the simulation speed
+	@param theListener Listener object
+	*/
+	public void addSimulationSpeedListener(ActionListener theListener) {
+		simulationSpeed.addActionListener(theListener);
+	}
+	
+	/***
+	Listens to see if the user has changed the playback speed
+	@param theListener The object that is executes the changes are triggered.
+	*/
+	public void addPlaybackSpeedListener(ActionListener theListener) {
+		playbackSpeed.addActionListener(theListener);
+	}
+	
 	/***
 	Listens to see if the user wants to exit the simulation program
 	@param theListener The object that is executes the changes are triggered.
@@ -14,12 +14,19 @@ package marsbars;
 import java.awt.event.*;
 import java.io.*;
 import javax.swing.*;
+import javax.swing.event.*;
 
 /***
 Main class that brings it all toghether and contains the simulation control functions. 
 */
 public class GreenhouseSimulator {
 	
+	// Milliseconds between checks for new errors and warnings
+	private static final int EVENT_PERIOD = 250;
+	
+	// Milliseconds between checks for every paused thread having stopped, before Step is enabled
+	private static final int STEP_CHECK_PERIOD = 20;
+	
 	private TemperatureView tempView 		= new TemperatureView();
 	private TemperatureModel tempModel 		= new TemperatureModel();
 	private TemperatureController tempCont 	= new TemperatureController(tempModel,tempView);
@@ -36,12 +43,20 @@ public class GreenhouseSimulator {
 	private EnvironmentModel envModel 		= new EnvironmentModel();
 	private EnvironmentController envCont 	= new EnvironmentController(envModel,envView,tempModel,humidModel,moistModel);
 	
+	private TickScheduler scheduler 		= new TickScheduler(envCont,tempCont,humidCont,moistCont);
+	private ViewRenderer renderer 			= new ViewRenderer(ViewRenderer.DEFAULT_FPS,envCont,tempCont,humidCont,moistCont);
+	private SimulationMetrics metrics 		= new SimulationMetrics();
+	private EventChannel events 			= new EventChannel();
+	
 	private GUI mainGUI = new GUI(envView,tempView,humidView,moistView);
 	
 	private JFileChooser chooser = new JFileChooser();
 	
 	private File datafile;
-	private BufferedWriter bw;
+	private PlaybackPlayer player;
+	private PlaybackReader reader;
+	
+	private Timer stepReady;
 	
 	/***
 	Constructor that controls the start, stop, resume, load, and, save a simulation. 
@@ -51,9 +66,62 @@ public class GreenhouseSimulator {
 		mainGUI.addStartSimulationListener(new StartSimulator());
 		mainGUI.addPauseSimulationListener(new PauseSimulator());
 		mainGUI.addResumeSimulationListener(new ResumeSimulator());		
+		mainGUI.addStepSimulationListener(new StepSimulator());
 		mainGUI.addLoadSimulationListener(new LoadFile());
 		mainGUI.addSaveSimulationListener(new SaveFile());		
 		mainGUI.addCloseWindowListener(new CloseWindowListener());
+		mainGUI.addScrubListener(new ScrubPlayback());
+		mainGUI.addPlaybackSpeedListener(new ChangePlaybackSpeed());
+		mainGUI.addSimulationSpeedListener(new ChangeSimulationSpeed());
+		
+		// Every panel is drawn by the renderer on the event dispatch thread
+		envCont.setRenderer(renderer);
+		tempCont.setRenderer(renderer);
+		humidCont.setRenderer(renderer);
+		moistCont.setRenderer(renderer);
+		renderer.setClock(scheduler.getClock(), mainGUI);
+		renderer.setTrend(RecordingFormat.TEMPERATURE, tempView.getTrend());
+		renderer.setTrend(RecordingFormat.HUMIDITY, humidView.getTrend());
+		renderer.setTrend(RecordingFormat.MOISTURE, moistView.getTrend());
+		
+		// Errors on the simulation's threads are published without waiting and shown under the status a few times a second
+		scheduler.setEvents(events);
+		envCont.setEvents(events);
+		tempCont.setEvents(events);
+		humidCont.setEvents(events);
+		moistCont.setEvents(events);
+		final EventSink log = EventChannel.log(System.err);
+		final EventSink sink = new EventSink() {
+			public void deliver(SimulationEvent event) {
+				mainGUI.showEvent(event);
+				log.deliver(event);
+			}
+		};
+		new Timer(EVENT_PERIOD, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				events.drain(sink);
+			}
+		}).start();
+		
+		// Tick durations and scheduling lag of every controller are published over JMX
+		metrics.register("Scheduler", scheduler.getMetrics());
+		metrics.register("Environment", envCont.getMetrics());
+		metrics.register("Temperature", tempCont.getMetrics());
+		metrics.register("Humidity", humidCont.getMetrics());
+		metrics.register("Moisture", moistCont.getMetrics());
+		
+		// Step is only enabled once every thread it moves has stopped, so a step starts from the same tick on each
+		stepReady = new Timer(STEP_CHECK_PERIOD, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				for (Controller thread : steppedThreads()) {
+					if (!thread.isPaused()) {
+						return;
+					}
+				}
+				stepReady.stop();
+				mainGUI.setStepEnabled(true);
+			}
+		});
 		
 		mainGUI.setVisible(true);	
 		
@@ -67,6 +135,21 @@ public class GreenhouseSimulator {
 		new GreenhouseSimulator();		
 	}
 	
+	/***
+	Returns the threads that run the simulation, which are the ones that pause and step. A live simulation runs on the
+	scheduler, a binary playback on the player, and a text playback on each sensor's controller.
+	@return The threads
+	*/
+	private Controller[] steppedThreads() {
+		if (player != null) {
+			return new Controller[] {player};
+		} else if (reader != null) {
+			return new Controller[] {envCont, tempCont, humidCont, moistCont};
+		} else {
+			return new Controller[] {scheduler};
+		}
+	}
+	
 	class StartSimulator implements ActionListener {		
 		
 		/***
@@ -77,14 +160,27 @@ public class GreenhouseSimulator {
 		public void actionPerformed(ActionEvent e) {			
 			
 			try {				
-				if (envCont.setup() == true && tempCont.setup() == true && humidCont.setup() == true && moistCont.setup() == true) {
+				if (player != null) {
 					
+					// A binary save file already holds every value so there is nothing to set up
 					mainGUI.updateButtonsWhenRunning();
+					player.start();
 					
-					envCont.start();
-					tempCont.start();					
-					humidCont.start();	
-					moistCont.start();	
+				} else if (envCont.setup() == true && tempCont.setup() == true && humidCont.setup() == true && moistCont.setup() == true) {
+					
+					mainGUI.updateButtonsWhenRunning();
+					
+					// Text playback is read once and shared between the sensors. A live simulation runs every sensor on the scheduler.
+					if (envCont.isOpening()) {
+						reader.start();
+						envCont.start();
+						tempCont.start();					
+						humidCont.start();	
+						moistCont.start();	
+					} else {
+						envView.editable(false);
+						scheduler.start();
+					}
 					
 				}			
 			} catch (Exception er) {				
@@ -98,11 +194,20 @@ public class GreenhouseSimulator {
 	class PauseSimulator implements ActionListener {		
 		
 		/***
-		This method pauses the simulation. It signals the controller of each sensor to wait thread execution
+		This method pauses the simulation. It signals the controller of each sensor to wait thread execution. Each thread
+		is woken from its wait and stops at the end of the tick it is on, and the live simulation runs every controller
+		on the scheduler, so all of them stop at the same tick. A text playback runs each controller on its own thread
+		with its own refresh rate, so each stops at the end of its own refresh. Step is enabled once all have stopped.
 		@param e The action event
 		*/
 		public void actionPerformed(ActionEvent e) {			
 			mainGUI.updateButtonsWhenPaused();			
+			mainGUI.setStepEnabled(false);
+			stepReady.restart();
+			scheduler.pauseThread();
+			if (player != null) {
+				player.pauseThread();
+			}
 			envCont.pauseThread();
 			tempCont.pauseThread();
 			humidCont.pauseThread();			
@@ -110,6 +215,26 @@ public class GreenhouseSimulator {
 		}		
 	}
 	
+	class StepSimulator implements ActionListener {
+		
+		/***
+		This method runs the paused simulation for the number of ticks the user chose and pauses it again at the end of
+		the last one. A live simulation runs every controller on the scheduler, so each step moves every subsystem to the
+		same tick. A binary playback steps that many records. A text playback steps each controller that many of its own
+		records, which only keeps the subsystems on the same tick if they were recorded with the same refresh rate.
+		Step is disabled until every thread has stopped again.
+		@param e The action event
+		*/
+		public void actionPerformed(ActionEvent e) {
+			int count = mainGUI.getStepCount();
+			mainGUI.setStepEnabled(false);
+			for (Controller thread : steppedThreads()) {
+				thread.step(count);
+			}
+			stepReady.restart();
+		}
+	}
+	
 	class ResumeSimulator implements ActionListener {		
 		
 		/***
@@ -117,7 +242,12 @@ public class GreenhouseSimulator {
 		@param e The action event
 		*/
 		public void actionPerformed(ActionEvent e) {			
+			stepReady.stop();
 			mainGUI.updateButtonsWhenRunning();			
+			scheduler.resumeThread();
+			if (player != null) {
+				player.resumeThread();
+			}
 			envCont.resumeThread();
 			tempCont.resumeThread();
 			humidCont.resumeThread();		
@@ -128,8 +258,9 @@ public class GreenhouseSimulator {
 	class LoadFile implements ActionListener {
 
 		/***
-		This method loads up a File Chooser GUI and passes the File object to be opened by individual
-		controller thread independently to playback a previous simulation
+		This method loads up a File Chooser GUI and opens the File object for playback of a previous simulation. 
+		Text files are read once by a shared reader that hands each line to the controller it belongs to. Binary save 
+		files are memory mapped and played back by a single player that can jump to any tick.
 		@param e The action event
 		*/		
 		public void actionPerformed(ActionEvent e) {
@@ -137,10 +268,17 @@ public class GreenhouseSimulator {
 				datafile = chooser.getSelectedFile();				
 				try {
 					
-					envCont.openFile(datafile);
-					tempCont.openFile(datafile);
-					humidCont.openFile(datafile);
-					moistCont.openFile(datafile);
+					if (datafile.getName().endsWith(RecordingFormat.EXTENSION)) {
+						player = new PlaybackPlayer(new RecordingReader(datafile), envCont, tempCont, humidCont, moistCont, renderer);
+						player.setSpeed(mainGUI.getPlaybackSpeed());
+						player.setClock(scheduler.getClock());
+						player.setEvents(events);
+						metrics.register("Playback", player.getMetrics());
+						mainGUI.showPlaybackControls();
+					} else {
+						reader = new PlaybackReader(datafile, envCont, tempCont, humidCont, moistCont);
+						metrics.setPlaybackReader(reader);
+					}
 					
 					mainGUI.setStatus("Simulation Playback");
 					mainGUI.loadMode();
@@ -155,8 +293,9 @@ public class GreenhouseSimulator {
 	class SaveFile implements ActionListener {		
 		
 		/***
-		This method loads up a File Chooser GUI and passes the shared buffered writer object to to which each 
-		controller can write it's data to in a synchronized manner.
+		This method loads up a File Chooser GUI and hands the save file to the scheduler, which records every
+		controller's data each tick. Files ending in .ghsr are saved in the binary format, anything else as text.
+		The file is written by a background thread so a slow disk does not hold up the simulation.
 		@param e The action event
 		*/
 		public void actionPerformed(ActionEvent e) {
@@ -164,12 +303,15 @@ public class GreenhouseSimulator {
 				datafile = chooser.getSelectedFile();				
 				try {
 
-					bw = new BufferedWriter(new FileWriter(datafile));
-					
-					envCont.saveFile(bw);
-					tempCont.saveFile(bw);
-					humidCont.saveFile(bw);
-					moistCont.saveFile(bw);
+					RecordSink sink;
+					if (datafile.getName().endsWith(RecordingFormat.EXTENSION)) {
+						sink = new BinaryRecordSink(datafile);
+					} else {
+						sink = new TextRecordSink(new BufferedWriter(new FileWriter(datafile)));
+					}
+					AsyncRecorder recorder = new AsyncRecorder(sink);
+					scheduler.setRecorder(recorder);
+					metrics.setRecorder(recorder);
 					
 					mainGUI.setStatus("Saving to File");
 					mainGUI.saveMode();
@@ -181,6 +323,43 @@ public class GreenhouseSimulator {
 		}		
 	}
 	
+	class ScrubPlayback implements ChangeListener {
+		
+		/***
+		This method jumps the playback to the part of the recording the user has moved the scrub bar to
+		@param e The change event
+		*/
+		public void stateChanged(ChangeEvent e) {
+			if (player != null && mainGUI.isScrubbedByUser()) {
+				player.seekTo(mainGUI.getScrubPosition());
+			}
+		}
+	}
+	
+	class ChangePlaybackSpeed implements ActionListener {
+		
+		/***
+		This method changes how fast the recording is played back
+		@param e The action event
+		*/
+		public void actionPerformed(ActionEvent e) {
+			if (player != null) {
+				player.setSpeed(mainGUI.getPlaybackSpeed());
+			}
+		}
+	}
+	
+	class ChangeSimulationSpeed implements ActionListener {
+		
+		/***
+		This method changes how fast simulated time passes compared to the wall clock
+		@param e The action event
+		*/
+		public void actionPerformed(ActionEvent e) {
+			scheduler.getClock().setSpeed(mainGUI.getSimulationSpeed());
+		}
+	}
+	
 	class CloseWindowListener implements ActionListener {		
 		/***
 		This method safely closes all the appropriate buffers and closes the files that the simulation 
@@ -189,10 +368,13 @@ public class GreenhouseSimulator {
 		*/
 		public void actionPerformed(ActionEvent e) {
 			try {
-				envCont.closeFile();
-				tempCont.closeFile();
-				humidCont.closeFile();
-				moistCont.closeFile();
+				scheduler.closeRecorder();
+				if (player != null) {
+					player.closeFile();
+				}
+				if (reader != null) {
+					reader.closeFile();
+				}
 				
 				System.exit(0);
 			} catch (IOException er) {
@@ -0,0 +1,268 @@
+/***
+
+Greenhouse State Store keeps the state of a whole fleet of greenhouses with each quantity in its own array. The
+external effects and the sensors are applied to a range of greenhouses at a time in tight loops, which is much faster
+than stepping one set of model objects per greenhouse.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Fleet state with one array per quantity and bulk versions of processEnv and sensor.
+*/
+public class GreenhouseStateStore {
+
+	private int size;
+
+	// Current readings
+	private double[] temp;
+	private double[] humid;
+	private double[] moist;
+
+	// Desired ranges
+	private double[] tempUpper;
+	private double[] tempLower;
+	private double[] humidUpper;
+	private double[] humidLower;
+	private double[] moistUpper;
+	private double[] moistLower;
+
+	// Device rates (the cooling rate is stored as a negative number like TemperatureModel)
+	private double[] heatRate;
+	private double[] coolRate;
+	private double[] humidRate;
+	private double[] moistRate;
+
+	// External effect rates
+	private double[] extTempRate;
+	private double[] extHumidRate;
+	private double[] extMoistRate;
+
+	// Device flags
+	private byte[] furnace;
+	private byte[] airCon;
+	private byte[] humidifier;
+	private byte[] sprinkler;
+
+	/***
+	Creates a store for the specified number of greenhouses. Every value starts at zero.
+	@param size Number of greenhouses
+	*/
+	public GreenhouseStateStore(int size) {
+		this.size 			= size;
+		this.temp 			= new double[size];
+		this.humid 			= new double[size];
+		this.moist 			= new double[size];
+		this.tempUpper 		= new double[size];
+		this.tempLower 		= new double[size];
+		this.humidUpper 	= new double[size];
+		this.humidLower 	= new double[size];
+		this.moistUpper 	= new double[size];
+		this.moistLower 	= new double[size];
+		this.heatRate 		= new double[size];
+		this.coolRate 		= new double[size];
+		this.humidRate 		= new double[size];
+		this.moistRate 		= new double[size];
+		this.extTempRate 	= new double[size];
+		this.extHumidRate 	= new double[size];
+		this.extMoistRate 	= new double[size];
+		this.furnace 		= new byte[size];
+		this.airCon 		= new byte[size];
+		this.humidifier 	= new byte[size];
+		this.sprinkler 		= new byte[size];
+	}
+
+	// SET
+
+	/***
+	Loads a config into one greenhouse. Values are checked the same way the models check them.
+	@param index Position of the greenhouse in the store
+	@param config The starting values, ranges, and rates for the greenhouse
+	@throws Exception Throws an error if any value is out of bounds
+	*/
+	public void load(int index, SimulationConfig config) throws Exception {
+
+		// Run the config through a set of models so the values are checked exactly as they are in the GUI
+		SimulationEngine engine = SimulationEngine.create(config);
+
+		this.temp[index] 		= engine.getTemperatureModel().getCurrentTemp();
+		this.humid[index] 		= engine.getHumidityModel().getCurrentHumidity();
+		this.moist[index] 		= engine.getMoistureModel().getCurrentMoisture();
+		this.tempUpper[index] 	= config.get("tempUpper");
+		this.tempLower[index] 	= config.get("tempLower");
+		this.humidUpper[index] 	= config.get("humidUpper");
+		this.humidLower[index] 	= config.get("humidLower");
+		this.moistUpper[index] 	= config.get("moistUpper");
+		this.moistLower[index] 	= config.get("moistLower");
+		this.heatRate[index] 	= config.get("heatRate");
+		this.coolRate[index] 	= Math.abs(config.get("coolRate"))*(-1);
+		this.humidRate[index] 	= config.get("humidRate");
+		this.moistRate[index] 	= config.get("moistRate");
+		this.extTempRate[index] 	= config.get("extTempRate");
+		this.extHumidRate[index] 	= config.get("extHumidRate");
+		this.extMoistRate[index] 	= config.get("extMoistRate");
+		this.furnace[index] 	= 0;
+		this.airCon[index] 		= 0;
+		this.humidifier[index] 	= 0;
+		this.sprinkler[index] 	= 0;
+	}
+
+	// GET
+
+	/***
+	Returns the number of greenhouses in the store
+	@return size Number of greenhouses
+	*/
+	public int size() {
+		return this.size;
+	}
+
+	/***
+	Returns the current temperature of one greenhouse
+	@param index Position of the greenhouse in the store
+	@return Current greenhouse temperature
+	*/
+	public double getTemperature(int index) {
+		return this.temp[index];
+	}
+
+	/***
+	Returns the current humidity of one greenhouse
+	@param index Position of the greenhouse in the store
+	@return Current greenhouse humidity
+	*/
+	public double getHumidity(int index) {
+		return this.humid[index];
+	}
+
+	/***
+	Returns the current soil moisture of one greenhouse
+	@param index Position of the greenhouse in the store
+	@return Current greenhouse soil moisture
+	*/
+	public double getMoisture(int index) {
+		return this.moist[index];
+	}
+
+	/***
+	Returns whether the furnace of one greenhouse is on
+	@param index Position of the greenhouse in the store
+	@return 1 if the furnace is on, 0 otherwise
+	*/
+	public int getFurnace(int index) {
+		return this.furnace[index];
+	}
+
+	/***
+	Returns whether the air conditioner of one greenhouse is on
+	@param index Position of the greenhouse in the store
+	@return 1 if the air conditioner is on, 0 otherwise
+	*/
+	public int getAirCon(int index) {
+		return this.airCon[index];
+	}
+
+	/***
+	Returns whether the humidifier of one greenhouse is on
+	@param index Position of the greenhouse in the store
+	@return 1 if the humidifier is on, 0 otherwise
+	*/
+	public int getHumidifier(int index) {
+		return this.humidifier[index];
+	}
+
+	/***
+	Returns whether the sprinkler of one greenhouse is on
+	@param index Position of the greenhouse in the store
+	@return 1 if the sprinkler is on, 0 otherwise
+	*/
+	public int getSprinkler(int index) {
+		return this.sprinkler[index];
+	}
+
+	// PROCESS
+
+	/***
+	Bulk version of EnvironmentModel.processEnv. Applies the external effects to a range of greenhouses and holds
+	each reading within its physical limits.
+	@param from Position of the first greenhouse (inclusive)
+	@param to Position of the last greenhouse (exclusive)
+	*/
+	public void processEnv(int from, int to) {
+
+		final double minTemp = TemperatureModel.ABSOLUTEZERO;
+		final double maxTemp = TemperatureModel.TOASTY;
+		final double minHumid = HumidityModel.MINHUMIDITY;
+		final double maxHumid = HumidityModel.MAXHUMIDITY;
+		final double minMoist = MoistureModel.MINMOISTURE;
+		final double maxMoist = MoistureModel.MAXMOISTURE;
+
+		for (int i = from; i < to; i++) {
+			this.temp[i] = Math.min(Math.max(this.temp[i] + this.extTempRate[i], minTemp), maxTemp);
+		}
+		for (int i = from; i < to; i++) {
+			this.humid[i] = Math.min(Math.max(this.humid[i] + this.extHumidRate[i], minHumid), maxHumid);
+		}
+		for (int i = from; i < to; i++) {
+			this.moist[i] = Math.min(Math.max(this.moist[i] + this.extMoistRate[i], minMoist), maxMoist);
+		}
+	}
+
+	/***
+	Bulk version of the temperature, humidity, and soil moisture sensor methods. Switches the devices of a range of
+	greenhouses and applies the device rates, the same way each model's sensor method does.
+	@param from Position of the first greenhouse (inclusive)
+	@param to Position of the last greenhouse (exclusive)
+	*/
+	public void sensor(int from, int to) {
+
+		final double minHumid = HumidityModel.MINHUMIDITY;
+		final double minMoist = MoistureModel.MINMOISTURE;
+
+		// Temperature
+		for (int i = from; i < to; i++) {
+			double t = this.temp[i];
+			boolean heating = t < this.tempLower[i];
+			boolean cooling = !heating && t > this.tempUpper[i];
+			this.furnace[i] = (byte)(heating ? 1 : 0);
+			this.airCon[i] = (byte)(cooling ? 1 : 0);
+			this.temp[i] = t + (heating ? this.heatRate[i] : (cooling ? this.coolRate[i] : 0.0));
+		}
+
+		// Humidity
+		for (int i = from; i < to; i++) {
+			double h = this.humid[i];
+			boolean on = h < this.humidLower[i] && h >= minHumid;
+			this.humidifier[i] = (byte)(on ? 1 : 0);
+			this.humid[i] = h + (on ? this.humidRate[i] : 0.0);
+		}
+
+		// Soil Moisture
+		for (int i = from; i < to; i++) {
+			double m = this.moist[i];
+			boolean on = m < this.moistLower[i] && m >= minMoist;
+			this.sprinkler[i] = (byte)(on ? 1 : 0);
+			this.moist[i] = m + (on ? this.moistRate[i] : 0.0);
+		}
+	}
+
+	/***
+	Runs a range of greenhouses for the specified number of ticks. Each tick applies the external effects first
+	and then the sensors, the same order as SimulationEngine.tick.
+	@param from Position of the first greenhouse (inclusive)
+	@param to Position of the last greenhouse (exclusive)
+	@param ticks Number of ticks to run
+	*/
+	public void run(int from, int to, long ticks) {
+		for (long t = 0; t < ticks; t++) {
+			this.processEnv(from, to);
+			this.sensor(from, to);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/***
+
+This is the command line entry point for running a greenhouse simulation without the GUI.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+
+/***
+Command line entry point that runs a greenhouse scenario headless and reports the final state.
+*/
+public class HeadlessSimulator {
+
+	/***
+	Runs a scenario for the requested number of ticks. With "fast" the engine jumps over the ticks between device
+	switches instead of stepping through every one of them. With "summary" it also reports how the devices were used,
+	multiplying out any repeating on/off pattern instead of running it to the end. With a number of seconds after the
+	mode, the time each step of a tick takes is measured, published over JMX, and printed that often. With "step" the
+	ticks are run and then the simulation waits for a number of ticks to step on each line typed in, printing every
+	model after each step, until the input ends or "q" is typed. Any other mode, such as "full", steps through every tick.
+	Usage: java marsbars.HeadlessSimulator [scenario.properties] [ticks] [fast|summary|full|step] [metrics seconds]
+	@param args Command Line arguments
+	*/
+	public static void main(String[] args) {
+
+		try {
+
+			SimulationConfig config = new SimulationConfig();
+			long ticks = 1000000;
+			String mode = "";
+			SimulationMetrics metrics = null;
+
+			if (args.length > 0) {
+				config = SimulationConfig.load(new File(args[0]));
+			}
+			if (args.length > 1) {
+				ticks = Long.parseLong(args[1]);
+			}
+			if (args.length > 2) {
+				mode = args[2];
+			}
+
+			SimulationEngine engine = SimulationEngine.create(config);
+			if (args.length > 3) {
+				long period = (long)(Double.parseDouble(args[3]) * 1000);
+				TickMetrics[] phases = {new TickMetrics(), new TickMetrics(), new TickMetrics(), new TickMetrics()};
+				metrics = new SimulationMetrics();
+				metrics.register("Environment", phases[0]);
+				metrics.register("Temperature", phases[1]);
+				metrics.register("Humidity", phases[2]);
+				metrics.register("Moisture", phases[3]);
+				engine.setMetrics(phases[0], phases[1], phases[2], phases[3]);
+				metrics.startReporting(Math.max(1, period), System.out);
+			}
+
+			long start = System.nanoTime();
+			SimulationSummary summary = null;
+			if (mode.equals("fast")) {
+				engine.fastForward(ticks);
+			} else if (mode.equals("summary")) {
+				summary = engine.summarize(ticks);
+			} else {
+				engine.run(ticks);
+			}
+			long elapsed = System.nanoTime() - start;
+			if (metrics != null) {
+				metrics.stopReporting();
+				System.out.print(metrics.snapshot());
+			}
+
+			System.out.println(engine);
+			if (summary != null) {
+				System.out.println(summary);
+			}
+			System.out.println(ticks + " ticks in " + (elapsed / 1000000) + " ms (" + (long)(ticks / (elapsed / 1e9)) + " ticks/sec)");
+			
+			if (mode.equals("step")) {
+				step(engine, new BufferedReader(new InputStreamReader(System.in)));
+			}
+
+		} catch (NumberFormatException e) {
+			System.out.println("Please enter a valid number of ticks");
+			System.exit(1);
+		} catch (Exception e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+	/***
+	Steps the simulation by the number of ticks on each line read, printing every model after each step. An empty line
+	steps the same number of ticks as the line before it.
+	@param engine The simulation
+	@param in Lines with the number of ticks to step, ended by the end of the input or "q"
+	@throws IOException Throws an error if the input cannot be read
+	*/
+	public static void step(SimulationEngine engine, BufferedReader in) throws IOException {
+		long count = 1;
+		String line;
+		System.out.print("Step ticks> ");
+		System.out.flush();
+		while ((line = in.readLine()) != null && !line.trim().equals("q")) {
+			try {
+				if (line.trim().length() > 0) {
+					count = Math.max(1, Long.parseLong(line.trim()));
+				}
+				engine.run(count);
+				System.out.println("Tick " + engine.getTickCount());
+				System.out.println(engine);
+			} catch (NumberFormatException e) {
+				System.out.println("Please enter a valid number of ticks");
+			}
+			System.out.print("Step ticks> ");
+			System.out.flush();
+		}
+	}
+
+}
@@ -110,85 +110,88 @@ public class HumidityController extends Controller {
 	}
 	
 	/***
-	This method starts the thread in real simulation or simulation playback mode. It disables the necessary GUI elements given 
-	the simulation mode, reads data from a simulation file, or write simulation to a user specified file. It takes the user specified values 
-	of the greenhouse humidity and processing them at the user specified refresh rate. 
+	Runs one update of the humidity controller. Processes the current greenhouse humidity via the sensor for one refresh rate
+	of simulated time. The panel is updated by render.
 	*/
-	public void run() {
+	public void tick() {
 		
-		// If the thread is supposed to run in simulation playback mode
-		if (this.isOpening()) {
-			
-			// Disable the inputs in order to playback the simulation safely. 
-			this.humidView.enableGUI(false);
-			
-			try {
-				
-				String line = null;
-				
-				// Read an independently created Buffer object of the simulation data file to read
-				BufferedReader readFileObj = this.getFileToRead();
-				
-				while ((line = readFileObj.readLine()) != null) {
-					
-					String[] dataArray = line.split(",");
-					
-					if (dataArray[0].equals("H")) {
-						
-						// Display the data on the GUI.
-						this.humidView.setCurrentHumidity(Double.parseDouble(dataArray[1]));
-						this.humidView.setDesiredHumidUpper(Double.parseDouble(dataArray[2]));
-						this.humidView.setDesiredHumidLower(Double.parseDouble(dataArray[3]));
-						this.humidView.setHumidityRate(Double.parseDouble(dataArray[4]));
-						
-						if (dataArray[5].equals(1)) {
-							this.humidView.setDevice("On");
-						} else {
-							this.humidView.setDevice("Off");
-						}
-						
-						this.humidView.setRefreshRate(Double.parseDouble(dataArray[6]));
-						
-						// Simulate the delay
-						waitProcess(1000*Integer.parseInt(dataArray[6]));
-						
-					}					
-					
-				}
-				
-			} catch (IOException e) {
-				this.humidView.displayError(e.getMessage());
-			} catch (NumberFormatException e) {
-				this.humidView.displayError("Incorrect Data. File might be corrupted.");
-			} catch (Exception e) {				
-				this.humidView.displayError(e.getMessage());
-			}
+		// Process the current greenhouse humidity via the sensor. 
+		this.humidModel.sensor(SimulationClock.toMinutes(this.getRefreshRate()));
+		
+	}
+	
+	/***
+	Copies the current humidity data into the record of the current tick.
+	@param record The record of the current tick
+	*/
+	public void record(TickRecord record) {
+		record.setHumidity(this.humidModel.getState(), this.getRefreshRate());
+	}
+	
+	/***
+	Opens a dialog box with the error message on the humidity panel
+	@param errorMsg The error message
+	*/
+	public void displayError(String errorMsg) {
+		this.humidView.displayError(errorMsg);
+	}
+	
+	/***
+	Shows the current humidity reading and device on the humidity panel
+	@param record The live tick
+	*/
+	public void show(TickRecord record) {
+		
+		int h = RecordingFormat.HUMIDITY;
+		this.humidView.setCurrentHumidity(record.get(h, 0));
 		
-		// If the thread is supposed to run the simulation in regular manner.
+		if (record.get(h, 4) == 1) {
+			this.humidView.setDevice("On");
 		} else {
-			
-			// Run perpetually
-			while(true) {
-				
-				if (this.isSaving()) {
-					try {
-						this.writeToFile(this.humidModel.toString() + (this.getRefreshRate()/1000) + "\n");
-					} catch (IOException e) {
-						this.humidView.displayError(e.getMessage());
-					}
-				}
-				
-				// Process the current greenhouse humidity via the sensor. 
-				this.humidModel.sensor();
-				this.humidView.setCurrentHumidity(this.humidModel.getCurrentHumidity());
-				this.humidView.setDevice(this.humidModel.getDeviceStatus());
-				
-				// Wait to refresh
-				waitProcess(this.getRefreshRate());
-			
-			}
-			
-		}	
+			this.humidView.setDevice("Off");
+		}
+		
+	}
+	
+	/***
+	Shows the recorded humidity data on the humidity panel
+	@param record The recorded tick
+	*/
+	public void display(TickRecord record) {
+		
+		int h = RecordingFormat.HUMIDITY;
+		this.humidView.setCurrentHumidity(record.get(h, 0));
+		this.humidView.setDesiredHumidUpper(record.get(h, 1));
+		this.humidView.setDesiredHumidLower(record.get(h, 2));
+		this.humidView.setHumidityRate(record.get(h, 3));
+		
+		if (record.get(h, 4) == 1) {
+			this.humidView.setDevice("On");
+		} else {
+			this.humidView.setDevice("Off");
+		}
+		
+		// The refresh rate is shown in seconds
+		this.humidView.setRefreshRate(record.get(h, 5) / 1000);
+		
+	}
+	
+	/***
+	Disables the inputs on the humidity panel in order to playback the simulation safely
+	*/
+	public void playbackMode() {
+		this.humidView.enableGUI(false);
+	}
+	
+	/***
+	This method starts the thread in simulation playback mode. It plays back the humidity records handed over by
+	the shared playback reader at the refresh rate they were recorded with. A live simulation is run by the
+	TickScheduler instead of the controller threads.
+	*/
+	public void run() {
+		
+		// Display each record handed over by the shared playback reader
+		this.playback();
 		
 	}
 	
@@ -15,6 +15,8 @@ Written for CPSC 233
 
 package marsbars;
 
+import java.util.concurrent.atomic.*;
+
 /***
 Model responsible for calculations that are required for the humidity sensor and humidifier control.
 */
@@ -23,12 +25,65 @@ public class HumidityModel {
 	public static int MINHUMIDITY = 0;
 	public static int MAXHUMIDITY = 100;
 	
-	private int humidifier = 0;
+	/***
+	An unchangeable copy of the humidity sensor's data. Every change to the model publishes a new State, so a reader 
+	of a State always sees a reading, range, and humidifier setting that belong together.
+	*/
+	public static final class State {
+		
+		private final int humidifier;
+		
+		private final double currentHumidity;
+		private final double humidityUpper;
+		private final double humidityLower;
+		private final double internalHumidityRate;
+		
+		private State(int humidifier, double currentHumidity, double humidityUpper, double humidityLower, double internalHumidityRate) {
+			this.humidifier = humidifier;
+			this.currentHumidity = currentHumidity;
+			this.humidityUpper = humidityUpper;
+			this.humidityLower = humidityLower;
+			this.internalHumidityRate = internalHumidityRate;
+		}
+		
+		/***
+		@return Current greenhouse humidity
+		*/
+		public double getCurrentHumidity() {
+			return this.currentHumidity;
+		}
+		
+		/***
+		@return Maximum humidity of the desired range
+		*/
+		public double getHumidityUpper() {
+			return this.humidityUpper;
+		}
+		
+		/***
+		@return Minimum humidity of the desired range
+		*/
+		public double getHumidityLower() {
+			return this.humidityLower;
+		}
+		
+		/***
+		@return Rate at which the humidifier raises the humidity (%/min)
+		*/
+		public double getInternalHumidityRate() {
+			return this.internalHumidityRate;
+		}
+		
+		/***
+		@return 1 if the humidifier is on, 0 otherwise
+		*/
+		public int getHumidifier() {
+			return this.humidifier;
+		}
+		
+	}
 	
-	private double currentHumidity = 0.0;
-	private double humidityUpper = 0.0;
-	private double humidityLower = 0.0;
-	private double internalHumidityRate = 0.0;
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(0, 0.0, 0.0, 0.0, 0.0));
 	
 	public HumidityModel() {
 		
@@ -41,9 +96,12 @@ public class HumidityModel {
 	@param humidUpper The maximum humidity level of the desired humidity range
 	@param humidLower The minimum humidity level of the desired humidity range
 	*/
-	public synchronized void setHumidityRange(double humidUpper, double humidLower) {
-		this.humidityUpper = humidUpper;
-		this.humidityLower = humidLower;		
+	public void setHumidityRange(double humidUpper, double humidLower) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.humidifier, current.currentHumidity, humidUpper, humidLower, current.internalHumidityRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -51,22 +109,39 @@ public class HumidityModel {
 	@param currHumid Humidity of the greenhouse to set to
 	@throws Exception A custom error that prompts the user if desired humdity is beyond the threshold range. 
 	*/
-	public synchronized void setCurrentHumidity(double currHumid) throws Exception {
+	public void setCurrentHumidity(double currHumid) throws Exception {
 		if (currHumid >= MINHUMIDITY && currHumid <= MAXHUMIDITY) {
-			this.currentHumidity = currHumid;
+			this.moveCurrentHumidity(currHumid);
 		} else {
 			throw new Exception("Humidity Out of Bounds. Please enter a value between 0% and 100%");
 		}
 	}
 	
+	/***
+	Sets the current humidity level of the greenhouse without checking it against the physical limits. Used by the
+	simulation engine, which only moves a reading to a level it has already checked.
+	@param currHumid Humidity of the greenhouse to set to
+	*/
+	void moveCurrentHumidity(double currHumid) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.humidifier, currHumid, current.humidityUpper, current.humidityLower, current.internalHumidityRate);
+		} while (!this.state.compareAndSet(current, next));
+	}
+	
 	/***
 	Set the current rate at which the humidifier raises the humidity of the greenhouse
 	@param rate Rate of increase in humidity (%/min)
 	@throws Exception Prompt the user that humidity rate of change can only be positive because there is no dehumidifier
 	*/
-	public synchronized void setInternalHumidRate(double rate) throws Exception {
+	public void setInternalHumidRate(double rate) throws Exception {
 		if (rate > 0) { 
-			this.internalHumidityRate = rate;
+			State current, next;
+			do {
+				current = this.state.get();
+				next = new State(current.humidifier, current.currentHumidity, current.humidityUpper, current.humidityLower, rate);
+			} while (!this.state.compareAndSet(current, next));
 		} else {
 			throw new Exception("Humidity Rate must be a positive number.");
 		}
@@ -74,20 +149,28 @@ public class HumidityModel {
 	
 	// GET
 	
+	/***
+	Returns a copy of all of the humidity sensor's data taken at the same moment. Reading the copy never blocks the simulation.
+	@return The current state of the model
+	*/
+	public State getState() {
+		return this.state.get();
+	}
+	
 	/***
 	Returns the current humidity of the environment as picked up by the humidity sensor
 	@return currentHumidity Current greenhouse humidity level
 	*/
-	public synchronized double getCurrentHumidity() {
-		return this.currentHumidity;
+	public double getCurrentHumidity() {
+		return this.state.get().currentHumidity;
 	}
 	
 	/***
 	Returns whether or not the humidifier has been turned on or off by the sensor system
 	@return A message to display on the GUI (On/Off)
 	*/
-	public synchronized String getDeviceStatus(){
-		if (this.humidifier == 1) {
+	public String getDeviceStatus(){
+		if (this.state.get().humidifier == 1) {
 			return "On";
 		}
 		return "Off";
@@ -95,20 +178,53 @@ public class HumidityModel {
 	
 	// PROCESS
 	
+	/***
+	Adds the external effect on the humidity to the newest state of the model, held within its physical limits of 0 to 100% rather than the desired range. The
+	change is made in a single step on whatever the sensor last left, so a sensor running on another thread at the same
+	time cannot have its change written over, and neither can this one.
+	@param change Change in the humidity from the external effects
+	@return The humidity after the change
+	*/
+	public double applyExternalEffect(double change) {
+		State current, next;
+		do {
+			current = this.state.get();
+			double reading = EnvironmentModel.clamp(current.currentHumidity + change, MINHUMIDITY, MAXHUMIDITY);
+			next = new State(current.humidifier, reading, current.humidityUpper, current.humidityLower, current.internalHumidityRate);
+		} while (!this.state.compareAndSet(current, next));
+		return next.currentHumidity;
+	}
+	
 	/***
 	This is the sensor method to check the humidity level of the greenhouse and update the humidity level according 
 	to the rate of change that the user has specified. It also controls the humidifier in order to increase(only) the 
-	level of humidity to the desired range specified by the user. 
+	level of humidity to the desired range specified by the user. Each call covers one simulated minute.
 	*/
-	public synchronized void sensor() {
+	public void sensor() {
+		this.sensor(1);
+	}
+	
+	/***
+	Runs the sensor for a span of simulated time. The humidifier rate is per minute, so a humidifier that is switched on
+	changes the humidity by its rate times the number of minutes.
+	@param minutes Simulated minutes since the sensor last ran
+	*/
+	public void sensor(double minutes) {
 		
-		if (this.currentHumidity < this.humidityLower && this.currentHumidity >= MINHUMIDITY) {			
-			this.humidifier = 1;			
-			this.currentHumidity += this.internalHumidityRate;			
-		} else if (this.currentHumidity > this.humidityUpper && this.currentHumidity <= MAXHUMIDITY) {
-			this.humidifier = 0;	
-		} else {
-			this.humidifier = 0;
+		State current, next;
+		do {
+			current = this.state.get();
+			if (current.currentHumidity < current.humidityLower && current.currentHumidity >= MINHUMIDITY) {			
+				next = new State(1, current.currentHumidity + current.internalHumidityRate * minutes, current.humidityUpper, current.humidityLower, current.internalHumidityRate);
+			} else if (current.humidifier == 0) {
+				next = current;
+			} else {
+				next = new State(0, current.currentHumidity, current.humidityUpper, current.humidityLower, current.internalHumidityRate);
+			}
+		} while (!this.state.compareAndSet(current, next));
+		
+		if (next.humidifier != current.humidifier) {
+			DeviceSwitchEvent.emit("Humidifier", next.humidifier == 1, current.currentHumidity);
 		}
 		
 	}
@@ -117,7 +233,8 @@ public class HumidityModel {
 	Creates a well formated data string so that it can be stored into a simulation save file for retrieval 
 	*/
 	public String toString() {
-		return "H," + this.currentHumidity + "," + (int)this.humidityUpper + "," + (int)this.humidityLower + "," + this.internalHumidityRate + "," + (int)this.humidifier + ",";
+		State current = this.state.get();
+		return "H," + current.currentHumidity + "," + (int)current.humidityUpper + "," + (int)current.humidityLower + "," + current.internalHumidityRate + "," + (int)current.humidifier + ",";
 	}
 
 }
\ No newline at end of file
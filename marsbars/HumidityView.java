@@ -30,9 +30,14 @@ public class HumidityView extends JPanel {
 	private RangeSlider humidRange 		= new RangeSlider();	
 	private JLabel humidityRateLabel 	= new JLabel("Humidity Rate (%/min)");
 	private JTextField humidityRate		= new JTextField(5);
-	private JLabel refreshRateLabel 	= new JLabel("Refresh Rate (Sec)");	
-	private JSlider humidRefresh 		= new JSlider(JSlider.HORIZONTAL, 1, 10, 5);
+	private JLabel refreshRateLabel 	= new JLabel("Refresh Rate");	
+	private RefreshSlider humidRefresh 		= new RefreshSlider(2);
 	private JLabel controllerStatus 	= new JLabel("Off");
+	private TrendChart trend 		= new TrendChart(new TrendBuffer(TrendBuffer.DEFAULT_CAPACITY));
+	
+	// Numbers shown in the text fields. Updates that round to the text already shown are skipped.
+	private DecimalDisplay currentHumidDisplay = new DecimalDisplay(currentHumid, 2);
+	private DecimalDisplay humidityRateDisplay = new DecimalDisplay(humidityRate, 2);
 	
 	/***
 	Contructor that sets the basic GUI elements for the Panel
@@ -41,7 +46,7 @@ public class HumidityView extends JPanel {
 		
 		// Set the padding of the Panel
 		this.setBorder(new EmptyBorder(10, 10, 10, 10));		
-		this.setLayout(new GridLayout(5,1,0,0));
+		this.setLayout(new GridLayout(6,1,0,0));
 		
 		// Setup fonts
 		Font fontTextField = new Font("Arial",Font.BOLD,24);
@@ -78,27 +83,34 @@ public class HumidityView extends JPanel {
 		
 		// Refresh rate of the humidity sensor
 		panel4.add(refreshRateLabel);
-		this.humidRefresh.setValue(2);
-		this.humidRefresh.setMinorTickSpacing(1);
-		this.humidRefresh.setMajorTickSpacing(1);
-		this.humidRefresh.setPaintTicks(true);
-		this.humidRefresh.setPaintLabels(true);
 		panel4.add(humidRefresh);		
 		
 		// Display humidifier status
 		panel5.add(controllerStatus);
 		panel5.setBorder(new EmptyBorder(25, 0, 0, 0));
 		
+		// History of the humidity level since the simulation started
+		trend.setBorder(new EmptyBorder(10, 0, 0, 0));
+		
 		add(panel1);
 		add(panel2);
 		add(panel3);
 		add(panel4);
 		add(panel5);
+		add(trend);
 		
 	}
 	
 	// GET
 	
+	/***
+	Returns the chart of the humidity level over time
+	@return The trend chart
+	*/
+	public TrendChart getTrend() {
+		return this.trend;
+	}
+	
 	/***
 	Get the current humidity level of the greenhouse convert it into a double, and return it.
 	@return The current greenhouse temperature
@@ -141,10 +153,10 @@ public class HumidityView extends JPanel {
 	
 	/***
 	Returns the rate at which the current thread refreshes the greenhouse humidity data
-	@return Thread refresh rate
+	@return Thread refresh rate in seconds
 	*/
-	public int getHumidRefreshRate() {
-		return this.humidRefresh.getValue();
+	public double getHumidRefreshRate() {
+		return this.humidRefresh.getSeconds();
 	}
 
 	
@@ -155,7 +167,7 @@ public class HumidityView extends JPanel {
 	@param humid Humidity level needed to display
 	*/
 	public void setCurrentHumidity(double humid) {
-		this.currentHumid.setText(String.format("%.2f", humid));
+		this.currentHumidDisplay.setValue(humid);
 	}
 	
 	/***
@@ -179,7 +191,7 @@ public class HumidityView extends JPanel {
 	@param rate Humidity change rate in C/Min
 	*/
 	public void setHumidityRate(double rate) {
-		this.humidityRate.setText(String.format("%.2f", rate));
+		this.humidityRateDisplay.setValue(rate);
 	}
 	
 	/***
@@ -187,7 +199,7 @@ public class HumidityView extends JPanel {
 	@param rate Humidity GUI refresh rate
 	*/
 	public void setRefreshRate(double rate) {
-		this.humidRefresh.setValue((int)rate);
+		this.humidRefresh.setSeconds(rate);
 	}
 	
 	/***
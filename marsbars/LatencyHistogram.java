@@ -0,0 +1,154 @@
+/***
+
+Latency Histogram counts durations in nanoseconds into buckets that grow with the duration: every power of two is
+split into eight buckets, so a percentile read back is within an eighth of the real value from a nanosecond up to
+centuries. Adding a duration is a single atomic increment, so the simulation thread can record every tick while
+another thread reads the percentiles.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.concurrent.atomic.*;
+
+/***
+Lock-free histogram of durations in nanoseconds with about 12% precision.
+*/
+public class LatencyHistogram {
+
+	// Buckets per power of two, as a number of bits
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+	private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private AtomicLong total = new AtomicLong(0);
+	private AtomicLong max = new AtomicLong(0);
+
+	/***
+	An empty histogram
+	*/
+	public LatencyHistogram() {
+
+	}
+
+	// GET
+
+	/***
+	Returns how many durations were recorded
+	@return Number of durations
+	*/
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/***
+	Returns the average of the recorded durations
+	@return Average in nanoseconds, or 0 if nothing was recorded
+	*/
+	public double getMean() {
+		long count = this.getCount();
+		return (count == 0) ? 0 : (double)this.total.get() / count;
+	}
+
+	/***
+	Returns the longest recorded duration
+	@return Longest duration in nanoseconds
+	*/
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/***
+	Returns the duration that a share of the recorded durations were at or below
+	@param share Share of the durations from 0 to 1, such as 0.99 for the 99th percentile
+	@return The top of the bucket the percentile falls in, in nanoseconds, or 0 if nothing was recorded
+	*/
+	public long getPercentile(double share) {
+
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(share * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+
+	// PROCESS
+
+	/***
+	Records a duration
+	@param nanos The duration in nanoseconds. Negative durations are counted as 0
+	*/
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		this.counts.incrementAndGet(bucketOf(value));
+		this.total.addAndGet(value);
+		long m;
+		while (value > (m = this.max.get()) && !this.max.compareAndSet(m, value)) {
+			// Another thread raised the maximum in between, so compare again
+		}
+	}
+
+	/***
+	Forgets every recorded duration
+	*/
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+		this.total.set(0);
+		this.max.set(0);
+	}
+
+	/***
+	Finds the bucket a duration is counted in
+	@param value The duration, at least 0
+	@return Position of the bucket
+	*/
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+	}
+
+	/***
+	Returns the longest duration counted in a bucket
+	@param bucket Position of the bucket
+	@return The duration in nanoseconds
+	*/
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+		int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+		return ((SUB_BUCKETS + sub) * width) + width - 1;
+	}
+
+}
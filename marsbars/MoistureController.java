@@ -110,85 +110,88 @@ public class MoistureController extends Controller {
 	}
 	
 	/***
-	This method starts the thread in real simulation or simulation playback mode. It disables the necessary GUI elements given 
-	the simulation mode, reads data from a simulation file, or write simulation to a user specified file. It takes the user specified values 
-	of the greenhouse soil moisture and processing them at the user specified refresh rate. 
+	Runs one update of the soil moisture controller. Processes the current greenhouse soil moisture via the sensor for one refresh rate
+	of simulated time. The panel is updated by render.
 	*/
-	public void run() {
+	public void tick() {
 		
-		// If the thread is supposed to run in simulation playback mode
-		if (this.isOpening()) {
-			
-			// Disable the inputs in order to playback the simulation safely. 
-			this.moistView.enableGUI(false);
-			
-			try {
-				
-				String line = null;
-				
-				// Read an independently created Buffer object of the simulation data file to read
-				BufferedReader readFileObj = this.getFileToRead();
-				
-				while ((line = readFileObj.readLine()) != null) {
-					
-					String[] dataArray = line.split(",");
-					
-					if (dataArray[0].equals("M")) {
-						
-						// Display the data on the GUI.
-						this.moistView.setCurrentMoisture(Double.parseDouble(dataArray[1]));
-						this.moistView.setDesiredMoistUpper(Double.parseDouble(dataArray[2]));
-						this.moistView.setDesiredMoistLower(Double.parseDouble(dataArray[3]));
-						this.moistView.setMoistureRate(Double.parseDouble(dataArray[4]));
-						
-						if (dataArray[5].equals(1)) {
-							this.moistView.setDevice("On");
-						} else {
-							this.moistView.setDevice("Off");
-						}
-						
-						this.moistView.setRefreshRate(Double.parseDouble(dataArray[6]));
-						
-						// Simulate the delay
-						waitProcess(1000*Integer.parseInt(dataArray[6]));
-						
-					}					
-					
-				}
-				
-			} catch (IOException e) {
-				this.moistView.displayError(e.getMessage());
-			} catch (NumberFormatException e) {
-				this.moistView.displayError("Incorrect Data. File might be corrupted.");
-			} catch (Exception e) {				
-				this.moistView.displayError(e.getMessage());
-			}
-			
-		// If the thread is supposed to run the simulation in regular manner.
+		// Process the current greenhouse soil moisture via the sensor. 
+		this.moistModel.sensor(SimulationClock.toMinutes(this.getRefreshRate()));
+		
+	}
+	
+	/***
+	Copies the current soil moisture data into the record of the current tick.
+	@param record The record of the current tick
+	*/
+	public void record(TickRecord record) {
+		record.setMoisture(this.moistModel.getState(), this.getRefreshRate());
+	}
+	
+	/***
+	Opens a dialog box with the error message on the soil moisture panel
+	@param errorMsg The error message
+	*/
+	public void displayError(String errorMsg) {
+		this.moistView.displayError(errorMsg);
+	}
+	
+	/***
+	Shows the current soil moisture reading and device on the soil moisture panel
+	@param record The live tick
+	*/
+	public void show(TickRecord record) {
+		
+		int m = RecordingFormat.MOISTURE;
+		this.moistView.setCurrentMoisture(record.get(m, 0));
+		
+		if (record.get(m, 4) == 1) {
+			this.moistView.setDevice("On");
 		} else {
-			
-			// Run perpetually
-			while(true) {
-				
-				if (this.isSaving()) {
-					try {
-						this.writeToFile(this.moistModel.toString() + (this.getRefreshRate()/1000) + "\n");
-					} catch (IOException e) {
-						this.moistView.displayError(e.getMessage());
-					}
-				}
-				
-				// Process the current greenhouse soil moisture via the sensor. 
-				this.moistModel.sensor();
-				this.moistView.setCurrentMoisture(this.moistModel.getCurrentMoisture());
-				this.moistView.setDevice(this.moistModel.getDeviceStatus());
-				
-				// Wait to refresh
-				waitProcess(this.getRefreshRate());
-			
-			}
-			
-		}	
+			this.moistView.setDevice("Off");
+		}
+		
+	}
+	
+	/***
+	Shows the recorded soil moisture data on the soil moisture panel
+	@param record The recorded tick
+	*/
+	public void display(TickRecord record) {
+		
+		int m = RecordingFormat.MOISTURE;
+		this.moistView.setCurrentMoisture(record.get(m, 0));
+		this.moistView.setDesiredMoistUpper(record.get(m, 1));
+		this.moistView.setDesiredMoistLower(record.get(m, 2));
+		this.moistView.setMoistureRate(record.get(m, 3));
+		
+		if (record.get(m, 4) == 1) {
+			this.moistView.setDevice("On");
+		} else {
+			this.moistView.setDevice("Off");
+		}
+		
+		// The refresh rate is shown in seconds
+		this.moistView.setRefreshRate(record.get(m, 5) / 1000);
+		
+	}
+	
+	/***
+	Disables the inputs on the soil moisture panel in order to playback the simulation safely
+	*/
+	public void playbackMode() {
+		this.moistView.enableGUI(false);
+	}
+	
+	/***
+	This method starts the thread in simulation playback mode. It plays back the soil moisture records handed over by
+	the shared playback reader at the refresh rate they were recorded with. A live simulation is run by the
+	TickScheduler instead of the controller threads.
+	*/
+	public void run() {
+		
+		// Display each record handed over by the shared playback reader
+		this.playback();
 		
 	}
 
@@ -14,6 +14,8 @@ Written for CPSC 233
 
 package marsbars;
 
+import java.util.concurrent.atomic.*;
+
 /***
 Model responsible for calculations that are required for the soil moisture sensor and sprinkler control.
 */
@@ -22,12 +24,65 @@ public class MoistureModel {
 	public static int MINMOISTURE = 0;
 	public static int MAXMOISTURE = 100;
 	
-	private int sprinkler = 0;
+	/***
+	An unchangeable copy of the soil moisture sensor's data. Every change to the model publishes a new State, so a reader 
+	of a State always sees a reading, range, and sprinkler setting that belong together.
+	*/
+	public static final class State {
+		
+		private final int sprinkler;
+		
+		private final double currentMoisture;
+		private final double moistureUpper;
+		private final double moistureLower;
+		private final double internalMoistureRate;
+		
+		private State(int sprinkler, double currentMoisture, double moistureUpper, double moistureLower, double internalMoistureRate) {
+			this.sprinkler = sprinkler;
+			this.currentMoisture = currentMoisture;
+			this.moistureUpper = moistureUpper;
+			this.moistureLower = moistureLower;
+			this.internalMoistureRate = internalMoistureRate;
+		}
+		
+		/***
+		@return Current greenhouse soil moisture
+		*/
+		public double getCurrentMoisture() {
+			return this.currentMoisture;
+		}
+		
+		/***
+		@return Maximum soil moisture of the desired range
+		*/
+		public double getMoistureUpper() {
+			return this.moistureUpper;
+		}
+		
+		/***
+		@return Minimum soil moisture of the desired range
+		*/
+		public double getMoistureLower() {
+			return this.moistureLower;
+		}
+		
+		/***
+		@return Rate at which the sprinkler raises the soil moisture (%/min)
+		*/
+		public double getInternalMoistureRate() {
+			return this.internalMoistureRate;
+		}
+		
+		/***
+		@return 1 if the sprinkler is on, 0 otherwise
+		*/
+		public int getSprinkler() {
+			return this.sprinkler;
+		}
+		
+	}
 	
-	private double currentMoisture = 0.0;
-	private double moistureUpper = 0.0;
-	private double moistureLower = 0.0;
-	private double internalMoistureRate = 0.0;
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(0, 0.0, 0.0, 0.0, 0.0));
 	
 	public MoistureModel() {
 		
@@ -40,9 +95,12 @@ public class MoistureModel {
 	@param moistUpper The maximum soil moisture level of the desired soil moisture range
 	@param moistLower The minimum soil moisture level of the desired soil moisture range
 	*/
-	public synchronized void setMoistureRange(double moistUpper, double moistLower) {
-		this.moistureUpper = moistUpper;
-		this.moistureLower = moistLower;		
+	public void setMoistureRange(double moistUpper, double moistLower) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.sprinkler, current.currentMoisture, moistUpper, moistLower, current.internalMoistureRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -50,22 +108,39 @@ public class MoistureModel {
 	@param currMoist Soil Moisture level of the greenhouse to set to
 	@throws Exception A custom error that prompts the user if desired humdity is beyond the threshold range. 
 	*/
-	public synchronized void setCurrentMoisture(double currMoist) throws Exception {
+	public void setCurrentMoisture(double currMoist) throws Exception {
 		if (currMoist >= MINMOISTURE && currMoist <= MAXMOISTURE) {
-			this.currentMoisture = currMoist;
+			this.moveCurrentMoisture(currMoist);
 		} else {
 			throw new Exception("Moisture Out of Bounds. Please enter a value between 0% and 100%");
 		}
 	}
 	
+	/***
+	Sets the current soil moisture level of the greenhouse without checking it against the physical limits. Used by the
+	simulation engine, which only moves a reading to a level it has already checked.
+	@param currMoist Soil Moisture level of the greenhouse to set to
+	*/
+	void moveCurrentMoisture(double currMoist) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.sprinkler, currMoist, current.moistureUpper, current.moistureLower, current.internalMoistureRate);
+		} while (!this.state.compareAndSet(current, next));
+	}
+	
 	/***
 	Set the current rate at which the sprinkler raises the soil moisture of the greenhouse
 	@param rate Rate of increase in soil moisture (%/min)
 	@throws Exception Prompt the user that soil moisture rate of change can only be positive because there is no device to remove moisture
 	*/
-	public synchronized void setInternalMoistRate(double rate) throws Exception {
+	public void setInternalMoistRate(double rate) throws Exception {
 		if (rate > 0) { 
-			this.internalMoistureRate = rate;
+			State current, next;
+			do {
+				current = this.state.get();
+				next = new State(current.sprinkler, current.currentMoisture, current.moistureUpper, current.moistureLower, rate);
+			} while (!this.state.compareAndSet(current, next));
 		} else {
 			throw new Exception("Moisture Rate must be a positive number.");
 		}
@@ -73,20 +148,28 @@ public class MoistureModel {
 	
 	// GET
 	
+	/***
+	Returns a copy of all of the soil moisture sensor's data taken at the same moment. Reading the copy never blocks the simulation.
+	@return The current state of the model
+	*/
+	public State getState() {
+		return this.state.get();
+	}
+	
 	/***
 	Returns the current soil moisture of the environment as picked up by the soil moisture sensor
 	@return currentMoisture Current greenhouse soil moisture level
 	*/
-	public synchronized double getCurrentMoisture() {
-		return this.currentMoisture;
+	public double getCurrentMoisture() {
+		return this.state.get().currentMoisture;
 	}
 	
 	/***
 	Returns whether or not the sprinkler has been turned on or off by the sensor system
 	@return A message to display on the GUI (On/Off)
 	*/
-	public synchronized String getDeviceStatus(){
-		if (this.sprinkler == 1) {
+	public String getDeviceStatus(){
+		if (this.state.get().sprinkler == 1) {
 			return "On";
 		}
 		return "Off";
@@ -94,20 +177,53 @@ public class MoistureModel {
 	
 	// PROCESS
 	
+	/***
+	Adds the external effect on the soil moisture to the newest state of the model, held within its physical limits of 0 to 100% rather than the desired range. The
+	change is made in a single step on whatever the sensor last left, so a sensor running on another thread at the same
+	time cannot have its change written over, and neither can this one.
+	@param change Change in the soil moisture from the external effects
+	@return The soil moisture after the change
+	*/
+	public double applyExternalEffect(double change) {
+		State current, next;
+		do {
+			current = this.state.get();
+			double reading = EnvironmentModel.clamp(current.currentMoisture + change, MINMOISTURE, MAXMOISTURE);
+			next = new State(current.sprinkler, reading, current.moistureUpper, current.moistureLower, current.internalMoistureRate);
+		} while (!this.state.compareAndSet(current, next));
+		return next.currentMoisture;
+	}
+	
 	/***
 	This is the sensor method to check the soil moisture level of the greenhouse and update the soil moisture level according 
 	to the rate of change that the user has specified. It also controls the sprinkler in order to increase(only) the 
-	level of soil moisture to the desired range specified by the user. 
+	level of soil moisture to the desired range specified by the user. Each call covers one simulated minute.
 	*/
-	public synchronized void sensor() {
+	public void sensor() {
+		this.sensor(1);
+	}
+	
+	/***
+	Runs the sensor for a span of simulated time. The sprinkler rate is per minute, so a sprinkler that is switched on
+	changes the soil moisture by its rate times the number of minutes.
+	@param minutes Simulated minutes since the sensor last ran
+	*/
+	public void sensor(double minutes) {
 		
-		if (this.currentMoisture < this.moistureLower && this.currentMoisture >= MINMOISTURE) {			
-			this.sprinkler = 1;			
-			this.currentMoisture += this.internalMoistureRate;			
-		} else if (this.currentMoisture > this.moistureUpper && this.currentMoisture <= MAXMOISTURE) {
-			this.sprinkler = 0;	
-		} else {
-			this.sprinkler = 0;
+		State current, next;
+		do {
+			current = this.state.get();
+			if (current.currentMoisture < current.moistureLower && current.currentMoisture >= MINMOISTURE) {			
+				next = new State(1, current.currentMoisture + current.internalMoistureRate * minutes, current.moistureUpper, current.moistureLower, current.internalMoistureRate);
+			} else if (current.sprinkler == 0) {
+				next = current;
+			} else {
+				next = new State(0, current.currentMoisture, current.moistureUpper, current.moistureLower, current.internalMoistureRate);
+			}
+		} while (!this.state.compareAndSet(current, next));
+		
+		if (next.sprinkler != current.sprinkler) {
+			DeviceSwitchEvent.emit("Sprinkler", next.sprinkler == 1, current.currentMoisture);
 		}
 		
 	}
@@ -116,7 +232,8 @@ public class MoistureModel {
 	Creates a well formated data string so that it can be stored into a simulation save file for retrieval 
 	*/
 	public String toString() {
-		return "M," + this.currentMoisture + "," + (int)this.moistureUpper + "," + (int)this.moistureLower + "," + this.internalMoistureRate + "," + (int)this.sprinkler + ",";
+		State current = this.state.get();
+		return "M," + current.currentMoisture + "," + (int)current.moistureUpper + "," + (int)current.moistureLower + "," + current.internalMoistureRate + "," + (int)current.sprinkler + ",";
 	}
 
 }
\ No newline at end of file
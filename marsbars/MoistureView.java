@@ -30,9 +30,14 @@ public class MoistureView extends JPanel {
 	private RangeSlider moistRange 		= new RangeSlider();	
 	private JLabel moistureRateLabel 	= new JLabel("Soil Moisture Rate (%/min)");
 	private JTextField moistureRate		= new JTextField(5);
-	private JLabel refreshRateLabel 	= new JLabel("Refresh Rate (Sec)");	
-	private JSlider moistRefresh 		= new JSlider(JSlider.HORIZONTAL, 1, 10, 5);
+	private JLabel refreshRateLabel 	= new JLabel("Refresh Rate");	
+	private RefreshSlider moistRefresh 		= new RefreshSlider(2);
 	private JLabel controllerStatus 	= new JLabel("Off");
+	private TrendChart trend 		= new TrendChart(new TrendBuffer(TrendBuffer.DEFAULT_CAPACITY));
+	
+	// Numbers shown in the text fields. Updates that round to the text already shown are skipped.
+	private DecimalDisplay currentMoistDisplay = new DecimalDisplay(currentMoist, 2);
+	private DecimalDisplay moistureRateDisplay = new DecimalDisplay(moistureRate, 2);
 	
 	/***
 	Contructor that sets the basic GUI elements for the Panel
@@ -41,7 +46,7 @@ public class MoistureView extends JPanel {
 		
 		// Set the padding of the Panel
 		this.setBorder(new EmptyBorder(10, 10, 10, 10));		
-		this.setLayout(new GridLayout(5,1,0,0));
+		this.setLayout(new GridLayout(6,1,0,0));
 		
 		// Setup fonts
 		Font fontTextField = new Font("Arial",Font.BOLD,24);
@@ -79,27 +84,34 @@ public class MoistureView extends JPanel {
 		
 		// Refresh rate of the soil moisture sensor
 		panel4.add(refreshRateLabel);
-		this.moistRefresh.setValue(2);
-		this.moistRefresh.setMinorTickSpacing(1);
-		this.moistRefresh.setMajorTickSpacing(1);
-		this.moistRefresh.setPaintTicks(true);
-		this.moistRefresh.setPaintLabels(true);
 		panel4.add(moistRefresh);		
 		
 		// Display sprinkler status
 		panel5.add(controllerStatus);
 		panel5.setBorder(new EmptyBorder(25, 0, 0, 0));
 		
+		// History of the soil moisture level since the simulation started
+		trend.setBorder(new EmptyBorder(10, 0, 0, 0));
+		
 		add(panel1);
 		add(panel2);
 		add(panel3);
 		add(panel4);
 		add(panel5);
+		add(trend);
 		
 	}
 	
 	// GET
 	
+	/***
+	Returns the chart of the soil moisture level over time
+	@return The trend chart
+	*/
+	public TrendChart getTrend() {
+		return this.trend;
+	}
+	
 	/***
 	Get the current soil moisture level of the greenhouse convert it into a double, and return it.
 	@return The current greenhouse temperature
@@ -142,10 +154,10 @@ public class MoistureView extends JPanel {
 	
 	/***
 	Returns the rate at which the current thread refreshes the greenhouse soil moisture data
-	@return Thread refresh rate
+	@return Thread refresh rate in seconds
 	*/
-	public int getMoistRefreshRate() {
-		return this.moistRefresh.getValue();
+	public double getMoistRefreshRate() {
+		return this.moistRefresh.getSeconds();
 	}
 
 	
@@ -156,7 +168,7 @@ public class MoistureView extends JPanel {
 	@param moist Soil Moisture level needed to display
 	*/
 	public void setCurrentMoisture(double moist) {
-		this.currentMoist.setText(String.format("%.2f", moist));
+		this.currentMoistDisplay.setValue(moist);
 	}
 	
 	/***
@@ -180,7 +192,7 @@ public class MoistureView extends JPanel {
 	@param rate Soil Moisture change rate in C/Min
 	*/
 	public void setMoistureRate(double rate) {
-		this.moistureRate.setText(String.format("%.2f", rate));
+		this.moistureRateDisplay.setValue(rate);
 	}
 	
 	/***
@@ -188,7 +200,7 @@ public class MoistureView extends JPanel {
 	@param rate Soil Moisture GUI refresh rate
 	*/
 	public void setRefreshRate(double rate) {
-		this.moistRefresh.setValue((int)rate);
+		this.moistRefresh.setSeconds(rate);
 	}
 	
 	/***
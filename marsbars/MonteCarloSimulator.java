@@ -0,0 +1,224 @@
+/***
+
+Monte Carlo Simulator runs many replicas of one greenhouse under changing weather without the GUI. Each external
+rate is moved every tick by its external driver, and each replica draws its weather from its own split of one
+seeded random number generator. The replicas are shared out on a fork-join pool and their results are gathered into
+streaming quantiles of time in range and device duty, so equipment can be sized for the worst weather rather than
+the usual weather.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/***
+Runs replicas of a greenhouse under random weather on a fork-join pool and gathers their statistics.
+*/
+public class MonteCarloSimulator {
+
+	/***
+	Largest number of replicas one task runs before it splits. The split points depend only on the number of
+	replicas, so every replica gets the same random numbers however many threads there are.
+	*/
+	public static final int BATCH_REPLICAS = 16;
+
+	/***
+	Config keys of the external rates that can be given a driver, in the order setDrivers takes them
+	*/
+	public static final String[] RATE_KEYS = {"extTempRate", "extHumidRate", "extMoistRate"};
+
+	private SimulationConfig config;
+	private ExternalDriver tempDriver = ExternalDriver.NONE;
+	private ExternalDriver humidDriver = ExternalDriver.NONE;
+	private ExternalDriver moistDriver = ExternalDriver.NONE;
+
+	private long ticks;
+
+	/***
+	Creates a simulator whose external rates stay constant until drivers are set
+	@param theConfig The starting values, ranges, rates, and usual external rates of the greenhouse
+	*/
+	public MonteCarloSimulator(SimulationConfig theConfig) {
+		this.config = theConfig;
+	}
+
+	/***
+	Loads a scenario properties file. Besides the SimulationConfig entries, each external rate can have a driver,
+	for example extTempDriver=ou with extTempVolatility=0.2 and extTempReversion=0.05. See ExternalDriver.load.
+	@param theFile The scenario properties file
+	@return The loaded simulator
+	@throws IOException Throws an error if the file cannot be read or a value is not valid
+	*/
+	public static MonteCarloSimulator load(File theFile) throws IOException {
+
+		List<String> driverKeys = new ArrayList<String>();
+		for (String rateKey : RATE_KEYS) {
+			driverKeys.addAll(Arrays.asList(ExternalDriver.keys(rateKey)));
+		}
+		Properties props = SimulationConfig.readProperties(theFile, driverKeys.toArray(new String[0]));
+
+		MonteCarloSimulator simulator = new MonteCarloSimulator(SimulationConfig.load(props));
+		try {
+			simulator.setDrivers(ExternalDriver.load(props, RATE_KEYS[0]), ExternalDriver.load(props, RATE_KEYS[1]), ExternalDriver.load(props, RATE_KEYS[2]));
+		} catch (IllegalArgumentException e) {
+			throw new IOException((e instanceof NumberFormatException) ? "Please enter a valid number for every driver setting" : e.getMessage());
+		}
+		return simulator;
+	}
+
+	// SET
+
+	/***
+	Sets the processes that move the external rates every tick
+	@param tdriver Driver of the external temperature rate
+	@param hdriver Driver of the external humidity rate
+	@param mdriver Driver of the external soil moisture rate
+	*/
+	public void setDrivers(ExternalDriver tdriver, ExternalDriver hdriver, ExternalDriver mdriver) {
+		this.tempDriver = tdriver;
+		this.humidDriver = hdriver;
+		this.moistDriver = mdriver;
+	}
+
+	// PROCESS
+
+	/***
+	Runs every replica for a number of ticks and gathers their statistics. The same seed and number of replicas give
+	the same statistics on any number of threads.
+	@param replicas Number of replicas to run
+	@param numTicks Number of ticks each replica runs
+	@param threads Number of worker threads
+	@param seed Seed of the random numbers every replica's weather is split from
+	@return The statistics of every replica
+	*/
+	public ReplicaStatistics run(int replicas, long numTicks, int threads, long seed) {
+
+		this.ticks = numTicks;
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		try {
+			return pool.invoke(new Replicas(0, replicas, new SplittableRandom(seed)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/***
+	Fork-join task that runs a range of replicas. A range larger than a batch is split in half, and the second half
+	takes a split of this task's random numbers, so which numbers a replica gets depends only on its position.
+	*/
+	private class Replicas extends RecursiveTask<ReplicaStatistics> {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+		private SplittableRandom random;
+
+		/***
+		@param first Position of the first replica
+		@param end Position after the last replica
+		@param theRandom Random numbers of this range of replicas
+		*/
+		private Replicas(int first, int end, SplittableRandom theRandom) {
+			this.from = first;
+			this.to = end;
+			this.random = theRandom;
+		}
+
+		/***
+		Runs the range, or splits it between two tasks that idle workers can steal. The halves are merged in order.
+		*/
+		protected ReplicaStatistics compute() {
+
+			if (this.to - this.from <= BATCH_REPLICAS) {
+				ReplicaStatistics stats = new ReplicaStatistics();
+				for (int i = this.from; i < this.to; i++) {
+					runOne(this.random.split(), stats);
+				}
+				return stats;
+			}
+
+			int middle = (this.from + this.to) >>> 1;
+			Replicas second = new Replicas(middle, this.to, this.random.split());
+			Replicas first = new Replicas(this.from, middle, this.random);
+			second.fork();
+			ReplicaStatistics stats = first.compute();
+			stats.merge(second.join());
+			return stats;
+		}
+
+	}
+
+	/***
+	Runs one replica on the calling worker and adds its totals
+	@param random The replica's own random numbers
+	@param stats Where the totals are added
+	*/
+	private void runOne(SplittableRandom random, ReplicaStatistics stats) {
+		try {
+			SimulationEngine engine = SimulationEngine.create(this.config);
+			Weather weather = new Weather(this.config, this.tempDriver, this.humidDriver, this.moistDriver, random);
+			stats.add(engine.summarize(this.ticks, weather));
+		} catch (Exception e) {
+			stats.addFailure();
+		}
+	}
+
+	/***
+	Runs replicas of a scenario and reports their statistics and the throughput.
+	Usage: java marsbars.MonteCarloSimulator scenario.properties [replicas] [ticks] [threads] [seed]
+	@param args Command Line arguments
+	*/
+	public static void main(String[] args) {
+
+		try {
+
+			if (args.length < 1) {
+				System.out.println("Usage: java marsbars.MonteCarloSimulator scenario.properties [replicas] [ticks] [threads] [seed]");
+				System.exit(1);
+			}
+
+			MonteCarloSimulator simulator = MonteCarloSimulator.load(new File(args[0]));
+			int replicas = 1000;
+			long ticks = 43200;
+			int threads = Runtime.getRuntime().availableProcessors();
+			long seed = 233;
+			if (args.length > 1) {
+				replicas = Integer.parseInt(args[1]);
+			}
+			if (args.length > 2) {
+				ticks = Long.parseLong(args[2]);
+			}
+			if (args.length > 3) {
+				threads = Integer.parseInt(args[3]);
+			}
+			if (args.length > 4) {
+				seed = Long.parseLong(args[4]);
+			}
+
+			long start = System.nanoTime();
+			ReplicaStatistics stats = simulator.run(replicas, ticks, threads, seed);
+			long elapsed = System.nanoTime() - start;
+
+			System.out.println("Temperature: " + simulator.tempDriver + ", Humidity: " + simulator.humidDriver + ", Soil Moisture: " + simulator.moistDriver);
+			System.out.println(stats);
+			System.out.println(replicas + " replicas x " + ticks + " ticks on " + threads + " threads in " + (elapsed / 1000000) + " ms (" + (long)((double)replicas * ticks / (elapsed / 1e9)) + " ticks/sec)");
+
+		} catch (NumberFormatException e) {
+			System.out.println("Please enter a valid number");
+			System.exit(1);
+		} catch (Exception e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
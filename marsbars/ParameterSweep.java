@@ -0,0 +1,341 @@
+/***
+
+Parameter Sweep tries many combinations of desired ranges, device rates, and external rates without the GUI. Each
+config entry being swept gets a list of values, and every combination of them is run headless for the same number of
+ticks on a fork-join pool. One line of summary totals per combination is written to a CSV result file as soon as the
+combination finishes, so a large sweep never holds its results in memory.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/***
+Runs every combination of a grid of config values headless and writes their summaries to a CSV file.
+*/
+public class ParameterSweep {
+
+	private SimulationConfig base;
+	private List<String> keys = new ArrayList<String>();
+	private List<double[]> values = new ArrayList<double[]>();
+
+	private Writer results;
+	private long ticks;
+	private long failures = 0;
+
+	/***
+	Creates a sweep with a single combination: the base config
+	@param theBase The values of every config entry that is not swept
+	*/
+	public ParameterSweep(SimulationConfig theBase) {
+		this.base = theBase;
+	}
+
+	/***
+	Loads a sweep from a properties file. Each entry is a config key followed by a single value, a comma separated
+	list of values, or a range written as from:to:step. For example tempLower=10,15,20 or heatRate=1:5:0.5.
+	Any key missing from the file keeps its default value. A key that is not a config entry, such as a misspelt
+	tempStart, is rejected so a sweep never runs on defaults the user meant to change.
+	@param theFile The sweep properties file
+	@return The loaded sweep
+	@throws IOException Throws an error if the file cannot be read, holds an unknown key, or a value is not a number
+	*/
+	public static ParameterSweep load(File theFile) throws IOException {
+
+		Properties props = SimulationConfig.readProperties(theFile);
+
+		ParameterSweep sweep = new ParameterSweep(new SimulationConfig());
+		for (String key : SimulationConfig.KEYS) {
+			String value = props.getProperty(key);
+			if (value != null) {
+				try {
+					double[] list = parseValues(value.trim());
+					if (list.length == 1) {
+						sweep.base.set(key, list[0]);
+					} else {
+						sweep.vary(key, list);
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("Please enter a valid number, list, or range for " + key);
+				}
+			}
+		}
+		return sweep;
+	}
+
+	/***
+	Reads a single value, a comma separated list of values, or a from:to:step range
+	@param text The value as written in the sweep file
+	@return Every value it stands for
+	*/
+	private static double[] parseValues(String text) {
+
+		if (text.indexOf(':') >= 0) {
+			String[] parts = text.split(":");
+			if (parts.length != 3) {
+				throw new NumberFormatException(text);
+			}
+			double from = Double.parseDouble(parts[0].trim());
+			double to = Double.parseDouble(parts[1].trim());
+			double step = Double.parseDouble(parts[2].trim());
+			if (!(step > 0) || to < from) {
+				throw new NumberFormatException(text);
+			}
+			// Small allowance so a range like 0.1:0.3:0.1 still ends on 0.3
+			int count = (int)Math.floor((to - from) / step + 1e-9) + 1;
+			double[] list = new double[count];
+			for (int i = 0; i < count; i++) {
+				list[i] = from + i * step;
+			}
+			return list;
+		}
+
+		String[] parts = text.split(",");
+		double[] list = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			list[i] = Double.parseDouble(parts[i].trim());
+		}
+		return list;
+	}
+
+	// GET
+
+	/***
+	Returns how many combinations the sweep runs
+	@return Number of combinations
+	*/
+	public int size() {
+		long count = 1;
+		for (double[] list : this.values) {
+			count *= list.length;
+			if (count > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many combinations to sweep");
+			}
+		}
+		return (int)count;
+	}
+
+	/***
+	Returns the config of one combination. The first swept key changes slowest.
+	@param index Position of the combination, from 0 to size() - 1
+	@return The config of the combination
+	*/
+	public SimulationConfig config(int index) {
+		SimulationConfig config = this.base.copy();
+		int rest = index;
+		for (int k = this.keys.size() - 1; k >= 0; k--) {
+			double[] list = this.values.get(k);
+			config.set(this.keys.get(k), list[rest % list.length]);
+			rest /= list.length;
+		}
+		return config;
+	}
+
+	/***
+	Returns how many combinations of the last run were rejected by a model
+	@return Number of failed combinations
+	*/
+	public synchronized long getFailures() {
+		return this.failures;
+	}
+
+	// SET
+
+	/***
+	Sweeps a config entry over a list of values
+	@param key One of the names in SimulationConfig.KEYS
+	@param list The values to try
+	*/
+	public void vary(String key, double... list) {
+		this.base.get(key);
+		int at = this.keys.indexOf(key);
+		if (at >= 0) {
+			this.values.set(at, list.clone());
+		} else {
+			this.keys.add(key);
+			this.values.add(list.clone());
+		}
+	}
+
+	// PROCESS
+
+	/***
+	Runs every combination for a number of ticks and writes one CSV line per combination. Lines are written in the
+	order the combinations finish; the first column holds the combination's position.
+	@param numTicks Number of ticks each combination runs
+	@param threads Number of worker threads
+	@param out Where the CSV lines are written. It is flushed but not closed
+	@throws IOException Throws an error if the results cannot be written
+	*/
+	public void run(long numTicks, int threads, Writer out) throws IOException {
+
+		this.results = out;
+		this.ticks = numTicks;
+		this.failures = 0;
+
+		out.write(this.header());
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		try {
+			pool.invoke(new Combinations(0, this.size()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+		}
+		out.flush();
+	}
+
+	/***
+	Fork-join task that runs a range of combinations, splitting it in half until a single combination is left
+	*/
+	private class Combinations extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+
+		/***
+		@param first Position of the first combination
+		@param end Position after the last combination
+		*/
+		private Combinations(int first, int end) {
+			this.from = first;
+			this.to = end;
+		}
+
+		/***
+		Runs the range, or splits it between two tasks that idle workers can steal
+		*/
+		protected void compute() {
+			if (this.to - this.from <= 1) {
+				if (this.to > this.from) {
+					runOne(this.from);
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Combinations(this.from, middle), new Combinations(middle, this.to));
+		}
+
+	}
+
+	/***
+	Runs one combination on the calling worker and writes its line
+	@param index Position of the combination
+	*/
+	private void runOne(int index) {
+
+		SimulationConfig config = this.config(index);
+		StringBuilder line = new StringBuilder();
+		line.append(index);
+		for (String key : this.keys) {
+			line.append(',').append(config.get(key));
+		}
+
+		try {
+			SimulationEngine engine = SimulationEngine.create(config);
+			SimulationSummary summary = engine.summarize(this.ticks);
+			for (int d = SimulationSummary.FURNACE; d <= SimulationSummary.SPRINKLER; d++) {
+				line.append(',').append(summary.getDutyCycle(d));
+			}
+			for (int d = SimulationSummary.FURNACE; d <= SimulationSummary.SPRINKLER; d++) {
+				line.append(',').append(summary.getSwitches(d));
+			}
+			for (int r = SimulationSummary.TEMPERATURE; r <= SimulationSummary.MOISTURE; r++) {
+				line.append(',').append(summary.getTimeInRange(r));
+			}
+			line.append(',').append(summary.getPeriod());
+			line.append(',').append(engine.getTemperatureModel().getCurrentTemp());
+			line.append(',').append(engine.getHumidityModel().getCurrentHumidity());
+			line.append(',').append(engine.getMoistureModel().getCurrentMoisture());
+			line.append(",\n");
+		} catch (Exception e) {
+			synchronized (this) {
+				this.failures++;
+			}
+			for (int c = 0; c < 15; c++) {
+				line.append(',');
+			}
+			// Commas would split the message over several columns
+			line.append(',').append(String.valueOf(e.getMessage()).replace(',', ';')).append('\n');
+		}
+
+		try {
+			synchronized (this.results) {
+				this.results.write(line.toString());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/***
+	Creates the first line of the result file
+	@return The column names
+	*/
+	private String header() {
+		StringBuilder line = new StringBuilder("index");
+		for (String key : this.keys) {
+			line.append(',').append(key);
+		}
+		line.append(",furnaceDuty,airConDuty,humidifierDuty,sprinklerDuty");
+		line.append(",furnaceSwitches,airConSwitches,humidifierSwitches,sprinklerSwitches");
+		line.append(",tempInRange,humidInRange,moistInRange,period,finalTemp,finalHumid,finalMoist,error\n");
+		return line.toString();
+	}
+
+	/***
+	Runs a sweep and reports the throughput.
+	Usage: java marsbars.ParameterSweep sweep.properties results.csv [ticks] [threads]
+	@param args Command Line arguments
+	*/
+	public static void main(String[] args) {
+
+		try {
+
+			if (args.length < 2) {
+				System.out.println("Usage: java marsbars.ParameterSweep sweep.properties results.csv [ticks] [threads]");
+				System.exit(1);
+			}
+
+			ParameterSweep sweep = ParameterSweep.load(new File(args[0]));
+			long ticks = 43200;
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (args.length > 2) {
+				ticks = Long.parseLong(args[2]);
+			}
+			if (args.length > 3) {
+				threads = Integer.parseInt(args[3]);
+			}
+
+			long start = System.nanoTime();
+			try (Writer out = new BufferedWriter(new FileWriter(args[1]))) {
+				sweep.run(ticks, threads, out);
+			}
+			long elapsed = System.nanoTime() - start;
+
+			int count = sweep.size();
+			System.out.println(count + " combinations x " + ticks + " ticks on " + threads + " threads in " + (elapsed / 1000000) + " ms (" + (long)(count / (elapsed / 1e9)) + " combinations/sec)");
+			if (sweep.getFailures() > 0) {
+				System.out.println(sweep.getFailures() + " combinations were rejected, see the error column");
+			}
+
+		} catch (NumberFormatException e) {
+			System.out.println("Please enter a valid number");
+			System.exit(1);
+		} catch (Exception e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
@@ -0,0 +1,33 @@
+/***
+
+Playback Batch Event is a Java Flight Recorder event covering a batch of records read back from a save file,
+including any time spent waiting for a controller to take them.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import jdk.jfr.*;
+
+/***
+Flight recorder event for a batch of played back records.
+*/
+@Name("marsbars.PlaybackBatch")
+@Label("Playback Batch")
+@Category({"Greenhouse Simulator", "Playback"})
+@Description("A batch of records read back from a save file")
+@StackTrace(false)
+public class PlaybackBatchEvent extends Event {
+
+	@Label("Records")
+	public int records;
+
+	@Label("Position")
+	@Description("Bytes read from a text file, or the record number in a binary file, at the end of the batch")
+	public long position;
+
+}
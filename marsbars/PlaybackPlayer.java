@@ -0,0 +1,213 @@
+/***
+
+Playback Player plays back a binary save file on the GUI. It can jump to any tick of the recording and play at
+different speeds, and it keeps the scrub bar on the main GUI in step with the playback. The scrub bar stands for
+the simulated time of the recording, so jumping to a point of the bar finds the record of that tick.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/***
+Plays back a binary save file with seeking and variable speed.
+*/
+public class PlaybackPlayer extends Controller {
+
+	private RecordingReader reader;
+	private Controller[] phases;
+	private ViewRenderer renderer;
+
+	// Ticks of the first and last records, which the ends of the scrub bar stand for
+	private long firstTick = 0;
+	private long lastTick = 0;
+
+	private SimulationClock clock = new SimulationClock();
+	private AtomicLong position = new AtomicLong(0);
+	private volatile double speed = 1.0;
+
+	/***
+	Constructor that takes the recording and the controllers whose panels show the recorded data
+	@param theReader The binary save file to play back
+	@param envCont Environment controller
+	@param tempCont Temperature controller
+	@param humidCont Humidity controller
+	@param moistCont Soil moisture controller
+	@param theRenderer The view renderer that moves the scrub bar on the main GUI
+	*/
+	public PlaybackPlayer(RecordingReader theReader, EnvironmentController envCont, TemperatureController tempCont, HumidityController humidCont, MoistureController moistCont, ViewRenderer theRenderer) {
+		this.reader = theReader;
+		this.phases = new Controller[] {envCont, tempCont, humidCont, moistCont};
+		this.renderer = theRenderer;
+
+		long count = this.reader.getRecordCount();
+		if (count > 0) {
+			TickRecord record = new TickRecord();
+			this.reader.read(0, record);
+			this.firstTick = record.getTick();
+			this.reader.read(count - 1, record);
+			this.lastTick = record.getTick();
+		}
+	}
+
+	// GET
+
+	/***
+	Returns the position of the record currently being played
+	@return Position of the record in the recording
+	*/
+	public long getPosition() {
+		return this.position.get();
+	}
+
+	/***
+	Returns the number of records in the recording
+	@return Number of records
+	*/
+	public long getRecordCount() {
+		return this.reader.getRecordCount();
+	}
+
+	// SET
+	
+	/***
+	Sets the clock that shows the simulated time of the record being played
+	@param theClock The simulation clock shown on the main GUI
+	*/
+	public void setClock(SimulationClock theClock) {
+		this.clock = theClock;
+	}
+
+	/***
+	Sets how fast the recording is played back
+	@param multiplier Playback speed, where 1 is the speed the simulation was recorded at
+	*/
+	public void setSpeed(double multiplier) {
+		if (multiplier > 0) {
+			this.speed = multiplier;
+		}
+	}
+
+	/***
+	Jumps to a record and shows it straight away, even while playback is paused. A seek is made on the event
+	dispatch thread while the player's thread may be adding to the trend charts, so the record is shown on the panels
+	without being added to the trends. Playback carries on from the record, and a trend that jumped back starts over.
+	@param index Position of the record in the recording
+	*/
+	public void seek(long index) {
+		if (this.reader.getRecordCount() == 0) {
+			return;
+		}
+		long target = Math.max(0, Math.min(index, this.reader.getRecordCount() - 1));
+		this.position.set(target);
+		TickRecord record = new TickRecord();
+		this.reader.read(target, record);
+		this.showRecord(record, false);
+		this.showPosition(record.getTick());
+	}
+
+	/***
+	Jumps to the first record on or after a point of the simulated time of the recording and shows it straight away
+	@param fraction Point of the recording, from 0 (first tick) to 1 (last tick), as shown by the scrub bar
+	*/
+	public void seekTo(double fraction) {
+		if (this.reader.getRecordCount() == 0) {
+			return;
+		}
+		long tick = this.firstTick + Math.round(Math.max(0, Math.min(1, fraction)) * (this.lastTick - this.firstTick));
+		this.seek(this.reader.indexOfTick(tick, new TickRecord()));
+	}
+
+	/***
+	Closes the recording
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public void closeFile() throws IOException {
+		this.reader.close();
+	}
+
+	/***
+	Shows a record on the panel of every subsystem that was updated on its tick
+	@param record The record to show
+	@param trend Whether to add the readings to the trend charts. Only the player's thread may add to them
+	*/
+	private void showRecord(TickRecord record, boolean trend) {
+		this.clock.setTime(record.getTick());
+		for (int s = 0; s < this.phases.length; s++) {
+			if (record.hasPhase(s)) {
+				if (this.renderer != null) {
+					this.renderer.update(this.phases[s], record, true, trend);
+				} else {
+					this.phases[s].render(record);
+				}
+			}
+		}
+	}
+
+	/***
+	Hands the point of the recording a tick is at to the view renderer, which moves the scrub bar with its next frame
+	@param tick The tick of the record being shown
+	*/
+	private void showPosition(long tick) {
+		if (this.renderer != null) {
+			this.renderer.setPosition((this.lastTick > this.firstTick) ? (double)(tick - this.firstTick) / (this.lastTick - this.firstTick) : 1);
+		}
+	}
+
+	/***
+	Plays the recording from the current position to the end. The time between two records is the simulated time
+	between them, shortened or lengthened by the playback speed. Reading and showing each record counts as a tick
+	in the player's metrics and, when a flight recording is running, as a PlaybackBatchEvent of one record.
+	*/
+	public void run() {
+
+		for (Controller phase : this.phases) {
+			phase.playbackMode();
+		}
+
+		TickRecord record = new TickRecord();
+		TickRecord next = new TickRecord();
+		long count = this.reader.getRecordCount();
+
+		while (true) {
+
+			long index = this.position.get();
+			if (index >= count) {
+				break;
+			}
+
+			PlaybackBatchEvent event = new PlaybackBatchEvent();
+			event.begin();
+			long start = System.nanoTime();
+			this.reader.read(index, record);
+			this.showRecord(record, true);
+			this.showPosition(record.getTick());
+			this.getMetrics().recordTick(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.records = 1;
+				event.position = index;
+				event.commit();
+			}
+
+			long delay = record.getRefreshRate();
+			if (index + 1 < count) {
+				this.reader.read(index + 1, next);
+				delay = next.getTick() - record.getTick();
+			}
+
+			// Move on unless the user has jumped somewhere else in the meantime
+			this.position.compareAndSet(index, index + 1);
+
+			waitProcess((int)Math.min(Integer.MAX_VALUE, delay / this.speed));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+/***
+
+Playback Reader reads a text simulation data file once for every controller. Each line is parsed a single time and
+handed to the controller its prefix (E, T, H, or M) belongs to. Records are reused once a controller is done with
+them so playback does not create an object for every line.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+
+/***
+Single pass reader that hands each line of a text simulation data file to the controller that plays it back.
+*/
+public class PlaybackReader extends Thread implements PlaybackReaderMBean {
+
+	/***
+	Handed to every controller once the whole file has been read
+	*/
+	public static final TickRecord END_OF_FILE = new TickRecord();
+
+	// Records in use by a controller: a full queue plus the one being shown plus the one being filled
+	private static final int POOL_SIZE = Controller.PLAYBACK_QUEUE + 2;
+
+	// Records covered by each PlaybackBatchEvent
+	private static final int BATCH = 256;
+
+	private TextRecordParser parser;
+	private Controller[] consumers;
+
+	// Records are handed to each controller in turn from its own pool. A record comes round again only after the
+	// controller has taken every record queued after it, so it is no longer being shown.
+	private TickRecord[][] pools;
+	private int[] nextInPool;
+
+	// Read by JMX and the metrics snapshot while the reader runs
+	private volatile long recordsRead = 0;
+	private volatile long bytesRead = 0;
+	private RateMeter readRate = new RateMeter();
+
+	/***
+	Opens the simulation data file and puts every controller into playback mode
+	@param theFile The simulation data file to play back
+	@param envCont Environment controller. Plays back the E lines
+	@param tempCont Temperature controller. Plays back the T lines
+	@param humidCont Humidity controller. Plays back the H lines
+	@param moistCont Soil moisture controller. Plays back the M lines
+	@throws IOException Throws an error if the file cannot be opened
+	*/
+	public PlaybackReader(File theFile, EnvironmentController envCont, TemperatureController tempCont, HumidityController humidCont, MoistureController moistCont) throws IOException {
+		this.parser = new TextRecordParser(theFile);
+		this.consumers = new Controller[] {envCont, tempCont, humidCont, moistCont};
+		this.pools = new TickRecord[this.consumers.length][POOL_SIZE];
+		for (TickRecord[] pool : this.pools) {
+			for (int i = 0; i < pool.length; i++) {
+				pool[i] = new TickRecord();
+			}
+		}
+		this.nextInPool = new int[this.consumers.length];
+		for (Controller consumer : this.consumers) {
+			consumer.openPlayback();
+		}
+	}
+
+	/***
+	Returns how many records have been read from the file
+	@return recordsRead Number of records
+	*/
+	public long getRecordsRead() {
+		return this.recordsRead;
+	}
+
+	/***
+	Returns how far into the file the reader has got
+	@return bytesRead Number of bytes parsed
+	*/
+	public long getBytesRead() {
+		return this.bytesRead;
+	}
+
+	/***
+	Returns how fast records are being read
+	@return Records read per second over the last second or more
+	*/
+	public double getRecordsPerSecond() {
+		return this.readRate.rate(this.recordsRead);
+	}
+
+	/***
+	Closes the simulation data file
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public void closeFile() throws IOException {
+		this.parser.close();
+	}
+
+	/***
+	Reads the file from start to finish and hands each record to its controller. A controller that falls behind
+	makes the reader wait, so no controller gets more than a few records ahead of the others. Every BATCH records
+	are recorded as a PlaybackBatchEvent when a flight recording is running.
+	*/
+	public void run() {
+
+		try {
+
+			TickRecord scratch = new TickRecord();
+			int subsystem;
+			PlaybackBatchEvent batch = new PlaybackBatchEvent();
+			batch.begin();
+
+			while ((subsystem = this.parser.next(scratch)) >= 0) {
+
+				TickRecord[] pool = this.pools[subsystem];
+				TickRecord record = pool[this.nextInPool[subsystem]];
+				this.nextInPool[subsystem] = (this.nextInPool[subsystem] + 1) % pool.length;
+
+				record.copyFrom(scratch);
+				this.recordsRead++;
+				this.bytesRead = this.parser.getOffset();
+				this.consumers[subsystem].offerRecord(record);
+
+				if (++batch.records == BATCH) {
+					batch.position = this.bytesRead;
+					batch.commit();
+					batch = new PlaybackBatchEvent();
+					batch.begin();
+				}
+
+			}
+
+			if (batch.records > 0) {
+				batch.position = this.bytesRead;
+				batch.commit();
+			}
+
+		} catch (IOException e) {
+			this.consumers[0].report(EventChannel.ERROR, "Playback stopped: " + e.getMessage());
+		} catch (InterruptedException e) {
+			this.consumers[0].report(EventChannel.ERROR, "Playback interrupted");
+		} finally {
+			this.finish();
+		}
+
+	}
+
+	/***
+	Lets every controller know that there are no more records
+	*/
+	private void finish() {
+		try {
+			for (Controller consumer : this.consumers) {
+				consumer.offerRecord(END_OF_FILE);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+/***
+
+Playback Reader MBean is the management interface of the text playback reader, so a JMX console can see how fast a
+recording is being read back.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+JMX attributes of the text playback reader.
+*/
+public interface PlaybackReaderMBean {
+
+	/***
+	@return Number of records read from the file
+	*/
+	long getRecordsRead();
+
+	/***
+	@return Number of bytes of the file parsed
+	*/
+	long getBytesRead();
+
+	/***
+	@return Records read per second over the last second or more
+	*/
+	double getRecordsPerSecond();
+
+}
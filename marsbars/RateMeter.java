@@ -0,0 +1,70 @@
+/***
+
+Rate Meter turns a growing count, such as ticks run or records read, into a rate per second. The meter keeps one
+sample of the count and moves it on when it is read at least a window after the sample was taken. The rate is the
+average from the sample before to the sample now, so it covers at least a window but can cover much longer when
+nothing reads the meter for a while. Reads in between return the same rate, so frequent readers such as a JMX
+console all see a steady number. Until the first window has passed the rate is the average since the meter started.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Rate per second of a growing count, averaged between samples taken on reads at least a window apart.
+*/
+public class RateMeter {
+
+	/***
+	Shortest span of wall time a rate is worked out over, in nanoseconds
+	*/
+	public static final long WINDOW = 1000000000L;
+
+	private long sampleTime = System.nanoTime();
+	private long sampleCount = 0;
+	private double rate = 0;
+	private boolean sampled = false;
+
+	/***
+	A meter that starts counting now
+	*/
+	public RateMeter() {
+
+	}
+
+	/***
+	Returns the rate of a count
+	@param count The count now
+	@return Increase of the count per second between the last two samples, or since the meter started if no window
+	has passed yet
+	*/
+	public synchronized double rate(long count) {
+		long now = System.nanoTime();
+		long elapsed = now - this.sampleTime;
+		if (elapsed >= WINDOW) {
+			this.rate = (count - this.sampleCount) / (elapsed / 1e9);
+			this.sampleTime = now;
+			this.sampleCount = count;
+			this.sampled = true;
+		} else if (!this.sampled && elapsed > 0) {
+			return (count - this.sampleCount) / (elapsed / 1e9);
+		}
+		return this.rate;
+	}
+
+	/***
+	Starts the meter over from now, as if it had just been created
+	@param count The count now
+	*/
+	public synchronized void reset(long count) {
+		this.sampleTime = System.nanoTime();
+		this.sampleCount = count;
+		this.rate = 0;
+		this.sampled = false;
+	}
+
+}
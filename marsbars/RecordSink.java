@@ -0,0 +1,45 @@
+/***
+
+Record Sink is the common interface of everything a running simulation can be recorded to.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+
+/***
+Destination for the tick records of a running simulation.
+*/
+public interface RecordSink {
+
+	/***
+	Writes the data of one tick
+	@param record The tick's data. The sink must copy anything it keeps because the record is reused
+	@throws IOException Throws an error if the record cannot be written
+	*/
+	void write(TickRecord record) throws IOException;
+
+	/***
+	Pushes any buffered records out to the file
+	@throws IOException Throws an error if the records cannot be written
+	*/
+	void flush() throws IOException;
+
+	/***
+	Flushes and closes the file
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	void close() throws IOException;
+
+	/***
+	Returns how many bytes of records have been handed to the file so far
+	@return Number of bytes written
+	*/
+	long getBytesWritten();
+
+}
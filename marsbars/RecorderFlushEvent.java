@@ -0,0 +1,35 @@
+/***
+
+Recorder Flush Event is a Java Flight Recorder event covering one flush of the save file by the recorder's writer
+thread, so a slow disk shows up on the same timeline as the simulation it holds up.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import jdk.jfr.*;
+
+/***
+Flight recorder event for a flush of the save file.
+*/
+@Name("marsbars.RecorderFlush")
+@Label("Recorder Flush")
+@Category({"Greenhouse Simulator", "Recording"})
+@Description("The recorder's writer thread flushing the save file")
+@StackTrace(false)
+public class RecorderFlushEvent extends Event {
+
+	@Label("Records")
+	@Description("Records written since the last flush")
+	public long records;
+
+	@Label("Bytes Written")
+	@Description("Bytes written to the save file so far")
+	@DataAmount
+	public long bytesWritten;
+
+}
@@ -0,0 +1,338 @@
+/***
+
+Recording Format describes the binary simulation save file. A file starts with a header that holds the schema version
+and the column layout of each subsystem, followed by one little-endian record per simulated tick and an index of
+the key records.
+
+File layout:
+	magic "GHSR", version (short), header length (int), key interval (int), subsystem count (byte)
+	for each subsystem: prefix (byte), column count (byte), and for each column: type (byte), name length (byte), name (ASCII)
+	records: length (byte), tick (long), phases (byte), then a block for each subsystem in the record, in header order
+	block: column mask (byte), then each column whose bit is set in the mask
+	end of the records: a length of 0 (byte)
+	index: offset of each key record (long), then record count (long), offset of the index (long), magic "GHSI"
+
+A record only holds the subsystems that were updated on its tick, and of those only the columns that changed since
+the subsystem was last written, so a tick of a single subsystem whose reading moved takes 19 bytes. Every key
+interval records the record is a key record, which holds every column of every subsystem and has the KEY bit set in
+its phases. A reader can start at any key record without reading what comes before it, and the positions and ticks of
+the key records are used to jump to a tick. The index is written when the recording is closed, so a reader can find
+every key record of a file of any size without reading the records. A recording cut short before it was closed (for
+example by a crash) has no index, and its records are read once to find the key records. The records are followed by
+a zero length before the index, so reading the records of a file whose index was only partly written stops there.
+
+The tick of a record is the simulated time it was taken at in milliseconds.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/***
+Schema and encoding of the binary simulation save file.
+*/
+public class RecordingFormat {
+
+	/***
+	File name extension that selects the binary format when saving a simulation.
+	*/
+	public static final String EXTENSION = ".ghsr";
+
+	public static final int MAGIC = 0x52534847;		// "GHSR" read as a little-endian int
+	public static final short VERSION = 1;
+
+	// Column types
+	public static final byte DOUBLE = 'D';
+	public static final byte INT 	= 'I';
+	public static final byte FLAG 	= 'B';
+
+	// Subsystems in the order they are stored in each record. These are also the phases of a tick.
+	public static final int ENVIRONMENT = 0;
+	public static final int TEMPERATURE = 1;
+	public static final int HUMIDITY 	= 2;
+	public static final int MOISTURE 	= 3;
+
+	/***
+	Prefix of each subsystem. These match the line prefixes of the text save file.
+	*/
+	public static final char[] PREFIXES = {'E', 'T', 'H', 'M'};
+
+	/***
+	Column names of each subsystem
+	*/
+	public static final String[][] COLUMNS = {
+		{"startTemp", "startHumid", "startMoist", "extTempRate", "extHumidRate", "extMoistRate", "refreshRate"},
+		{"currentTemp", "tempUpper", "tempLower", "heatRate", "coolRate", "furnace", "airCon", "refreshRate"},
+		{"currentHumid", "humidUpper", "humidLower", "humidRate", "humidifier", "refreshRate"},
+		{"currentMoist", "moistUpper", "moistLower", "moistRate", "sprinkler", "refreshRate"}
+	};
+
+	/***
+	Column types of each subsystem
+	*/
+	public static final byte[][] TYPES = {
+		{DOUBLE, DOUBLE, DOUBLE, DOUBLE, DOUBLE, DOUBLE, INT},
+		{DOUBLE, INT, INT, DOUBLE, DOUBLE, FLAG, FLAG, INT},
+		{DOUBLE, INT, INT, DOUBLE, FLAG, INT},
+		{DOUBLE, INT, INT, DOUBLE, FLAG, INT}
+	};
+
+	/***
+	Position of the first column of each subsystem in TickRecord's value array
+	*/
+	public static final int[] OFFSETS = {0, 7, 15, 21};
+
+	/***
+	Total number of columns across every subsystem
+	*/
+	public static final int COLUMN_COUNT = 27;
+
+	/***
+	Longest record: a key record
+	*/
+	public static final int MAX_RECORD_LENGTH = recordLength(TYPES);
+
+	/***
+	Records from one key record to the next
+	*/
+	public static final int KEY_INTERVAL = 256;
+
+	/***
+	Bit set in the phases of a key record
+	*/
+	public static final int KEY = 0x80;
+
+	public static final int INDEX_MAGIC = 0x49534847;	// "GHSI" read as a little-endian int
+
+	/***
+	Length of the end of the index that follows the key record offsets: record count, index offset, and magic
+	*/
+	public static final int FOOTER_LENGTH = 8 + 8 + 4;
+
+	private RecordingFormat() {
+
+	}
+
+	/***
+	Returns the number of bytes a column type takes up in a record
+	@param type The column type
+	@return Width of the column in bytes
+	*/
+	public static int width(byte type) {
+		switch (type) {
+			case DOUBLE: 	return 8;
+			case INT: 		return 4;
+			default: 		return 1;
+		}
+	}
+
+	/***
+	Works out the length of a key record with the specified column layout
+	@param types Column types of each subsystem
+	@return Length of a key record in bytes
+	*/
+	public static int recordLength(byte[][] types) {
+		int length = 1 + 8 + 1;
+		for (byte[] subsystem : types) {
+			length++;
+			for (byte type : subsystem) {
+				length += width(type);
+			}
+		}
+		return length;
+	}
+
+	/***
+	Builds the file header
+	@return A buffer holding the header, ready to be written
+	*/
+	public static ByteBuffer header() {
+
+		int length = 4 + 2 + 4 + 4 + 1;
+		for (int s = 0; s < COLUMNS.length; s++) {
+			length += 2;
+			for (String name : COLUMNS[s]) {
+				length += 2 + name.length();
+			}
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putInt(length);
+		buffer.putInt(KEY_INTERVAL);
+		buffer.put((byte)COLUMNS.length);
+		for (int s = 0; s < COLUMNS.length; s++) {
+			buffer.put((byte)PREFIXES[s]);
+			buffer.put((byte)COLUMNS[s].length);
+			for (int c = 0; c < COLUMNS[s].length; c++) {
+				byte[] name = COLUMNS[s][c].getBytes(StandardCharsets.US_ASCII);
+				buffer.put(TYPES[s][c]);
+				buffer.put((byte)name.length);
+				buffer.put(name);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/***
+	Builds the end of the records and the index written after the last record
+	@param keyOffsets Offset in the file of each key record
+	@param keys Number of key records
+	@param recordCount Number of records in the file
+	@param end Offset in the file right after the last record
+	@return A buffer holding the end of the records and the index, ready to be written
+	*/
+	public static ByteBuffer index(long[] keyOffsets, int keys, long recordCount, long end) {
+		ByteBuffer buffer = ByteBuffer.allocate(1 + keys * 8 + FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put((byte)0);
+		for (int k = 0; k < keys; k++) {
+			buffer.putLong(keyOffsets[k]);
+		}
+		buffer.putLong(recordCount);
+		buffer.putLong(end + 1);
+		buffer.putInt(INDEX_MAGIC);
+		buffer.flip();
+		return buffer;
+	}
+
+	/***
+	Checks the header at the start of a buffer and moves the buffer past it. Files must have been written with this
+	version's column layout.
+	@param buffer Little-endian buffer positioned at the start of the file
+	@return Length of the header in bytes
+	@throws IOException Throws an error if the file is not a binary simulation file or was written with a different layout
+	*/
+	public static int readHeader(ByteBuffer buffer) throws IOException {
+
+		if (buffer.remaining() < 15 || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a simulation recording. File might be corrupted.");
+		}
+		short version = buffer.getShort();
+		int headerLength = buffer.getInt();
+		int layout = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported recording version " + version + ". Expected version " + VERSION);
+		}
+		if (layout <= 0 || headerLength != header().remaining()) {
+			throw new IOException("Unexpected column layout. File might be corrupted.");
+		}
+		buffer.position(buffer.position() - 14 + headerLength);
+		return headerLength;
+	}
+
+	/***
+	Writes a tick record into a buffer. Only the subsystems updated on the tick are written, and of those only the
+	columns that differ from the last record written, unless the record is a key record.
+	@param record The record to write
+	@param previous The columns as of the last record written. The columns written are copied into it
+	@param key Whether to write a key record, which holds every column of every subsystem
+	@param buffer Little-endian buffer with at least MAX_RECORD_LENGTH bytes remaining
+	*/
+	public static void encode(TickRecord record, TickRecord previous, boolean key, ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.put((byte)0);
+		buffer.putLong(record.getTick());
+		int phases = record.getPhases() & ~KEY;
+		buffer.put((byte)(key ? (phases | KEY) : phases));
+		for (int s = 0; s < TYPES.length; s++) {
+			if (!key && (phases & (1 << s)) == 0) {
+				continue;
+			}
+			int maskAt = buffer.position();
+			int mask = 0;
+			buffer.put((byte)0);
+			for (int c = 0; c < TYPES[s].length; c++) {
+				double value = record.get(s, c);
+				if (key || Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(previous.get(s, c))) {
+					mask |= 1 << c;
+					put(buffer, TYPES[s][c], value);
+				}
+			}
+			buffer.put(maskAt, (byte)mask);
+			previous.copyFrom(record, s);
+		}
+		buffer.put(start, (byte)(buffer.position() - start));
+	}
+
+	/***
+	Reads a tick record out of a buffer. The columns that are not in the record are left as they are, so a record
+	that is read after the one before it holds every column as of its tick.
+	@param buffer Little-endian buffer positioned at the start of a record
+	@param record The record to fill
+	*/
+	public static void decode(ByteBuffer buffer, TickRecord record) {
+		buffer.get();
+		record.setTick(buffer.getLong());
+		int phases = buffer.get() & 0xFF;
+		record.setPhases(phases & ~KEY);
+		for (int s = 0; s < TYPES.length; s++) {
+			if ((phases & (KEY | (1 << s))) == 0) {
+				continue;
+			}
+			int mask = buffer.get();
+			for (int c = 0; c < TYPES[s].length; c++) {
+				if ((mask & (1 << c)) != 0) {
+					record.set(OFFSETS[s] + c, get(buffer, TYPES[s][c]));
+				}
+			}
+		}
+	}
+
+	/***
+	Returns the length of the record at a position of a buffer, without moving the buffer
+	@param buffer Little-endian buffer holding the record
+	@param position Position of the record in the buffer
+	@return Length of the record in bytes
+	*/
+	public static int length(ByteBuffer buffer, int position) {
+		return buffer.get(position) & 0xFF;
+	}
+
+	/***
+	Returns the tick of the record at a position of a buffer, without moving the buffer
+	@param buffer Little-endian buffer holding the record
+	@param position Position of the record in the buffer
+	@return The tick of the record
+	*/
+	public static long tick(ByteBuffer buffer, int position) {
+		return buffer.getLong(position + 1);
+	}
+
+	/***
+	Writes one column into a buffer
+	@param buffer Little-endian buffer
+	@param type The column type
+	@param value The column's value
+	*/
+	private static void put(ByteBuffer buffer, byte type, double value) {
+		switch (type) {
+			case DOUBLE: 	buffer.putDouble(value); break;
+			case INT: 		buffer.putInt((int)value); break;
+			default: 		buffer.put((byte)value); break;
+		}
+	}
+
+	/***
+	Reads one column out of a buffer
+	@param buffer Little-endian buffer
+	@param type The column type
+	@return The column's value
+	*/
+	private static double get(ByteBuffer buffer, byte type) {
+		switch (type) {
+			case DOUBLE: 	return buffer.getDouble();
+			case INT: 		return buffer.getInt();
+			default: 		return buffer.get();
+		}
+	}
+
+}
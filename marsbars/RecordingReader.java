@@ -0,0 +1,267 @@
+/***
+
+Recording Reader opens a binary save file (see RecordingFormat) for playback. The file is memory mapped, and where
+each key record starts is read from the index at the end of the file as it is needed, so a file of any size opens
+straight away and any tick can be read by starting at the key record before it without reading the rest of the
+file. A file that was cut short before its index was written is read once when it is opened to find the key records
+instead. Records are usually read one after the other, so the reader remembers where the last read ended and
+carries on from there.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/***
+Random access reader for binary save files backed by memory mapped segments.
+*/
+public class RecordingReader {
+
+	// A mapping cannot be larger than 2GB so large files are mapped in several segments. Each segment also maps the
+	// start of the next one, so a record that begins in a segment always ends in it too.
+	private static final long SEGMENT_LENGTH = Integer.MAX_VALUE - RecordingFormat.MAX_RECORD_LENGTH;
+
+	private FileChannel channel;
+	private ByteBuffer[] segments;
+	private int headerLength;
+	private long recordCount;
+
+	// Records from one key record to the next, and where each key record starts: in the file's index, or in an array
+	// when the file has no index
+	private int keyInterval;
+	private long indexOffset = -1;
+	private long[] keyOffsets;
+
+	// The last record read and where the record after it starts. Guarded by this reader.
+	private TickRecord current = new TickRecord();
+	private long next = 0;
+	private long nextOffset = 0;
+
+	/***
+	Opens and maps a binary save file
+	@param theFile The binary save file to play back
+	@throws IOException Throws an error if the file cannot be opened or is not a binary save file
+	*/
+	public RecordingReader(File theFile) throws IOException {
+
+		this.channel = FileChannel.open(theFile.toPath(), StandardOpenOption.READ);
+
+		try {
+
+			ByteBuffer head = ByteBuffer.allocate((int)Math.min(this.channel.size(), 4096)).order(ByteOrder.LITTLE_ENDIAN);
+			this.channel.read(head, 0);
+			head.flip();
+			this.headerLength = RecordingFormat.readHeader(head);
+
+			long size = this.channel.size();
+			int segmentCount = (int)((size + SEGMENT_LENGTH - 1) / SEGMENT_LENGTH);
+			this.segments = new ByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				long first = i * SEGMENT_LENGTH;
+				this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, first, Math.min(Integer.MAX_VALUE, size - first)).order(ByteOrder.LITTLE_ENDIAN);
+			}
+
+			this.keyInterval = head.getInt(10);
+			if (!this.readFooter(size)) {
+				this.index(size);
+			}
+			this.nextOffset = this.headerLength;
+
+		} catch (IOException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/***
+	Reads the record count and where the index starts from the end of the file
+	@param size Length of the file in bytes
+	@return Whether the file ends with a valid index
+	*/
+	private boolean readFooter(long size) {
+		if (size < this.headerLength + RecordingFormat.FOOTER_LENGTH) {
+			return false;
+		}
+		long footer = size - RecordingFormat.FOOTER_LENGTH;
+		ByteBuffer segment = this.segment(footer);
+		int position = this.position(footer);
+		if (segment.getInt(position + 16) != RecordingFormat.INDEX_MAGIC) {
+			return false;
+		}
+		long count = segment.getLong(position);
+		long offset = segment.getLong(position + 8);
+		long keys = (count + this.keyInterval - 1) / this.keyInterval;
+		if (count < 0 || offset < this.headerLength || offset + keys * 8 != footer) {
+			return false;
+		}
+		this.recordCount = count;
+		this.indexOffset = offset;
+		return true;
+	}
+
+	/***
+	Counts the records of a file that has no index and notes where each key record starts
+	@param size Length of the file in bytes
+	@throws IOException Throws an error if a record does not have a valid length
+	*/
+	private void index(long size) throws IOException {
+		long[] keys = new long[64];
+		long count = 0;
+		long offset = this.headerLength;
+		while (offset < size) {
+			int length = RecordingFormat.length(this.segment(offset), this.position(offset));
+			if (length == 0) {
+				// The end of the records, followed by an index that was not finished
+				break;
+			}
+			if (length < 10) {
+				throw new IOException("Record " + count + " has an invalid length. File might be corrupted.");
+			}
+			if (offset + length > size) {
+				// A record cut short at the end of the file (for example after a crash) is ignored
+				break;
+			}
+			if (count % this.keyInterval == 0) {
+				int key = (int)(count / this.keyInterval);
+				if (key == keys.length) {
+					long[] grown = new long[keys.length * 2];
+					System.arraycopy(keys, 0, grown, 0, keys.length);
+					keys = grown;
+				}
+				keys[key] = offset;
+			}
+			offset += length;
+			count++;
+		}
+		this.recordCount = count;
+		this.keyOffsets = keys;
+	}
+
+	/***
+	Returns the number of records in the file
+	@return recordCount Number of records
+	*/
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+
+	/***
+	Reads one record. The record holds every column as of its tick, including those of subsystems that were not
+	updated on it. Reading the record after the last one read is the fastest, any other record is read from the key
+	record before it. The player and the scrub bar can both read, one at a time.
+	@param index Position of the record in the file
+	@param record The record to fill
+	*/
+	public synchronized void read(long index, TickRecord record) {
+		if (index < 0 || index >= this.recordCount) {
+			throw new IndexOutOfBoundsException("No record " + index + " in a recording of " + this.recordCount + " records");
+		}
+
+		// Start over from the key record unless the record is ahead of the last one read and before the next key record
+		long key = index / this.keyInterval;
+		if (index < this.next - 1 || this.next < key * this.keyInterval) {
+			this.next = key * this.keyInterval;
+			this.nextOffset = this.keyOffset(key);
+		}
+		while (this.next <= index) {
+			ByteBuffer segment = this.segment(this.nextOffset);
+			int position = this.position(this.nextOffset);
+			segment.position(position);
+			RecordingFormat.decode(segment, this.current);
+			this.nextOffset += RecordingFormat.length(segment, position);
+			this.next++;
+		}
+		record.copyFrom(this.current);
+	}
+
+	/***
+	Finds the first record taken on or after a tick. Records are stored in tick order, so the key records are
+	searched first and then the records after the last key record taken before the tick.
+	@param tick The tick to look for
+	@param scratch A record the search can use for reading
+	@return Position of the record, or the record count if every record is before the tick
+	*/
+	public long indexOfTick(long tick, TickRecord scratch) {
+		long low = 0;
+		long high = (this.recordCount + this.keyInterval - 1) / this.keyInterval;
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+			if (this.tickOfKey(mid) < tick) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low == 0) {
+			return 0;
+		}
+		long index = (low - 1) * this.keyInterval;
+		long end = Math.min(this.recordCount, low * this.keyInterval);
+		while (index < end) {
+			this.read(index, scratch);
+			if (scratch.getTick() >= tick) {
+				return index;
+			}
+			index++;
+		}
+		return index;
+	}
+
+	/***
+	Returns the tick of a key record without reading the rest of it
+	@param key The key record, counted from the start of the file
+	@return The tick
+	*/
+	private long tickOfKey(long key) {
+		long offset = this.keyOffset(key);
+		return RecordingFormat.tick(this.segment(offset), this.position(offset));
+	}
+
+	/***
+	Returns where a key record starts
+	@param key The key record, counted from the start of the file
+	@return Offset of the key record in the file
+	*/
+	private long keyOffset(long key) {
+		if (this.keyOffsets != null) {
+			return this.keyOffsets[(int)key];
+		}
+		long offset = this.indexOffset + key * 8;
+		return this.segment(offset).getLong(this.position(offset));
+	}
+
+	/***
+	Returns a view of the segment holding a position of the file. Each read uses its own view of the mapped file.
+	@param offset Position in the file
+	@return The segment
+	*/
+	private ByteBuffer segment(long offset) {
+		return this.segments[(int)(offset / SEGMENT_LENGTH)].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/***
+	Returns where a position of the file is in its segment
+	@param offset Position in the file
+	@return Position in the segment
+	*/
+	private int position(long offset) {
+		return (int)(offset % SEGMENT_LENGTH);
+	}
+
+	/***
+	Closes the file. The mapped segments are released once they are no longer used.
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,73 @@
+/***
+
+Refresh Slider lets the user pick a refresh rate from 10 milliseconds (100 times a second) up to 10 seconds. The
+slider moves in steps of 1, 2, and 5 so both fast control loops and slow simulations are easy to pick.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.*;
+import javax.swing.*;
+
+/***
+Slider for picking a refresh rate in seconds, including fractions of a second.
+*/
+public class RefreshSlider extends JSlider {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	Refresh rates in seconds, one for each position of the slider
+	*/
+	public static final double[] RATES = {0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1, 2, 5, 10};
+
+	/***
+	Creates a slider set to the specified refresh rate
+	@param seconds Refresh rate in seconds
+	*/
+	public RefreshSlider(double seconds) {
+
+		super(JSlider.HORIZONTAL, 0, RATES.length - 1, 0);
+		this.setSeconds(seconds);
+
+		// Label every position, writing rates under a second in milliseconds
+		Hashtable<Integer, JLabel> labels = new Hashtable<Integer, JLabel>();
+		for (int i = 0; i < RATES.length; i++) {
+			String text = (RATES[i] < 1) ? (int)Math.round(RATES[i] * 1000) + "ms" : (int)RATES[i] + "s";
+			labels.put(i, new JLabel(text));
+		}
+		this.setLabelTable(labels);
+		this.setMajorTickSpacing(1);
+		this.setSnapToTicks(true);
+		this.setPaintTicks(true);
+		this.setPaintLabels(true);
+	}
+
+	/***
+	Returns the refresh rate the slider is set to
+	@return Refresh rate in seconds
+	*/
+	public double getSeconds() {
+		return RATES[this.getValue()];
+	}
+
+	/***
+	Moves the slider to the step closest to a refresh rate
+	@param seconds Refresh rate in seconds
+	*/
+	public void setSeconds(double seconds) {
+		int closest = 0;
+		for (int i = 1; i < RATES.length; i++) {
+			if (Math.abs(Math.log(RATES[i] / seconds)) < Math.abs(Math.log(RATES[closest] / seconds))) {
+				closest = i;
+			}
+		}
+		this.setValue(closest);
+	}
+
+}
@@ -0,0 +1,197 @@
+/***
+
+Replica Statistics gathers the time in range and device duty cycles of many replicas of a greenhouse without keeping
+each replica's result. Every value lies between 0 and 1, so each one is counted into a fixed histogram of narrow
+bins, and quantiles are read back from the counts. Counts add up the same whatever order the replicas finish in, so
+the statistics of a run do not depend on how many threads ran it.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.*;
+
+/***
+Streaming totals and quantiles of the time in range and device duty cycles of many replicas.
+*/
+public class ReplicaStatistics {
+
+	/***
+	Number of histogram bins between 0 and 1. Quantiles are exact to within one bin.
+	*/
+	public static final int BINS = 1000;
+
+	// Metrics, the three readings' time in range followed by the four devices' duty cycles
+	public static final int TEMP_IN_RANGE = 0;
+	public static final int HUMID_IN_RANGE = 1;
+	public static final int MOIST_IN_RANGE = 2;
+	public static final int FURNACE_DUTY = 3;
+	public static final int AIRCON_DUTY = 4;
+	public static final int HUMIDIFIER_DUTY = 5;
+	public static final int SPRINKLER_DUTY = 6;
+
+	private static final String[] METRIC_NAMES = {
+		"Temperature in range", "Humidity in range", "Soil Moisture in range",
+		"Furnace duty", "Air Conditioner duty", "Humidifier duty", "Sprinkler duty"
+	};
+
+	private long count = 0;
+	private long failures = 0;
+	private long[][] bins = new long[METRIC_NAMES.length][BINS];
+	private double[] sums = new double[METRIC_NAMES.length];
+	private double[] mins = new double[METRIC_NAMES.length];
+	private double[] maxes = new double[METRIC_NAMES.length];
+
+	/***
+	Empty statistics
+	*/
+	public ReplicaStatistics() {
+		Arrays.fill(this.mins, 1.0);
+	}
+
+	// GET
+
+	/***
+	Returns how many replicas were added
+	@return Number of replicas
+	*/
+	public long getCount() {
+		return this.count;
+	}
+
+	/***
+	Returns how many replicas were rejected by a model and left out of the statistics
+	@return Number of failed replicas
+	*/
+	public long getFailures() {
+		return this.failures;
+	}
+
+	/***
+	Returns the average of a metric over every replica
+	@param metric One of the metrics, such as TEMP_IN_RANGE or FURNACE_DUTY
+	@return The average from 0 to 1
+	*/
+	public double getMean(int metric) {
+		return (this.count == 0) ? 0 : this.sums[metric] / this.count;
+	}
+
+	/***
+	Returns the lowest value of a metric over every replica
+	@param metric One of the metrics, such as TEMP_IN_RANGE or FURNACE_DUTY
+	@return The lowest value from 0 to 1
+	*/
+	public double getMin(int metric) {
+		return (this.count == 0) ? 0 : this.mins[metric];
+	}
+
+	/***
+	Returns the highest value of a metric over every replica
+	@param metric One of the metrics, such as TEMP_IN_RANGE or FURNACE_DUTY
+	@return The highest value from 0 to 1
+	*/
+	public double getMax(int metric) {
+		return this.maxes[metric];
+	}
+
+	/***
+	Returns the value of a metric that a share of the replicas were at or below. The value is the middle of the bin
+	the quantile falls in, kept between the lowest and highest value seen.
+	@param metric One of the metrics, such as TEMP_IN_RANGE or FURNACE_DUTY
+	@param share Share of the replicas from 0 to 1, such as 0.05 for the 5th percentile
+	@return The quantile from 0 to 1
+	*/
+	public double getQuantile(int metric, double share) {
+		if (this.count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(share * this.count));
+		long seen = 0;
+		int bin = 0;
+		while (bin < BINS - 1) {
+			seen += this.bins[metric][bin];
+			if (seen >= rank) {
+				break;
+			}
+			bin++;
+		}
+		double value = (bin + 0.5) / BINS;
+		return Math.max(this.mins[metric], Math.min(this.maxes[metric], value));
+	}
+
+	// PROCESS
+
+	/***
+	Adds the totals of one replica
+	@param summary The replica's totals
+	*/
+	public void add(SimulationSummary summary) {
+		this.count++;
+		this.record(TEMP_IN_RANGE, summary.getTimeInRange(SimulationSummary.TEMPERATURE));
+		this.record(HUMID_IN_RANGE, summary.getTimeInRange(SimulationSummary.HUMIDITY));
+		this.record(MOIST_IN_RANGE, summary.getTimeInRange(SimulationSummary.MOISTURE));
+		this.record(FURNACE_DUTY, summary.getDutyCycle(SimulationSummary.FURNACE));
+		this.record(AIRCON_DUTY, summary.getDutyCycle(SimulationSummary.AIRCON));
+		this.record(HUMIDIFIER_DUTY, summary.getDutyCycle(SimulationSummary.HUMIDIFIER));
+		this.record(SPRINKLER_DUTY, summary.getDutyCycle(SimulationSummary.SPRINKLER));
+	}
+
+	/***
+	Counts a replica that was rejected by a model
+	*/
+	public void addFailure() {
+		this.failures++;
+	}
+
+	/***
+	Adds another set of statistics to this one
+	@param other Statistics of other replicas
+	*/
+	public void merge(ReplicaStatistics other) {
+		this.count += other.count;
+		this.failures += other.failures;
+		for (int m = 0; m < METRIC_NAMES.length; m++) {
+			for (int b = 0; b < BINS; b++) {
+				this.bins[m][b] += other.bins[m][b];
+			}
+			this.sums[m] += other.sums[m];
+			this.mins[m] = Math.min(this.mins[m], other.mins[m]);
+			this.maxes[m] = Math.max(this.maxes[m], other.maxes[m]);
+		}
+	}
+
+	/***
+	Counts one value of a metric
+	@param metric One of the metrics
+	@param value The value from 0 to 1
+	*/
+	private void record(int metric, double value) {
+		this.bins[metric][Math.min((int)(value * BINS), BINS - 1)]++;
+		this.sums[metric] += value;
+		this.mins[metric] = Math.min(this.mins[metric], value);
+		this.maxes[metric] = Math.max(this.maxes[metric], value);
+	}
+
+	/***
+	Creates a well formated table of every metric's average, extremes, and 5th, 50th, and 95th percentiles
+	*/
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%-24s %8s %8s %8s %8s %8s %8s%n", "", "min", "p5", "p50", "p95", "max", "mean"));
+		for (int m = 0; m < METRIC_NAMES.length; m++) {
+			text.append(String.format("%-24s %7.2f%% %7.2f%% %7.2f%% %7.2f%% %7.2f%% %7.2f%%%n", METRIC_NAMES[m],
+					this.getMin(m) * 100, this.getQuantile(m, 0.05) * 100, this.getQuantile(m, 0.5) * 100,
+					this.getQuantile(m, 0.95) * 100, this.getMax(m) * 100, this.getMean(m) * 100));
+		}
+		text.append(this.count + " replicas");
+		if (this.failures > 0) {
+			text.append(", " + this.failures + " rejected by a model");
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,150 @@
+/***
+
+Simulation Clock keeps the simulated time of a live simulation apart from the wall clock. Every refresh of a
+controller covers its refresh rate of simulated time, and the clock's speed sets how much wall time that takes:
+at 60x a simulated minute passes in a second, at 3600x an hour passes in a second, and at MAX the simulation runs
+as fast as the machine allows. The per-minute rates of the models are applied for the simulated minutes of each
+refresh, so the greenhouse behaves the same at every speed.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Simulated time and the speed it runs at compared to the wall clock.
+*/
+public class SimulationClock {
+
+	/***
+	Speed at which the simulation runs as fast as it can without waiting
+	*/
+	public static final double MAX = Double.POSITIVE_INFINITY;
+
+	/***
+	Speeds offered on the main GUI
+	*/
+	public static final double[] SPEEDS = {1, 60, 3600, MAX};
+
+	/***
+	Simulated milliseconds in one minute. The model rates are per minute.
+	*/
+	public static final double MINUTE = 60000;
+
+	private volatile double speed = 1;
+	private volatile long time = 0;
+
+	/***
+	A clock at the start of the simulation running at real time
+	*/
+	public SimulationClock() {
+
+	}
+
+	// GET
+
+	/***
+	Returns how many times faster than real time the simulation runs
+	@return speed The speed multiplier, or MAX
+	*/
+	public double getSpeed() {
+		return this.speed;
+	}
+
+	/***
+	Returns the simulated time
+	@return time Simulated milliseconds since the start of the simulation
+	*/
+	public long getTime() {
+		return this.time;
+	}
+
+	/***
+	Returns the wall time a span of simulated time takes at the current speed
+	@param simulatedMillis Simulated milliseconds
+	@return Wall clock nanoseconds, or 0 when running at MAX
+	*/
+	public long toWallNanos(long simulatedMillis) {
+		double s = this.speed;
+		if (s == MAX) {
+			return 0;
+		}
+		return (long)(simulatedMillis * 1000000.0 / s);
+	}
+
+	/***
+	Converts simulated milliseconds to the minutes the model rates are given in
+	@param simulatedMillis Simulated milliseconds
+	@return Simulated minutes
+	*/
+	public static double toMinutes(long simulatedMillis) {
+		return simulatedMillis / MINUTE;
+	}
+
+	// SET
+
+	/***
+	Sets how many times faster than real time the simulation runs
+	@param multiplier The speed multiplier, or MAX
+	*/
+	public void setSpeed(double multiplier) {
+		if (multiplier > 0) {
+			this.speed = multiplier;
+		}
+	}
+
+	/***
+	Moves the simulated time forward. Only called by the thread running the simulation.
+	@param simulatedMillis Simulated milliseconds that have passed
+	*/
+	public void advance(long simulatedMillis) {
+		this.time += simulatedMillis;
+	}
+
+	/***
+	Moves the simulated time to a point
+	@param simulatedMillis Simulated milliseconds since the start of the simulation
+	*/
+	public void setTime(long simulatedMillis) {
+		this.time = simulatedMillis;
+	}
+
+	/***
+	Writes a simulated time as days, hours, minutes, and seconds, for example "Day 3 14:05:09"
+	@param simulatedMillis Simulated milliseconds since the start of the simulation
+	@return The formatted time
+	*/
+	public static String format(long simulatedMillis) {
+		long seconds = simulatedMillis / 1000;
+		long days = seconds / 86400 + 1;
+		return String.format("Day %d %02d:%02d:%02d", days, (seconds / 3600) % 24, (seconds / 60) % 60, seconds % 60);
+	}
+
+	/***
+	Writes a speed the way it is shown on the main GUI, for example "60x" or "Max"
+	@param multiplier The speed multiplier, or MAX
+	@return The speed's label
+	*/
+	public static String label(double multiplier) {
+		if (multiplier == MAX) {
+			return "Max";
+		}
+		return (long)multiplier + "x";
+	}
+
+	/***
+	Reads a speed written by label(double)
+	@param text The speed's label
+	@return The speed multiplier, or MAX
+	*/
+	public static double parse(String text) {
+		if (text.equals("Max")) {
+			return MAX;
+		}
+		return Double.parseDouble(text.substring(0, text.length() - 1));
+	}
+
+}
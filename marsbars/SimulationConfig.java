@@ -0,0 +1,202 @@
+/***
+
+Simulation Config holds every value a user would normally enter into the control panels so that a greenhouse
+can be set up and simulated without the GUI.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.util.*;
+
+/***
+Holds the starting values, desired ranges, and rates needed to set up a greenhouse without the GUI.
+*/
+public class SimulationConfig {
+
+	/***
+	Names of every configurable value. These are also the keys used in a scenario properties file.
+	*/
+	public static final String[] KEYS = {
+		"startTemp", "startHumid", "startMoist",
+		"extTempRate", "extHumidRate", "extMoistRate",
+		"tempUpper", "tempLower", "heatRate", "coolRate",
+		"humidUpper", "humidLower", "humidRate",
+		"moistUpper", "moistLower", "moistRate"
+	};
+
+	// Default values match the sample simulation data shipped with the program
+	private static final double[] DEFAULTS = {
+		34.0, 66.0, 23.0,
+		0.0, 0.0, 0.0,
+		50.0, 44.0, 3.0, 2.0,
+		50.0, 33.0, 5.0,
+		50.0, 34.0, 8.0
+	};
+
+	private double[] values = DEFAULTS.clone();
+
+	/***
+	A config with the default values
+	*/
+	public SimulationConfig() {
+
+	}
+
+	/***
+	Loads a config from a scenario properties file. Any value missing from the file keeps its default. A key that is
+	not a setting, such as a misspelt tempStart, is rejected so a run never uses defaults the user meant to change.
+	@param theFile The scenario properties file
+	@return The loaded config
+	@throws IOException Throws an error if the file cannot be read, holds an unknown key, or a value is not a number
+	*/
+	public static SimulationConfig load(File theFile) throws IOException {
+		return load(readProperties(theFile));
+	}
+
+	/***
+	Reads a properties file that holds config entries, and rejects any key that is neither one of KEYS nor one of
+	the extra keys the caller reads from the same file
+	@param theFile The properties file
+	@param extraKeys Keys besides KEYS that the file may hold
+	@return The properties in the file
+	@throws IOException Throws an error if the file cannot be read or holds an unknown key
+	*/
+	public static Properties readProperties(File theFile, String... extraKeys) throws IOException {
+
+		Properties props = new Properties();
+		try (Reader reader = new BufferedReader(new FileReader(theFile))) {
+			props.load(reader);
+		}
+
+		List<String> known = new ArrayList<String>(Arrays.asList(KEYS));
+		known.addAll(Arrays.asList(extraKeys));
+		for (String key : props.stringPropertyNames()) {
+			if (!known.contains(key)) {
+				throw new IOException("Unknown setting " + key + " in " + theFile.getName() + ". Please use one of " + String.join(", ", known));
+			}
+		}
+		return props;
+	}
+
+	/***
+	Loads a config from properties that were read from a scenario file. Any value missing keeps its default and
+	keys that are not in KEYS are ignored.
+	@param props The scenario properties
+	@return The loaded config
+	@throws IOException Throws an error if a value is not a number
+	*/
+	public static SimulationConfig load(Properties props) throws IOException {
+
+		SimulationConfig config = new SimulationConfig();
+		for (String key : KEYS) {
+			String value = props.getProperty(key);
+			if (value != null) {
+				try {
+					config.set(key, Double.parseDouble(value.trim()));
+				} catch (NumberFormatException e) {
+					throw new IOException("Please enter a valid number for " + key);
+				}
+			}
+		}
+		return config;
+	}
+
+	// GET
+
+	/***
+	Returns the value of a config entry
+	@param key One of the names in KEYS
+	@return The value of the entry
+	*/
+	public double get(String key) {
+		return this.values[indexOf(key)];
+	}
+
+	/***
+	Returns a copy of this config that can be changed independently
+	@return A copy of this config
+	*/
+	public SimulationConfig copy() {
+		SimulationConfig config = new SimulationConfig();
+		config.values = this.values.clone();
+		return config;
+	}
+
+	// SET
+
+	/***
+	Sets the value of a config entry
+	@param key One of the names in KEYS
+	@param value The new value of the entry
+	*/
+	public void set(String key, double value) {
+		this.values[indexOf(key)] = value;
+	}
+
+	/***
+	Loads the config into each model the same way the controllers do when the user presses start.
+	@param envModel Environment model to set the start values and external effects on
+	@param tempModel Temperature model to set the range and rates on
+	@param humidModel Humidity model to set the range and rate on
+	@param moistModel Soil moisture model to set the range and rate on
+	@throws Exception Throws an error if any value is rejected by a model
+	*/
+	public void apply(EnvironmentModel envModel, TemperatureModel tempModel, HumidityModel humidModel, MoistureModel moistModel) throws Exception {
+
+		envModel.setCurrentTemp(get("startTemp"),true);
+		envModel.setCurrentHumid(get("startHumid"),true);
+		envModel.setCurrentMoist(get("startMoist"),true);
+		envModel.setExternalTempRate(get("extTempRate"));
+		envModel.setExternalHumidRate(get("extHumidRate"));
+		envModel.setExternalMoistRate(get("extMoistRate"));
+
+		tempModel.setCurrentTemperature(get("startTemp"));
+		tempModel.setTemperatureRange(get("tempUpper"), get("tempLower"));
+		tempModel.setInternalHeatRate(get("heatRate"));
+		tempModel.setInternalCoolRate(get("coolRate"));
+
+		humidModel.setCurrentHumidity(get("startHumid"));
+		humidModel.setHumidityRange(get("humidUpper"), get("humidLower"));
+		humidModel.setInternalHumidRate(get("humidRate"));
+
+		moistModel.setCurrentMoisture(get("startMoist"));
+		moistModel.setMoistureRange(get("moistUpper"), get("moistLower"));
+		moistModel.setInternalMoistRate(get("moistRate"));
+
+	}
+
+	/***
+	Finds the position of a config entry
+	@param key One of the names in KEYS
+	@return The position of the entry
+	*/
+	private static int indexOf(String key) {
+		for (int i = 0; i < KEYS.length; i++) {
+			if (KEYS[i].equals(key)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown setting: " + key);
+	}
+
+	/***
+	Creates a well formated data string listing every config entry
+	*/
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < KEYS.length; i++) {
+			sb.append(KEYS[i]).append("=").append(this.values[i]);
+			if (i < KEYS.length - 1) {
+				sb.append(",");
+			}
+		}
+		return sb.toString();
+	}
+
+}
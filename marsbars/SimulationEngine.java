@@ -0,0 +1,479 @@
+/***
+
+Simulation Engine is responsible for stepping the greenhouse models without the GUI. It runs the environment,
+temperature, humidity, and soil moisture updates back to back as fast as the processor allows. Between device
+switches every reading changes by the same amount each tick, so the engine can also fast forward: it works out how
+many ticks pass before the next switch and jumps straight over them. Once the devices settle into a repeating on/off
+pattern, the engine can also summarize a run by multiplying one cycle of the pattern out to the end of it.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.*;
+
+/***
+Headless engine that steps every greenhouse model in a fixed order without any views or waiting.
+*/
+public class SimulationEngine {
+
+	private EnvironmentModel envModel;
+	private TemperatureModel tempModel;
+	private HumidityModel humidModel;
+	private MoistureModel moistModel;
+
+	private long tickCount = 0;
+
+	// Tick metrics of the environment, temperature, humidity, and soil moisture steps, or null when not measured
+	private TickMetrics[] phaseMetrics;
+
+	/***
+	Creates an engine with a fresh set of models
+	*/
+	public SimulationEngine() {
+		this(new EnvironmentModel(), new TemperatureModel(), new HumidityModel(), new MoistureModel());
+	}
+
+	/***
+	Creates an engine that steps the models provided
+	@param emodel The Environment Model that applies the external effects
+	@param tmodel Temperature methods that are responsible for temperature sensor function
+	@param hmodel Humidity methods that are responsible for humidity sensor function
+	@param mmodel Soil Moisture methods that are responsible for soil moisture sensor function
+	*/
+	public SimulationEngine(EnvironmentModel emodel, TemperatureModel tmodel, HumidityModel hmodel, MoistureModel mmodel) {
+		this.envModel 	= emodel;
+		this.tempModel 	= tmodel;
+		this.humidModel = hmodel;
+		this.moistModel = mmodel;
+	}
+
+	/***
+	Creates an engine and loads the config into its models
+	@param config The starting values, ranges, and rates for the greenhouse
+	@return An engine ready to be stepped
+	@throws Exception Throws an error if any value is rejected by a model
+	*/
+	public static SimulationEngine create(SimulationConfig config) throws Exception {
+		SimulationEngine engine = new SimulationEngine();
+		config.apply(engine.envModel, engine.tempModel, engine.humidModel, engine.moistModel);
+		return engine;
+	}
+
+	// GET
+
+	/***
+	Returns the environment model stepped by this engine
+	@return envModel The environment model
+	*/
+	public EnvironmentModel getEnvironmentModel() {
+		return this.envModel;
+	}
+
+	/***
+	Returns the temperature model stepped by this engine
+	@return tempModel The temperature model
+	*/
+	public TemperatureModel getTemperatureModel() {
+		return this.tempModel;
+	}
+
+	/***
+	Returns the humidity model stepped by this engine
+	@return humidModel The humidity model
+	*/
+	public HumidityModel getHumidityModel() {
+		return this.humidModel;
+	}
+
+	/***
+	Returns the soil moisture model stepped by this engine
+	@return moistModel The soil moisture model
+	*/
+	public MoistureModel getMoistureModel() {
+		return this.moistModel;
+	}
+
+	/***
+	Returns how many ticks this engine has run
+	@return tickCount Number of completed ticks
+	*/
+	public long getTickCount() {
+		return this.tickCount;
+	}
+
+	// SET
+
+	/***
+	Measures how long each step of every tick takes. Timing a step costs about as much as the step itself, so the
+	engine only does it when asked.
+	@param envMetrics Metrics of the environment step
+	@param tempMetrics Metrics of the temperature step
+	@param humidMetrics Metrics of the humidity step
+	@param moistMetrics Metrics of the soil moisture step
+	*/
+	public void setMetrics(TickMetrics envMetrics, TickMetrics tempMetrics, TickMetrics humidMetrics, TickMetrics moistMetrics) {
+		this.phaseMetrics = new TickMetrics[] {envMetrics, tempMetrics, humidMetrics, moistMetrics};
+	}
+
+	// PROCESS
+
+	/***
+	Applies the external effects to the greenhouse. The readings are held within their physical limits.
+	*/
+	public void stepEnvironment() {
+		this.envModel.applyExternalEffects(this.tempModel, this.humidModel, this.moistModel);
+	}
+
+	/***
+	Runs the temperature sensor and its furnace and air conditioner
+	*/
+	public void stepTemperature() {
+		this.tempModel.sensor();
+	}
+
+	/***
+	Runs the humidity sensor and its humidifier
+	*/
+	public void stepHumidity() {
+		this.humidModel.sensor();
+	}
+
+	/***
+	Runs the soil moisture sensor and its sprinkler
+	*/
+	public void stepMoisture() {
+		this.moistModel.sensor();
+	}
+
+	/***
+	Runs one full tick: the external effects first, followed by the temperature, humidity, and soil moisture sensors.
+	*/
+	public void tick() {
+		if (this.phaseMetrics != null) {
+			this.timedTick();
+			return;
+		}
+		this.stepEnvironment();
+		this.stepTemperature();
+		this.stepHumidity();
+		this.stepMoisture();
+		this.tickCount++;
+	}
+
+	/***
+	Runs one full tick and records how long each step took
+	*/
+	private void timedTick() {
+		long t0 = System.nanoTime();
+		this.stepEnvironment();
+		long t1 = System.nanoTime();
+		this.phaseMetrics[0].recordTick(t1 - t0);
+		this.stepTemperature();
+		long t2 = System.nanoTime();
+		this.phaseMetrics[1].recordTick(t2 - t1);
+		this.stepHumidity();
+		long t3 = System.nanoTime();
+		this.phaseMetrics[2].recordTick(t3 - t2);
+		this.stepMoisture();
+		this.phaseMetrics[3].recordTick(System.nanoTime() - t3);
+		this.tickCount++;
+	}
+
+	/***
+	Runs the specified number of ticks back to back
+	@param ticks Number of ticks to run
+	*/
+	public void run(long ticks) {
+		for (long i = 0; i < ticks; i++) {
+			this.tick();
+		}
+	}
+
+	/***
+	Runs the specified number of ticks, jumping over the stretches where no device switches. Within such a stretch
+	each reading changes by its external rate plus the rate of its running device every tick, so the ticks up to the
+	next threshold or physical limit are worked out in one step and the tick that crosses it is run as usual. The
+	cost depends on how often the devices switch instead of on the number of ticks.
+	The readings match tick by tick stepping to within floating point rounding: a jump multiplies the rate once
+	where stepping adds it once per tick. The jumps stop short of each threshold by more than that rounding, so the
+	devices switch on the same ticks unless a reading lands within rounding of a threshold.
+	@param ticks Number of ticks to run
+	*/
+	public void fastForward(long ticks) {
+		long remaining = ticks;
+		while (remaining > 0) {
+			long quiet = Math.min(remaining, this.quietTicks());
+			if (quiet > 1 && this.skip(quiet - 1)) {
+				remaining -= quiet - 1;
+			}
+			this.tick();
+			remaining--;
+		}
+	}
+
+	/***
+	Works out how many of the next ticks leave every device as it is. On each of them the reading after the external
+	effects stays on the same side of the thresholds the running device was switched on or off for, and inside the
+	physical limits, so no clamp applies.
+	@return Number of ticks, or Long.MAX_VALUE if no reading ever reaches a threshold
+	*/
+	private long quietTicks() {
+
+		EnvironmentModel.State env = this.envModel.getState();
+		TemperatureModel.State temp = this.tempModel.getState();
+		HumidityModel.State humid = this.humidModel.getState();
+		MoistureModel.State moist = this.moistModel.getState();
+
+		// Temperature: the furnace runs below the lower threshold, the air conditioner above the upper one
+		double tempLow = TemperatureModel.ABSOLUTEZERO;
+		double tempHigh = TemperatureModel.TOASTY;
+		double tempRate = env.getExternalTempRate();
+		if (temp.getFurnace() == 1) {
+			tempHigh = Math.min(tempHigh, temp.getTemperatureLower());
+			tempRate += temp.getInternalHeatRate();
+		} else if (temp.getAirCon() == 1) {
+			tempLow = Math.max(tempLow, Math.max(temp.getTemperatureUpper(), temp.getTemperatureLower()));
+			tempRate += temp.getInternalCoolRate();
+		} else {
+			tempLow = Math.max(tempLow, temp.getTemperatureLower());
+			tempHigh = Math.min(tempHigh, temp.getTemperatureUpper());
+		}
+		long quiet = ticksWithin(temp.getCurrentTemp() + env.getExternalTempRate(), tempRate, tempLow, tempHigh);
+
+		// Humidity: the humidifier runs below the lower threshold
+		double humidLow = HumidityModel.MINHUMIDITY;
+		double humidHigh = HumidityModel.MAXHUMIDITY;
+		double humidRate = env.getExternalHumidRate();
+		if (humid.getHumidifier() == 1) {
+			humidHigh = Math.min(humidHigh, humid.getHumidityLower());
+			humidRate += humid.getInternalHumidityRate();
+		} else {
+			humidLow = Math.max(humidLow, humid.getHumidityLower());
+		}
+		quiet = Math.min(quiet, ticksWithin(humid.getCurrentHumidity() + env.getExternalHumidRate(), humidRate, humidLow, humidHigh));
+
+		// Soil moisture: the sprinkler runs below the lower threshold
+		double moistLow = MoistureModel.MINMOISTURE;
+		double moistHigh = MoistureModel.MAXMOISTURE;
+		double moistRate = env.getExternalMoistRate();
+		if (moist.getSprinkler() == 1) {
+			moistHigh = Math.min(moistHigh, moist.getMoistureLower());
+			moistRate += moist.getInternalMoistureRate();
+		} else {
+			moistLow = Math.max(moistLow, moist.getMoistureLower());
+		}
+		quiet = Math.min(quiet, ticksWithin(moist.getCurrentMoisture() + env.getExternalMoistRate(), moistRate, moistLow, moistHigh));
+
+		return quiet;
+	}
+
+	/***
+	Counts the ticks for which a reading that changes by a fixed rate every tick stays inside a range. The range is
+	narrowed by the rounding a jump can build up, so a reading that only just reaches a threshold is left to a tick.
+	@param start Reading on the first tick
+	@param rate Change in the reading each tick
+	@param low Lowest allowed reading
+	@param high Highest allowed reading
+	@return Number of ticks, counting the first, or Long.MAX_VALUE if the reading never leaves the range
+	*/
+	private static long ticksWithin(double start, double rate, double low, double high) {
+
+		if (!(start >= low && start <= high)) {
+			return 0;
+		}
+		if (rate == 0) {
+			return Long.MAX_VALUE;
+		}
+
+		double room = (rate > 0) ? high - start : start - low;
+		double steps = room / Math.abs(rate);
+		double slack = 4 * Math.ulp(Math.abs(start) + Math.abs(low) + Math.abs(high)) * (steps + 2);
+		steps = (room - slack) / Math.abs(rate);
+		if (steps < 0) {
+			return 0;
+		}
+		if (steps >= Long.MAX_VALUE / 2) {
+			return Long.MAX_VALUE;
+		}
+		return (long)steps + 1;
+	}
+
+	/***
+	Jumps over ticks on which no device switches, moving each reading by its rate times the number of ticks
+	@param ticks Number of ticks to jump over. quietTicks() must allow at least one more
+	@return Whether the jump was made. A reading that would pass a physical limit in between ticks is left to tick by tick stepping
+	*/
+	private boolean skip(long ticks) {
+
+		EnvironmentModel.State env = this.envModel.getState();
+		TemperatureModel.State temp = this.tempModel.getState();
+		HumidityModel.State humid = this.humidModel.getState();
+		MoistureModel.State moist = this.moistModel.getState();
+
+		double tempRate = env.getExternalTempRate() + ((temp.getFurnace() == 1) ? temp.getInternalHeatRate() : (temp.getAirCon() == 1) ? temp.getInternalCoolRate() : 0);
+		double humidRate = env.getExternalHumidRate() + ((humid.getHumidifier() == 1) ? humid.getInternalHumidityRate() : 0);
+		double moistRate = env.getExternalMoistRate() + ((moist.getSprinkler() == 1) ? moist.getInternalMoistureRate() : 0);
+
+		double currTemp = temp.getCurrentTemp() + tempRate * ticks;
+		double currHumid = humid.getCurrentHumidity() + humidRate * ticks;
+		double currMoist = moist.getCurrentMoisture() + moistRate * ticks;
+
+		if (currTemp < TemperatureModel.ABSOLUTEZERO || currTemp > TemperatureModel.TOASTY
+				|| currHumid < HumidityModel.MINHUMIDITY || currHumid > HumidityModel.MAXHUMIDITY
+				|| currMoist < MoistureModel.MINMOISTURE || currMoist > MoistureModel.MAXMOISTURE) {
+			return false;
+		}
+
+		// The environment model takes its readings from the sensors' models at the start of the next tick
+		this.tempModel.moveCurrentTemperature(currTemp);
+		this.humidModel.moveCurrentHumidity(currHumid);
+		this.moistModel.moveCurrentMoisture(currMoist);
+		this.tickCount += ticks;
+		return true;
+	}
+
+	/***
+	Runs the specified number of ticks and totals how long each device was on, how often it switched, and how long
+	each reading stayed in its desired range. With constant rates the next tick depends only on the readings and the
+	devices, so once they come back to exactly the same bits as an earlier tick every later tick repeats the cycle in
+	between. The engine watches for that with Brent's method: it keeps one earlier state, compares every tick against
+	it, and moves it forward at doubling intervals, which finds a cycle within a few of its lengths without keeping
+	a history. The totals of one cycle are then multiplied out and only the ticks left over are run.
+	@param ticks Number of ticks to run
+	@return The totals over all the ticks
+	*/
+	public SimulationSummary summarize(long ticks) {
+
+		SimulationSummary summary = new SimulationSummary();
+		boolean[] before = new boolean[4];
+		boolean[] devices = new boolean[4];
+		boolean[] inRange = new boolean[3];
+		this.readDevices(before);
+
+		long[] saved = new long[7];
+		long[] current = new long[7];
+		this.readState(saved);
+		SimulationSummary savedSummary = summary.copy();
+		long interval = 1;
+		long sinceSaved = 0;
+		boolean repeating = false;
+
+		long remaining = ticks;
+		while (remaining > 0) {
+
+			this.tick();
+			remaining--;
+			this.readDevices(devices);
+			this.readRanges(inRange);
+			summary.count(devices, before, inRange);
+			boolean[] swap = before;
+			before = devices;
+			devices = swap;
+
+			if (repeating) {
+				continue;
+			}
+			sinceSaved++;
+			this.readState(current);
+			if (Arrays.equals(current, saved)) {
+				long cycles = remaining / sinceSaved;
+				summary.repeat(savedSummary, cycles);
+				this.tickCount += cycles * sinceSaved;
+				remaining -= cycles * sinceSaved;
+				repeating = true;
+			} else if (sinceSaved == interval) {
+				long[] swapState = saved;
+				saved = current;
+				current = swapState;
+				savedSummary = summary.copy();
+				interval *= 2;
+				sinceSaved = 0;
+			}
+		}
+		return summary;
+	}
+
+	/***
+	Runs the specified number of ticks under changing weather and totals how long each device was on, how often it
+	switched, and how long each reading stayed in its desired range. The weather moves the external rates before
+	every tick, so no pattern ever repeats and every tick is run.
+	@param ticks Number of ticks to run
+	@param weather The weather that sets the external rates of each tick
+	@return The totals over all the ticks
+	*/
+	public SimulationSummary summarize(long ticks, Weather weather) {
+
+		SimulationSummary summary = new SimulationSummary();
+		boolean[] before = new boolean[4];
+		boolean[] devices = new boolean[4];
+		boolean[] inRange = new boolean[3];
+		this.readDevices(before);
+
+		for (long i = 0; i < ticks; i++) {
+			weather.step(this.envModel);
+			this.tick();
+			this.readDevices(devices);
+			this.readRanges(inRange);
+			summary.count(devices, before, inRange);
+			boolean[] swap = before;
+			before = devices;
+			devices = swap;
+		}
+		return summary;
+	}
+
+	/***
+	Copies the exact bits of every reading and device into an array that can be compared between ticks
+	@param state Array of at least 7 values to fill
+	*/
+	private void readState(long[] state) {
+		TemperatureModel.State temp = this.tempModel.getState();
+		HumidityModel.State humid = this.humidModel.getState();
+		MoistureModel.State moist = this.moistModel.getState();
+		state[0] = Double.doubleToLongBits(temp.getCurrentTemp());
+		state[1] = Double.doubleToLongBits(humid.getCurrentHumidity());
+		state[2] = Double.doubleToLongBits(moist.getCurrentMoisture());
+		state[3] = temp.getFurnace();
+		state[4] = temp.getAirCon();
+		state[5] = humid.getHumidifier();
+		state[6] = moist.getSprinkler();
+	}
+
+	/***
+	Reads which devices are on
+	@param devices Array indexed by SimulationSummary's devices to fill
+	*/
+	private void readDevices(boolean[] devices) {
+		TemperatureModel.State temp = this.tempModel.getState();
+		devices[SimulationSummary.FURNACE] = temp.getFurnace() == 1;
+		devices[SimulationSummary.AIRCON] = temp.getAirCon() == 1;
+		devices[SimulationSummary.HUMIDIFIER] = this.humidModel.getState().getHumidifier() == 1;
+		devices[SimulationSummary.SPRINKLER] = this.moistModel.getState().getSprinkler() == 1;
+	}
+
+	/***
+	Reads which readings are inside their desired range
+	@param inRange Array indexed by SimulationSummary's readings to fill
+	*/
+	private void readRanges(boolean[] inRange) {
+		TemperatureModel.State temp = this.tempModel.getState();
+		HumidityModel.State humid = this.humidModel.getState();
+		MoistureModel.State moist = this.moistModel.getState();
+		inRange[SimulationSummary.TEMPERATURE] = temp.getCurrentTemp() >= temp.getTemperatureLower() && temp.getCurrentTemp() <= temp.getTemperatureUpper();
+		inRange[SimulationSummary.HUMIDITY] = humid.getCurrentHumidity() >= humid.getHumidityLower() && humid.getCurrentHumidity() <= humid.getHumidityUpper();
+		inRange[SimulationSummary.MOISTURE] = moist.getCurrentMoisture() >= moist.getMoistureLower() && moist.getCurrentMoisture() <= moist.getMoistureUpper();
+	}
+
+	/***
+	Creates a well formated data string of the current state of every model
+	*/
+	public String toString() {
+		return this.envModel.toString() + "\n" + this.tempModel.toString() + "\n" + this.humidModel.toString() + "\n" + this.moistModel.toString();
+	}
+
+}
@@ -0,0 +1,105 @@
+/***
+
+Simulation Event is what the event channel hands to its sinks: one error or warning, and how many times it happened
+since it was last handed over.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+An error or warning with the number of times it happened since it was last delivered.
+*/
+public class SimulationEvent {
+
+	private int level;
+	private String source;
+	private String message;
+	private long count;
+	private long total;
+	private long time;
+
+	/***
+	Constructor that sets every field of the event
+	@param theLevel EventChannel.WARNING or EventChannel.ERROR
+	@param theSource Subsystem the event came from, for example "Environment"
+	@param theMessage What happened
+	@param theCount Times it happened since it was last delivered
+	@param theTotal Times it happened since the simulation started
+	@param theTime Wall time it last happened at, in milliseconds since the epoch
+	*/
+	public SimulationEvent(int theLevel, String theSource, String theMessage, long theCount, long theTotal, long theTime) {
+		this.level = theLevel;
+		this.source = theSource;
+		this.message = theMessage;
+		this.count = theCount;
+		this.total = theTotal;
+		this.time = theTime;
+	}
+
+	// GET
+
+	/***
+	Returns how serious the event is
+	@return level EventChannel.WARNING or EventChannel.ERROR
+	*/
+	public int getLevel() {
+		return this.level;
+	}
+
+	/***
+	Returns the subsystem the event came from
+	@return source The subsystem's name
+	*/
+	public String getSource() {
+		return this.source;
+	}
+
+	/***
+	Returns what happened
+	@return message The message
+	*/
+	public String getMessage() {
+		return this.message;
+	}
+
+	/***
+	Returns how many times the event happened since it was last delivered
+	@return count Number of times
+	*/
+	public long getCount() {
+		return this.count;
+	}
+
+	/***
+	Returns how many times the event happened since the simulation started
+	@return total Number of times
+	*/
+	public long getTotal() {
+		return this.total;
+	}
+
+	/***
+	Returns when the event last happened
+	@return time Milliseconds since the epoch
+	*/
+	public long getTime() {
+		return this.time;
+	}
+
+	/***
+	Creates a well formated line of the event, for example "ERROR Environment: Temperature too high (x120)"
+	*/
+	public String toString() {
+		String text = (this.level == EventChannel.ERROR ? "ERROR " : "WARNING ") + this.source + ": " + this.message;
+		if (this.count > 1) {
+			text += " (x" + this.count + ")";
+		}
+		return text;
+	}
+
+}
@@ -0,0 +1,158 @@
+/***
+
+Simulation Metrics gathers the tick metrics of every subsystem, the recorder, and the playback reader in one place.
+Each of them is published as a JMX MBean in the "marsbars" domain, so a console such as jconsole can watch a
+running simulation, and a snapshot of all of them can be printed every few seconds for runs without the GUI.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+/***
+Publishes the metrics of a running simulation over JMX and as periodic snapshots.
+*/
+public class SimulationMetrics {
+
+	/***
+	JMX domain every MBean is published under
+	*/
+	public static final String DOMAIN = "marsbars";
+
+	private Map<String, TickMetrics> subsystems = new LinkedHashMap<String, TickMetrics>();
+	private volatile AsyncRecorder recorder;
+	private volatile PlaybackReader reader;
+
+	private ScheduledExecutorService reporter;
+
+	/***
+	Empty metrics
+	*/
+	public SimulationMetrics() {
+
+	}
+
+	// GET
+
+	/***
+	Returns the tick metrics of a subsystem
+	@param name Name the subsystem was registered under
+	@return The subsystem's metrics, or null if no subsystem has that name
+	*/
+	public synchronized TickMetrics getSubsystem(String name) {
+		return this.subsystems.get(name);
+	}
+
+	// SET
+
+	/***
+	Adds a subsystem and publishes its metrics as marsbars:type=Subsystem,name=...
+	@param name Name of the subsystem, for example "Temperature"
+	@param metrics The subsystem's tick metrics
+	*/
+	public synchronized void register(String name, TickMetrics metrics) {
+		this.subsystems.put(name, metrics);
+		publish("type=Subsystem,name=" + name, metrics);
+	}
+
+	/***
+	Sets the recorder whose queue and file are watched, and publishes it as marsbars:type=Recorder
+	@param theRecorder The recorder the simulation is saved through
+	*/
+	public void setRecorder(AsyncRecorder theRecorder) {
+		this.recorder = theRecorder;
+		publish("type=Recorder", theRecorder);
+	}
+
+	/***
+	Sets the reader of a text recording being played back, and publishes it as marsbars:type=PlaybackReader
+	@param theReader The playback reader
+	*/
+	public void setPlaybackReader(PlaybackReader theReader) {
+		this.reader = theReader;
+		publish("type=PlaybackReader", theReader);
+	}
+
+	// PROCESS
+
+	/***
+	Publishes an MBean, replacing any MBean already published under the same name. The simulation runs the same
+	without JMX, so a failure is only reported.
+	@param properties Key properties of the MBean's name
+	@param bean The MBean
+	*/
+	private static void publish(String properties, Object bean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(bean, name);
+		} catch (JMException e) {
+			System.out.println("Could not publish metrics: " + e.getMessage());
+		}
+	}
+
+	/***
+	Creates a snapshot of every metric, one line per subsystem followed by the recorder and the playback reader
+	@return The snapshot
+	*/
+	public synchronized String snapshot() {
+		StringBuilder text = new StringBuilder();
+		for (Map.Entry<String, TickMetrics> entry : this.subsystems.entrySet()) {
+			text.append(String.format("%-12s %s%n", entry.getKey(), entry.getValue()));
+		}
+		AsyncRecorder r = this.recorder;
+		if (r != null) {
+			text.append(String.format("%-12s %d/%d queued, %d records, %d dropped, %d bytes written%n", "Recorder", r.getPending(), r.getCapacity(), r.getRecords(), r.getDropped(), r.getBytesWritten()));
+		}
+		PlaybackReader p = this.reader;
+		if (p != null) {
+			text.append(String.format("%-12s %d records, %.0f records/sec, %d bytes read%n", "Playback", p.getRecordsRead(), p.getRecordsPerSecond(), p.getBytesRead()));
+		}
+		return text.toString();
+	}
+
+	/***
+	Prints a snapshot on a background thread at a fixed interval until stopReporting is called
+	@param periodMillis Milliseconds between snapshots
+	@param out Where the snapshots are printed
+	*/
+	public synchronized void startReporting(long periodMillis, final PrintStream out) {
+		this.stopReporting();
+		this.reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "metrics");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.reporter.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				out.print(snapshot());
+				out.println();
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/***
+	Stops printing snapshots
+	*/
+	public synchronized void stopReporting() {
+		if (this.reporter != null) {
+			this.reporter.shutdown();
+			this.reporter = null;
+		}
+	}
+
+}
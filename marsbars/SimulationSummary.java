@@ -0,0 +1,201 @@
+/***
+
+Simulation Summary adds up how a greenhouse behaved over a headless run: how long each device was on, how often it
+switched, and how long each reading stayed inside its desired range. Once the devices settle into a repeating
+on/off pattern, the totals of one cycle of the pattern are multiplied out to the end of the run instead of being
+counted tick by tick.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Totals of device use and time in range over a headless run.
+*/
+public class SimulationSummary {
+
+	// Devices
+	public static final int FURNACE = 0;
+	public static final int AIRCON = 1;
+	public static final int HUMIDIFIER = 2;
+	public static final int SPRINKLER = 3;
+
+	// Readings
+	public static final int TEMPERATURE = 0;
+	public static final int HUMIDITY = 1;
+	public static final int MOISTURE = 2;
+
+	private static final String[] DEVICE_NAMES = {"Furnace", "Air Conditioner", "Humidifier", "Sprinkler"};
+	private static final String[] READING_NAMES = {"Temperature", "Humidity", "Soil Moisture"};
+
+	private long ticks = 0;
+	private long[] onTicks = new long[4];
+	private long[] switches = new long[4];
+	private long[] inRangeTicks = new long[3];
+
+	private long period = 0;
+	private long periodStart = 0;
+	private long simulatedTicks = 0;
+
+	/***
+	An empty summary
+	*/
+	public SimulationSummary() {
+
+	}
+
+	// GET
+
+	/***
+	Returns how many ticks the summary covers
+	@return Number of ticks
+	*/
+	public long getTicks() {
+		return this.ticks;
+	}
+
+	/***
+	Returns how many ticks a device was on for
+	@param device FURNACE, AIRCON, HUMIDIFIER, or SPRINKLER
+	@return Number of ticks
+	*/
+	public long getOnTicks(int device) {
+		return this.onTicks[device];
+	}
+
+	/***
+	Returns the share of the ticks a device was on for
+	@param device FURNACE, AIRCON, HUMIDIFIER, or SPRINKLER
+	@return Duty cycle from 0 to 1
+	*/
+	public double getDutyCycle(int device) {
+		return (this.ticks == 0) ? 0 : (double)this.onTicks[device] / this.ticks;
+	}
+
+	/***
+	Returns how many times a device was switched on or off
+	@param device FURNACE, AIRCON, HUMIDIFIER, or SPRINKLER
+	@return Number of switches
+	*/
+	public long getSwitches(int device) {
+		return this.switches[device];
+	}
+
+	/***
+	Returns the share of the ticks a reading ended inside its desired range
+	@param reading TEMPERATURE, HUMIDITY, or MOISTURE
+	@return Time in range from 0 to 1
+	*/
+	public double getTimeInRange(int reading) {
+		return (this.ticks == 0) ? 0 : (double)this.inRangeTicks[reading] / this.ticks;
+	}
+
+	/***
+	Returns the length of the repeating pattern the greenhouse settled into
+	@return Number of ticks in one cycle, or 0 if no pattern was found
+	*/
+	public long getPeriod() {
+		return this.period;
+	}
+
+	/***
+	Returns the tick the repeating pattern was found at
+	@return Tick the first counted cycle started at, or 0 if no pattern was found
+	*/
+	public long getPeriodStart() {
+		return this.periodStart;
+	}
+
+	/***
+	Returns how many ticks were actually run. The rest were multiplied out from a cycle of the repeating pattern.
+	@return Number of ticks run
+	*/
+	public long getSimulatedTicks() {
+		return this.simulatedTicks;
+	}
+
+	// PROCESS
+
+	/***
+	Counts one tick that was run
+	@param devices Whether each device is on after the tick, indexed by device
+	@param before Whether each device was on before the tick
+	@param inRange Whether each reading is inside its desired range after the tick, indexed by reading
+	*/
+	public void count(boolean[] devices, boolean[] before, boolean[] inRange) {
+		this.ticks++;
+		this.simulatedTicks++;
+		for (int d = 0; d < this.onTicks.length; d++) {
+			if (devices[d]) {
+				this.onTicks[d]++;
+			}
+			if (devices[d] != before[d]) {
+				this.switches[d]++;
+			}
+		}
+		for (int r = 0; r < this.inRangeTicks.length; r++) {
+			if (inRange[r]) {
+				this.inRangeTicks[r]++;
+			}
+		}
+	}
+
+	/***
+	Adds repeats of a cycle without running them. The cycle is everything counted since an earlier copy of this summary.
+	@param start Copy of this summary taken when the cycle started
+	@param cycles Number of times to repeat the cycle
+	*/
+	public void repeat(SimulationSummary start, long cycles) {
+		long length = this.ticks - start.ticks;
+		this.period = length;
+		this.periodStart = start.ticks;
+		for (int d = 0; d < this.onTicks.length; d++) {
+			this.onTicks[d] += cycles * (this.onTicks[d] - start.onTicks[d]);
+			this.switches[d] += cycles * (this.switches[d] - start.switches[d]);
+		}
+		for (int r = 0; r < this.inRangeTicks.length; r++) {
+			this.inRangeTicks[r] += cycles * (this.inRangeTicks[r] - start.inRangeTicks[r]);
+		}
+		this.ticks += cycles * length;
+	}
+
+	/***
+	Makes a copy of the totals so far
+	@return The copy
+	*/
+	public SimulationSummary copy() {
+		SimulationSummary theCopy = new SimulationSummary();
+		theCopy.ticks = this.ticks;
+		theCopy.onTicks = this.onTicks.clone();
+		theCopy.switches = this.switches.clone();
+		theCopy.inRangeTicks = this.inRangeTicks.clone();
+		theCopy.period = this.period;
+		theCopy.periodStart = this.periodStart;
+		theCopy.simulatedTicks = this.simulatedTicks;
+		return theCopy;
+	}
+
+	/***
+	Creates a well formated report of the totals
+	*/
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (int d = 0; d < DEVICE_NAMES.length; d++) {
+			text.append(String.format("%s: on %.2f%% of the time, %d switches%n", DEVICE_NAMES[d], this.getDutyCycle(d) * 100, this.switches[d]));
+		}
+		for (int r = 0; r < READING_NAMES.length; r++) {
+			text.append(String.format("%s: in range %.2f%% of the time%n", READING_NAMES[r], this.getTimeInRange(r) * 100));
+		}
+		if (this.period > 0) {
+			text.append("Repeats every " + this.period + " ticks from tick " + this.periodStart + ", " + this.simulatedTicks + " of " + this.ticks + " ticks run");
+		} else {
+			text.append("No repeating pattern found, " + this.simulatedTicks + " of " + this.ticks + " ticks run");
+		}
+		return text.toString();
+	}
+
+}
@@ -132,88 +132,93 @@ public class TemperatureController extends Controller {
 	}
 	
 	/***
-	This method starts the thread in real simulation or simulation playback mode. It disables the necessary GUI elements given 
-	the simulation mode, reads data from a simulation file, or write simulation to a user specified file. It takes the user specified values 
-	of the greenhouse temperature and processing them at the user specified refresh rate. 
+	Runs one update of the temperature controller. Processes the current greenhouse temperature via the sensor for one refresh rate
+	of simulated time. The panel is updated by render.
 	*/
-	public void run() {		
+	public void tick() {
 		
-		// If the thread is supposed to run in simulation playback mode
-		if (this.isOpening()) {
-			
-			// Disable the inputs in order to playback the simulation safely. 
-			this.tempView.enableGUI(false);
-			
-			try {
-				
-				String line = null;
-				
-				// Read an independently created Buffer object of the simulation data file to read
-				BufferedReader readFileObj = this.getFileToRead();
-				
-				while ((line = readFileObj.readLine()) != null) {
-					
-					String[] dataArray = line.split(",");
-					
-					if (dataArray[0].equals("T")) {
-						
-						// Display the data on the GUI.
-						this.tempView.setCurrTemp(Double.parseDouble(dataArray[1]));
-						this.tempView.setDesiredUpperTemp(Double.parseDouble(dataArray[2]));
-						this.tempView.setDesiredLowerTemp(Double.parseDouble(dataArray[3]));
-						this.tempView.setHeatingRate(Double.parseDouble(dataArray[4]));
-						this.tempView.setCoolingRate(Double.parseDouble(dataArray[5]));
-						
-						if (dataArray[6].equals(1)) {
-							this.tempView.setDevice("Heating");
-						} else if (dataArray[7].equals(1)) {
-							this.tempView.setDevice("Cooling");
-						} else {
-							this.tempView.setDevice("Off");
-						}
-						
-						this.tempView.setRefreshRate(Double.parseDouble(dataArray[8]));
-						
-						// Simulate the delay
-						waitProcess(1000*Integer.parseInt(dataArray[8]));
-						
-					}					
-					
-				}
-				
-			} catch (IOException e) {
-				this.tempView.displayError(e.getMessage());
-			} catch (NumberFormatException e) {
-				this.tempView.displayError("Incorrect Data. File might be corrupted.");
-			} catch (Exception e) {				
-				this.tempView.displayError(e.getMessage());
-			}
+		// Process the current greenhouse temperature via the sensor.
+		this.tempModel.sensor(SimulationClock.toMinutes(this.getRefreshRate()));
+		
+	}
+	
+	/***
+	Copies the current temperature data into the record of the current tick.
+	@param record The record of the current tick
+	*/
+	public void record(TickRecord record) {
+		record.setTemperature(this.tempModel.getState(), this.getRefreshRate());
+	}
+	
+	/***
+	Opens a dialog box with the error message on the temperature panel
+	@param errorMsg The error message
+	*/
+	public void displayError(String errorMsg) {
+		this.tempView.displayError(errorMsg);
+	}
+	
+	/***
+	Shows the current temperature reading and device on the temperature panel
+	@param record The live tick
+	*/
+	public void show(TickRecord record) {
+		
+		int t = RecordingFormat.TEMPERATURE;
+		this.tempView.setCurrTemp(record.get(t, 0));
 		
-		// If the thread is supposed to run the simulation in regular manner.
+		if (record.get(t, 5) == 1) {
+			this.tempView.setDevice("Heating");
+		} else if (record.get(t, 6) == 1) {
+			this.tempView.setDevice("Cooling");
 		} else {
-			
-			// Run perpetually
-			while(true) {
-				
-				if (this.isSaving()) {
-					try {
-						this.writeToFile(this.tempModel.toString() + (this.getRefreshRate()/1000) + "\n");
-					} catch (IOException e) {
-						this.tempView.displayError(e.getMessage());
-					}
-				}
-				
-				// Process the current greenhouse temperature via the sensor.
-				this.tempModel.sensor();
-				this.tempView.setCurrTemp(this.tempModel.getCurrentTemp());
-				this.tempView.setDevice(this.tempModel.getDeviceStatus());
-				
-				// Wait to refresh
-				waitProcess(this.getRefreshRate());
-				
-			}
-			
-		}			
+			this.tempView.setDevice("Off");
+		}
+		
+	}
+	
+	/***
+	Shows the recorded temperature data on the temperature panel
+	@param record The recorded tick
+	*/
+	public void display(TickRecord record) {
+		
+		int t = RecordingFormat.TEMPERATURE;
+		this.tempView.setCurrTemp(record.get(t, 0));
+		this.tempView.setDesiredUpperTemp(record.get(t, 1));
+		this.tempView.setDesiredLowerTemp(record.get(t, 2));
+		this.tempView.setHeatingRate(record.get(t, 3));
+		this.tempView.setCoolingRate(record.get(t, 4));
+		
+		if (record.get(t, 5) == 1) {
+			this.tempView.setDevice("Heating");
+		} else if (record.get(t, 6) == 1) {
+			this.tempView.setDevice("Cooling");
+		} else {
+			this.tempView.setDevice("Off");
+		}
+		
+		// The refresh rate is shown in seconds
+		this.tempView.setRefreshRate(record.get(t, 7) / 1000);
+		
+	}
+	
+	/***
+	Disables the inputs on the temperature panel in order to playback the simulation safely
+	*/
+	public void playbackMode() {
+		this.tempView.enableGUI(false);
+	}
+	
+	/***
+	This method starts the thread in simulation playback mode. It plays back the temperature records handed over by
+	the shared playback reader at the refresh rate they were recorded with. A live simulation is run by the
+	TickScheduler instead of the controller threads.
+	*/
+	public void run() {
+		
+		// Display each record handed over by the shared playback reader
+		this.playback();
 		
 	}
 	
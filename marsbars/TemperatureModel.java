@@ -11,6 +11,8 @@ Written for CPSC 233
 
 package marsbars;
 
+import java.util.concurrent.atomic.*;
+
 /***
 Model responsible for calculations that are required for the temperature sensor and furnace and air conditioner control.
 */
@@ -19,14 +21,83 @@ public class TemperatureModel {
 	public static double ABSOLUTEZERO = -273.15;
 	public static double TOASTY = 300.00;
 	
-	private int devFurnace = 0;
-	private int devAirCon = 0;
+	/***
+	An unchangeable copy of the temperature sensor's data. Every change to the model publishes a new State, so anyone 
+	reading a State sees values that were all true at the same moment without having to lock the model.
+	*/
+	public static final class State {
+		
+		private final int devFurnace;
+		private final int devAirCon;
+		
+		private final double currentTemp;
+		private final double temperatureUpper;
+		private final double temperatureLower;
+		private final double internalCoolRate;
+		private final double internalHeatRate;
+		
+		private State(int devFurnace, int devAirCon, double currentTemp, double temperatureUpper, double temperatureLower, double internalCoolRate, double internalHeatRate) {
+			this.devFurnace 		= devFurnace;
+			this.devAirCon 			= devAirCon;
+			this.currentTemp 		= currentTemp;
+			this.temperatureUpper 	= temperatureUpper;
+			this.temperatureLower 	= temperatureLower;
+			this.internalCoolRate 	= internalCoolRate;
+			this.internalHeatRate 	= internalHeatRate;
+		}
+		
+		/***
+		@return Current greenhouse temperature
+		*/
+		public double getCurrentTemp() {
+			return this.currentTemp;
+		}
+		
+		/***
+		@return Maximum temperature of the desired range
+		*/
+		public double getTemperatureUpper() {
+			return this.temperatureUpper;
+		}
+		
+		/***
+		@return Minimum temperature of the desired range
+		*/
+		public double getTemperatureLower() {
+			return this.temperatureLower;
+		}
+		
+		/***
+		@return Rate at which the air conditioner lowers the temperature (negative, C/min)
+		*/
+		public double getInternalCoolRate() {
+			return this.internalCoolRate;
+		}
+		
+		/***
+		@return Rate at which the furnace raises the temperature (C/min)
+		*/
+		public double getInternalHeatRate() {
+			return this.internalHeatRate;
+		}
+		
+		/***
+		@return 1 if the furnace is on, 0 otherwise
+		*/
+		public int getFurnace() {
+			return this.devFurnace;
+		}
+		
+		/***
+		@return 1 if the air conditioner is on, 0 otherwise
+		*/
+		public int getAirCon() {
+			return this.devAirCon;
+		}
+		
+	}
 	
-	private double currentTemp = 0.0;
-	private double temperatureUpper = 0.0;
-	private double temperatureLower = 0.0;
-	private double internalCoolRate = 0.0;
-	private double internalHeatRate = 0.0;
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(0, 0, 0.0, 0.0, 0.0, 0.0, 0.0));
 	
 	public TemperatureModel() {
 		
@@ -39,9 +110,12 @@ public class TemperatureModel {
 	@param tempUpper The maximum temperature level of the desired temperature range
 	@param tempLower The minimum temperature level of the desired temperature range
 	*/
-	public synchronized void setTemperatureRange(double tempUpper, double tempLower) {
-		this.temperatureUpper = tempUpper;
-		this.temperatureLower = tempLower;		
+	public void setTemperatureRange(double tempUpper, double tempLower) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.devFurnace, current.devAirCon, current.currentTemp, tempUpper, tempLower, current.internalCoolRate, current.internalHeatRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -49,20 +123,37 @@ public class TemperatureModel {
 	@param currTemp Temperature of the greenhouse to set to
 	@throws Exception A custom error that prompts the user if desired humdity is beyond the threshold range. 
 	*/
-	public synchronized void setCurrentTemperature(double currTemp) throws Exception {
+	public void setCurrentTemperature(double currTemp) throws Exception {
 		if (currTemp >= ABSOLUTEZERO && currTemp <= TOASTY) {
-			this.currentTemp = currTemp;
+			this.moveCurrentTemperature(currTemp);
 		} else {
 			throw new Exception("Temperature Out of Bounds. Please enter a value between " + ABSOLUTEZERO + "\u00b0C and " + TOASTY + "\u00b0C");
 		}
 	}
 	
+	/***
+	Sets the current temperature level of the greenhouse without checking it against the physical limits. Used by the
+	simulation engine, which only moves a reading to a level it has already checked.
+	@param currTemp Temperature of the greenhouse to set to
+	*/
+	void moveCurrentTemperature(double currTemp) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.devFurnace, current.devAirCon, currTemp, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, current.internalHeatRate);
+		} while (!this.state.compareAndSet(current, next));
+	}
+	
 	/***
 	Set the current rate at which the furnace raises the temperature of the greenhouse
 	@param rate Rate of increase in temperature (C/min)
 	*/
-	public synchronized void setInternalCoolRate(double rate) {
-		this.internalCoolRate = Math.abs(rate)*(-1);		
+	public void setInternalCoolRate(double rate) {
+		State current, next;
+		do {
+			current = this.state.get();
+			next = new State(current.devFurnace, current.devAirCon, current.currentTemp, current.temperatureUpper, current.temperatureLower, Math.abs(rate)*(-1), current.internalHeatRate);
+		} while (!this.state.compareAndSet(current, next));
 	}
 	
 	/***
@@ -70,9 +161,13 @@ public class TemperatureModel {
 	@param rate Rate of decrease in temperature (C/min)
 	@throws Exception Prompt the user that temperature rate of change can only be positive because this is a one way device
 	*/
-	public synchronized void setInternalHeatRate(double rate) throws Exception {
+	public void setInternalHeatRate(double rate) throws Exception {
 		if (rate > 0) { 
-			this.internalHeatRate = rate;
+			State current, next;
+			do {
+				current = this.state.get();
+				next = new State(current.devFurnace, current.devAirCon, current.currentTemp, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, rate);
+			} while (!this.state.compareAndSet(current, next));
 		} else {
 			throw new Exception("Heating Rate must be a positive number.");
 		}
@@ -80,12 +175,20 @@ public class TemperatureModel {
 	
 	// GET
 	
+	/***
+	Returns a copy of all of the temperature sensor's data taken at the same moment. Reading the copy never blocks the simulation.
+	@return The current state of the model
+	*/
+	public State getState() {
+		return this.state.get();
+	}
+	
 	/***
 	Returns the current temperature of the environment as picked up by the temperature sensor
 	@return currentTemp Current greenhouse temperature level
 	*/
-	public synchronized double getCurrentTemp() {
-		return this.currentTemp;
+	public double getCurrentTemp() {
+		return this.state.get().currentTemp;
 	}
 	
 	/***
@@ -93,16 +196,14 @@ public class TemperatureModel {
 	Note: Both devices cannot be on at the same time.
 	@return A message to display on the GUI (Heating/Cooling/Off)
 	*/
-	public synchronized String getDeviceStatus(){
-		if (this.devFurnace == 1) {
+	public String getDeviceStatus(){
+		State current = this.state.get();
+		if (current.devFurnace == 1) {
 			return "Heating";
 		}
-		if (this.devAirCon == 1) {
+		if (current.devAirCon == 1) {
 			return "Cooling";
 		}
-		if (this.devAirCon == 1 && this.devFurnace == 1) {
-			this.turnOffAll();
-		}
 		return "Off";
 	}
 	
@@ -110,45 +211,89 @@ public class TemperatureModel {
 	
 	/***
 	Turns the furnace on and shuts the air conditioner off
+	@param current The state to change
+	@param minutes Simulated minutes the furnace runs for
+	@return The state with the furnace heating the greenhouse
 	*/
-	private void turnOnFurnace() {
-		this.devFurnace = 1;
-		this.devAirCon = 0;
+	private State turnOnFurnace(State current, double minutes) {
+		return new State(1, 0, current.currentTemp + current.internalHeatRate * minutes, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, current.internalHeatRate);
 	}
 	
 	/***
 	Turns the airc conditioner on and shuts the furnace off
+	@param current The state to change
+	@param minutes Simulated minutes the air conditioner runs for
+	@return The state with the air conditioner cooling the greenhouse
 	*/
-	private void turnOnAirCon() {
-		this.devFurnace = 0;
-		this.devAirCon = 1;
+	private State turnOnAirCon(State current, double minutes) {
+		return new State(0, 1, current.currentTemp + current.internalCoolRate * minutes, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, current.internalHeatRate);
 	}
 	
 	/***
 	Turns off all the devices
+	@param current The state to change
+	@return The state with every device off
 	*/
-	private void turnOffAll() {
-		this.devFurnace = 0;
-		this.devAirCon = 0;
+	private State turnOffAll(State current) {
+		if (current.devFurnace == 0 && current.devAirCon == 0) {
+			return current;
+		}
+		return new State(0, 0, current.currentTemp, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, current.internalHeatRate);
 	}
 	
 	// PROCESS
 	
+	/***
+	Adds the external effect on the temperature to the newest state of the model, held within its physical limits of ABSOLUTEZERO to TOASTY rather than the desired range. The
+	change is made in a single step on whatever the sensor last left, so a sensor running on another thread at the same
+	time cannot have its change written over, and neither can this one.
+	@param change Change in the temperature from the external effects
+	@return The temperature after the change
+	*/
+	public double applyExternalEffect(double change) {
+		State current, next;
+		do {
+			current = this.state.get();
+			double reading = EnvironmentModel.clamp(current.currentTemp + change, ABSOLUTEZERO, TOASTY);
+			next = new State(current.devFurnace, current.devAirCon, reading, current.temperatureUpper, current.temperatureLower, current.internalCoolRate, current.internalHeatRate);
+		} while (!this.state.compareAndSet(current, next));
+		return next.currentTemp;
+	}
+	
 	/***
 	This is the sensor method to check the temperature level of the greenhouse and update the temperature level according 
 	to the rate of change that the user has specified. It also controls the furnace and air conditioner in order to increase
-	or decrease the temperature level to the desired range specified by the user. 
+	or decrease the temperature level to the desired range specified by the user. Each call covers one simulated minute.
 	*/
-	public synchronized void sensor() {
+	public void sensor() {
+		this.sensor(1);
+	}
+	
+	/***
+	Runs the sensor for a span of simulated time. The heating and cooling rates are per minute, so a device that is
+	switched on changes the temperature by its rate times the number of minutes.
+	@param minutes Simulated minutes since the sensor last ran
+	*/
+	public void sensor(double minutes) {
 		
-		if (this.currentTemp < this.temperatureLower) {			
-			this.turnOnFurnace();			
-			this.currentTemp += this.internalHeatRate;			
-		} else if (this.currentTemp > this.temperatureUpper) {			
-			this.turnOnAirCon();			
-			this.currentTemp += this.internalCoolRate;			
-		} else {
-			this.turnOffAll();
+		State current, next;
+		do {
+			current = this.state.get();
+			if (current.currentTemp < current.temperatureLower) {			
+				next = this.turnOnFurnace(current, minutes);			
+			} else if (current.currentTemp > current.temperatureUpper) {			
+				next = this.turnOnAirCon(current, minutes);			
+			} else {
+				next = this.turnOffAll(current);
+			}
+		} while (!this.state.compareAndSet(current, next));
+		
+		// Reported once the new state is in place, since turnOnFurnace, turnOnAirCon, and turnOffAll can run again on a retry
+		if (next.devFurnace != current.devFurnace) {
+			DeviceSwitchEvent.emit("Furnace", next.devFurnace == 1, current.currentTemp);
+		}
+		if (next.devAirCon != current.devAirCon) {
+			DeviceSwitchEvent.emit("Air Conditioner", next.devAirCon == 1, current.currentTemp);
 		}
 		
 	}
@@ -157,7 +302,8 @@ public class TemperatureModel {
 	Creates a well formated data string so that it can be stored into a simulation save file for retrieval 
 	*/
 	public String toString() {
-		return "T," + this.currentTemp + "," + (int)this.temperatureUpper + "," + (int)this.temperatureLower + "," + this.internalHeatRate + "," + Math.abs(this.internalCoolRate) + "," + this.devFurnace + "," + this.devAirCon + ",";
+		State current = this.state.get();
+		return "T," + current.currentTemp + "," + (int)current.temperatureUpper + "," + (int)current.temperatureLower + "," + current.internalHeatRate + "," + Math.abs(current.internalCoolRate) + "," + current.devFurnace + "," + current.devAirCon + ",";
 	}
 
 
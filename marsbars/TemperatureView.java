@@ -32,9 +32,15 @@ public class TemperatureView extends JPanel {
 	private JTextField coolingRate 	= new JTextField();
 	private JLabel heatingRateLabel = new JLabel("Heating Rate (\u00b0C/min)");
 	private JTextField heatingRate 	= new JTextField();
-	private JLabel refreshRateLabel = new JLabel("Refresh Rate (Sec)");	
-	private JSlider tempRefresh 	= new JSlider(JSlider.HORIZONTAL, 1, 10, 5);
+	private JLabel refreshRateLabel = new JLabel("Refresh Rate");	
+	private RefreshSlider tempRefresh 	= new RefreshSlider(2);
 	private JLabel controllerStatus = new JLabel("Off");
+	private TrendChart trend 		= new TrendChart(new TrendBuffer(TrendBuffer.DEFAULT_CAPACITY));
+	
+	// Numbers shown in the text fields. Updates that round to the text already shown are skipped.
+	private DecimalDisplay currentTempDisplay = new DecimalDisplay(currentTemp, 2);
+	private DecimalDisplay coolingRateDisplay = new DecimalDisplay(coolingRate, 2);
+	private DecimalDisplay heatingRateDisplay = new DecimalDisplay(heatingRate, 2);
 	
 	/***
 	Contructor that sets the basic GUI elements for the Panel
@@ -43,7 +49,7 @@ public class TemperatureView extends JPanel {
 		
 		// Set the padding of the Panel
 		this.setBorder(new EmptyBorder(10, 10, 10, 10));		
-		this.setLayout(new GridLayout(5,1,0,0));
+		this.setLayout(new GridLayout(6,1,0,0));
 		
 		// Setup fonts
 		Font fontTextField = new Font("Arial",Font.BOLD,24);
@@ -91,27 +97,34 @@ public class TemperatureView extends JPanel {
 		
 		// Refresh rate of the temperature sensor
 		panel4.add(refreshRateLabel);
-		this.tempRefresh.setValue(2);
-		this.tempRefresh.setMinorTickSpacing(1);
-		this.tempRefresh.setMajorTickSpacing(1);
-		this.tempRefresh.setPaintTicks(true);
-		this.tempRefresh.setPaintLabels(true);
 		panel4.add(tempRefresh);		
 		
 		// Display furnace or air conditioner status
 		panel5.add(controllerStatus);
 		panel5.setBorder(new EmptyBorder(25, 0, 0, 0));
 		
+		// History of the temperature level since the simulation started
+		trend.setBorder(new EmptyBorder(10, 0, 0, 0));
+		
 		add(panel1);
 		add(panel2);
 		add(panel3);
 		add(panel4);
 		add(panel5);
+		add(trend);
 		
 	}
 	
 	// GET
 	
+	/***
+	Returns the chart of the temperature level over time
+	@return The trend chart
+	*/
+	public TrendChart getTrend() {
+		return this.trend;
+	}
+	
 	/***
 	Get the current temperature level of the greenhouse convert it into a double, and return it.
 	@return The current greenhouse temperature
@@ -166,10 +179,10 @@ public class TemperatureView extends JPanel {
 	
 	/***
 	Returns the rate at which the current thread refreshes the greenhouse temperature data
-	@return Thread refresh rate
+	@return Thread refresh rate in seconds
 	*/
-	public int getTempRefreshRate() {
-		return this.tempRefresh.getValue();
+	public double getTempRefreshRate() {
+		return this.tempRefresh.getSeconds();
 	}
 
 	
@@ -180,7 +193,7 @@ public class TemperatureView extends JPanel {
 	@param temp Temperature level needed to display
 	*/
 	public void setCurrTemp(double temp) {
-		this.currentTemp.setText(String.format("%.2f", temp));
+		this.currentTempDisplay.setValue(temp);
 	}
 	
 	/***
@@ -204,7 +217,7 @@ public class TemperatureView extends JPanel {
 	@param rate Temperature change rate in C/Min
 	*/
 	public void setCoolingRate(double rate) {
-		this.coolingRate.setText(String.format("%.2f", rate));
+		this.coolingRateDisplay.setValue(rate);
 	}
 	
 	/***
@@ -212,7 +225,7 @@ public class TemperatureView extends JPanel {
 	@param rate Temperature change rate in C/Min
 	*/
 	public void setHeatingRate(double rate) {
-		this.heatingRate.setText(String.format("%.2f", rate));
+		this.heatingRateDisplay.setValue(rate);
 	}
 	
 	/***
@@ -220,7 +233,7 @@ public class TemperatureView extends JPanel {
 	@param rate Temperature GUI refresh rate
 	*/
 	public void setRefreshRate(double rate) {
-		this.tempRefresh.setValue((int)rate);
+		this.tempRefresh.setSeconds(rate);
 	}
 	
 	/***
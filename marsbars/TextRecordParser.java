@@ -0,0 +1,320 @@
+/***
+
+Text Record Parser reads the comma separated text save file (see TextRecordSink) straight from a byte buffer into
+tick records. Numbers are parsed from the bytes without creating any strings, so playing back or importing a long
+recording does not create garbage for every line. When the file is corrupted the error gives the exact byte where
+the bad data starts.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/***
+Streaming parser for the comma separated text save file.
+*/
+public class TextRecordParser {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Longest number the parser accepts. Double.toString never writes more than 25 characters.
+	private static final int MAX_FIELD_LENGTH = 64;
+
+	// A whole number of at most 2^53 is exact as a double, and so is every power of ten up to 10^22. Dividing or
+	// multiplying two exact doubles gives the correctly rounded result, the same as Double.parseDouble.
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final int END_OF_FILE = -1;
+
+	private ReadableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	// Position in the file of the next byte to be read
+	private long offset = 0;
+	private long lineNumber = 0;
+
+	// Bytes of the current number, kept for the rare number the fast path cannot parse exactly
+	private byte[] field = new byte[MAX_FIELD_LENGTH];
+	private int fieldLength = 0;
+	private long fieldStart = 0;
+
+	/***
+	Opens a text save file for parsing
+	@param theFile The text save file
+	@throws IOException Throws an error if the file cannot be opened
+	*/
+	public TextRecordParser(File theFile) throws IOException {
+		this(FileChannel.open(theFile.toPath(), StandardOpenOption.READ));
+	}
+
+	/***
+	Parses the text save file read from a channel
+	@param theChannel Where the text save file is read from
+	*/
+	public TextRecordParser(ReadableByteChannel theChannel) {
+		this.channel = theChannel;
+		this.buffer.flip();
+	}
+
+	/***
+	Returns the line the last record was read from
+	@return lineNumber Line number, starting at 1
+	*/
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/***
+	Returns how far into the file the parser has read
+	@return offset Number of bytes parsed
+	*/
+	public long getOffset() {
+		return this.offset;
+	}
+
+	/***
+	Closes the file
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/***
+	Reads the next record into a tick record. Lines that do not start with a subsystem prefix are skipped. The record's
+	tick is set to its line number and its phases to the one subsystem on the line. The refresh rate is converted from
+	seconds to milliseconds.
+	@param record The record to fill
+	@return The subsystem of the record, or -1 once the end of the file is reached
+	@throws IOException Throws an error if the file cannot be read or holds incorrect data
+	*/
+	public int next(TickRecord record) throws IOException {
+
+		while (true) {
+
+			int b = this.read();
+			if (b == END_OF_FILE) {
+				return -1;
+			}
+			this.lineNumber++;
+
+			int subsystem = subsystemOf(b);
+			if (subsystem < 0) {
+				this.skipLine(b);
+				continue;
+			}
+
+			long prefixStart = this.offset - 1;
+			if (this.read() != ',') {
+				throw corrupted(prefixStart);
+			}
+
+			record.setTick(this.lineNumber);
+			record.setPhases(1 << subsystem);
+
+			int first = RecordingFormat.OFFSETS[subsystem];
+			int columns = RecordingFormat.COLUMNS[subsystem].length;
+			for (int c = 0; c < columns - 1; c++) {
+				if (this.readField() != ',') {
+					throw corrupted(this.offset - 1);
+				}
+				record.set(first + c, this.parseDouble());
+			}
+
+			// The refresh rate is saved in seconds, with a fraction for sub-second rates
+			int end = this.readField();
+			record.set(first + columns - 1, Math.round(1000 * this.parseDouble()));
+
+			// Older files may have more columns than the reader knows about
+			if (end == ',') {
+				this.skipLine(end);
+			}
+
+			return subsystem;
+		}
+	}
+
+	/***
+	Returns which subsystem a prefix belongs to
+	@param b The first byte of a line
+	@return One of RecordingFormat.ENVIRONMENT, TEMPERATURE, HUMIDITY, or MOISTURE, or -1 if the line is not a record
+	*/
+	private static int subsystemOf(int b) {
+		for (int s = 0; s < RecordingFormat.PREFIXES.length; s++) {
+			if (b == RecordingFormat.PREFIXES[s]) {
+				return s;
+			}
+		}
+		return -1;
+	}
+
+	/***
+	Reads the next byte of the file, refilling the buffer when it runs out
+	@return The byte, or END_OF_FILE
+	@throws IOException Throws an error if the file cannot be read
+	*/
+	private int read() throws IOException {
+		if (!this.buffer.hasRemaining()) {
+			this.buffer.clear();
+			int n = 0;
+			while (n == 0) {
+				n = this.channel.read(this.buffer);
+			}
+			this.buffer.flip();
+			if (n < 0) {
+				return END_OF_FILE;
+			}
+		}
+		this.offset++;
+		return this.buffer.get() & 0xff;
+	}
+
+	/***
+	Skips to the start of the next line
+	@param b The last byte read
+	@throws IOException Throws an error if the file cannot be read
+	*/
+	private void skipLine(int b) throws IOException {
+		while (b != '\n' && b != END_OF_FILE) {
+			b = this.read();
+		}
+	}
+
+	/***
+	Reads the bytes of one field up to the next comma or line end
+	@return The byte that ended the field: a comma, a new line, or END_OF_FILE
+	@throws IOException Throws an error if the file cannot be read or the field is too long to be a number
+	*/
+	private int readField() throws IOException {
+		this.fieldStart = this.offset;
+		this.fieldLength = 0;
+		while (true) {
+			int b = this.read();
+			if (b == ',' || b == '\n' || b == END_OF_FILE) {
+				return b;
+			}
+			if (b == '\r') {
+				continue;
+			}
+			if (this.fieldLength == MAX_FIELD_LENGTH) {
+				throw corrupted(this.fieldStart);
+			}
+			this.field[this.fieldLength++] = (byte)b;
+		}
+	}
+
+	/***
+	Parses the current field as a decimal number. Plain decimals such as those written by the simulation are parsed
+	straight from the bytes. Anything else (very long numbers, NaN, Infinity, spaces) is handed to Double.parseDouble.
+	@return The number
+	@throws IOException Throws an error if the field is not a number
+	*/
+	private double parseDouble() throws IOException {
+
+		int i = 0;
+		boolean negative = false;
+		if (this.fieldLength > 0 && (this.field[0] == '-' || this.field[0] == '+')) {
+			negative = this.field[0] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean exact = true;
+
+		// Whole part
+		for (; i < this.fieldLength && isDigit(this.field[i]); i++) {
+			if (mantissa < MAX_EXACT_MANTISSA) {
+				mantissa = mantissa * 10 + (this.field[i] - '0');
+			} else {
+				exact = false;
+			}
+			digits++;
+		}
+
+		// Fraction
+		if (i < this.fieldLength && this.field[i] == '.') {
+			for (i++; i < this.fieldLength && isDigit(this.field[i]); i++) {
+				if (mantissa < MAX_EXACT_MANTISSA) {
+					mantissa = mantissa * 10 + (this.field[i] - '0');
+					exponent--;
+				} else if (this.field[i] != '0') {
+					exact = false;
+				}
+				digits++;
+			}
+		}
+
+		if (digits == 0) {
+			return this.parseDoubleSlow();
+		}
+
+		// Exponent, as written by Double.toString for very small or large values (1.0E-4)
+		if (i < this.fieldLength && (this.field[i] == 'E' || this.field[i] == 'e')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < this.fieldLength && (this.field[i] == '-' || this.field[i] == '+')) {
+				negativeExponent = this.field[i] == '-';
+				i++;
+			}
+			if (i == this.fieldLength) {
+				return this.parseDoubleSlow();
+			}
+			int e = 0;
+			for (; i < this.fieldLength && isDigit(this.field[i]); i++) {
+				if (e < 10000) {
+					e = e * 10 + (this.field[i] - '0');
+				}
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+
+		if (i != this.fieldLength || !exact || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+			return this.parseDoubleSlow();
+		}
+
+		double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+		return negative ? -value : value;
+	}
+
+	/***
+	Parses the current field with Double.parseDouble. Only used for numbers the fast path cannot parse exactly.
+	@return The number
+	@throws IOException Throws an error if the field is not a number
+	*/
+	private double parseDoubleSlow() throws IOException {
+		try {
+			return Double.parseDouble(new String(this.field, 0, this.fieldLength, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			throw corrupted(this.fieldStart);
+		}
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	/***
+	Creates the error reported for incorrect data
+	@param at Position in the file of the incorrect data
+	@return The error
+	*/
+	private static IOException corrupted(long at) {
+		return new IOException("Incorrect Data at byte " + at + ". File might be corrupted.");
+	}
+
+}
@@ -0,0 +1,102 @@
+/***
+
+Text Record Sink writes a running simulation to the original comma separated save file. Every subsystem updated
+on a tick gets one line starting with its prefix (E, T, H, or M).
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+
+/***
+Writes tick records to the comma separated text save file.
+*/
+public class TextRecordSink implements RecordSink {
+
+	private BufferedWriter bw;
+	private long bytesWritten = 0;
+
+	/***
+	Creates a sink that writes to the buffered writer provided
+	@param savefile The buffered writer carrying the user specified save file
+	*/
+	public TextRecordSink(BufferedWriter savefile) {
+		this.bw = savefile;
+	}
+
+	/***
+	Writes one line for each subsystem updated on the tick
+	@param record The tick's data
+	@throws IOException Throws an error if the lines cannot be written
+	*/
+	public synchronized void write(TickRecord record) throws IOException {
+		for (int s = 0; s < RecordingFormat.PREFIXES.length; s++) {
+			if (record.hasPhase(s)) {
+				// Every character of a line is ASCII, so each one is a byte in the file
+				String line = line(record, s);
+				this.bw.write(line);
+				this.bytesWritten += line.length();
+			}
+		}
+	}
+
+	/***
+	Returns how many bytes of lines have been written so far
+	@return bytesWritten Number of bytes written
+	*/
+	public synchronized long getBytesWritten() {
+		return this.bytesWritten;
+	}
+
+	/***
+	Pushes any buffered lines out to the file
+	@throws IOException Throws an error if the lines cannot be written
+	*/
+	public synchronized void flush() throws IOException {
+		this.bw.flush();
+	}
+
+	/***
+	Closes the save file
+	@throws IOException Throws an error if the file cannot be closed
+	*/
+	public synchronized void close() throws IOException {
+		this.bw.close();
+	}
+
+	/***
+	Creates a well formated data line for one subsystem. The refresh rate is written in seconds, as a whole number
+	unless it is a fraction of a second.
+	@param record The tick's data
+	@param subsystem One of RecordingFormat.ENVIRONMENT, TEMPERATURE, HUMIDITY, or MOISTURE
+	@return The line, ending with a new line
+	*/
+	public static String line(TickRecord record, int subsystem) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(RecordingFormat.PREFIXES[subsystem]).append(",");
+		byte[] types = RecordingFormat.TYPES[subsystem];
+		for (int c = 0; c < types.length - 1; c++) {
+			double value = record.get(subsystem, c);
+			if (types[c] == RecordingFormat.DOUBLE) {
+				sb.append(value);
+			} else {
+				sb.append((int)value);
+			}
+			sb.append(",");
+		}
+		int refreshRate = (int)record.get(subsystem, types.length - 1);
+		if (refreshRate % 1000 == 0) {
+			sb.append(refreshRate / 1000);
+		} else {
+			sb.append(refreshRate / 1000.0);
+		}
+		sb.append("\n");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,138 @@
+/***
+
+Tick Metrics measures one subsystem while it runs: how long each tick takes, how late the thread wakes up for its
+next tick, how often a refresh starts late, and how many ticks run per second. Everything is recorded lock-free by
+the thread that runs the subsystem and can be read at any time from another thread, either as a JMX MBean or as a
+line of a metrics snapshot.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.concurrent.atomic.*;
+
+/***
+Tick duration and scheduling lag of one subsystem.
+*/
+public class TickMetrics implements TickMetricsMBean {
+
+	private AtomicLong ticks = new AtomicLong(0);
+	private AtomicLong missedDeadlines = new AtomicLong(0);
+	private LatencyHistogram durations = new LatencyHistogram();
+	private LatencyHistogram lag = new LatencyHistogram();
+	private RateMeter rate = new RateMeter();
+
+	/***
+	Empty metrics
+	*/
+	public TickMetrics() {
+
+	}
+
+	// GET
+
+	/***
+	Returns the histogram of the time each tick took
+	@return durations Tick durations in nanoseconds
+	*/
+	public LatencyHistogram getDurations() {
+		return this.durations;
+	}
+
+	/***
+	Returns the histogram of how late the thread woke up after each deadline
+	@return lag Lateness in nanoseconds
+	*/
+	public LatencyHistogram getLag() {
+		return this.lag;
+	}
+
+	public long getTicks() {
+		return this.ticks.get();
+	}
+
+	public double getTicksPerSecond() {
+		return this.rate.rate(this.ticks.get());
+	}
+
+	public double getTickMeanMicros() {
+		return this.durations.getMean() / 1000;
+	}
+
+	public double getTickP50Micros() {
+		return this.durations.getPercentile(0.5) / 1000.0;
+	}
+
+	public double getTickP99Micros() {
+		return this.durations.getPercentile(0.99) / 1000.0;
+	}
+
+	public double getTickMaxMicros() {
+		return this.durations.getMax() / 1000.0;
+	}
+
+	public double getLagMeanMicros() {
+		return this.lag.getMean() / 1000;
+	}
+
+	public double getLagP99Micros() {
+		return this.lag.getPercentile(0.99) / 1000.0;
+	}
+
+	public double getLagMaxMicros() {
+		return this.lag.getMax() / 1000.0;
+	}
+
+	public long getMissedDeadlines() {
+		return this.missedDeadlines.get();
+	}
+
+	// PROCESS
+
+	/***
+	Counts a tick and how long it took
+	@param nanos Duration of the tick in nanoseconds
+	*/
+	public void recordTick(long nanos) {
+		this.ticks.incrementAndGet();
+		this.durations.record(nanos);
+	}
+
+	/***
+	Records how late the thread woke up for a deadline
+	@param nanos Time between the deadline and the wake up in nanoseconds
+	*/
+	public void recordLag(long nanos) {
+		this.lag.record(nanos);
+	}
+
+	/***
+	Counts refreshes that started late
+	@param count Number of late refreshes
+	*/
+	public void addMissedDeadlines(long count) {
+		this.missedDeadlines.addAndGet(count);
+	}
+
+	public void reset() {
+		this.ticks.set(0);
+		this.missedDeadlines.set(0);
+		this.durations.reset();
+		this.lag.reset();
+		this.rate.reset(0);
+	}
+
+	/***
+	Creates a well formated line of the rate, tick durations, and lag
+	*/
+	public String toString() {
+		return String.format("%d ticks, %.0f ticks/sec, tick mean %.2f us p50 %.2f us p99 %.2f us max %.1f us, lag mean %.2f us p99 %.2f us max %.1f us, %d missed",
+				this.getTicks(), this.getTicksPerSecond(), this.getTickMeanMicros(), this.getTickP50Micros(), this.getTickP99Micros(), this.getTickMaxMicros(),
+				this.getLagMeanMicros(), this.getLagP99Micros(), this.getLagMaxMicros(), this.getMissedDeadlines());
+	}
+
+}
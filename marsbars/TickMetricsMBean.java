@@ -0,0 +1,75 @@
+/***
+
+Tick Metrics MBean is the management interface of a subsystem's tick metrics. JMX consoles such as jconsole show
+every getter as an attribute.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+JMX attributes of one subsystem's tick metrics. Durations are in microseconds.
+*/
+public interface TickMetricsMBean {
+
+	/***
+	@return Number of ticks run
+	*/
+	long getTicks();
+
+	/***
+	@return Ticks run per second over the last second or more
+	*/
+	double getTicksPerSecond();
+
+	/***
+	@return Average time a tick took
+	*/
+	double getTickMeanMicros();
+
+	/***
+	@return Time that half the ticks took no longer than
+	*/
+	double getTickP50Micros();
+
+	/***
+	@return Time that 99% of the ticks took no longer than
+	*/
+	double getTickP99Micros();
+
+	/***
+	@return Longest time a tick took
+	*/
+	double getTickMaxMicros();
+
+	/***
+	@return Average time the thread woke up after its deadline
+	*/
+	double getLagMeanMicros();
+
+	/***
+	@return Lateness that 99% of the wake ups were within
+	*/
+	double getLagP99Micros();
+
+	/***
+	@return Latest the thread woke up after its deadline
+	*/
+	double getLagMaxMicros();
+
+	/***
+	@return Number of refreshes that started late
+	*/
+	long getMissedDeadlines();
+
+	/***
+	Forgets the ticks, missed deadlines, durations, lag, and rate recorded so far, so the attributes show only what
+	happens from now on. A tick that is being recorded while the reset runs may be counted in either.
+	*/
+	void reset();
+
+}
@@ -0,0 +1,38 @@
+/***
+
+Tick Phase Event is a Java Flight Recorder event covering one controller's update within a tick of the live
+simulation, so a flight recording shows each phase of the simulation timeline next to GC pauses and I/O stalls.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import jdk.jfr.*;
+
+/***
+Flight recorder event for one phase of a simulation tick.
+*/
+@Name("marsbars.TickPhase")
+@Label("Tick Phase")
+@Category({"Greenhouse Simulator", "Simulation"})
+@Description("One controller's update within a tick of the live simulation")
+public class TickPhaseEvent extends Event {
+
+	/***
+	Names of the phases, in the order the scheduler runs them
+	*/
+	public static final String[] PHASES = {"Environment", "Temperature", "Humidity", "Moisture"};
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Simulated Time")
+	@Description("Simulated milliseconds since the start of the simulation")
+	@Timespan(Timespan.MILLISECONDS)
+	public long simulatedTime;
+
+}
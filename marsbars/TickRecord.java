@@ -0,0 +1,201 @@
+/***
+
+Tick Record holds the data of every subsystem for one simulated tick. It is filled from the models while
+recording and from the save file during playback, and is reused from tick to tick so recording does not
+create any objects.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Reusable holder for the data of every subsystem for one simulated tick.
+*/
+public class TickRecord {
+
+	private long tick = 0;
+	private int phases = 0;
+	private double[] values = new double[RecordingFormat.COLUMN_COUNT];
+
+	/***
+	An empty record
+	*/
+	public TickRecord() {
+
+	}
+
+	// GET
+
+	/***
+	Returns the tick this record was taken on. Records from the scheduler are stamped with the simulated time in
+	milliseconds, records from a text save file with their line number.
+	@return tick The tick
+	*/
+	public long getTick() {
+		return this.tick;
+	}
+
+	/***
+	Returns which subsystems were updated on this tick. Bit n is set if subsystem n (see RecordingFormat) was updated.
+	@return phases The updated subsystems
+	*/
+	public int getPhases() {
+		return this.phases;
+	}
+
+	/***
+	Returns whether a subsystem was updated on this tick
+	@param subsystem One of RecordingFormat.ENVIRONMENT, TEMPERATURE, HUMIDITY, or MOISTURE
+	@return Whether the subsystem was updated
+	*/
+	public boolean hasPhase(int subsystem) {
+		return (this.phases & (1 << subsystem)) != 0;
+	}
+
+	/***
+	Returns a column by its position across every subsystem
+	@param column Position of the column
+	@return The column's value
+	*/
+	public double get(int column) {
+		return this.values[column];
+	}
+
+	/***
+	Returns a column of one subsystem
+	@param subsystem One of RecordingFormat.ENVIRONMENT, TEMPERATURE, HUMIDITY, or MOISTURE
+	@param column Position of the column within the subsystem (see RecordingFormat.COLUMNS)
+	@return The column's value
+	*/
+	public double get(int subsystem, int column) {
+		return this.values[RecordingFormat.OFFSETS[subsystem] + column];
+	}
+
+	/***
+	Returns the refresh rate of the subsystem updated on this tick. During text playback a record holds a single subsystem.
+	@return Refresh rate in milliseconds, or 0 if no subsystem was updated
+	*/
+	public int getRefreshRate() {
+		for (int s = 0; s < RecordingFormat.COLUMNS.length; s++) {
+			if (this.hasPhase(s)) {
+				return (int)this.get(s, RecordingFormat.COLUMNS[s].length - 1);
+			}
+		}
+		return 0;
+	}
+	
+	// SET
+
+	/***
+	Sets the tick this record was taken on
+	@param tick The tick, in simulated milliseconds when recording
+	*/
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	/***
+	Sets which subsystems were updated on this tick
+	@param phases The updated subsystems. Bit n is set if subsystem n was updated
+	*/
+	public void setPhases(int phases) {
+		this.phases = phases;
+	}
+
+	/***
+	Sets a column by its position across every subsystem
+	@param column Position of the column
+	@param value The column's value
+	*/
+	public void set(int column, double value) {
+		this.values[column] = value;
+	}
+
+	/***
+	Copies every value of another record into this one
+	@param other The record to copy
+	*/
+	public void copyFrom(TickRecord other) {
+		this.tick = other.tick;
+		this.phases = other.phases;
+		System.arraycopy(other.values, 0, this.values, 0, this.values.length);
+	}
+
+	/***
+	Copies the columns of one subsystem of another record into this one
+	@param other The record to copy
+	@param subsystem One of RecordingFormat.ENVIRONMENT, TEMPERATURE, HUMIDITY, or MOISTURE
+	*/
+	public void copyFrom(TickRecord other, int subsystem) {
+		int first = RecordingFormat.OFFSETS[subsystem];
+		System.arraycopy(other.values, first, this.values, first, RecordingFormat.COLUMNS[subsystem].length);
+	}
+
+	/***
+	Captures the environment data
+	@param state A snapshot of the environment model
+	@param refreshRate Refresh rate of the environment controller in milliseconds
+	*/
+	public void setEnvironment(EnvironmentModel.State state, int refreshRate) {
+		int i = RecordingFormat.OFFSETS[RecordingFormat.ENVIRONMENT];
+		this.values[i++] = state.getStartTemp();
+		this.values[i++] = state.getStartHumid();
+		this.values[i++] = state.getStartMoist();
+		this.values[i++] = state.getExternalTempRate();
+		this.values[i++] = state.getExternalHumidRate();
+		this.values[i++] = state.getExternalMoistRate();
+		this.values[i++] = refreshRate;
+	}
+
+	/***
+	Captures the temperature sensor data
+	@param state A snapshot of the temperature model
+	@param refreshRate Refresh rate of the temperature controller in milliseconds
+	*/
+	public void setTemperature(TemperatureModel.State state, int refreshRate) {
+		int i = RecordingFormat.OFFSETS[RecordingFormat.TEMPERATURE];
+		this.values[i++] = state.getCurrentTemp();
+		this.values[i++] = (int)state.getTemperatureUpper();
+		this.values[i++] = (int)state.getTemperatureLower();
+		this.values[i++] = state.getInternalHeatRate();
+		this.values[i++] = Math.abs(state.getInternalCoolRate());
+		this.values[i++] = state.getFurnace();
+		this.values[i++] = state.getAirCon();
+		this.values[i++] = refreshRate;
+	}
+
+	/***
+	Captures the humidity sensor data
+	@param state A snapshot of the humidity model
+	@param refreshRate Refresh rate of the humidity controller in milliseconds
+	*/
+	public void setHumidity(HumidityModel.State state, int refreshRate) {
+		int i = RecordingFormat.OFFSETS[RecordingFormat.HUMIDITY];
+		this.values[i++] = state.getCurrentHumidity();
+		this.values[i++] = (int)state.getHumidityUpper();
+		this.values[i++] = (int)state.getHumidityLower();
+		this.values[i++] = state.getInternalHumidityRate();
+		this.values[i++] = state.getHumidifier();
+		this.values[i++] = refreshRate;
+	}
+
+	/***
+	Captures the soil moisture sensor data
+	@param state A snapshot of the soil moisture model
+	@param refreshRate Refresh rate of the soil moisture controller in milliseconds
+	*/
+	public void setMoisture(MoistureModel.State state, int refreshRate) {
+		int i = RecordingFormat.OFFSETS[RecordingFormat.MOISTURE];
+		this.values[i++] = state.getCurrentMoisture();
+		this.values[i++] = (int)state.getMoistureUpper();
+		this.values[i++] = (int)state.getMoistureLower();
+		this.values[i++] = state.getInternalMoistureRate();
+		this.values[i++] = state.getSprinkler();
+		this.values[i++] = refreshRate;
+	}
+
+}
@@ -0,0 +1,214 @@
+/***
+
+The Tick Scheduler runs every controller/sensor on a single thread. Each simulated tick it updates the
+environment, temperature, humidity, and soil moisture controllers in that order, so the same inputs always
+produce the same simulation. A tick is as long as the largest period every refresh rate is a whole multiple of,
+so controllers can refresh at different and sub-second rates on the same thread.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.io.*;
+
+/***
+Single thread that steps every controller in a fixed phase order once per tick.
+*/
+public class TickScheduler extends Controller {
+
+	/***
+	Shortest wall time the scheduler waits for between ticks, in nanoseconds. At high speeds a tick takes less wall time
+	than waking the thread up, so the ticks of this much wall time are run back to back and then waited out together.
+	*/
+	public static final long MIN_WAIT = 1000000L;
+
+	private Controller[] phases;
+	private long tickCount = 0;
+	
+	// Simulated time. A controller is updated whenever the simulated time is a multiple of its refresh rate.
+	private SimulationClock clock = new SimulationClock();
+	
+	// The recorder is written on the scheduler's thread and closed on the event dispatch thread. The lock makes a
+	// close wait for a write that is in flight, so a sink is never written after it has been closed.
+	private volatile RecordSink recorder;
+	private final Object recording = new Object();
+	private TickRecord record = new TickRecord();
+
+	/***
+	Constructor that takes the controllers in the order they are updated each tick.
+	@param envCont Environment controller. Applies the external effects first
+	@param tempCont Temperature controller
+	@param humidCont Humidity controller
+	@param moistCont Soil moisture controller
+	*/
+	public TickScheduler(EnvironmentController envCont, TemperatureController tempCont, HumidityController humidCont, MoistureController moistCont) {
+		this.phases = new Controller[] {envCont, tempCont, humidCont, moistCont};
+	}
+
+	/***
+	Returns how many ticks the scheduler has run
+	@return tickCount Number of completed ticks
+	*/
+	public long getTickCount() {
+		return this.tickCount;
+	}
+
+	/***
+	Returns how much simulated time the scheduler has run
+	@return Simulated milliseconds since the start
+	*/
+	public long getElapsed() {
+		return this.clock.getTime();
+	}
+	
+	/***
+	Returns the clock that keeps the simulated time and sets how fast it runs
+	@return clock The simulation clock
+	*/
+	public SimulationClock getClock() {
+		return this.clock;
+	}
+	
+	/***
+	Returns the length of one tick: the greatest common divisor of every controller's refresh rate. Each
+	controller is updated every refresh rate / tick length ticks.
+	@return Length of a tick in milliseconds
+	*/
+	public int getTickLength() {
+		int length = 0;
+		for (Controller phase : this.phases) {
+			length = gcd(length, Math.max(1, phase.getRefreshRate()));
+		}
+		return Math.max(1, length);
+	}
+	
+	/***
+	Returns the greatest common divisor of two numbers
+	@param a First number
+	@param b Second number
+	@return The greatest common divisor, or the other number if one of them is 0
+	*/
+	public static int gcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+	
+	/***
+	Starts recording the simulation. Each tick that updates at least one controller is written to the sink.
+	@param sink Where the simulation is recorded to
+	*/
+	public void setRecorder(RecordSink sink) {
+		synchronized (this.recording) {
+			this.recorder = sink;
+		}
+	}
+	
+	/***
+	Stops recording the simulation and closes the save file. Waits for the tick being written, if any, to finish first.
+	@throws IOException Throws an error if the save file cannot be closed
+	*/
+	public void closeRecorder() throws IOException {
+		RecordSink sink;
+		synchronized (this.recording) {
+			sink = this.recorder;
+			this.recorder = null;
+		}
+		if (sink != null) {
+			sink.close();
+		}
+	}
+	
+	/***
+	Updates every controller that is due this tick in the fixed phase order: environment, temperature, humidity, soil moisture,
+	and hands its new data to the view renderer. The tick is then written to the save file if the simulation is being recorded.
+	The time each controller's update takes is recorded in that controller's metrics and the time of the whole tick in the scheduler's.
+	When a flight recording is running, each controller's update is also recorded as a TickPhaseEvent.
+	*/
+	public void tick() {
+		this.tick(this.getTickLength());
+	}
+	
+	/***
+	Runs one tick of the specified length. See tick().
+	@param length Length of the tick in milliseconds
+	*/
+	private void tick(int length) {
+		
+		long start = System.nanoTime();
+		
+		// A changed refresh rate can change the tick length. Move to the next whole tick of the new length.
+		long now = this.clock.getTime();
+		if (now % length != 0) {
+			now += length - now % length;
+			this.clock.setTime(now);
+		}
+		
+		int due = 0;
+		for (int i = 0; i < this.phases.length; i++) {
+			if (now % Math.max(1, this.phases[i].getRefreshRate()) == 0) {
+				TickPhaseEvent event = new TickPhaseEvent();
+				event.begin();
+				this.phases[i].timedTick();
+				this.phases[i].render();
+				if (event.shouldCommit()) {
+					event.phase = TickPhaseEvent.PHASES[i];
+					event.simulatedTime = now;
+					event.commit();
+				}
+				due |= 1 << i;
+			}
+		}
+		
+		if (this.recorder != null && due != 0) {
+			this.record.setTick(now);
+			this.record.setPhases(due);
+			for (Controller phase : this.phases) {
+				phase.record(this.record);
+			}
+			synchronized (this.recording) {
+				RecordSink sink = this.recorder;
+				if (sink != null) {
+					try {
+						sink.write(this.record);
+					} catch (IOException e) {
+						// Stop recording so the error is only reported once
+						this.recorder = null;
+						this.report(EventChannel.ERROR, "Recording stopped: " + e.getMessage());
+					}
+				}
+			}
+		}
+		
+		this.clock.advance(length);
+		this.tickCount++;
+		this.getMetrics().recordTick(System.nanoTime() - start);
+	}
+
+	/***
+	Runs the simulation perpetually. Each tick starts a tick length of simulated time after the previous one started,
+	which the simulation clock's speed turns into wall time. Ticks shorter than MIN_WAIT are run in batches of
+	MIN_WAIT, and the thread waits once for the whole batch. A pause or step still stops at the end of a tick.
+	*/
+	public void run() {
+		while(true) {
+			int length = this.getTickLength();
+			long period = this.clock.toWallNanos(length);
+			long batch = (period > 0 && period < MIN_WAIT) ? MIN_WAIT / period : 1;
+			long ticks = 0;
+			do {
+				this.tick(length);
+				ticks++;
+			} while (ticks < batch && !this.isPauseRequested());
+			waitPeriod(ticks * period);
+		}
+	}
+
+}
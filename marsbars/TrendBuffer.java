@@ -0,0 +1,156 @@
+/***
+
+Trend Buffer keeps the history of one reading, such as the greenhouse temperature, for the live trend charts. The
+times and values are stored in two arrays used as a ring. The arrays start small and double as they fill up until
+they reach the capacity, so a short run only uses memory for the samples it took, and a simulation left running for
+weeks keeps only the newest samples and never uses more than the capacity.
+
+Samples are added by the one thread that runs the subsystem and read by the event dispatch thread without locking.
+Every sample ever added has an index that keeps growing, and the index of the next sample is published after the
+sample is stored, so a reader may use any index below it that has not yet been written over. Arrays that grow are
+filled in before they are published, so a reader holding an index from before keeps finding its sample. A reader
+that falls a whole capacity behind the writer can read the time of one sample and the value of a newer one, which
+only moves a single point of the chart for one frame.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+/***
+Bounded history of one reading, written by one thread and read by another.
+*/
+public class TrendBuffer {
+
+	/***
+	Samples kept when no capacity is given. A week of readings taken every second fits, at 16 bytes a sample.
+	*/
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/***
+	Samples the arrays hold before they first grow
+	*/
+	public static final int INITIAL_SIZE = 1 << 10;
+
+	/***
+	The arrays of a buffer, replaced together when they grow
+	*/
+	private static class Samples {
+
+		private long[] times;
+		private double[] values;
+		private int mask;
+
+		private Samples(int size) {
+			this.times = new long[size];
+			this.values = new double[size];
+			this.mask = size - 1;
+		}
+
+	}
+
+	private volatile Samples samples;
+	private int capacity;
+
+	// Index of the next sample, and of the first sample since the times last went backwards
+	private volatile long written = 0;
+	private volatile long start = 0;
+	private long lastTime = Long.MIN_VALUE;
+
+	/***
+	Constructor that sets how many samples are kept
+	@param capacity Most samples kept. Rounded up to a power of two, and at least 2
+	*/
+	public TrendBuffer(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.samples = new Samples(Math.min(INITIAL_SIZE, this.capacity));
+	}
+
+	// GET
+
+	/***
+	Returns how many samples are kept
+	@return capacity Most samples kept
+	*/
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/***
+	Returns the index the next sample will be added at. Every sample below it has been stored.
+	@return Number of samples ever added
+	*/
+	public long getWritten() {
+		return this.written;
+	}
+
+	/***
+	Returns the index of the oldest sample still kept. Samples before a time that went backwards, as after
+	jumping back in a playback, are not part of the trend.
+	@param end The index of the next sample, as returned by getWritten()
+	@return Index of the oldest sample
+	*/
+	public long getOldest(long end) {
+		return Math.max(this.start, end - this.samples.times.length);
+	}
+
+	/***
+	Returns the index of the first sample since the times last went backwards
+	@return start Index of the sample the trend starts at
+	*/
+	public long getStart() {
+		return this.start;
+	}
+
+	/***
+	Returns the time of a sample
+	@param index Index of the sample
+	@return The time it was taken at
+	*/
+	public long getTime(long index) {
+		Samples s = this.samples;
+		return s.times[(int)index & s.mask];
+	}
+
+	/***
+	Returns the value of a sample
+	@param index Index of the sample
+	@return The reading
+	*/
+	public double getValue(long index) {
+		Samples s = this.samples;
+		return s.values[(int)index & s.mask];
+	}
+
+	// PROCESS
+
+	/***
+	Adds a sample, growing the arrays until they reach the capacity and then writing over the oldest. A time earlier than the previous sample's
+	starts a new trend. Only one thread may add samples.
+	@param time The time the reading was taken at, in simulated milliseconds or ticks
+	@param value The reading
+	*/
+	public void add(long time, double value) {
+		long next = this.written;
+		if (time < this.lastTime) {
+			this.start = next;
+		}
+		this.lastTime = time;
+		Samples s = this.samples;
+		if (next == s.times.length && next < this.capacity) {
+			// Only grows before the ring first wraps, so every sample is still at its own index
+			Samples grown = new Samples(s.times.length * 2);
+			System.arraycopy(s.times, 0, grown.times, 0, s.times.length);
+			System.arraycopy(s.values, 0, grown.values, 0, s.values.length);
+			this.samples = grown;
+			s = grown;
+		}
+		s.times[(int)next & s.mask] = time;
+		s.values[(int)next & s.mask] = value;
+		this.written = next + 1;
+	}
+
+}
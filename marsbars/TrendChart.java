@@ -0,0 +1,242 @@
+/***
+
+Trend Chart draws the history of one reading kept in a trend buffer as a line across the chart. A buffer can hold
+millions of samples, far more than the chart has pixels, so the line is first thinned out with the Largest Triangle
+Three Buckets method: the samples are split into about one bucket per pixel and from each bucket the sample that
+makes the largest triangle with the sample picked before it and the average of the next bucket is kept. Peaks and
+dips survive, which simply taking every nth sample would miss.
+
+Buckets are a power of two samples wide and start at multiples of their width, so a bucket holds the same samples
+from frame to frame. The sample picked from each bucket is kept once the bucket after it is full, and each frame
+only looks at the samples added since the last one. Drawing a frame therefore costs about the width of the chart,
+however many samples are kept.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.awt.*;
+import javax.swing.*;
+
+/***
+Line chart of a trend buffer, thinned out to about one sample per pixel.
+*/
+public class TrendChart extends JComponent {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Color LINE = new Color(0, 102, 204);
+	private static final Color GRID = new Color(220, 220, 220);
+
+	private TrendBuffer buffer;
+
+	// Samples picked so far. selected[k % length] is the sample picked from bucket k, for buckets first to done - 1.
+	private long[] selected = new long[0];
+	private long bucket = 0;
+	private long first = 0;
+	private long done = 0;
+	private long start = -1;
+
+	// Samples drawn by the current frame, and where they are drawn
+	private long[] points = new long[0];
+	private int[] xs = new int[0];
+	private int[] ys = new int[0];
+	private char[] label = new char[32];
+
+	/***
+	Constructor that sets the buffer whose history is drawn
+	@param theBuffer The trend buffer
+	*/
+	public TrendChart(TrendBuffer theBuffer) {
+		this.buffer = theBuffer;
+		this.setPreferredSize(new Dimension(240, 70));
+		this.setFont(new Font("Arial", Font.PLAIN, 10));
+	}
+
+	// GET
+
+	/***
+	Returns the buffer whose history is drawn
+	@return buffer The trend buffer
+	*/
+	public TrendBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	/***
+	Returns a sample picked by the last call to sample
+	@param i Position of the sample among the picked ones, oldest first
+	@return Index of the sample in the buffer
+	*/
+	long getPoint(int i) {
+		return this.points[i];
+	}
+
+	// PROCESS
+
+	/***
+	Draws the trend. Called on the event dispatch thread when the chart is repainted.
+	@param g The graphics context
+	*/
+	protected void paintComponent(Graphics g) {
+
+		Insets insets = this.getInsets();
+		int width = this.getWidth() - insets.left - insets.right;
+		int height = this.getHeight() - insets.top - insets.bottom;
+		if (width < 2 || height < 2) {
+			return;
+		}
+
+		g.setColor(GRID);
+		g.drawRect(insets.left, insets.top, width - 1, height - 1);
+
+		int count = this.sample(width);
+		if (count == 0) {
+			return;
+		}
+
+		// Scale the picked samples to fill the chart
+		long t0 = this.buffer.getTime(this.points[0]);
+		long t1 = this.buffer.getTime(this.points[count - 1]);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			double value = this.buffer.getValue(this.points[i]);
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		double range = max - min;
+
+		for (int i = 0; i < count; i++) {
+			double x = (t1 > t0) ? (double)(this.buffer.getTime(this.points[i]) - t0) / (t1 - t0) : (count > 1 ? (double)i / (count - 1) : 1);
+			double y = (range > 0) ? (this.buffer.getValue(this.points[i]) - min) / range : 0.5;
+			this.xs[i] = insets.left + (int)Math.round(x * (width - 1));
+			this.ys[i] = insets.top + (height - 1) - (int)Math.round(y * (height - 1));
+		}
+
+		g.setColor(LINE);
+		g.drawPolyline(this.xs, this.ys, count);
+
+		// Range of the readings on screen
+		FontMetrics metrics = g.getFontMetrics();
+		g.setColor(Color.DARK_GRAY);
+		g.drawChars(this.label, 0, DecimalDisplay.format(max, 2, this.label), insets.left + 2, insets.top + metrics.getAscent());
+		g.drawChars(this.label, 0, DecimalDisplay.format(min, 2, this.label), insets.left + 2, insets.top + height - metrics.getDescent() - 1);
+	}
+
+	/***
+	Picks about one sample per pixel from the samples kept in the buffer into points. Called by paintComponent,
+	and by the tests without drawing.
+	@param width Width of the chart in pixels
+	@return Number of samples picked
+	*/
+	int sample(int width) {
+
+		long end = this.buffer.getWritten();
+		long oldest = this.buffer.getOldest(end);
+		long size = end - oldest;
+		if (size <= 0) {
+			return 0;
+		}
+
+		// Start over if the chart was resized, the buffer grew past the bucket width, the trend restarted,
+		// or the samples the next bucket follows on from have been written over
+		long per = Math.max(1, (size + width - 1) / width);
+		long bucketWidth = (per == 1) ? 1 : Long.highestOneBit(per - 1) << 1;
+		if (this.selected.length != width + 4 || this.bucket != bucketWidth || this.start != this.buffer.getStart()
+				|| this.done * this.bucket < oldest || this.selected(this.done - 1) < oldest) {
+			this.restart(width, bucketWidth, oldest);
+		}
+
+		// Pick from every bucket whose next bucket is full
+		long b = this.bucket;
+		while ((this.done + 2) * b <= end) {
+			long next = (this.done + 1) * b;
+			double avgTime = 0;
+			double avgValue = 0;
+			for (long i = next; i < next + b; i++) {
+				avgTime += this.buffer.getTime(i);
+				avgValue += this.buffer.getValue(i);
+			}
+			this.selected[(int)(this.done % this.selected.length)] = this.largest(this.selected(this.done - 1), Math.max(oldest, this.done * b), next, avgTime / b, avgValue / b);
+			this.done++;
+		}
+
+		// Picked samples still kept, then one from what is left before the newest sample, then the newest sample
+		int count = 0;
+		for (long k = Math.max(this.first, oldest / b); k < this.done; k++) {
+			long index = this.selected(k);
+			if (index >= oldest && (count == 0 || index > this.points[count - 1])) {
+				this.points[count++] = index;
+			}
+		}
+		long last = end - 1;
+		long from = Math.max(this.done * b, this.points[count - 1] + 1);
+		if (from < last) {
+			this.points[count] = this.largest(this.points[count - 1], from, last, this.buffer.getTime(last), this.buffer.getValue(last));
+			count++;
+		}
+		if (last > this.points[count - 1]) {
+			this.points[count++] = last;
+		}
+		return count;
+	}
+
+	/***
+	Forgets the samples picked so far and starts picking again from the oldest sample
+	@param width Width of the chart in pixels
+	@param bucketWidth Samples in a bucket
+	@param oldest Index of the oldest sample kept
+	*/
+	private void restart(int width, long bucketWidth, long oldest) {
+		if (this.selected.length != width + 4) {
+			this.selected = new long[width + 4];
+			this.points = new long[width + 6];
+			this.xs = new int[width + 6];
+			this.ys = new int[width + 6];
+		}
+		this.bucket = bucketWidth;
+		this.start = this.buffer.getStart();
+		this.first = oldest / bucketWidth;
+		this.done = this.first + 1;
+		this.selected[(int)(this.first % this.selected.length)] = oldest;
+	}
+
+	/***
+	Returns the sample picked from a bucket
+	@param k The bucket
+	@return Index of the sample
+	*/
+	private long selected(long k) {
+		return this.selected[(int)(k % this.selected.length)];
+	}
+
+	/***
+	Finds the sample that makes the largest triangle with a picked sample and a point after it
+	@param previous Index of the sample picked before
+	@param from Index of the first sample to look at
+	@param to Index after the last sample to look at
+	@param nextTime Time of the point after
+	@param nextValue Value of the point after
+	@return Index of the sample
+	*/
+	private long largest(long previous, long from, long to, double nextTime, double nextValue) {
+		double aTime = this.buffer.getTime(previous);
+		double aValue = this.buffer.getValue(previous);
+		long best = from;
+		double bestArea = -1;
+		for (long i = from; i < to; i++) {
+			double area = Math.abs((aTime - nextTime) * (this.buffer.getValue(i) - aValue) - (aTime - this.buffer.getTime(i)) * (nextValue - aValue));
+			if (area > bestArea) {
+				bestArea = area;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,256 @@
+/***
+
+View Renderer is the only way the running simulation and playback update the panels on the main GUI. Controllers
+hand it the latest data of their subsystem from their own threads. The renderer keeps only the newest data of each
+subsystem and shows all of it in one frame on the Swing event dispatch thread, at most a set number of frames per
+second. The simulation can then run far faster than the screen refreshes without flooding the event dispatch
+thread, and every panel in a frame shows the same moment of the simulation.
+
+Every update is also added to the trend chart of its subsystem, if it has one, so the charts show every tick even
+though the panels only show the newest one. A trend is only added to by the thread that runs its subsystem, so
+updates from other threads, such as a seek made with the scrub bar, are shown without being added.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.awt.event.*;
+import java.util.concurrent.atomic.*;
+import javax.swing.*;
+
+/***
+Coalesces panel updates from the controllers into frame-rate-capped updates on the event dispatch thread.
+*/
+public class ViewRenderer {
+
+	/***
+	Frames per second when no rate is given
+	*/
+	public static final int DEFAULT_FPS = 30;
+
+	private Controller[] phases;
+	private TrendChart[] trends = new TrendChart[RecordingFormat.PREFIXES.length];
+
+	// Newest data of each subsystem waiting for the next frame. Bit n of a mask is set if subsystem n has new data,
+	// in pendingRecorded if the data came from a recording and should be shown in full.
+	private TickRecord pending = new TickRecord();
+	private int pendingPhases = 0;
+	private int pendingRecorded = 0;
+
+	// Data shown by the frame being drawn. Only used on the event dispatch thread.
+	private TickRecord frame = new TickRecord();
+
+	// How far into a recording the playback is, from 0 to 1, or -1 when nothing is played back
+	private volatile double position = -1;
+
+	private AtomicBoolean framePosted = new AtomicBoolean(false);
+	private volatile long frameLength;
+	private volatile long lastFrame = 0;
+	private AtomicLong framesDrawn = new AtomicLong(0);
+	private AtomicLong updates = new AtomicLong(0);
+
+	private Runnable drawFrame = new Runnable() {
+		public void run() {
+			draw();
+		}
+	};
+	private Timer frameTimer;
+	
+	private SimulationClock clock;
+	private GUI mainGUI;
+
+	/***
+	Constructor that takes the controllers whose panels are drawn, in subsystem order
+	@param framesPerSecond Most frames drawn each second
+	@param envCont Environment controller
+	@param tempCont Temperature controller
+	@param humidCont Humidity controller
+	@param moistCont Soil moisture controller
+	*/
+	public ViewRenderer(int framesPerSecond, EnvironmentController envCont, TemperatureController tempCont, HumidityController humidCont, MoistureController moistCont) {
+		this.phases = new Controller[] {envCont, tempCont, humidCont, moistCont};
+		this.setFramesPerSecond(framesPerSecond);
+
+		// Fires once on the event dispatch thread when a frame comes in before the previous one is old enough
+		this.frameTimer = new Timer(0, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				draw();
+			}
+		});
+		this.frameTimer.setRepeats(false);
+	}
+
+	// GET
+
+	/***
+	Returns how many frames have been drawn
+	@return Number of frames
+	*/
+	public long getFramesDrawn() {
+		return this.framesDrawn.get();
+	}
+
+	/***
+	Returns how many updates the controllers have handed over. Updates that arrive between two frames are merged,
+	so this is usually larger than the number of frames.
+	@return Number of updates
+	*/
+	public long getUpdates() {
+		return this.updates.get();
+	}
+
+	// SET
+	
+	/***
+	Shows the simulated time of the clock on the main GUI with every frame
+	@param theClock The simulation clock
+	@param gui The main GUI
+	*/
+	public void setClock(SimulationClock theClock, GUI gui) {
+		this.clock = theClock;
+		this.mainGUI = gui;
+	}
+
+	/***
+	Adds the current reading of a subsystem to a trend chart with every update, and redraws the chart with every frame
+	@param subsystem One of RecordingFormat.TEMPERATURE, HUMIDITY, or MOISTURE
+	@param chart The chart on the subsystem's panel
+	*/
+	public void setTrend(int subsystem, TrendChart chart) {
+		this.trends[subsystem] = chart;
+	}
+
+	/***
+	Hands over how far into a recording the playback is. The scrub bar on the main GUI is moved with the next frame.
+	@param fraction How far into the recording the playback is, from 0 (start) to 1 (end)
+	*/
+	public void setPosition(double fraction) {
+		this.position = Math.max(0, Math.min(1, fraction));
+		this.requestFrame();
+	}
+
+	/***
+	Sets the most frames drawn each second
+	@param framesPerSecond Frames per second. At least 1
+	*/
+	public void setFramesPerSecond(int framesPerSecond) {
+		this.frameLength = 1000000000L / Math.max(1, framesPerSecond);
+	}
+
+	/***
+	Hands over the newest data of a controller's subsystem. Only the controller's own columns are used.
+	@param controller The controller the data belongs to
+	@param record The data. It is copied so the caller can reuse it
+	@param recorded Whether the data was played back from a recording. Recorded data is shown in full, live data
+	only updates the current reading and device of the panel.
+	*/
+	public void update(Controller controller, TickRecord record, boolean recorded) {
+		this.update(controller, record, recorded, true);
+	}
+
+	/***
+	Hands over the newest data of a controller's subsystem, and adds it to the subsystem's trend chart only if asked
+	@param controller The controller the data belongs to
+	@param record The data. It is copied so the caller can reuse it
+	@param recorded Whether the data was played back from a recording
+	@param trend Whether to add the reading to the trend chart. Only the thread that runs the subsystem may add to it
+	*/
+	public void update(Controller controller, TickRecord record, boolean recorded, boolean trend) {
+
+		int subsystem = -1;
+		for (int s = 0; s < this.phases.length; s++) {
+			if (this.phases[s] == controller) {
+				subsystem = s;
+			}
+		}
+		if (subsystem < 0) {
+			return;
+		}
+
+		// Live data is timed by the simulation clock, recorded data by its own tick
+		TrendChart chart = this.trends[subsystem];
+		if (chart != null && trend) {
+			SimulationClock c = this.clock;
+			chart.getBuffer().add((recorded || c == null) ? record.getTick() : c.getTime(), record.get(subsystem, 0));
+		}
+
+		synchronized (this) {
+			this.pending.copyFrom(record, subsystem);
+			this.pendingPhases |= 1 << subsystem;
+			if (recorded) {
+				this.pendingRecorded |= 1 << subsystem;
+			} else {
+				this.pendingRecorded &= ~(1 << subsystem);
+			}
+		}
+		this.updates.incrementAndGet();
+		this.requestFrame();
+	}
+
+	/***
+	Asks for a frame to be drawn on the event dispatch thread, no sooner than the frame rate allows
+	*/
+	private void requestFrame() {
+
+		// Only one frame is waiting at a time. It draws whatever is newest when it runs.
+		if (this.framePosted.compareAndSet(false, true)) {
+			long wait = this.lastFrame + this.frameLength - System.nanoTime();
+			if (wait <= 0) {
+				SwingUtilities.invokeLater(this.drawFrame);
+			} else {
+				this.frameTimer.setInitialDelay((int)Math.max(1, wait / 1000000));
+				this.frameTimer.restart();
+			}
+		}
+	}
+
+	/***
+	Draws one frame on the event dispatch thread with the newest data of every subsystem
+	*/
+	private void draw() {
+
+		this.lastFrame = System.nanoTime();
+
+		// Data handed over from here on goes into the next frame
+		this.framePosted.set(false);
+
+		int due;
+		int recorded;
+		synchronized (this) {
+			TickRecord swap = this.frame;
+			this.frame = this.pending;
+			this.pending = swap;
+			due = this.pendingPhases;
+			recorded = this.pendingRecorded;
+			this.pendingPhases = 0;
+			this.pendingRecorded = 0;
+		}
+
+		// Columns of a subsystem are only read once its bit is set, and the bit is only set after they were all copied
+		for (int s = 0; s < this.phases.length; s++) {
+			if ((due & (1 << s)) != 0) {
+				if ((recorded & (1 << s)) != 0) {
+					this.phases[s].display(this.frame);
+				} else {
+					this.phases[s].show(this.frame);
+				}
+				if (this.trends[s] != null) {
+					this.trends[s].repaint();
+				}
+			}
+		}
+		double p = this.position;
+		if (p >= 0 && this.mainGUI != null) {
+			this.mainGUI.setScrubPosition(p);
+		}
+		if (this.clock != null) {
+			this.mainGUI.setSimulatedTime(SimulationClock.format(this.clock.getTime()));
+		}
+		this.framesDrawn.incrementAndGet();
+	}
+
+}
@@ -0,0 +1,66 @@
+/***
+
+Weather moves the external temperature, humidity, and soil moisture rates of one greenhouse from tick to tick with
+their external drivers. Every replica of a Monte Carlo run gets its own weather with its own stream of random numbers,
+so the weather a replica sees depends only on the stream it was handed and not on the thread that runs it.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import java.util.*;
+
+/***
+The changing external rates of one greenhouse and the random numbers that drive them.
+*/
+public class Weather {
+
+	private ExternalDriver tempDriver;
+	private ExternalDriver humidDriver;
+	private ExternalDriver moistDriver;
+	private SplittableRandom random;
+
+	private double tempMean;
+	private double humidMean;
+	private double moistMean;
+
+	private double tempRate;
+	private double humidRate;
+	private double moistRate;
+
+	/***
+	Creates the weather of one greenhouse. The rates start at, and wander around, the external rates in the config.
+	@param config The config holding the usual external rates
+	@param tdriver Driver of the external temperature rate
+	@param hdriver Driver of the external humidity rate
+	@param mdriver Driver of the external soil moisture rate
+	@param theRandom The random numbers of this greenhouse alone
+	*/
+	public Weather(SimulationConfig config, ExternalDriver tdriver, ExternalDriver hdriver, ExternalDriver mdriver, SplittableRandom theRandom) {
+		this.tempDriver = tdriver;
+		this.humidDriver = hdriver;
+		this.moistDriver = mdriver;
+		this.random = theRandom;
+		this.tempMean = this.tempRate = config.get("extTempRate");
+		this.humidMean = this.humidRate = config.get("extHumidRate");
+		this.moistMean = this.moistRate = config.get("extMoistRate");
+	}
+
+	// PROCESS
+
+	/***
+	Moves every rate forward by one tick and hands them to the environment model
+	@param envModel The environment model that applies the external effects on the next tick
+	*/
+	public void step(EnvironmentModel envModel) {
+		this.tempRate = this.tempDriver.next(this.tempRate, this.tempMean, this.random);
+		this.humidRate = this.humidDriver.next(this.humidRate, this.humidMean, this.random);
+		this.moistRate = this.moistDriver.next(this.moistRate, this.moistMean, this.random);
+		envModel.setExternalRates(this.tempRate, this.humidRate, this.moistRate);
+	}
+
+}
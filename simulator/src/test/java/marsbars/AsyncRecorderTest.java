@@ -0,0 +1,224 @@
+/***
+
+Tests that the asynchronous recorder hands every record to its save file in the order the simulation wrote it,
+while the ring of records wraps around many times, and that a full ring either waits or drops records as asked.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.*;
+
+/***
+Tests of AsyncRecorder.
+*/
+public class AsyncRecorderTest {
+
+	/***
+	Many more records than the ring holds reach the save file in order, with nothing dropped, when the file is
+	sometimes slower than the simulation
+	@throws Exception Throws an error if the records cannot be written
+	*/
+	@Test
+	public void blockingRecorderKeepsOrderAcrossWraparound() throws Exception {
+		ListSink sink = new ListSink();
+		sink.slowEvery = 997;
+		AsyncRecorder recorder = new AsyncRecorder(sink, 8, 1, AsyncRecorder.BLOCK);
+		assertEquals(8, recorder.getCapacity());
+
+		TickRecord record = new TickRecord();
+		int count = 20000;
+		for (int i = 0; i < count; i++) {
+			record.setTick(i);
+			record.set(0, i * 0.5);
+			recorder.write(record);
+		}
+		recorder.close();
+
+		assertTrue(sink.closed);
+		assertEquals(0, recorder.getDropped());
+		assertEquals(count, recorder.getRecords());
+		assertEquals(0, recorder.getPending());
+		assertEquals(count, sink.ticks.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, (long)sink.ticks.get(i), "Record " + i);
+			assertEquals(i * 0.5, sink.values.get(i), "Record " + i);
+		}
+	}
+
+	/***
+	A ring size that is not a power of two is rounded up to the next one, and the ring holds at least 2 records
+	@throws Exception Throws an error if a recorder cannot be closed
+	*/
+	@Test
+	public void capacityRoundsUpToPowerOfTwo() throws Exception {
+		for (int capacity = 1; capacity <= 65; capacity++) {
+			AsyncRecorder recorder = new AsyncRecorder(new ListSink(), capacity, 1000, AsyncRecorder.BLOCK);
+			int size = 2;
+			while (size < capacity) {
+				size *= 2;
+			}
+			assertEquals(size, recorder.getCapacity(), "Capacity " + capacity);
+			recorder.close();
+		}
+	}
+
+	/***
+	While the save file is stuck, the ring fills and every record after that is dropped and counted. The records
+	that fit are still written in order once the file moves again.
+	@throws Exception Throws an error if the records cannot be written
+	*/
+	@Test
+	public void droppingRecorderCountsRecordsThatDoNotFit() throws Exception {
+		ListSink sink = new ListSink();
+		sink.gate = new CountDownLatch(1);
+		AsyncRecorder recorder = new AsyncRecorder(sink, 8, 1000, AsyncRecorder.DROP);
+
+		TickRecord record = new TickRecord();
+		for (int i = 0; i < 13; i++) {
+			record.setTick(i);
+			recorder.write(record);
+		}
+		assertEquals(5, recorder.getDropped());
+		assertEquals(13, recorder.getRecords());
+		assertEquals(8, recorder.getPending());
+
+		sink.gate.countDown();
+		recorder.close();
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L), sink.ticks);
+	}
+
+	/***
+	A flush returns once every record written before it is in the save file, and the save file has been flushed
+	@throws Exception Throws an error if the records cannot be written
+	*/
+	@Test
+	public void flushWaitsForWrittenRecords() throws Exception {
+		ListSink sink = new ListSink();
+		AsyncRecorder recorder = new AsyncRecorder(sink, 64, 60000, AsyncRecorder.BLOCK);
+		TickRecord record = new TickRecord();
+		for (int round = 1; round <= 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				recorder.write(record);
+			}
+			recorder.flush();
+			assertEquals(round * 100, sink.size());
+			assertTrue(sink.flushes >= round);
+		}
+		recorder.close();
+	}
+
+	/***
+	An error writing the save file is thrown to the simulation instead of being lost on the writer thread
+	@throws Exception Throws an error if the recorder cannot be made
+	*/
+	@Test
+	public void writerErrorReachesSimulation() throws Exception {
+		ListSink sink = new ListSink();
+		sink.failAt = 3;
+		sink.gate = new CountDownLatch(1);
+		AsyncRecorder recorder = new AsyncRecorder(sink, 8, 1000, AsyncRecorder.BLOCK);
+		TickRecord record = new TickRecord();
+		for (int i = 0; i < 5; i++) {
+			recorder.write(record);
+		}
+		sink.gate.countDown();
+		IOException error = assertThrows(IOException.class, new Executable() {
+			public void execute() throws Throwable {
+				recorder.close();
+			}
+		});
+		assertEquals("Disk full", error.getMessage());
+		assertTrue(sink.closed);
+	}
+
+	/***
+	Sink that keeps the tick and first column of every record it is given, and can be made slow, stuck, or broken.
+	*/
+	private static class ListSink implements RecordSink {
+
+		private List<Long> ticks = Collections.synchronizedList(new ArrayList<Long>());
+		private List<Double> values = Collections.synchronizedList(new ArrayList<Double>());
+		private volatile int flushes = 0;
+		private volatile boolean closed = false;
+
+		// Sleep for a millisecond after every this many records, or never if 0
+		private int slowEvery = 0;
+
+		// Hold every record until the gate opens, if there is a gate
+		private CountDownLatch gate;
+
+		// Fail on this record, or never if negative
+		private int failAt = -1;
+
+		/***
+		Keeps the record's tick and first column
+		@param record The tick's data
+		@throws IOException Throws an error on the record it was told to fail on
+		*/
+		public void write(TickRecord record) throws IOException {
+			if (this.gate != null) {
+				try {
+					this.gate.await();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			if (this.ticks.size() == this.failAt) {
+				throw new IOException("Disk full");
+			}
+			this.ticks.add(record.getTick());
+			this.values.add(record.get(0));
+			if (this.slowEvery > 0 && this.ticks.size() % this.slowEvery == 0) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+
+		/***
+		Counts the flush
+		*/
+		public void flush() {
+			this.flushes++;
+		}
+
+		/***
+		Marks the sink closed
+		*/
+		public void close() {
+			this.closed = true;
+		}
+
+		/***
+		Returns how many records were kept
+		@return Number of records
+		*/
+		public int size() {
+			return this.ticks.size();
+		}
+
+		/***
+		Returns a made up size of 8 bytes per record kept
+		@return Number of bytes
+		*/
+		public long getBytesWritten() {
+			return 8L * this.ticks.size();
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+/***
+
+Tests that the numbers the views show are written the same as String.format would write them, including numbers
+that sit on a half at the decimals shown and negative numbers that round to zero.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import javax.swing.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of DecimalDisplay.
+*/
+public class DecimalDisplayTest {
+
+	/***
+	Numbers on grids of half hundredths from -1000 to 1000 and half thousandths from -100 to 100, many of which sit
+	on a half at the decimals shown, are written the same as String.format
+	*/
+	@Test
+	public void gridMatchesStringFormat() {
+		for (int decimals = 0; decimals <= 6; decimals++) {
+			for (int k = -200000; k <= 200000; k += 13) {
+				assertFormatMatches(k / 200.0, decimals);
+				assertFormatMatches(k / 2000.0, decimals);
+			}
+		}
+	}
+
+	/***
+	Random readings, tiny numbers, and random bit patterns small enough to round to a long are written the same as
+	String.format
+	*/
+	@Test
+	public void randomValuesMatchStringFormat() {
+		Random random = new Random(233);
+		for (int i = 0; i < 50000; i++) {
+			int decimals = random.nextInt(7);
+			assertFormatMatches(random.nextDouble() * 400 - 200, decimals);
+			assertFormatMatches(random.nextGaussian() * 1e-3, decimals);
+			double bits = Double.longBitsToDouble(random.nextLong());
+			if (Math.abs(bits) < 1e11) {
+				assertFormatMatches(bits, decimals);
+			}
+		}
+	}
+
+	/***
+	Zero, negative zero, and negative numbers that round to zero keep the sign String.format gives them
+	*/
+	@Test
+	public void signOfZeroMatchesStringFormat() {
+		double[] values = {0.0, -0.0, -0.001, 0.001, -0.004999, -0.005, -Double.MIN_VALUE, Double.MIN_VALUE};
+		for (double value : values) {
+			for (int decimals = 0; decimals <= 6; decimals++) {
+				assertFormatMatches(value, decimals);
+			}
+		}
+		char[] buffer = new char[32];
+		assertEquals("-0.00", new String(buffer, 0, DecimalDisplay.format(-0.001, 2, buffer)));
+	}
+
+	/***
+	Numbers already in units of the last decimal are written with their decimals filled in
+	*/
+	@Test
+	public void unitsAreWrittenWithDecimals() {
+		char[] buffer = new char[32];
+		assertEquals("21.50", new String(buffer, 0, DecimalDisplay.format(2150L, 2, buffer)));
+		assertEquals("-0.05", new String(buffer, 0, DecimalDisplay.format(-5L, 2, buffer)));
+		assertEquals("0.000007", new String(buffer, 0, DecimalDisplay.format(7L, 6, buffer)));
+		assertEquals("-42", new String(buffer, 0, DecimalDisplay.format(-42L, 0, buffer)));
+	}
+
+	/***
+	A field shows what String.format gives, changes when the sign of a zero changes, and shows numbers too large
+	to round to a long the way String.format does
+	*/
+	@Test
+	public void fieldShowsStringFormat() {
+		JTextField field = new JTextField();
+		DecimalDisplay display = new DecimalDisplay(field, 2);
+		double[] values = {21.5, 21.504, 0.145, -0.001, 0.001, -0.0, 0.0, 1e20, Double.NaN, Double.NEGATIVE_INFINITY, 33.333};
+		for (double value : values) {
+			display.setValue(value);
+			assertEquals(String.format("%.2f", value), field.getText(), "Value " + value);
+		}
+
+		// Text typed into the field is replaced by the next number, even one that rounds to the last shown
+		field.setText("typed");
+		display.setValue(33.333);
+		assertEquals("33.33", field.getText());
+	}
+
+	/***
+	Checks a number is written the same as String.format writes it
+	@param value The number
+	@param decimals Decimals shown
+	*/
+	private static void assertFormatMatches(double value, int decimals) {
+		char[] buffer = new char[32];
+		String expected = String.format("%." + decimals + "f", value);
+		assertEquals(expected, new String(buffer, 0, DecimalDisplay.format(value, decimals, buffer)), "Value " + value + " with " + decimals + " decimals");
+	}
+
+}
@@ -0,0 +1,201 @@
+/***
+
+Tests that the event channel merges repeats of the same event into one with a count, delivers each event at most
+once per interval, and never loses a count when many threads publish while another drains.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of EventChannel.
+*/
+public class EventChannelTest {
+
+	/***
+	Repeats of a message are delivered once with how many times it happened, and nothing is delivered again until
+	it happens again
+	*/
+	@Test
+	public void repeatsAreMergedIntoOneEvent() {
+		EventChannel channel = new EventChannel(0);
+		for (int i = 0; i < 1000; i++) {
+			channel.publish(EventChannel.WARNING, "Temperature", "Reading out of range");
+		}
+		List<SimulationEvent> events = new ArrayList<SimulationEvent>();
+		assertEquals(1, channel.drain(collect(events)));
+		assertEvent(events.get(0), EventChannel.WARNING, "Temperature", "Reading out of range", 1000, 1000);
+
+		assertEquals(0, channel.drain(collect(events)));
+
+		channel.publish(EventChannel.WARNING, "Temperature", "Reading out of range");
+		assertEquals(1, channel.drain(collect(events)));
+		assertEvent(events.get(1), EventChannel.WARNING, "Temperature", "Reading out of range", 1, 1001);
+	}
+
+	/***
+	An event is not delivered again within its interval, and what happened meanwhile is counted in the next delivery
+	*/
+	@Test
+	public void deliveriesAreRateLimited() {
+		EventChannel channel = new EventChannel(60000);
+		List<SimulationEvent> events = new ArrayList<SimulationEvent>();
+		channel.publish(EventChannel.ERROR, "Recorder", "Disk full");
+		assertEquals(1, channel.drain(collect(events)));
+
+		for (int i = 0; i < 5; i++) {
+			channel.publish(EventChannel.ERROR, "Recorder", "Disk full");
+			assertEquals(0, channel.drain(collect(events)));
+		}
+
+		// A different event is not held back by the first one's interval
+		channel.publish(EventChannel.ERROR, "Playback", "Disk full");
+		assertEquals(1, channel.drain(collect(events)));
+
+		channel.setInterval(0);
+		assertEquals(1, channel.drain(collect(events)));
+		assertEquals(3, events.size());
+		assertEvent(events.get(2), EventChannel.ERROR, "Recorder", "Disk full", 5, 6);
+	}
+
+	/***
+	Each message of each subsystem is its own event, an error raises the level of a warning with the same message,
+	and a missing message still makes an event
+	*/
+	@Test
+	public void messagesAndSourcesAreKeptApart() {
+		EventChannel channel = new EventChannel(0);
+		channel.publish(EventChannel.WARNING, "Humidity", "Sensor stuck");
+		channel.publish(EventChannel.WARNING, "Moisture", "Sensor stuck");
+		channel.publish(EventChannel.WARNING, "Moisture", "Sensor stuck");
+		channel.publish(EventChannel.WARNING, "Moisture", "Sprinkler jammed");
+		channel.publish(EventChannel.ERROR, "Moisture", "Sprinkler jammed");
+		channel.publish(EventChannel.ERROR, "Environment", null);
+
+		Map<String, SimulationEvent> events = new HashMap<String, SimulationEvent>();
+		assertEquals(4, channel.drain(new EventSink() {
+			public void deliver(SimulationEvent event) {
+				assertNull(events.put(event.getSource() + ": " + event.getMessage(), event));
+			}
+		}));
+		assertEvent(events.get("Humidity: Sensor stuck"), EventChannel.WARNING, "Humidity", "Sensor stuck", 1, 1);
+		assertEvent(events.get("Moisture: Sensor stuck"), EventChannel.WARNING, "Moisture", "Sensor stuck", 2, 2);
+		assertEvent(events.get("Moisture: Sprinkler jammed"), EventChannel.ERROR, "Moisture", "Sprinkler jammed", 2, 2);
+		assertEvent(events.get("Environment: Unknown error"), EventChannel.ERROR, "Environment", "Unknown error", 1, 1);
+	}
+
+	/***
+	Messages of a subsystem past MAX_MESSAGES are merged into one event that shows the newest of them
+	*/
+	@Test
+	public void tooManyMessagesAreMerged() {
+		EventChannel channel = new EventChannel(0);
+		for (int i = 0; i < EventChannel.MAX_MESSAGES + 10; i++) {
+			channel.publish(EventChannel.WARNING, "Temperature", "Reading " + i);
+		}
+		List<SimulationEvent> events = new ArrayList<SimulationEvent>();
+		assertEquals(EventChannel.MAX_MESSAGES + 1, channel.drain(collect(events)));
+
+		long total = 0;
+		for (SimulationEvent event : events) {
+			total += event.getCount();
+		}
+		assertEquals(EventChannel.MAX_MESSAGES + 10, total);
+		SimulationEvent merged = events.get(events.size() - 1);
+		assertEvent(merged, EventChannel.WARNING, "Temperature", "Reading " + (EventChannel.MAX_MESSAGES + 9), 10, 10);
+	}
+
+	/***
+	Counts published by many threads at once, while another thread keeps draining, all reach the sink
+	@throws Exception Throws an error if a thread is interrupted
+	*/
+	@Test
+	public void concurrentPublishersLoseNoCounts() throws Exception {
+		EventChannel channel = new EventChannel(0);
+		int threads = 8;
+		int each = 20000;
+		Thread[] publishers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final String source = "Source " + (t % 3);
+			publishers[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < each; i++) {
+						channel.publish((i % 2 == 0) ? EventChannel.WARNING : EventChannel.ERROR, source, "Message " + (i % 5));
+					}
+				}
+			});
+			publishers[t].start();
+		}
+
+		long[] counts = new long[1];
+		Map<String, Long> totals = new HashMap<String, Long>();
+		EventSink sink = new EventSink() {
+			public void deliver(SimulationEvent event) {
+				counts[0] += event.getCount();
+				totals.put(event.getSource() + ": " + event.getMessage(), event.getTotal());
+			}
+		};
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (Thread publisher : publishers) {
+				running |= publisher.isAlive();
+			}
+			channel.drain(sink);
+		}
+		for (Thread publisher : publishers) {
+			publisher.join();
+		}
+		channel.drain(sink);
+
+		assertEquals((long)threads * each, counts[0]);
+		long total = 0;
+		for (long t : totals.values()) {
+			total += t;
+		}
+		assertEquals((long)threads * each, total);
+		assertEquals(15, totals.size());
+	}
+
+	/***
+	A sink that adds every event it is handed to a list
+	@param events The list
+	@return The sink
+	*/
+	private static EventSink collect(final List<SimulationEvent> events) {
+		return new EventSink() {
+			public void deliver(SimulationEvent event) {
+				events.add(event);
+			}
+		};
+	}
+
+	/***
+	Checks what an event says
+	@param event The event
+	@param level Expected level
+	@param source Expected subsystem
+	@param message Expected message
+	@param count Expected times since it was last delivered
+	@param total Expected times since the start
+	*/
+	private static void assertEvent(SimulationEvent event, int level, String source, String message, long count, long total) {
+		assertNotNull(event, source + ": " + message);
+		assertEquals(level, event.getLevel());
+		assertEquals(source, event.getSource());
+		assertEquals(message, event.getMessage());
+		assertEquals(count, event.getCount());
+		assertEquals(total, event.getTotal());
+	}
+
+}
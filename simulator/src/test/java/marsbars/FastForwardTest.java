@@ -0,0 +1,155 @@
+/***
+
+Tests that jumping over the ticks between device switches ends in the same state as stepping through every tick.
+Rates and readings that are whole numbers of eighths add up without rounding, so both ways must give the same bits.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of SimulationEngine.fastForward.
+*/
+public class FastForwardTest {
+
+	/***
+	The default scenario ends in the same state both ways, after a run long enough for every device to cycle
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	@Test
+	public void defaultScenarioMatchesRun() throws Exception {
+		assertFastForwardMatchesRun(new SimulationConfig(), 100000);
+	}
+
+	/***
+	Random scenarios end in the same state both ways, after runs of random lengths
+	@throws Exception Throws an error if a scenario is rejected
+	*/
+	@Test
+	public void randomScenariosMatchRun() throws Exception {
+		Random random = new Random(233);
+		for (int i = 0; i < 500; i++) {
+			SimulationConfig config = new SimulationConfig();
+			config.set("startTemp", eighths(random, -80, 80));
+			config.set("startHumid", eighths(random, 0, 100));
+			config.set("startMoist", eighths(random, 0, 100));
+			config.set("extTempRate", eighths(random, -2, 2));
+			config.set("extHumidRate", eighths(random, -2, 2));
+			config.set("extMoistRate", eighths(random, -2, 2));
+			double tempLower = eighths(random, -40, 40);
+			config.set("tempLower", tempLower);
+			config.set("tempUpper", tempLower + eighths(random, 0, 20));
+			config.set("heatRate", eighths(random, 1, 8) / 4);
+			config.set("coolRate", eighths(random, 1, 8) / 4);
+			double humidLower = eighths(random, 0, 80);
+			config.set("humidLower", humidLower);
+			config.set("humidUpper", humidLower + eighths(random, 0, 20));
+			config.set("humidRate", eighths(random, 1, 8) / 4);
+			double moistLower = eighths(random, 0, 80);
+			config.set("moistLower", moistLower);
+			config.set("moistUpper", moistLower + eighths(random, 0, 20));
+			config.set("moistRate", eighths(random, 1, 8) / 4);
+			assertFastForwardMatchesRun(config, 1 + random.nextInt(20000));
+		}
+	}
+
+	/***
+	Readings driven into their physical limits are held there the same way both ways
+	@throws Exception Throws an error if a scenario is rejected
+	*/
+	@Test
+	public void clampedReadingsMatchRun() throws Exception {
+
+		// The external effects outrun every device, so each reading ends pinned at a limit
+		SimulationConfig low = new SimulationConfig();
+		low.set("extTempRate", -3.5);
+		low.set("extHumidRate", -6.25);
+		low.set("extMoistRate", -9.5);
+		assertFastForwardMatchesRun(low, 5000);
+
+		SimulationConfig high = new SimulationConfig();
+		high.set("extTempRate", 2.75);
+		high.set("extHumidRate", 1.5);
+		high.set("extMoistRate", 0.125);
+		high.set("humidLower", 0);
+		high.set("moistLower", 0);
+		assertFastForwardMatchesRun(high, 5000);
+
+		// Starting at the limits, with devices pushing further past them
+		SimulationConfig edge = new SimulationConfig();
+		edge.set("startTemp", TemperatureModel.TOASTY);
+		edge.set("startHumid", HumidityModel.MINHUMIDITY);
+		edge.set("startMoist", MoistureModel.MAXMOISTURE);
+		edge.set("extTempRate", 0.5);
+		edge.set("extHumidRate", -0.5);
+		edge.set("extMoistRate", 0.5);
+		edge.set("humidLower", 90);
+		edge.set("humidUpper", 95);
+		assertFastForwardMatchesRun(edge, 5000);
+	}
+
+	/***
+	A run of no ticks or a single tick leaves both ways on the same state
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	@Test
+	public void shortRunsMatchRun() throws Exception {
+		for (long ticks = 0; ticks < 4; ticks++) {
+			assertFastForwardMatchesRun(new SimulationConfig(), ticks);
+		}
+	}
+
+	/***
+	Runs a scenario both ways and checks every reading, device, and the tick count are the same
+	@param config The scenario
+	@param ticks Number of ticks to run
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	private static void assertFastForwardMatchesRun(SimulationConfig config, long ticks) throws Exception {
+		SimulationEngine stepped = SimulationEngine.create(config);
+		SimulationEngine jumped = SimulationEngine.create(config);
+		stepped.run(ticks);
+		jumped.fastForward(ticks);
+
+		String message = config + " for " + ticks + " ticks";
+		assertEquals(stepped.getTickCount(), jumped.getTickCount(), message);
+
+		TemperatureModel.State temp = stepped.getTemperatureModel().getState();
+		TemperatureModel.State fastTemp = jumped.getTemperatureModel().getState();
+		assertEquals(Double.doubleToLongBits(temp.getCurrentTemp()), Double.doubleToLongBits(fastTemp.getCurrentTemp()), message);
+		assertEquals(temp.getFurnace(), fastTemp.getFurnace(), message);
+		assertEquals(temp.getAirCon(), fastTemp.getAirCon(), message);
+
+		HumidityModel.State humid = stepped.getHumidityModel().getState();
+		HumidityModel.State fastHumid = jumped.getHumidityModel().getState();
+		assertEquals(Double.doubleToLongBits(humid.getCurrentHumidity()), Double.doubleToLongBits(fastHumid.getCurrentHumidity()), message);
+		assertEquals(humid.getHumidifier(), fastHumid.getHumidifier(), message);
+
+		MoistureModel.State moist = stepped.getMoistureModel().getState();
+		MoistureModel.State fastMoist = jumped.getMoistureModel().getState();
+		assertEquals(Double.doubleToLongBits(moist.getCurrentMoisture()), Double.doubleToLongBits(fastMoist.getCurrentMoisture()), message);
+		assertEquals(moist.getSprinkler(), fastMoist.getSprinkler(), message);
+	}
+
+	/***
+	Picks a random whole number of eighths in a range
+	@param random The random numbers
+	@param low Lowest value
+	@param high Highest value
+	@return The value
+	*/
+	private static double eighths(Random random, int low, int high) {
+		return low + random.nextInt(8 * (high - low) + 1) / 8.0;
+	}
+
+}
@@ -0,0 +1,94 @@
+/***
+
+Tests that a Monte Carlo run gives the same statistics on any number of worker threads. Each replica's random
+numbers are split off by its position, not by the worker that runs it, and the halves of the run are merged in
+order, so the statistics must match bit for bit.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of MonteCarloSimulator.run.
+*/
+public class MonteCarloSimulatorTest {
+
+	private static final int[] METRICS = {
+		ReplicaStatistics.TEMP_IN_RANGE, ReplicaStatistics.HUMID_IN_RANGE, ReplicaStatistics.MOIST_IN_RANGE,
+		ReplicaStatistics.FURNACE_DUTY, ReplicaStatistics.AIRCON_DUTY, ReplicaStatistics.HUMIDIFIER_DUTY, ReplicaStatistics.SPRINKLER_DUTY
+	};
+
+	/***
+	The same seed gives the same statistics on one worker as on several, for runs that split into many tasks and
+	runs smaller than a batch
+	*/
+	@Test
+	public void sameSeedMatchesOnAnyNumberOfWorkers() {
+		MonteCarloSimulator simulator = simulator();
+		for (int replicas : new int[] {1, MonteCarloSimulator.BATCH_REPLICAS - 1, 203}) {
+			ReplicaStatistics single = simulator.run(replicas, 3000, 1, 233);
+			assertEquals(replicas, single.getCount());
+			assertEquals(0, single.getFailures());
+			for (int threads : new int[] {2, 3, 8}) {
+				assertStatisticsEqual(single, simulator.run(replicas, 3000, threads, 233), replicas + " replicas on " + threads + " workers");
+			}
+		}
+	}
+
+	/***
+	A different seed gives different weather, so the statistics are not the same
+	*/
+	@Test
+	public void differentSeedGivesDifferentStatistics() {
+		MonteCarloSimulator simulator = simulator();
+		ReplicaStatistics first = simulator.run(100, 3000, 4, 233);
+		ReplicaStatistics second = simulator.run(100, 3000, 4, 234);
+		assertNotEquals(first.toString(), second.toString());
+	}
+
+	/***
+	Makes a simulator whose every external rate is moved by a different kind of random process
+	@return The simulator
+	*/
+	private static MonteCarloSimulator simulator() {
+		SimulationConfig config = new SimulationConfig();
+		config.set("extTempRate", 0.5);
+		config.set("extHumidRate", -1);
+		config.set("extMoistRate", -2);
+		MonteCarloSimulator simulator = new MonteCarloSimulator(config);
+		simulator.setDrivers(new ExternalDriver(ExternalDriver.ORNSTEIN_UHLENBECK, 0.3, 0.05, 0),
+				new ExternalDriver(ExternalDriver.RANDOM_WALK, 0.2, 0, 0),
+				new ExternalDriver(ExternalDriver.GUSTS, 4, 0, 0.01));
+		return simulator;
+	}
+
+	/***
+	Checks two runs have the same count, failures, and bits in the mean, minimum, maximum, and quantiles of every metric
+	@param expected Statistics of the run on one worker
+	@param actual Statistics of the run on several workers
+	@param message Which run is checked
+	*/
+	private static void assertStatisticsEqual(ReplicaStatistics expected, ReplicaStatistics actual, String message) {
+		assertEquals(expected.getCount(), actual.getCount(), message);
+		assertEquals(expected.getFailures(), actual.getFailures(), message);
+		for (int metric : METRICS) {
+			String which = message + ", metric " + metric;
+			assertEquals(Double.doubleToLongBits(expected.getMean(metric)), Double.doubleToLongBits(actual.getMean(metric)), which);
+			assertEquals(Double.doubleToLongBits(expected.getMin(metric)), Double.doubleToLongBits(actual.getMin(metric)), which);
+			assertEquals(Double.doubleToLongBits(expected.getMax(metric)), Double.doubleToLongBits(actual.getMax(metric)), which);
+			for (double share : new double[] {0.05, 0.5, 0.95}) {
+				assertEquals(Double.doubleToLongBits(expected.getQuantile(metric, share)), Double.doubleToLongBits(actual.getQuantile(metric, share)), which);
+			}
+		}
+		assertEquals(expected.toString(), actual.toString(), message);
+	}
+
+}
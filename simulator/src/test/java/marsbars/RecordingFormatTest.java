@@ -0,0 +1,169 @@
+/***
+
+Tests that tick records written in the binary save file format read back the same. Most records only hold the
+columns that changed since the record before them, and every KEY_INTERVAL records a key record holds every column,
+so records are checked on both sides of the key records.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of RecordingFormat.encode and RecordingFormat.decode.
+*/
+public class RecordingFormatTest {
+
+	/***
+	Random records read back in order hold every column as of their tick, across several key records
+	*/
+	@Test
+	public void recordsRoundTripAcrossKeyRecords() {
+		Random random = new Random(233);
+		int count = 5 * RecordingFormat.KEY_INTERVAL + 17;
+		ByteBuffer buffer = ByteBuffer.allocate(count * RecordingFormat.MAX_RECORD_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		TickRecord state = new TickRecord();
+		TickRecord previous = new TickRecord();
+		TickRecord[] written = new TickRecord[count];
+		int[] positions = new int[count];
+		for (int i = 0; i < count; i++) {
+			change(random, state, i * 250L + random.nextInt(250));
+			positions[i] = buffer.position();
+			RecordingFormat.encode(state, previous, i % RecordingFormat.KEY_INTERVAL == 0, buffer);
+			assertEquals(buffer.position() - positions[i], RecordingFormat.length(buffer, positions[i]), "Record " + i);
+			assertEquals(state.getTick(), RecordingFormat.tick(buffer, positions[i]), "Record " + i);
+			written[i] = copy(state);
+		}
+
+		buffer.flip();
+		TickRecord read = new TickRecord();
+		for (int i = 0; i < count; i++) {
+			assertEquals(positions[i], buffer.position(), "Record " + i);
+			RecordingFormat.decode(buffer, read);
+			assertRecordEquals(written[i], read, "Record " + i);
+		}
+		assertFalse(buffer.hasRemaining());
+	}
+
+	/***
+	A key record read on its own, into an empty record, holds every column, and the records after it read on from it
+	*/
+	@Test
+	public void keyRecordsReadWithoutTheRecordsBefore() {
+		Random random = new Random(233);
+		int count = 3 * RecordingFormat.KEY_INTERVAL;
+		ByteBuffer buffer = ByteBuffer.allocate(count * RecordingFormat.MAX_RECORD_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		TickRecord state = new TickRecord();
+		TickRecord previous = new TickRecord();
+		TickRecord[] written = new TickRecord[count];
+		int[] positions = new int[count];
+		for (int i = 0; i < count; i++) {
+			change(random, state, i * 1000L);
+			positions[i] = buffer.position();
+			RecordingFormat.encode(state, previous, i % RecordingFormat.KEY_INTERVAL == 0, buffer);
+			written[i] = copy(state);
+		}
+
+		for (int key = 0; key < count; key += RecordingFormat.KEY_INTERVAL) {
+			assertTrue((buffer.get(positions[key] + 9) & RecordingFormat.KEY) != 0, "Record " + key + " is not a key record");
+			ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			view.position(positions[key]);
+			TickRecord read = new TickRecord();
+			for (int i = key; i < key + RecordingFormat.KEY_INTERVAL; i++) {
+				RecordingFormat.decode(view, read);
+				assertRecordEquals(written[i], read, "Record " + i + " read from key record " + key);
+			}
+		}
+	}
+
+	/***
+	A record of one subsystem whose reading alone moved only holds that reading, and a record of a subsystem
+	that did not change at all only holds its empty column mask
+	*/
+	@Test
+	public void recordsOnlyHoldChangedColumns() {
+		TickRecord state = new TickRecord();
+		TickRecord previous = new TickRecord();
+		ByteBuffer buffer = ByteBuffer.allocate(4 * RecordingFormat.MAX_RECORD_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+		state.setPhases(0xF);
+		RecordingFormat.encode(state, previous, true, buffer);
+		assertEquals(RecordingFormat.MAX_RECORD_LENGTH, buffer.position());
+
+		int start = buffer.position();
+		state.setTick(1000);
+		state.setPhases(1 << RecordingFormat.TEMPERATURE);
+		state.set(RecordingFormat.OFFSETS[RecordingFormat.TEMPERATURE], 21.5);
+		RecordingFormat.encode(state, previous, false, buffer);
+		assertEquals(19, buffer.position() - start);
+
+		start = buffer.position();
+		state.setTick(2000);
+		RecordingFormat.encode(state, previous, false, buffer);
+		assertEquals(11, buffer.position() - start);
+	}
+
+	/***
+	Changes the columns of random subsystems to random values that fit their column types, and marks those
+	subsystems as updated on the tick. Some updated columns keep their value so not every column is written.
+	@param random The random numbers
+	@param state The columns as of the last tick, changed in place
+	@param tick The tick of the new record
+	*/
+	private static void change(Random random, TickRecord state, long tick) {
+		int phases = 1 + random.nextInt(15);
+		state.setTick(tick);
+		state.setPhases(phases);
+		for (int s = 0; s < RecordingFormat.TYPES.length; s++) {
+			if ((phases & (1 << s)) == 0) {
+				continue;
+			}
+			for (int c = 0; c < RecordingFormat.TYPES[s].length; c++) {
+				if (random.nextInt(3) != 0) {
+					continue;
+				}
+				switch (RecordingFormat.TYPES[s][c]) {
+					case RecordingFormat.DOUBLE: 	state.set(RecordingFormat.OFFSETS[s] + c, random.nextGaussian() * 100); break;
+					case RecordingFormat.INT: 		state.set(RecordingFormat.OFFSETS[s] + c, random.nextInt(200000) - 100000); break;
+					default: 						state.set(RecordingFormat.OFFSETS[s] + c, random.nextInt(2)); break;
+				}
+			}
+		}
+	}
+
+	/***
+	Copies a record
+	@param record The record to copy
+	@return The copy
+	*/
+	private static TickRecord copy(TickRecord record) {
+		TickRecord copy = new TickRecord();
+		copy.copyFrom(record);
+		return copy;
+	}
+
+	/***
+	Checks two records have the same tick, phases, and bits in every column
+	@param expected The record written
+	@param actual The record read
+	@param message Which record is checked
+	*/
+	static void assertRecordEquals(TickRecord expected, TickRecord actual, String message) {
+		assertEquals(expected.getTick(), actual.getTick(), message);
+		assertEquals(expected.getPhases(), actual.getPhases(), message);
+		for (int c = 0; c < RecordingFormat.COLUMN_COUNT; c++) {
+			assertEquals(Double.doubleToLongBits(expected.get(c)), Double.doubleToLongBits(actual.get(c)), message + " column " + c);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/***
+
+Tests that a binary save file read back out of order, or searched for a tick, gives the records that were written.
+A file closed normally is read through the index of key records at its end, and a file cut short before it was
+closed is read by going through its records once, so both kinds of file are checked.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.*;
+import org.junit.jupiter.api.io.*;
+
+/***
+Tests of RecordingReader.read and RecordingReader.indexOfTick.
+*/
+public class RecordingReaderTest {
+
+	private static final int COUNT = 20 * RecordingFormat.KEY_INTERVAL + 100;
+
+	@TempDir
+	File folder;
+
+	/***
+	Records of a file with an index read back the same in any order, and each tick is found
+	@throws IOException Throws an error if the file cannot be written or read
+	*/
+	@Test
+	public void indexedFileSeeksToEveryTick() throws IOException {
+		File file = new File(this.folder, "indexed" + RecordingFormat.EXTENSION);
+		TickRecord[] written = write(file, COUNT);
+		assertSeeks(file, written, COUNT);
+	}
+
+	/***
+	A file that lost part of its index is read the same as one with the whole index
+	@throws IOException Throws an error if the file cannot be written or read
+	*/
+	@Test
+	public void fileWithoutIndexSeeksToEveryTick() throws IOException {
+		File file = new File(this.folder, "noindex" + RecordingFormat.EXTENSION);
+		TickRecord[] written = write(file, COUNT);
+		truncate(file, file.length() - 1);
+		assertSeeks(file, written, COUNT);
+		truncate(file, file.length() - RecordingFormat.FOOTER_LENGTH - 8);
+		assertSeeks(file, written, COUNT);
+	}
+
+	/***
+	A file cut off in the middle of its records gives every record written out whole before the cut
+	@throws IOException Throws an error if the file cannot be written or read
+	*/
+	@Test
+	public void fileCutShortReadsItsWholeRecords() throws IOException {
+		File file = new File(this.folder, "cut" + RecordingFormat.EXTENSION);
+		TickRecord[] written = write(file, COUNT);
+		truncate(file, file.length() / 2 + 3);
+		RecordingReader reader = new RecordingReader(file);
+		long count = reader.getRecordCount();
+		reader.close();
+		assertTrue(count > 0 && count < COUNT, "Read " + count + " records");
+		assertSeeks(file, written, (int)count);
+	}
+
+	/***
+	An empty recording has no records, and every tick is past its end
+	@throws IOException Throws an error if the file cannot be written or read
+	*/
+	@Test
+	public void emptyFileHasNoRecords() throws IOException {
+		File file = new File(this.folder, "empty" + RecordingFormat.EXTENSION);
+		write(file, 0);
+		RecordingReader reader = new RecordingReader(file);
+		try {
+			assertEquals(0, reader.getRecordCount());
+			assertEquals(0, reader.indexOfTick(1000, new TickRecord()));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/***
+	Writes random records to a save file the way the scheduler does: every record holds every column as of its tick
+	@param file The save file
+	@param count Number of records
+	@return The records written
+	@throws IOException Throws an error if the file cannot be written
+	*/
+	private static TickRecord[] write(File file, int count) throws IOException {
+		Random random = new Random(233);
+		TickRecord state = new TickRecord();
+		TickRecord[] written = new TickRecord[count];
+		BinaryRecordSink sink = new BinaryRecordSink(file);
+		try {
+			for (int i = 0; i < count; i++) {
+				int phases = 1 + random.nextInt(15);
+				state.setTick(i * 1000L + random.nextInt(1000));
+				state.setPhases(phases);
+				for (int s = 0; s < RecordingFormat.TYPES.length; s++) {
+					if ((phases & (1 << s)) != 0 && random.nextBoolean()) {
+						state.set(RecordingFormat.OFFSETS[s], random.nextInt(100));
+					}
+				}
+				sink.write(state);
+				written[i] = new TickRecord();
+				written[i].copyFrom(state);
+			}
+		} finally {
+			sink.close();
+		}
+		return written;
+	}
+
+	/***
+	Reads random records of a file, out of order and in runs, and looks up random ticks, checking each against
+	the records written
+	@param file The save file
+	@param written The records written
+	@param count Number of records the file should hold
+	@throws IOException Throws an error if the file cannot be read
+	*/
+	private static void assertSeeks(File file, TickRecord[] written, int count) throws IOException {
+		Random random = new Random(233);
+		TickRecord read = new TickRecord();
+		RecordingReader reader = new RecordingReader(file);
+		try {
+			assertEquals(count, reader.getRecordCount());
+			for (int k = 0; k < 2000; k++) {
+				int index = random.nextInt(count);
+				int run = 1 + random.nextInt(5);
+				for (int i = index; i < Math.min(count, index + run); i++) {
+					reader.read(i, read);
+					RecordingFormatTest.assertRecordEquals(written[i], read, "Record " + i);
+				}
+
+				// A tick between two records is found as the record after it
+				long tick = written[index].getTick() - random.nextInt(1000);
+				if (index > 0 && tick <= written[index - 1].getTick()) {
+					tick = written[index - 1].getTick() + 1;
+				}
+				assertEquals(index, reader.indexOfTick(tick, read), "Tick " + tick);
+			}
+			assertEquals(0, reader.indexOfTick(Long.MIN_VALUE, read));
+			assertEquals(count, reader.indexOfTick(written[count - 1].getTick() + 1, read));
+			assertThrows(IndexOutOfBoundsException.class, new Executable() {
+				public void execute() {
+					reader.read(count, read);
+				}
+			});
+		} finally {
+			reader.close();
+		}
+	}
+
+	/***
+	Cuts a file down to a length
+	@param file The file
+	@param length Its new length in bytes
+	@throws IOException Throws an error if the file cannot be cut
+	*/
+	private static void truncate(File file, long length) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.truncate(length);
+		}
+	}
+
+}
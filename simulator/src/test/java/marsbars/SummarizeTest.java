@@ -0,0 +1,180 @@
+/***
+
+Tests that summarizing a run, which multiplies out any repeating pattern instead of running it, gives the same
+totals and ends in the same state as running and counting every tick.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of SimulationEngine.summarize.
+*/
+public class SummarizeTest {
+
+	/***
+	The default scenario settles into a cycle, which is multiplied out to the same totals as the full run
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	@Test
+	public void defaultScenarioMatchesFullRun() throws Exception {
+		SimulationSummary summary = assertSummaryMatchesFullRun(new SimulationConfig(), 200000);
+		assertTrue(summary.getPeriod() > 0, "No cycle found");
+		assertTrue(summary.getSimulatedTicks() < summary.getTicks(), "Every tick was run");
+	}
+
+	/***
+	Random scenarios give the same totals as the full run, whether or not a cycle is found before the end
+	@throws Exception Throws an error if a scenario is rejected
+	*/
+	@Test
+	public void randomScenariosMatchFullRun() throws Exception {
+		Random random = new Random(233);
+		for (int i = 0; i < 300; i++) {
+			SimulationConfig config = new SimulationConfig();
+			config.set("startTemp", random.nextInt(80) - 20);
+			config.set("startHumid", random.nextInt(101));
+			config.set("startMoist", random.nextInt(101));
+			config.set("extTempRate", (random.nextInt(33) - 16) / 8.0);
+			config.set("extHumidRate", (random.nextInt(33) - 16) / 8.0);
+			config.set("extMoistRate", (random.nextInt(33) - 16) / 8.0);
+			double tempLower = random.nextInt(60) - 10;
+			config.set("tempLower", tempLower);
+			config.set("tempUpper", tempLower + random.nextInt(15));
+			config.set("heatRate", 0.5 + random.nextInt(8) / 2.0);
+			config.set("coolRate", 0.5 + random.nextInt(8) / 2.0);
+			double humidLower = random.nextInt(80);
+			config.set("humidLower", humidLower);
+			config.set("humidUpper", humidLower + random.nextInt(20));
+			config.set("humidRate", 0.5 + random.nextInt(8) / 2.0);
+			double moistLower = random.nextInt(80);
+			config.set("moistLower", moistLower);
+			config.set("moistUpper", moistLower + random.nextInt(20));
+			config.set("moistRate", 0.5 + random.nextInt(8) / 2.0);
+			assertSummaryMatchesFullRun(config, 1 + random.nextInt(30000));
+		}
+	}
+
+	/***
+	Readings held at a physical limit repeat from the first tick, and are counted the same as the full run
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	@Test
+	public void clampedReadingsMatchFullRun() throws Exception {
+		SimulationConfig config = new SimulationConfig();
+		config.set("extTempRate", -3.5);
+		config.set("extHumidRate", 6.25);
+		config.set("extMoistRate", -9.5);
+		assertSummaryMatchesFullRun(config, 50000);
+	}
+
+	/***
+	Runs of a few ticks end before any cycle can be counted and still match
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	@Test
+	public void shortRunsMatchFullRun() throws Exception {
+		for (long ticks = 0; ticks < 8; ticks++) {
+			assertSummaryMatchesFullRun(new SimulationConfig(), ticks);
+		}
+	}
+
+	/***
+	Summarizes a scenario, then runs it tick by tick counting the same totals, and checks they agree
+	@param config The scenario
+	@param ticks Number of ticks to run
+	@return The summary
+	@throws Exception Throws an error if the scenario is rejected
+	*/
+	private static SimulationSummary assertSummaryMatchesFullRun(SimulationConfig config, long ticks) throws Exception {
+		SimulationEngine summarized = SimulationEngine.create(config);
+		SimulationSummary summary = summarized.summarize(ticks);
+
+		SimulationEngine full = SimulationEngine.create(config);
+		long[] onTicks = new long[4];
+		long[] switches = new long[4];
+		long[] inRangeTicks = new long[3];
+		boolean[] before = devices(full);
+		for (long i = 0; i < ticks; i++) {
+			full.run(1);
+			boolean[] after = devices(full);
+			for (int d = 0; d < after.length; d++) {
+				if (after[d]) {
+					onTicks[d]++;
+				}
+				if (after[d] != before[d]) {
+					switches[d]++;
+				}
+			}
+			boolean[] inRange = ranges(full);
+			for (int r = 0; r < inRange.length; r++) {
+				if (inRange[r]) {
+					inRangeTicks[r]++;
+				}
+			}
+			before = after;
+		}
+
+		String message = config + " for " + ticks + " ticks";
+		assertEquals(ticks, summary.getTicks(), message);
+		for (int d = 0; d < onTicks.length; d++) {
+			assertEquals(onTicks[d], summary.getOnTicks(d), message);
+			assertEquals((ticks == 0) ? 0 : (double)onTicks[d] / ticks, summary.getDutyCycle(d), message);
+			assertEquals(switches[d], summary.getSwitches(d), message);
+		}
+		for (int r = 0; r < inRangeTicks.length; r++) {
+			assertEquals((ticks == 0) ? 0 : (double)inRangeTicks[r] / ticks, summary.getTimeInRange(r), message);
+		}
+
+		// Skipping whole cycles lands on the same state the full run ends on
+		assertEquals(full.getTickCount(), summarized.getTickCount(), message);
+		assertEquals(full.toString(), summarized.toString(), message);
+		assertArrayEquals(devices(full), devices(summarized), message);
+		assertEquals(Double.doubleToLongBits(full.getTemperatureModel().getCurrentTemp()), Double.doubleToLongBits(summarized.getTemperatureModel().getCurrentTemp()), message);
+		assertEquals(Double.doubleToLongBits(full.getHumidityModel().getCurrentHumidity()), Double.doubleToLongBits(summarized.getHumidityModel().getCurrentHumidity()), message);
+		assertEquals(Double.doubleToLongBits(full.getMoistureModel().getCurrentMoisture()), Double.doubleToLongBits(summarized.getMoistureModel().getCurrentMoisture()), message);
+		return summary;
+	}
+
+	/***
+	Reads which devices are on
+	@param engine The simulation
+	@return Whether each device is on, indexed by SimulationSummary's devices
+	*/
+	private static boolean[] devices(SimulationEngine engine) {
+		TemperatureModel.State temp = engine.getTemperatureModel().getState();
+		return new boolean[] {
+			temp.getFurnace() == 1,
+			temp.getAirCon() == 1,
+			engine.getHumidityModel().getState().getHumidifier() == 1,
+			engine.getMoistureModel().getState().getSprinkler() == 1
+		};
+	}
+
+	/***
+	Reads which readings are inside their desired range
+	@param engine The simulation
+	@return Whether each reading is in range, indexed by SimulationSummary's readings
+	*/
+	private static boolean[] ranges(SimulationEngine engine) {
+		TemperatureModel.State temp = engine.getTemperatureModel().getState();
+		HumidityModel.State humid = engine.getHumidityModel().getState();
+		MoistureModel.State moist = engine.getMoistureModel().getState();
+		return new boolean[] {
+			temp.getCurrentTemp() >= temp.getTemperatureLower() && temp.getCurrentTemp() <= temp.getTemperatureUpper(),
+			humid.getCurrentHumidity() >= humid.getHumidityLower() && humid.getCurrentHumidity() <= humid.getHumidityUpper(),
+			moist.getCurrentMoisture() >= moist.getMoistureLower() && moist.getCurrentMoisture() <= moist.getMoistureUpper()
+		};
+	}
+
+}
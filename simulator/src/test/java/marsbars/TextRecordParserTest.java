@@ -0,0 +1,255 @@
+/***
+
+Tests that the text record parser reads every number bit for bit the same as Double.parseDouble, and that the errors
+for corrupted files point at the byte where the bad data starts.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.*;
+
+/***
+Tests of TextRecordParser.
+*/
+public class TextRecordParserTest {
+
+	/***
+	Numbers the fast path has to get right or hand over to Double.parseDouble: rounding at every power of ten it
+	handles, the edges of what it handles exactly, and the forms only Double.parseDouble understands
+	*/
+	private static final String[] EDGE_CASES = {
+		"0", "0.0", "-0.0", "+0.0", "1", "-1", "+3", ".5", "5.", "0.1", "0.2", "0.3", "0.30000000000000004",
+		"34.0", "66.0", "-0.37", "44.00000000051159", "35.999999999829534", "1.0E-4", "1.0e-4", "2.5E+3", "1E22",
+		"1E23", "1e-22", "1e-23", "9007199254740992", "9007199254740993", "9007199254740994", "9007199254740995",
+		"18014398509481985", "123456789012345678901234567890", "0.000000000000000000000000000001",
+		"4.9E-324", "2.2250738585072014E-308", "1.7976931348623157E308", "1E400", "1E-400", "1.00000000000000000000001",
+		"3.0000000000000000000000000000000000000000000000000000000000001", "NaN", "Infinity", "-Infinity", " 7", "8 ",
+		"1d", "2f", "0x1p3"
+	};
+
+	/***
+	Every edge case parses to the same bits as Double.parseDouble, in every column that holds a plain number
+	@throws IOException Throws an error if a line cannot be parsed
+	*/
+	@Test
+	public void edgeCasesMatchParseDouble() throws IOException {
+		for (String number : EDGE_CASES) {
+			assertParsesLikeParseDouble(number);
+		}
+	}
+
+	/***
+	Random doubles written the ways the simulation and people write them parse to the same bits as Double.parseDouble
+	@throws IOException Throws an error if a line cannot be parsed
+	*/
+	@Test
+	public void randomNumbersMatchParseDouble() throws IOException {
+		Random random = new Random(233);
+		List<String> numbers = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			switch (i % 5) {
+				case 0:
+					// Any bits at all, as Double.toString writes them
+					numbers.add(Double.toString(Double.longBitsToDouble(random.nextLong())));
+					break;
+				case 1:
+					// Readings and rates of the simulation
+					numbers.add(Double.toString((random.nextDouble() - 0.5) * 200));
+					break;
+				case 2:
+					// A fixed number of decimals, as typed into the panels
+					numbers.add(String.format(Locale.ROOT, "%." + random.nextInt(8) + "f", (random.nextDouble() - 0.5) * 1000));
+					break;
+				case 3:
+					// Up to 20 digits with the point anywhere
+					numbers.add(randomDigits(random));
+					break;
+				default:
+					// Scientific notation around the powers of ten the fast path stops at
+					numbers.add(random.nextInt(10000) + "E" + (random.nextInt(60) - 30));
+					break;
+			}
+		}
+		for (String number : numbers) {
+			assertParsesLikeParseDouble(number);
+		}
+	}
+
+	/***
+	Every line of the repository's sample save file parses to the same values as splitting it and calling
+	Double.parseDouble on each column
+	@throws IOException Throws an error if the file cannot be read
+	*/
+	@Test
+	public void sampleFileMatchesSplitAndParse() throws IOException {
+		File sample = new File("../simulationdata");
+		Assumptions.assumeTrue(sample.exists(), "Sample save file not found");
+
+		BufferedReader lines = new BufferedReader(new FileReader(sample));
+		TextRecordParser parser = new TextRecordParser(sample);
+		TickRecord record = new TickRecord();
+		try {
+			String line;
+			while ((line = lines.readLine()) != null) {
+				String[] columns = line.split(",");
+				int subsystem = parser.next(record);
+				assertEquals(columns[0].charAt(0), RecordingFormat.PREFIXES[subsystem], line);
+				int count = RecordingFormat.COLUMNS[subsystem].length;
+				for (int c = 0; c < count - 1; c++) {
+					assertEquals(Double.parseDouble(columns[c + 1]), record.get(subsystem, c), line);
+				}
+				assertEquals(1000 * Double.parseDouble(columns[count]), record.get(subsystem, count - 1), line);
+			}
+			assertEquals(-1, parser.next(record));
+		} finally {
+			lines.close();
+			parser.close();
+		}
+	}
+
+	/***
+	A field that is not a number is reported at its first byte
+	*/
+	@Test
+	public void badNumberReportsItsFirstByte() {
+		String good = "T,34.0,50,44,3.0,2.0,0,0,2\n";
+		String bad = "H,66.0,5x0,33,5.0,0,2\n";
+		assertCorruptedAt(good + bad, good.length() + bad.indexOf("5x0"));
+	}
+
+	/***
+	A prefix that is not followed by a comma is reported at the prefix
+	*/
+	@Test
+	public void missingCommaReportsThePrefix() {
+		String good = "E,34.0,66.0,23.0,0.0,0.0,0.0,2\n";
+		assertCorruptedAt(good + "M;23.0,50,34,8.0,0,2\n", good.length());
+	}
+
+	/***
+	A line that ends before its last column is reported at the end of the line
+	*/
+	@Test
+	public void shortLineReportsItsEnd() {
+		String line = "M,23.0,50,34\n";
+		assertCorruptedAt(line, line.length() - 1);
+	}
+
+	/***
+	A field too long to be a number is reported at its first byte
+	*/
+	@Test
+	public void longFieldReportsItsFirstByte() {
+		char[] digits = new char[100];
+		Arrays.fill(digits, '1');
+		String line = "H,66.0," + new String(digits) + ",33,5.0,0,2\n";
+		assertCorruptedAt(line, line.indexOf('1', 7));
+	}
+
+	/***
+	An empty field is reported at the byte after the comma before it
+	*/
+	@Test
+	public void emptyFieldReportsWhereItStarts() {
+		String line = "T,34.0,,44,3.0,2.0,0,0,2\n";
+		assertCorruptedAt(line, line.indexOf(",,") + 1);
+	}
+
+	/***
+	Lines that are not records are skipped, and a line without a new line at the end of the file is still read
+	@throws IOException Throws an error if a line cannot be parsed
+	*/
+	@Test
+	public void skipsOtherLinesAndReadsTheLastLine() throws IOException {
+		TextRecordParser parser = parser("# a comment\r\n\nT,34.0,50,44,3.0,2.0,1,0,0.5");
+		TickRecord record = new TickRecord();
+		assertEquals(RecordingFormat.TEMPERATURE, parser.next(record));
+		assertEquals(3, record.getTick());
+		assertEquals(500, record.get(RecordingFormat.TEMPERATURE, 7));
+		assertEquals(-1, parser.next(record));
+	}
+
+	/***
+	Parses a number in every plain column of a line of each subsystem and checks it against Double.parseDouble
+	@param number The number as written in the file
+	@throws IOException Throws an error if the line cannot be parsed
+	*/
+	private static void assertParsesLikeParseDouble(String number) throws IOException {
+		double expected = Double.parseDouble(number);
+		for (int s = 0; s < RecordingFormat.PREFIXES.length; s++) {
+			int count = RecordingFormat.COLUMNS[s].length;
+			StringBuilder line = new StringBuilder().append(RecordingFormat.PREFIXES[s]);
+			for (int c = 0; c < count; c++) {
+				line.append(',').append(number);
+			}
+			TickRecord record = new TickRecord();
+			assertEquals(s, parser(line.append('\n').toString()).next(record), number);
+			for (int c = 0; c < count - 1; c++) {
+				assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(record.get(s, c)), number);
+			}
+			assertEquals((double)Math.round(1000 * expected), record.get(s, count - 1), number);
+		}
+	}
+
+	/***
+	Checks that parsing a file fails with the error for incorrect data at a byte
+	@param text The file
+	@param at Position of the first byte of the bad data
+	*/
+	private static void assertCorruptedAt(String text, long at) {
+		final TextRecordParser parser = parser(text);
+		final TickRecord record = new TickRecord();
+		IOException error = assertThrows(IOException.class, new Executable() {
+			public void execute() throws Throwable {
+				while (parser.next(record) >= 0) {
+
+				}
+			}
+		});
+		assertEquals("Incorrect Data at byte " + at + ". File might be corrupted.", error.getMessage());
+	}
+
+	/***
+	Creates a parser that reads a file held in memory
+	@param text The file
+	@return The parser
+	*/
+	private static TextRecordParser parser(String text) {
+		return new TextRecordParser(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	/***
+	Writes up to 20 random digits with a decimal point at a random place, or none
+	@param random The random numbers
+	@return The number
+	*/
+	private static String randomDigits(Random random) {
+		StringBuilder number = new StringBuilder();
+		if (random.nextBoolean()) {
+			number.append('-');
+		}
+		int length = 1 + random.nextInt(20);
+		int point = random.nextInt(length + 2);
+		for (int i = 0; i < length; i++) {
+			if (i == point) {
+				number.append('.');
+			}
+			number.append((char)('0' + random.nextInt(10)));
+		}
+		return number.toString();
+	}
+
+}
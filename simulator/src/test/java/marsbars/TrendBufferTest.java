@@ -0,0 +1,156 @@
+/***
+
+Tests that a trend buffer keeps every sample at its own index while its arrays grow, keeps only the newest
+samples once it is full, and starts a new trend when time goes backwards.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of TrendBuffer.
+*/
+public class TrendBufferTest {
+
+	/***
+	The capacity is rounded up to the next power of two, and is at least 2
+	*/
+	@Test
+	public void capacityRoundsUpToPowerOfTwo() {
+		for (int capacity = 1; capacity <= 5000; capacity++) {
+			int size = 2;
+			while (size < capacity) {
+				size *= 2;
+			}
+			assertEquals(size, new TrendBuffer(capacity).getCapacity(), "Capacity " + capacity);
+		}
+	}
+
+	/***
+	Samples added while the arrays grow are all kept at their own index, and none is dropped before the capacity
+	*/
+	@Test
+	public void growingBufferKeepsEverySample() {
+		TrendBuffer buffer = new TrendBuffer(1 << 14);
+		for (int n = 0; n < buffer.getCapacity(); n++) {
+			buffer.add(n * 10L, value(n));
+			long end = buffer.getWritten();
+			assertEquals(n + 1, end);
+			assertEquals(0, buffer.getOldest(end));
+
+			// Samples on both sides of each point the arrays grew at
+			if (Integer.bitCount(n + 1) == 1 || n % 1001 == 0) {
+				for (long i = 0; i < end; i++) {
+					assertEquals(i * 10, buffer.getTime(i), "Sample " + i + " of " + end);
+					assertEquals(value(i), buffer.getValue(i), "Sample " + i + " of " + end);
+				}
+			}
+		}
+	}
+
+	/***
+	A full buffer writes over its oldest samples and keeps exactly the newest capacity of them
+	*/
+	@Test
+	public void fullBufferKeepsNewestSamples() {
+		TrendBuffer buffer = new TrendBuffer(TrendBuffer.INITIAL_SIZE * 4);
+		int capacity = buffer.getCapacity();
+		for (int n = 0; n < 5 * capacity + 123; n++) {
+			buffer.add(n, value(n));
+			long end = buffer.getWritten();
+			long oldest = buffer.getOldest(end);
+			assertEquals(Math.max(0, end - capacity), oldest);
+			if (n % 997 == 0) {
+				for (long i = oldest; i < end; i++) {
+					assertEquals(i, buffer.getTime(i), "Sample " + i + " of " + end);
+					assertEquals(value(i), buffer.getValue(i), "Sample " + i + " of " + end);
+				}
+			}
+		}
+	}
+
+	/***
+	A sample taken before the previous one starts a new trend, so the samples before it are no longer kept
+	*/
+	@Test
+	public void earlierTimeStartsNewTrend() {
+		TrendBuffer buffer = new TrendBuffer(1024);
+		for (int n = 0; n < 100; n++) {
+			buffer.add(1000 + n, value(n));
+		}
+		assertEquals(0, buffer.getStart());
+
+		// The same time again continues the trend
+		buffer.add(1099, 0);
+		assertEquals(0, buffer.getStart());
+
+		buffer.add(500, 0);
+		assertEquals(101, buffer.getStart());
+		assertEquals(101, buffer.getOldest(buffer.getWritten()));
+
+		// Once the new trend fills the buffer, the oldest kept sample moves on from the start
+		for (int n = 0; n < 2000; n++) {
+			buffer.add(501 + n, value(n));
+		}
+		long end = buffer.getWritten();
+		assertEquals(101, buffer.getStart());
+		assertEquals(end - 1024, buffer.getOldest(end));
+	}
+
+	/***
+	A reader on another thread finds the right sample at every index below the one published, while the writer
+	grows the arrays under it
+	@throws Exception Throws an error if the reader thread is interrupted
+	*/
+	@Test
+	public void readerSeesEveryPublishedSampleWhileGrowing() throws Exception {
+		TrendBuffer buffer = new TrendBuffer(1 << 20);
+		AtomicReference<String> error = new AtomicReference<String>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				Random random = new Random(233);
+				while (running.get() && error.get() == null) {
+					long end = buffer.getWritten();
+					if (end == 0) {
+						continue;
+					}
+					long i = end - 1 - random.nextInt((int)Math.min(end, 4096));
+					long time = buffer.getTime(i);
+					double value = buffer.getValue(i);
+					if (time != i || value != value(i)) {
+						error.set("Sample " + i + " of " + end + " read as " + time + ", " + value);
+					}
+				}
+			}
+		});
+		reader.start();
+		for (int n = 0; n < buffer.getCapacity(); n++) {
+			buffer.add(n, value(n));
+		}
+		running.set(false);
+		reader.join();
+		assertNull(error.get());
+	}
+
+	/***
+	Works out the value a test stores at an index
+	@param index Index of the sample
+	@return The value
+	*/
+	private static double value(long index) {
+		return Math.sin(index * 0.01) * 40 + index % 7;
+	}
+
+}
@@ -0,0 +1,201 @@
+/***
+
+Tests the samples a trend chart picks to draw. Up to one sample per pixel every sample is drawn. Past that the
+samples are split into buckets a power of two samples wide, and from each bucket the sample that makes the largest
+triangle with the sample picked before it and the average of the next bucket is drawn, so peaks and dips survive.
+
+@author Saurabh Tomar
+
+Written for CPSC 233
+
+*/
+
+package marsbars;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/***
+Tests of the Largest Triangle Three Buckets thinning in TrendChart.
+*/
+public class TrendChartTest {
+
+	/***
+	A trend with no more samples than the chart has pixels is drawn through every sample
+	*/
+	@Test
+	public void shortTrendDrawsEverySample() {
+		TrendBuffer buffer = new TrendBuffer(1024);
+		TrendChart chart = new TrendChart(buffer);
+		assertEquals(0, chart.sample(200));
+		for (int n = 0; n < 200; n++) {
+			buffer.add(n, n % 13);
+			int count = chart.sample(200);
+			assertEquals(n + 1, count);
+			for (int i = 0; i < count; i++) {
+				assertEquals(i, chart.getPoint(i));
+			}
+		}
+	}
+
+	/***
+	Random trends of every length pick the same samples as the three bucket method worked out sample by sample
+	*/
+	@Test
+	public void picksLargestTriangleInEachBucket() {
+		Random random = new Random(233);
+		for (int trial = 0; trial < 200; trial++) {
+			int width = 20 + random.nextInt(300);
+			int size = 1 + random.nextInt(50 * width);
+			TrendBuffer buffer = new TrendBuffer(1 << 16);
+			double value = 0;
+			long time = 0;
+			for (int n = 0; n < size; n++) {
+				value += random.nextGaussian();
+				time += 1 + random.nextInt(3);
+				buffer.add(time, value);
+			}
+			TrendChart chart = new TrendChart(buffer);
+			assertPoints(expected(buffer, width), chart, chart.sample(width), width + " pixels, " + size + " samples");
+		}
+	}
+
+	/***
+	A chart drawn frame by frame while samples come in picks the same samples as a chart drawn once at the end
+	*/
+	@Test
+	public void drawingEachFramePicksSameSamples() {
+		Random random = new Random(233);
+		TrendBuffer buffer = new TrendBuffer(1 << 16);
+		TrendChart live = new TrendChart(buffer);
+		double value = 0;
+		for (int n = 0; n < 60000; n++) {
+			value += random.nextGaussian();
+			buffer.add(n, value);
+			if (random.nextInt(50) == 0) {
+				live.sample(240);
+				TrendChart fresh = new TrendChart(buffer);
+				int count = fresh.sample(240);
+				long[] expected = new long[count];
+				for (int i = 0; i < count; i++) {
+					expected[i] = fresh.getPoint(i);
+				}
+				assertPoints(expected, live, live.sample(240), (n + 1) + " samples");
+			}
+		}
+	}
+
+	/***
+	A single spike or dip in a long flat trend is always drawn, wherever it falls
+	*/
+	@Test
+	public void spikesSurvive() {
+		Random random = new Random(233);
+		for (int trial = 0; trial < 50; trial++) {
+			TrendBuffer buffer = new TrendBuffer(1 << 18);
+			int size = 1000 + random.nextInt(200000);
+			int spike = random.nextInt(size);
+			double height = random.nextBoolean() ? 100 : -100;
+			for (int n = 0; n < size; n++) {
+				buffer.add(n, (n == spike) ? height : 20);
+			}
+			TrendChart chart = new TrendChart(buffer);
+			int count = chart.sample(300);
+			assertTrue(count <= 300 + 6, count + " samples drawn");
+			boolean found = false;
+			for (int i = 0; i < count; i++) {
+				found |= chart.getPoint(i) == spike;
+			}
+			assertTrue(found, "Spike at " + spike + " of " + size + " is not drawn");
+		}
+	}
+
+	/***
+	Works out the samples to draw the slow way: the oldest sample, then the sample from each bucket with the largest
+	triangle, then the sample with the largest triangle between the last bucket and the newest sample, then the
+	newest sample. Buckets are the smallest power of two samples wide that fits the samples in the width.
+	@param buffer The samples, which must not have been written over
+	@param width Width of the chart in pixels
+	@return Indexes of the samples to draw
+	*/
+	private static long[] expected(TrendBuffer buffer, int width) {
+		long end = buffer.getWritten();
+		long bucket = 1;
+		while (bucket * width < end) {
+			bucket *= 2;
+		}
+		List<Long> points = new ArrayList<Long>();
+		points.add(0L);
+		long k = 1;
+		for (; (k + 2) * bucket <= end; k++) {
+			double avgTime = 0;
+			double avgValue = 0;
+			for (long i = (k + 1) * bucket; i < (k + 2) * bucket; i++) {
+				avgTime += buffer.getTime(i);
+				avgValue += buffer.getValue(i);
+			}
+			long pick = largest(buffer, points.get(points.size() - 1), k * bucket, (k + 1) * bucket, avgTime / bucket, avgValue / bucket);
+			if (pick > points.get(points.size() - 1)) {
+				points.add(pick);
+			}
+		}
+		long last = end - 1;
+		long from = Math.max(k * bucket, points.get(points.size() - 1) + 1);
+		if (from < last) {
+			points.add(largest(buffer, points.get(points.size() - 1), from, last, buffer.getTime(last), buffer.getValue(last)));
+		}
+		if (last > points.get(points.size() - 1)) {
+			points.add(last);
+		}
+		long[] result = new long[points.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = points.get(i);
+		}
+		return result;
+	}
+
+	/***
+	Finds the first sample in a range with the largest triangle made with a picked sample and a point after the range
+	@param buffer The samples
+	@param previous Index of the sample picked before
+	@param from Index of the first sample in the range
+	@param to Index after the last sample in the range
+	@param nextTime Time of the point after
+	@param nextValue Value of the point after
+	@return Index of the sample
+	*/
+	private static long largest(TrendBuffer buffer, long previous, long from, long to, double nextTime, double nextValue) {
+		double aTime = buffer.getTime(previous);
+		double aValue = buffer.getValue(previous);
+		long best = from;
+		double bestArea = -1;
+		for (long i = from; i < to; i++) {
+			// Twice the area of the triangle, from the cross product of two of its sides
+			double area = Math.abs((nextTime - aTime) * (buffer.getValue(i) - aValue) - (buffer.getTime(i) - aTime) * (nextValue - aValue));
+			if (area > bestArea) {
+				bestArea = area;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/***
+	Checks a chart picked the expected samples
+	@param expected Indexes of the samples to draw
+	@param chart The chart, after sample was called
+	@param count Number of samples the chart picked
+	@param message What was drawn
+	*/
+	private static void assertPoints(long[] expected, TrendChart chart, int count, String message) {
+		long[] actual = new long[count];
+		for (int i = 0; i < count; i++) {
+			actual[i] = chart.getPoint(i);
+		}
+		assertArrayEquals(expected, actual, message);
+	}
+
+}